@@ -0,0 +1,20 @@
+package au.com.primacycare.cms.audit;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * One row destined for the 'audits' table
+ * oldValues/newValues hold only the fields that changed (full state for create/delete)
+ */
+public record AuditEvent(
+        String entityType,
+        String entityId,
+        String action,
+        String userId,
+        LocalDateTime timestamp,
+        Map<String, Object> oldValues,
+        Map<String, Object> newValues,
+        String ipAddress,
+        String userAgent) {
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+package au.com.primacycare.cms.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Keeps the monthly audits partitions (see V006) ahead of the clock and detaches
+ * months older than the retention period.
+ *
+ * Detached partitions stay in the database as plain tables (audits_pYYYYMM) for
+ * export to cold storage; dropping them is an operational decision, not the app's.
+ *
+ * Each run holds a session advisory lock on one connection, so only one instance maintains the
+ * partitions at a time. Rows that reached audits_default for a month that has no partition yet
+ * are moved into the new partition as it is created. DETACH CONCURRENTLY is not allowed while
+ * audits has a default partition, so a detach instead waits at most detach-lock-timeout for its
+ * lock and otherwise gives way to audit writes until the next run.
+ */
+@Component
+@Slf4j
+public class AuditPartitionMaintenanceJob {
+    
+    private static final String PARTITION_PREFIX = "audits_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    
+    private static final String LIST_PARTITIONS_SQL = """
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'audits'::regclass
+        """;
+    
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(hashtext('audits_partition_maintenance'))";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(hashtext('audits_partition_maintenance'))";
+    
+    private static final String DEFAULT_ROWS_IN_RANGE_SQL = """
+        SELECT EXISTS (SELECT 1 FROM audits_default WHERE timestamp >= ? AND timestamp < ?)
+        """;
+    
+    private static final String MOVE_OUT_OF_DEFAULT_SQL = """
+        WITH moved AS (
+            DELETE FROM audits_default WHERE timestamp >= ? AND timestamp < ? RETURNING *
+        )
+        INSERT INTO audits_moving SELECT * FROM moved
+        """;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final long detachLockTimeoutMs;
+    
+    public AuditPartitionMaintenanceJob(JdbcTemplate jdbcTemplate,
+                                        @Value("${app.audit.partitions.months-ahead:3}") int monthsAhead,
+                                        @Value("${app.audit.partitions.retention-months:84}") int retentionMonths,
+                                        @Value("${app.audit.partitions.detach-lock-timeout-ms:5000}") long detachLockTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.detachLockTimeoutMs = detachLockTimeoutMs;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+    
+    /**
+     * Daily at 02:30; idempotent, so missed or repeated runs are harmless
+     */
+    @Scheduled(cron = "${app.audit.partitions.cron:0 30 2 * * *}")
+    public void maintain() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            // Every statement runs on this connection, which holds the session lock
+            JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            if (!Boolean.TRUE.equals(session.queryForObject(TRY_LOCK_SQL, Boolean.class))) {
+                log.info("Audit partition maintenance is running on another instance");
+                return null;
+            }
+            try {
+                YearMonth current = YearMonth.now();
+                for (int i = 0; i <= monthsAhead; i++) {
+                    createPartition(connection, session, current.plusMonths(i));
+                }
+                detachExpired(connection, session, current.minusMonths(retentionMonths));
+            } finally {
+                session.queryForObject(UNLOCK_SQL, Boolean.class);
+            }
+            return null;
+        });
+    }
+    
+    private void createPartition(Connection connection, JdbcTemplate session, YearMonth month) throws SQLException {
+        String partition = partitionName(month);
+        Date from = Date.valueOf(month.atDay(1));
+        Date to = Date.valueOf(month.plusMonths(1).atDay(1));
+        // Identifiers and bounds are derived from YearMonth, never from input
+        String create = "CREATE TABLE IF NOT EXISTS " + partition
+            + " PARTITION OF audits FOR VALUES FROM ('" + from + "') TO ('" + to + "')";
+        boolean exists = Boolean.TRUE.equals(
+            session.queryForObject("SELECT to_regclass('" + partition + "') IS NOT NULL", Boolean.class));
+        if (exists || !Boolean.TRUE.equals(session.queryForObject(DEFAULT_ROWS_IN_RANGE_SQL, Boolean.class, from, to))) {
+            session.execute(create);
+            return;
+        }
+        // Creating the partition would fail on the rows already in audits_default, so they move with it
+        inTransaction(connection, () -> {
+            session.execute("LOCK TABLE audits_default IN ACCESS EXCLUSIVE MODE");
+            session.execute("CREATE TEMPORARY TABLE audits_moving (LIKE audits) ON COMMIT DROP");
+            int moved = session.update(MOVE_OUT_OF_DEFAULT_SQL, from, to);
+            session.execute(create);
+            session.update("INSERT INTO audits SELECT * FROM audits_moving");
+            log.warn("Moved {} audit rows from audits_default into new partition {}", moved, partition);
+        });
+    }
+    
+    private void detachExpired(Connection connection, JdbcTemplate session, YearMonth oldestRetained) throws SQLException {
+        List<String> partitions = session.queryForList(LIST_PARTITIONS_SQL, String.class);
+        for (String partition : partitions) {
+            YearMonth month = monthOf(partition);
+            if (month != null && month.isBefore(oldestRetained)) {
+                try {
+                    inTransaction(connection, () -> {
+                        session.execute("SET LOCAL lock_timeout = " + detachLockTimeoutMs);
+                        session.execute("ALTER TABLE audits DETACH PARTITION " + partition);
+                    });
+                    log.info("Detached audit partition {} (retention {} months)", partition, retentionMonths);
+                } catch (DataAccessException e) {
+                    log.warn("Audit partition {} not detached, retrying next run: {}", partition, e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private static void inTransaction(Connection connection, Runnable work) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            work.run();
+            connection.commit();
+        } catch (RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+    
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(SUFFIX);
+    }
+    
+    static YearMonth monthOf(String partitionName) {
+        if (!partitionName.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partitionName.substring(PARTITION_PREFIX.length()), SUFFIX);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
\ No newline at end of file
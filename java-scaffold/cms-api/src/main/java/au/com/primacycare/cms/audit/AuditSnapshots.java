@@ -0,0 +1,87 @@
+package au.com.primacycare.cms.audit;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * Captures the column values of an entity and diffs two captures
+ * Only @Id/@Column fields are read, so lazy collections are never touched and no clone() is needed
+ */
+public final class AuditSnapshots {
+    
+    private static final ClassValue<List<Field>> COLUMN_FIELDS = new ClassValue<>() {
+        @Override
+        protected List<Field> computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    if (field.isAnnotationPresent(Column.class) || field.isAnnotationPresent(Id.class)) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return List.copyOf(fields);
+        }
+    };
+    
+    private AuditSnapshots() {
+    }
+    
+    /**
+     * Column values keyed by field name; null for a null entity
+     */
+    public static Map<String, Object> snapshot(Object entity) {
+        if (entity == null) {
+            return null;
+        }
+        if (entity instanceof Map<?, ?> map) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> values = (Map<String, Object>) map;
+            return values;
+        }
+        List<Field> fields = COLUMN_FIELDS.get(entity.getClass());
+        Map<String, Object> values = new LinkedHashMap<>(fields.size() * 2);
+        for (Field field : fields) {
+            try {
+                values.put(field.getName(), field.get(entity));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot read audit field " + field, e);
+            }
+        }
+        return values;
+    }
+    
+    /**
+     * Reduce two snapshots to the fields whose values differ, as [old, new]
+     */
+    public static Diff diff(Map<String, Object> before, Map<String, Object> after) {
+        Map<String, Object> oldValues = new LinkedHashMap<>();
+        Map<String, Object> newValues = new LinkedHashMap<>();
+        Set<String> keys = new LinkedHashSet<>(before.keySet());
+        keys.addAll(after.keySet());
+        for (String key : keys) {
+            Object oldValue = before.get(key);
+            Object newValue = after.get(key);
+            if (!Objects.equals(oldValue, newValue)) {
+                oldValues.put(key, oldValue);
+                newValues.put(key, newValue);
+            }
+        }
+        return new Diff(oldValues, newValues);
+    }
+    
+    public record Diff(Map<String, Object> oldValues, Map<String, Object> newValues) {
+        
+        public boolean isEmpty() {
+            return newValues.isEmpty();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,241 @@
+package au.com.primacycare.cms.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dedicated writer that drains a bounded in-process ring buffer of audit events into the
+ * 'audits' table with JDBC batch inserts.
+ *
+ * By default (app.audit.write-ahead) AuditService writes events to 'audit_outbox' inside the
+ * business transaction and this class only relays outbox rows into 'audits' with a single
+ * set-based statement. With write-ahead off, committed events are buffered here instead; when
+ * the buffer is full, a batch fails, or on shutdown, they go to the outbox, each spill one
+ * batched insert in a transaction of its own. Buffered events live only in memory until
+ * flushed, so that mode loses up to queue-capacity committed events if the process dies.
+ */
+@Component
+@Slf4j
+public class AuditWriter {
+    
+    private static final String INSERT_AUDIT_SQL = """
+        INSERT INTO audits (entity_type, entity_id, action, user_id, timestamp, old_values, new_values, ip_address, user_agent)
+        VALUES (?, ?, ?, ?, ?, CAST(? AS jsonb), CAST(? AS jsonb), ?, ?)
+        """;
+    
+    private static final String INSERT_OUTBOX_SQL = """
+        INSERT INTO audit_outbox (entity_type, entity_id, action, user_id, timestamp, old_values, new_values, ip_address, user_agent)
+        VALUES (?, ?, ?, ?, ?, CAST(? AS jsonb), CAST(? AS jsonb), ?, ?)
+        """;
+    
+    private static final String RELAY_OUTBOX_SQL = """
+        WITH moved AS (
+            DELETE FROM audit_outbox
+            WHERE id IN (SELECT id FROM audit_outbox ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED)
+            RETURNING entity_type, entity_id, action, user_id, timestamp, old_values, new_values, ip_address, user_agent
+        )
+        INSERT INTO audits (entity_type, entity_id, action, user_id, timestamp, old_values, new_values, ip_address, user_agent)
+        SELECT entity_type, entity_id, action, user_id, timestamp, old_values, new_values, ip_address, user_agent FROM moved
+        """;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate spillTransaction;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<AuditEvent> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    
+    private final Timer flushTimer;
+    private final Counter backpressured;
+    private final Counter dropped;
+    private final Counter written;
+    
+    private volatile boolean running = true;
+    private Thread writerThread;
+    
+    public AuditWriter(JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.audit.queue-capacity:10000}") int queueCapacity,
+                       @Value("${app.audit.batch-size:500}") int batchSize,
+                       @Value("${app.audit.flush-interval-ms:200}") long flushIntervalMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        // submit() runs in afterCommit, where plain JDBC would join the finished transaction and never commit
+        this.spillTransaction = new TransactionTemplate(transactionManager);
+        this.spillTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        
+        meterRegistry.gauge("cms.audit.queue.depth", queue, BlockingQueue::size);
+        this.flushTimer = Timer.builder("cms.audit.flush")
+            .description("Latency of one batched audit insert")
+            .register(meterRegistry);
+        this.backpressured = Counter.builder("cms.audit.events")
+            .tag("outcome", "backpressured")
+            .description("Events diverted to audit_outbox because the buffer was full")
+            .register(meterRegistry);
+        this.dropped = Counter.builder("cms.audit.events")
+            .tag("outcome", "dropped")
+            .description("Events that could not be buffered or written to the outbox")
+            .register(meterRegistry);
+        this.written = Counter.builder("cms.audit.events")
+            .tag("outcome", "written")
+            .register(meterRegistry);
+    }
+    
+    @PostConstruct
+    void start() {
+        writerThread = Thread.ofPlatform().name("audit-writer").daemon().start(this::run);
+    }
+    
+    /**
+     * Buffer events after their transaction committed; those that do not fit are spilled to the
+     * outbox together
+     */
+    public void submit(List<AuditEvent> events) {
+        List<AuditEvent> overflow = new ArrayList<>();
+        for (AuditEvent event : events) {
+            if (!running || !queue.offer(event)) {
+                overflow.add(event);
+            }
+        }
+        if (!overflow.isEmpty() && spill(overflow)) {
+            backpressured.increment(overflow.size());
+        }
+    }
+    
+    /**
+     * Write events to the outbox using the caller's connection/transaction
+     */
+    public void writeOutbox(List<AuditEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_OUTBOX_SQL, toArgs(events));
+    }
+    
+    /**
+     * Move outbox rows (overflow, shutdown spill, write-ahead mode) into 'audits'
+     */
+    @Scheduled(fixedDelayString = "${app.audit.outbox-relay-interval-ms:1000}")
+    public void relayOutbox() {
+        int moved;
+        do {
+            moved = jdbcTemplate.update(RELAY_OUTBOX_SQL, batchSize);
+            written.increment(moved);
+        } while (moved == batchSize);
+    }
+    
+    private void run() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditEvent first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void flush(List<AuditEvent> batch) {
+        try {
+            flushTimer.record(() -> jdbcTemplate.batchUpdate(INSERT_AUDIT_SQL, toArgs(batch)));
+            written.increment(batch.size());
+        } catch (RuntimeException e) {
+            // Keep the events: the outbox relay retries them once the database recovers
+            log.warn("Audit batch insert of {} events failed, spilling to outbox", batch.size(), e);
+            spill(batch);
+        }
+    }
+    
+    /**
+     * Write events to the outbox in a transaction of their own
+     *
+     * @return false when they could not be written and were dropped
+     */
+    private boolean spill(List<AuditEvent> events) {
+        try {
+            spillTransaction.executeWithoutResult(status -> writeOutbox(events));
+            return true;
+        } catch (RuntimeException e) {
+            dropped.increment(events.size());
+            for (AuditEvent event : events) {
+                log.error("Audit event dropped: {} {} {}", event.action(), event.entityType(), event.entityId(), e);
+            }
+            return false;
+        }
+    }
+    
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.join(10_000);
+        }
+        // Anything the writer could not flush in time is persisted for the next start-up relay
+        List<AuditEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.info("Spilling {} buffered audit events to outbox on shutdown", remaining.size());
+            spill(remaining);
+        }
+    }
+    
+    private List<Object[]> toArgs(List<AuditEvent> events) {
+        List<Object[]> args = new ArrayList<>(events.size());
+        for (AuditEvent event : events) {
+            args.add(new Object[] {
+                event.entityType(),
+                event.entityId(),
+                event.action(),
+                event.userId(),
+                Timestamp.valueOf(event.timestamp()),
+                toJson(event.oldValues()),
+                toJson(event.newValues()),
+                event.ipAddress(),
+                event.userAgent()
+            });
+        }
+        return args;
+    }
+    
+    private String toJson(Object values) {
+        if (values == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(values);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialise audit values", e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+package au.com.primacycare.cms.batch;
+
+import au.com.primacycare.cms.repository.PartitionedRunRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Works through the partitions of payroll and billing runs on a bounded pool
+ *
+ * A partition is claimed (RUNNING, with a lease) in a short transaction of its own, then its work
+ * runs in one transaction that holds the partition row locked and must also record the
+ * partition's COMPLETED status, so a partition either commits everything or nothing, and no other
+ * instance can claim it meanwhile. A failure marks it FAILED; either way the run's status is then
+ * recomputed from its partitions. Resuming returns FAILED partitions to PENDING; RUNNING ones left
+ * by an instance that died are claimed again once their lease has run out. Each run type owns one
+ * runner and supplies only its partitions and per-partition work.
+ *
+ * @param <P> the run type's partition row
+ */
+@Slf4j
+public final class PartitionedRunner<P> {
+    
+    private final String name;
+    private final PartitionedRunRepository.Tables tables;
+    private final PartitionedRunRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration lease;
+    private final ToIntFunction<P> partitionNo;
+    private final Predicate<P> completed;
+    private final Timer partitionTimer;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * @param name        run type, for thread names, metrics (cms.&lt;name&gt;.partition) and logs
+     * @param lease       how long after a claim an instance that died before starting the work
+     *                    keeps other instances from claiming the partition
+     * @param partitionNo the partition's number within its run
+     * @param completed   whether the partition has already completed
+     */
+    public PartitionedRunner(String name,
+                             PartitionedRunRepository.Tables tables,
+                             PartitionedRunRepository repository,
+                             TransactionTemplate transactionTemplate,
+                             MeterRegistry meterRegistry,
+                             int workers,
+                             Duration lease,
+                             String partitionDescription,
+                             ToIntFunction<P> partitionNo,
+                             Predicate<P> completed) {
+        this.name = name;
+        this.tables = tables;
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.lease = lease;
+        this.partitionNo = partitionNo;
+        this.completed = completed;
+        this.partitionTimer = Timer.builder("cms." + name + ".partition")
+            .description(partitionDescription)
+            .register(meterRegistry);
+        AtomicInteger threads = new AtomicInteger();
+        // Unbounded queue: a run never queues more than one task per partition
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, name + "-run-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        meterRegistry.gauge("cms." + name + ".partitions.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+    
+    /**
+     * Reopen a run that has not completed, so that its unfinished partitions can be claimed again
+     */
+    public void resume(String runId) {
+        transactionTemplate.executeWithoutResult(status -> repository.resumeRun(tables, runId));
+    }
+    
+    /**
+     * Queue every partition of a run that has not completed and is not already queued here
+     * Partitions claimed by another instance are skipped when their turn comes
+     *
+     * @param work runs in the partition's transaction and records its completion
+     */
+    public void submitPending(String runId, List<P> partitions, Consumer<P> work) {
+        for (P partition : partitions) {
+            String key = runId + ":" + partitionNo.applyAsInt(partition);
+            if (!completed.test(partition) && inFlight.add(key)) {
+                executor.execute(() -> {
+                    try {
+                        process(runId, partition, work);
+                    } finally {
+                        inFlight.remove(key);
+                    }
+                });
+            }
+        }
+        if (partitions.isEmpty()) {
+            // Nothing to partition: nothing to wait for
+            transactionTemplate.executeWithoutResult(status -> repository.refreshRunStatus(tables, runId));
+        }
+    }
+    
+    public void shutdown() {
+        // Interrupted partitions roll back and stay RUNNING until the run is resumed
+        executor.shutdownNow();
+    }
+    
+    private void process(String runId, P partition, Consumer<P> work) {
+        int number = partitionNo.applyAsInt(partition);
+        Timer.Sample sample = Timer.start();
+        int attempt = 0;
+        try {
+            OptionalInt claim = transactionTemplate.execute(status ->
+                repository.claimPartition(tables, runId, number, lease));
+            if (claim == null || claim.isEmpty()) {
+                return;
+            }
+            attempt = claim.getAsInt();
+            int claimed = attempt;
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!repository.lockClaim(tables, runId, number, claimed)) {
+                    log.warn("{} run {} partition {} was claimed again after its lease ran out", name, runId, number);
+                    return;
+                }
+                work.accept(partition);
+            });
+        } catch (RuntimeException e) {
+            log.error("{} run {} partition {} failed", name, runId, number, e);
+            if (attempt > 0) {
+                int failed = attempt;
+                transactionTemplate.executeWithoutResult(status ->
+                    repository.failPartition(tables, runId, number, failed, e.getMessage()));
+            }
+        } finally {
+            sample.stop(partitionTimer);
+            transactionTemplate.executeWithoutResult(status -> repository.refreshRunStatus(tables, runId));
+        }
+    }
+}
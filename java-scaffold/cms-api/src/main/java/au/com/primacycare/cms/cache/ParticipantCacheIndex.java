@@ -0,0 +1,272 @@
+package au.com.primacycare.cms.cache;
+
+import au.com.primacycare.cms.dto.ParticipantDto;
+import au.com.primacycare.cms.dto.ParticipantFilter;
+import au.com.primacycare.cms.entity.Participant;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Tracks which cached participant pages contain which participant IDs so that
+ * writes evict only the affected pages instead of clearing the whole region.
+ * Replaces the allEntries eviction that mirrored server/cache.ts invalidatePattern()
+ *
+ * Pages are cached here rather than through @Cacheable so that indexing and storing a page is one
+ * step that a write's evictions cannot interleave with: a page is only stored if no write's
+ * evictions started while it was loading, so a page loaded before a write is never served once
+ * that write's evictions have run.
+ */
+@Component
+@Slf4j
+public class ParticipantCacheIndex {
+    
+    public static final String PARTICIPANT_CACHE = "participant";
+    public static final String PARTICIPANTS_CACHE = "participants";
+    
+    /** Sort properties that never change after insert, so an update cannot move a row between pages */
+    private static final Set<String> IMMUTABLE_SORT_PROPERTIES = Set.of("id", "createdAt");
+    
+    private final CacheManager cacheManager;
+    private final Map<PageKey, PageEntry> pages = new ConcurrentHashMap<>();
+    private final Map<String, Set<PageKey>> pagesByParticipant = new ConcurrentHashMap<>();
+    /** Bumped before each committed write's evictions run */
+    private final AtomicLong generation = new AtomicLong();
+    /** Shared by page stores, exclusive for a write's evictions */
+    private final ReadWriteLock storeLock = new ReentrantReadWriteLock();
+    
+    private final Counter entryEvictions;
+    private final Counter pageEvictions;
+    
+    public ParticipantCacheIndex(CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.entryEvictions = Counter.builder("cms.cache.invalidations")
+            .description("Targeted cache evictions triggered by participant writes")
+            .tag("cache", PARTICIPANT_CACHE)
+            .register(meterRegistry);
+        this.pageEvictions = Counter.builder("cms.cache.invalidations")
+            .description("Targeted cache evictions triggered by participant writes")
+            .tag("cache", PARTICIPANTS_CACHE)
+            .register(meterRegistry);
+        meterRegistry.gauge("cms.cache.index.pages", pages, Map::size);
+    }
+    
+    /**
+     * Cache key for a participant page
+     * Derived from the normalised filter, so equivalent requests share one entry
+     */
+    public static PageKey pageKey(Pageable pageable, ParticipantFilter filter) {
+        return new PageKey(pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort(), filter);
+    }
+    
+    /**
+     * The cached page for a key, or a freshly loaded one that is indexed and then cached
+     * The generation is read before loading: if any write's evictions started since, the load may
+     * predate that write, so the page is returned to this caller but not stored
+     */
+    public Page<ParticipantDto> cachedPage(PageKey key, Supplier<Page<ParticipantDto>> loader) {
+        Cache cache = cacheManager.getCache(PARTICIPANTS_CACHE);
+        if (cache == null) {
+            return loader.get();
+        }
+        Cache.ValueWrapper cached = cache.get(key);
+        if (cached != null) {
+            @SuppressWarnings("unchecked")
+            Page<ParticipantDto> page = (Page<ParticipantDto>) cached.get();
+            return page;
+        }
+        long loadedAt = generation.get();
+        Page<ParticipantDto> page = loader.get();
+        storeLock.readLock().lock();
+        try {
+            if (generation.get() == loadedAt) {
+                registerPage(key, page.map(ParticipantDto::getId).getContent());
+                cache.put(key, page);
+            }
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        return page;
+    }
+    
+    /**
+     * Record the participant IDs served on a freshly loaded page
+     */
+    private void registerPage(PageKey key, Collection<String> participantIds) {
+        PageEntry previous = pages.put(key, new PageEntry(key, Set.copyOf(participantIds)));
+        if (previous != null) {
+            unlink(key, previous);
+        }
+        for (String id : participantIds) {
+            pagesByParticipant.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+    
+    /**
+     * A new participant shifts every page whose filter it falls into
+     */
+    public void participantCreated(Participant participant) {
+        afterCommit(() -> evictPagesWhere(entry -> entry.matches(participant)));
+    }
+    
+    /**
+     * Bulk variant: evaluates each cached page once against the whole batch
+     */
+    public void participantsCreated(Collection<Participant> participants) {
+        afterCommit(() -> evictPagesWhere(entry -> participants.stream().anyMatch(entry::matches)));
+    }
+    
+    /**
+     * An updated participant invalidates its own entry, the pages it appears on,
+     * and any page it has moved into or out of
+     */
+    public void participantUpdated(ParticipantFilter.Attributes before, Participant after) {
+        String id = after.getId();
+        ParticipantFilter.Attributes current = ParticipantFilter.Attributes.of(after);
+        afterCommit(() -> {
+            evictEntry(id);
+            evictPagesContaining(id);
+            evictPagesWhere(entry -> entry.matches(before) != entry.matches(current)
+                || (entry.matches(current) && !entry.hasImmutableSort()));
+        });
+    }
+    
+    /**
+     * A deleted participant shifts every later page of the filters it belonged to
+     */
+    public void participantDeleted(Participant participant) {
+        String id = participant.getId();
+        afterCommit(() -> {
+            evictEntry(id);
+            evictPagesContaining(id);
+            evictPagesWhere(entry -> entry.matches(participant));
+        });
+    }
+    
+    /**
+     * Drop index entries for pages Caffeine has already expired or evicted by size
+     */
+    @Scheduled(fixedDelayString = "${app.cache.index-prune-interval:300000}")
+    public void prune() {
+        Cache cache = cacheManager.getCache(PARTICIPANTS_CACHE);
+        if (cache == null) {
+            return;
+        }
+        pages.forEach((key, entry) -> {
+            if (cache.get(key) == null && pages.remove(key, entry)) {
+                unlink(key, entry);
+            }
+        });
+    }
+    
+    private void evictEntry(String participantId) {
+        Cache cache = cacheManager.getCache(PARTICIPANT_CACHE);
+        if (cache != null) {
+            cache.evict(participantId);
+            entryEvictions.increment();
+        }
+    }
+    
+    private void evictPagesContaining(String participantId) {
+        Set<PageKey> keys = pagesByParticipant.remove(participantId);
+        if (keys != null) {
+            keys.forEach(this::evictPage);
+        }
+    }
+    
+    private void evictPagesWhere(Predicate<PageEntry> predicate) {
+        pages.forEach((key, entry) -> {
+            if (predicate.test(entry)) {
+                evictPage(key);
+            }
+        });
+    }
+    
+    private void evictPage(PageKey key) {
+        PageEntry entry = pages.remove(key);
+        if (entry == null) {
+            return;
+        }
+        unlink(key, entry);
+        Cache cache = cacheManager.getCache(PARTICIPANTS_CACHE);
+        if (cache != null) {
+            cache.evict(key);
+            pageEvictions.increment();
+        }
+        log.debug("Evicted participant page: {}", key);
+    }
+    
+    private void unlink(PageKey key, PageEntry entry) {
+        for (String id : entry.participantIds()) {
+            pagesByParticipant.computeIfPresent(id, (k, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+    
+    private void afterCommit(Runnable action) {
+        Runnable evictions = () -> {
+            storeLock.writeLock().lock();
+            try {
+                generation.incrementAndGet();
+                action.run();
+            } finally {
+                storeLock.writeLock().unlock();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictions.run();
+                }
+            });
+        } else {
+            evictions.run();
+        }
+    }
+    
+    /**
+     * Cache key of one participant page
+     */
+    public record PageKey(int page, int size, Sort sort, ParticipantFilter filter) {
+    }
+    
+    /**
+     * Filter and contents of one cached page
+     */
+    private record PageEntry(PageKey key, Set<String> participantIds) {
+        
+        boolean matches(Participant participant) {
+            return key.filter().matches(participant);
+        }
+        
+        boolean matches(ParticipantFilter.Attributes participant) {
+            return key.filter().matches(participant);
+        }
+        
+        boolean hasImmutableSort() {
+            return key.sort().stream().allMatch(order -> IMMUTABLE_SORT_PROPERTIES.contains(order.getProperty()));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package au.com.primacycare.cms.calendar;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Immutable per-state holiday sets: one BitSet of days of the year per state per year
+ * National holidays are merged into every state, and answer for states the dataset does not name.
+ */
+final class HolidayCalendar {
+    
+    static final HolidayCalendar EMPTY = new HolidayCalendar(Map.of(), YearBits.EMPTY, 0);
+    
+    private final Map<String, YearBits> byState;
+    private final YearBits national;
+    private final int size;
+    
+    private HolidayCalendar(Map<String, YearBits> byState, YearBits national, int size) {
+        this.byState = byState;
+        this.national = national;
+        this.size = size;
+    }
+    
+    static HolidayCalendar of(Collection<PublicHoliday> holidays) {
+        if (holidays.isEmpty()) {
+            return EMPTY;
+        }
+        int firstYear = holidays.stream().mapToInt(h -> h.date().getYear()).min().getAsInt();
+        int lastYear = holidays.stream().mapToInt(h -> h.date().getYear()).max().getAsInt();
+        
+        YearBits national = new YearBits(firstYear, lastYear);
+        Map<String, YearBits> byState = new HashMap<>();
+        for (PublicHoliday holiday : holidays) {
+            if (holiday.stateCode() == null) {
+                national.set(holiday.date());
+            } else {
+                byState.computeIfAbsent(holiday.stateCode(), code -> new YearBits(firstYear, lastYear)).set(holiday.date());
+            }
+        }
+        byState.values().forEach(bits -> bits.or(national));
+        return new HolidayCalendar(Map.copyOf(byState), national, holidays.size());
+    }
+    
+    /**
+     * @param stateCode states.code; null or a state without holidays of its own gets national holidays only
+     */
+    boolean isHoliday(String stateCode, LocalDate date) {
+        YearBits bits = stateCode != null ? byState.getOrDefault(stateCode, national) : national;
+        return bits.get(date);
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Bit (day of year - 1) of years[year - firstYear]
+     */
+    private static final class YearBits {
+        
+        static final YearBits EMPTY = new YearBits(0, -1);
+        
+        private final int firstYear;
+        private final BitSet[] years;
+        
+        YearBits(int firstYear, int lastYear) {
+            this.firstYear = firstYear;
+            this.years = new BitSet[Math.max(0, lastYear - firstYear + 1)];
+            for (int i = 0; i < years.length; i++) {
+                years[i] = new BitSet(366);
+            }
+        }
+        
+        void set(LocalDate date) {
+            years[date.getYear() - firstYear].set(date.getDayOfYear() - 1);
+        }
+        
+        void or(YearBits other) {
+            for (int i = 0; i < years.length; i++) {
+                years[i].or(other.years[i]);
+            }
+        }
+        
+        boolean get(LocalDate date) {
+            int index = date.getYear() - firstYear;
+            return index >= 0 && index < years.length && years[index].get(date.getDayOfYear() - 1);
+        }
+    }
+}
\ No newline at end of file
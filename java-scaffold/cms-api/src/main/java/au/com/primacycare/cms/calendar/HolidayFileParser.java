@@ -0,0 +1,160 @@
+package au.com.primacycare.cms.calendar;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Reads a public holiday dataset from a .ics or .csv file
+ *
+ * CSV needs a header row with a date column ("date", yyyy-MM-dd or yyyyMMdd), a state column
+ * ("state" or "jurisdiction", e.g. NSW) and optionally a name column ("name" or "holiday name").
+ * This matches the data.gov.au Australian public holidays dataset as published.
+ * ICS events take their date from DTSTART (all-day, up to but excluding DTEND), their name from SUMMARY
+ * and their states from CATEGORIES.
+ * In both formats a blank state, "national" or "all" means every state.
+ */
+final class HolidayFileParser {
+    
+    private static final DateTimeFormatter BASIC_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final Set<String> ALL_STATES = Set.of("", "NATIONAL", "ALL", "AUS", "AU");
+    
+    private HolidayFileParser() {
+    }
+    
+    /**
+     * @throws IllegalArgumentException on a row or event that cannot be read, naming its position
+     */
+    static List<PublicHoliday> parse(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (name.endsWith(".ics")) {
+                return parseIcs(new BufferedReader(reader));
+            }
+            return parseCsv(reader);
+        }
+    }
+    
+    static List<PublicHoliday> parseCsv(Reader reader) throws IOException {
+        List<PublicHoliday> holidays = new ArrayList<>();
+        CsvMapper csvMapper = new CsvMapper();
+        try (MappingIterator<Map<String, String>> rows = csvMapper.readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(reader)) {
+            int rowNumber = 1;
+            while (rows.hasNext()) {
+                rowNumber++;
+                Map<String, String> row = new HashMap<>();
+                rows.next().forEach((key, value) -> row.put(key.trim().toLowerCase(Locale.ROOT), value));
+                String date = column(row, "date");
+                if (date == null) {
+                    throw new IllegalArgumentException("Row " + rowNumber + ": missing date");
+                }
+                String states = Objects.requireNonNullElse(column(row, "state", "jurisdiction"), "");
+                String holidayName = column(row, "name", "holiday name");
+                for (String state : states.split("[,;|]")) {
+                    holidays.add(new PublicHoliday(parseDate(date, "Row " + rowNumber), stateCode(state), holidayName));
+                }
+            }
+        }
+        return holidays;
+    }
+    
+    static List<PublicHoliday> parseIcs(BufferedReader reader) throws IOException {
+        List<PublicHoliday> holidays = new ArrayList<>();
+        Map<String, String> event = null;
+        int eventNumber = 0;
+        for (String line : unfold(reader)) {
+            if (line.equals("BEGIN:VEVENT")) {
+                event = new HashMap<>();
+                eventNumber++;
+            } else if (line.equals("END:VEVENT") && event != null) {
+                addEvent(event, "Event " + eventNumber, holidays);
+                event = null;
+            } else if (event != null) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    // DTSTART;VALUE=DATE:20240101 -> DTSTART
+                    String property = line.substring(0, colon).split(";", 2)[0].toUpperCase(Locale.ROOT);
+                    event.put(property, line.substring(colon + 1).trim());
+                }
+            }
+        }
+        return holidays;
+    }
+    
+    private static void addEvent(Map<String, String> event, String position, List<PublicHoliday> holidays) {
+        String start = event.get("DTSTART");
+        if (start == null) {
+            throw new IllegalArgumentException(position + ": missing DTSTART");
+        }
+        LocalDate first = parseDate(start, position);
+        String end = event.get("DTEND");
+        LocalDate last = end != null ? parseDate(end, position).minusDays(1) : first;
+        String summary = event.get("SUMMARY");
+        String[] states = event.getOrDefault("CATEGORIES", "").split(",");
+        for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+            for (String state : states) {
+                holidays.add(new PublicHoliday(date, stateCode(state), summary));
+            }
+        }
+    }
+    
+    /**
+     * Lines with RFC 5545 continuation lines (leading space or tab) joined back on
+     */
+    private static List<String> unfold(BufferedReader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!lines.isEmpty() && (line.startsWith(" ") || line.startsWith("\t"))) {
+                int last = lines.size() - 1;
+                lines.set(last, lines.get(last) + line.substring(1));
+            } else {
+                lines.add(line.trim());
+            }
+        }
+        return lines;
+    }
+    
+    private static String column(Map<String, String> row, String... names) {
+        for (String name : names) {
+            String value = row.get(name);
+            if (value != null && !value.isBlank()) {
+                return value.trim();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * yyyy-MM-dd, yyyyMMdd, or an ICS date-time whose date part is taken
+     */
+    private static LocalDate parseDate(String value, String position) {
+        String date = value.trim();
+        try {
+            if (date.length() >= 8 && date.chars().limit(8).allMatch(Character::isDigit)) {
+                return LocalDate.parse(date.substring(0, 8), BASIC_DATE);
+            }
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(position + ": invalid date " + value);
+        }
+    }
+    
+    private static String stateCode(String value) {
+        String code = value.trim().toUpperCase(Locale.ROOT);
+        return ALL_STATES.contains(code) ? null : code;
+    }
+}
\ No newline at end of file
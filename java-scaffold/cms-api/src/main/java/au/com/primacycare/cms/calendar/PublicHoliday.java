@@ -0,0 +1,11 @@
+package au.com.primacycare.cms.calendar;
+
+import java.time.LocalDate;
+
+/**
+ * One public holiday from the holiday dataset
+ *
+ * @param stateCode states.code the holiday is observed in, or null when observed in every state
+ */
+public record PublicHoliday(LocalDate date, String stateCode, String name) {
+}
\ No newline at end of file
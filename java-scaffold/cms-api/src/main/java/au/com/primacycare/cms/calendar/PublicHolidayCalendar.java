@@ -0,0 +1,134 @@
+package au.com.primacycare.cms.calendar;
+
+import au.com.primacycare.cms.payroll.HolidayLookup;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Public holidays by Australian state, from a local ICS or CSV dataset (app.holidays.file)
+ * Used by payroll penalty rates, service pricing and roster allocation
+ *
+ * Lookups are a hash probe and a bit test. The file is polled for changes every
+ * app.holidays.poll-interval and reloaded in place; a file that fails to parse keeps the
+ * previously loaded holidays. Staff and participants carry states.id, which is resolved to the
+ * states.code the dataset uses.
+ */
+@Component
+@Slf4j
+public class PublicHolidayCalendar {
+    
+    private static final String STATES_SQL = """
+        SELECT CAST(id AS VARCHAR) AS id, code FROM states
+        """;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final Path file;
+    
+    private volatile HolidayCalendar calendar = HolidayCalendar.EMPTY;
+    private volatile Map<String, String> stateCodes = Map.of();
+    private volatile FileTime loadedModified;
+    
+    public PublicHolidayCalendar(JdbcTemplate jdbcTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.holidays.file:config/public-holidays.csv}") Path file) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.file = file;
+        meterRegistry.gauge("cms.holidays.loaded", this, c -> c.calendar.size());
+    }
+    
+    /**
+     * Whether date is a public holiday in a state
+     *
+     * @param stateCode states.code, e.g. NSW; null for holidays observed in every state only
+     */
+    public boolean isPublicHoliday(String stateCode, LocalDate date) {
+        return calendar.isHoliday(normalise(stateCode), date);
+    }
+    
+    /**
+     * Holiday lookup for one state, reading a single calendar version throughout
+     */
+    public HolidayLookup forState(String stateCode) {
+        HolidayCalendar current = calendar;
+        String code = normalise(stateCode);
+        return date -> current.isHoliday(code, date);
+    }
+    
+    /**
+     * As forState, for a states.id as carried by staff and participants
+     */
+    public HolidayLookup forStateId(String stateId) {
+        return forState(stateId != null ? stateCodes.get(stateId) : null);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        loadStates();
+        reloadIfChanged();
+    }
+    
+    @Scheduled(fixedDelayString = "${app.holidays.poll-interval:60000}", initialDelayString = "${app.holidays.poll-interval:60000}")
+    public void poll() {
+        reloadIfChanged();
+    }
+    
+    /**
+     * states.id to code; reloaded with the holiday file
+     */
+    public void loadStates() {
+        Map<String, String> codes = new HashMap<>();
+        jdbcTemplate.query(STATES_SQL, rs -> {
+            codes.put(rs.getString("id"), normalise(rs.getString("code")));
+        });
+        stateCodes = Map.copyOf(codes);
+    }
+    
+    synchronized void reloadIfChanged() {
+        if (!Files.isRegularFile(file)) {
+            if (loadedModified == null) {
+                log.warn("Public holiday file {} not found; no public holidays will apply", file.toAbsolutePath());
+                loadedModified = FileTime.fromMillis(0);
+            }
+            return;
+        }
+        FileTime modified = null;
+        try {
+            modified = Files.getLastModifiedTime(file);
+            if (modified.equals(loadedModified)) {
+                return;
+            }
+            List<PublicHoliday> holidays = HolidayFileParser.parse(file);
+            loadStates();
+            calendar = HolidayCalendar.of(holidays);
+            log.info("Public holiday calendar loaded from {}: {} holidays", file, holidays.size());
+        } catch (IOException | RuntimeException e) {
+            log.error("Public holiday file {} not loaded, keeping {} loaded holidays: {}",
+                      file, calendar.size(), e.getMessage());
+        } finally {
+            // A broken file is not retried until it changes again
+            if (modified != null) {
+                loadedModified = modified;
+            }
+        }
+    }
+    
+    private static String normalise(String stateCode) {
+        return stateCode != null ? stateCode.trim().toUpperCase(Locale.ROOT) : null;
+    }
+}
\ No newline at end of file
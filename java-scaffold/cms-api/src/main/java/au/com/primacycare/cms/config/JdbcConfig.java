@@ -0,0 +1,38 @@
+package au.com.primacycare.cms.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * JDBC templates for the set-based repositories
+ * Declaring any NamedParameterJdbcTemplate replaces Boot's, so the default one is declared here too
+ */
+@Configuration
+public class JdbcConfig {
+    
+    public static final String STREAMING = "streamingJdbcTemplate";
+    
+    @Bean
+    @Primary
+    public NamedParameterJdbcTemplate namedParameterJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+    
+    /**
+     * For reads handled row by row: a fetch size makes the PostgreSQL driver use a cursor instead
+     * of materialising the whole result, provided the query runs inside a transaction
+     */
+    @Bean(STREAMING)
+    public NamedParameterJdbcTemplate streamingJdbcTemplate(DataSource dataSource,
+                                                            @Value("${app.jdbc.streaming-fetch-size:1000}") int fetchSize) {
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        streaming.setFetchSize(fetchSize);
+        return new NamedParameterJdbcTemplate(streaming);
+    }
+}
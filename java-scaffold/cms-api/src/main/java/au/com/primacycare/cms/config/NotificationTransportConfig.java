@@ -0,0 +1,77 @@
+package au.com.primacycare.cms.config;
+
+import au.com.primacycare.cms.notification.NotificationChannel;
+import au.com.primacycare.cms.notification.SendGridTransport;
+import au.com.primacycare.cms.notification.StubNotificationTransport;
+import au.com.primacycare.cms.notification.TwilioTransport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Notification transports, one per channel
+ * app.notifications.transport=live sends through SendGrid and Twilio (see app.integrations);
+ * stub records messages in memory instead
+ */
+@Configuration
+public class NotificationTransportConfig {
+    
+    @Configuration
+    @ConditionalOnProperty(name = "app.notifications.transport", havingValue = "live", matchIfMissing = true)
+    static class Live {
+        
+        @Value("${app.notifications.request-timeout-seconds:10}")
+        private long requestTimeoutSeconds;
+        
+        private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        
+        @Bean
+        public SendGridTransport sendGridTransport(ObjectMapper objectMapper, Environment environment,
+                                                   @Value("${app.integrations.sendgrid.api-key:}") String apiKey,
+                                                   @Value("${app.integrations.sendgrid.from-email}") String fromEmail,
+                                                   @Value("${app.notifications.email.batch-size:500}") int batchSize) {
+            Map<String, String> templateIds = Binder.get(environment)
+                .bind("app.integrations.sendgrid.templates", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of());
+            return new SendGridTransport(httpClient, objectMapper, apiKey, fromEmail, templateIds, batchSize,
+                Duration.ofSeconds(requestTimeoutSeconds));
+        }
+        
+        @Bean
+        public TwilioTransport twilioTransport(ObjectMapper objectMapper,
+                                               @Value("${app.integrations.twilio.account-sid:}") String accountSid,
+                                               @Value("${app.integrations.twilio.auth-token:}") String authToken,
+                                               @Value("${app.integrations.twilio.from-number:}") String fromNumber,
+                                               @Value("${app.notifications.sms.batch-size:20}") int batchSize,
+                                               @Value("${app.notifications.sms.rate-per-second:1}") double ratePerSecond) {
+            return new TwilioTransport(httpClient, objectMapper, accountSid, authToken, fromNumber, batchSize,
+                ratePerSecond, Duration.ofSeconds(requestTimeoutSeconds));
+        }
+    }
+    
+    @Configuration
+    @ConditionalOnProperty(name = "app.notifications.transport", havingValue = "stub")
+    static class Stub {
+        
+        @Bean
+        public StubNotificationTransport stubEmailTransport(@Value("${app.notifications.email.batch-size:500}") int batchSize) {
+            return new StubNotificationTransport(NotificationChannel.EMAIL, batchSize);
+        }
+        
+        @Bean
+        public StubNotificationTransport stubSmsTransport(@Value("${app.notifications.sms.batch-size:20}") int batchSize) {
+            return new StubNotificationTransport(NotificationChannel.SMS, batchSize);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package au.com.primacycare.cms.controller;
+
+import au.com.primacycare.cms.exception.InvalidRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Maps request errors raised below the controllers to HTTP responses
+ *
+ * Services reject request values they cannot act on (a malformed pagination cursor, an unknown
+ * status filter, a date range that is too long) with InvalidRequestException, which is the
+ * caller's mistake and answered 400 with the reason. Any other IllegalArgumentException is a
+ * defect below the API and stays a 500.
+ */
+@RestControllerAdvice
+@Slf4j
+public class ApiExceptionHandler {
+    
+    @ExceptionHandler(InvalidRequestException.class)
+    public ProblemDetail badRequest(InvalidRequestException e) {
+        log.debug("Rejected request: {}", e.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+}
@@ -0,0 +1,42 @@
+package au.com.primacycare.cms.controller;
+
+import au.com.primacycare.cms.dto.AuditDto;
+import au.com.primacycare.cms.dto.CursorPageDto;
+import au.com.primacycare.cms.service.AuditService;
+import au.com.primacycare.cms.security.RequiresRole;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Audit trail queries
+ * GET /api/audits?from=&to=[&entityType=&entityId=][&userId=][&cursor=]
+ */
+@RestController
+@RequestMapping("/audits")
+@RequiredArgsConstructor
+@Tag(name = "Audits", description = "Audit Trail")
+@PreAuthorize("isAuthenticated()")
+public class AuditController {
+    
+    private final AuditService auditService;
+    
+    @GetMapping
+    @Operation(summary = "Get audit entries in a time range, newest first (keyset paginated)")
+    @RequiresRole({"admin", "quality_manager"})
+    public CursorPageDto<AuditDto> getAudits(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String entityType,
+            @RequestParam(required = false) String entityId,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        return auditService.getAudits(from, to, entityType, entityId, userId, cursor, size);
+    }
+}
\ No newline at end of file
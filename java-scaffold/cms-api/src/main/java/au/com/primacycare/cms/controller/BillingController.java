@@ -0,0 +1,51 @@
+package au.com.primacycare.cms.controller;
+
+import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.service.BillingRunService;
+import au.com.primacycare.cms.security.RequiresRole;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Billing runs over a billing period
+ * POST /api/billing/runs
+ * GET /api/billing/runs/:id
+ * POST /api/billing/runs/:id/resume
+ */
+@RestController
+@RequestMapping("/billing/runs")
+@RequiredArgsConstructor
+@Tag(name = "Billing", description = "Invoice Billing Runs")
+@PreAuthorize("isAuthenticated()")
+public class BillingController {
+    
+    private final BillingRunService billingRunService;
+    
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(summary = "Invoice all participants' delivered services for a billing period, resuming the period's unfinished run if any")
+    @RequiresRole({"admin", "finance_manager"})
+    public BillingRunDto startRun(@Valid @RequestBody StartBillingRunDto request) {
+        return billingRunService.startRun(request);
+    }
+    
+    @GetMapping("/{id}")
+    @Operation(summary = "Get billing run progress by partition")
+    @RequiresRole({"admin", "finance_manager"})
+    public BillingRunDto getRun(@PathVariable String id) {
+        return billingRunService.getRun(id);
+    }
+    
+    @PostMapping("/{id}/resume")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(summary = "Re-run the partitions of a billing run that failed or were interrupted")
+    @RequiresRole({"admin", "finance_manager"})
+    public BillingRunDto resumeRun(@PathVariable String id) {
+        return billingRunService.resumeRun(id);
+    }
+}
\ No newline at end of file
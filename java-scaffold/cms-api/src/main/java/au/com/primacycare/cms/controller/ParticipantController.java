@@ -1,25 +1,35 @@
 package au.com.primacycare.cms.controller;
 
 import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.service.ParticipantBulkImportService;
 import au.com.primacycare.cms.service.ParticipantService;
 import au.com.primacycare.cms.security.RequiresRole;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
  * Mirrors Express routes from server/routes.ts:339-409
  * GET /api/participants
+ * GET /api/participants?cursor= (keyset mode)
+ * GET /api/participants/list
+ * GET /api/participants/search?q=
  * GET /api/participants/:id
  * POST /api/participants
+ * POST /api/participants/bulk
  * PUT /api/participants/:id
  * DELETE /api/participants/:id
  */
@@ -31,6 +41,7 @@ import java.util.List;
 public class ParticipantController {
     
     private final ParticipantService participantService;
+    private final ParticipantBulkImportService participantBulkImportService;
     
     @GetMapping
     @Operation(summary = "Get all participants with pagination")
@@ -38,9 +49,51 @@ public class ParticipantController {
     public Page<ParticipantDto> getParticipants(
             Pageable pageable,
             @RequestParam(required = false) String status,
-            @RequestParam(required = false) String ndisNumber) {
-        // TODO: Implement caching from server/cache.ts
-        return participantService.getParticipants(pageable, status, ndisNumber);
+            @RequestParam(required = false) String ndisNumber,
+            @RequestParam(required = false) String regionId,
+            @RequestParam(required = false) String stateId,
+            @RequestParam(required = false) String fundingType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdTo) {
+        // ndisNumber matches numbers starting with it, not containing it, so the pattern index can be used
+        ParticipantFilter filter = ParticipantFilter.of(
+            status, ndisNumber, regionId, stateId, fundingType, createdFrom, createdTo);
+        return participantService.getParticipants(pageable, filter);
+    }
+    
+    @GetMapping("/list")
+    @Operation(summary = "Get participant list rows with related counts (slim list read model)")
+    @RequiresRole({"admin", "case_manager", "support_coordinator", "staff"})
+    public Page<ParticipantListItemDto> getParticipantList(Pageable pageable) {
+        return participantService.getParticipantList(pageable);
+    }
+    
+    @GetMapping("/search")
+    @Operation(summary = "Fuzzy participant search by name, preferred name, phone or NDIS number")
+    @RequiresRole({"admin", "case_manager", "support_coordinator", "staff", "intake_officer"})
+    public List<ParticipantSearchResultDto> searchParticipants(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        return participantService.searchParticipants(query, limit);
+    }
+    
+    @GetMapping(params = "cursor")
+    @Operation(summary = "Get participants by keyset cursor (no totals, constant cost at any depth)")
+    @RequiresRole({"admin", "case_manager", "support_coordinator", "staff"})
+    public CursorPageDto<ParticipantDto> getParticipantsByCursor(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String ndisNumber,
+            @RequestParam(required = false) String regionId,
+            @RequestParam(required = false) String stateId,
+            @RequestParam(required = false) String fundingType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdTo) {
+        // Same filter as the paged listing; pass it unchanged with every cursor
+        ParticipantFilter filter = ParticipantFilter.of(
+            status, ndisNumber, regionId, stateId, fundingType, createdFrom, createdTo);
+        return participantService.getParticipantsByCursor(cursor, size, filter);
     }
     
     @GetMapping("/{id}")
@@ -59,6 +112,14 @@ public class ParticipantController {
         return participantService.createParticipant(dto);
     }
     
+    @PostMapping(value = "/bulk", consumes = {"text/csv", "application/x-ndjson"})
+    @Operation(summary = "Bulk import participants from a CSV or NDJSON stream with a per-row result report")
+    @RequiresRole({"admin", "case_manager"})
+    public BulkImportResultDto importParticipants(HttpServletRequest request) throws IOException {
+        return participantBulkImportService.importParticipants(
+            request.getInputStream(), MediaType.parseMediaType(request.getContentType()));
+    }
+    
     @PutMapping("/{id}")
     @Operation(summary = "Update participant")
     @RequiresRole({"admin", "case_manager", "support_coordinator"})
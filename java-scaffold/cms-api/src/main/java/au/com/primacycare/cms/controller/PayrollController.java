@@ -0,0 +1,51 @@
+package au.com.primacycare.cms.controller;
+
+import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.service.PayrollRunService;
+import au.com.primacycare.cms.security.RequiresRole;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Organisation-wide payroll runs
+ * POST /api/payroll/runs
+ * GET /api/payroll/runs/:id
+ * POST /api/payroll/runs/:id/resume
+ */
+@RestController
+@RequestMapping("/payroll/runs")
+@RequiredArgsConstructor
+@Tag(name = "Payroll", description = "Payroll Runs")
+@PreAuthorize("isAuthenticated()")
+public class PayrollController {
+    
+    private final PayrollRunService payrollRunService;
+    
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(summary = "Calculate pay for all staff for a pay period, resuming the period's unfinished run if any")
+    @RequiresRole({"admin", "finance_manager", "hr_manager"})
+    public PayrollRunDto startRun(@Valid @RequestBody StartPayrollRunDto request) {
+        return payrollRunService.startRun(request);
+    }
+    
+    @GetMapping("/{id}")
+    @Operation(summary = "Get payroll run progress by partition")
+    @RequiresRole({"admin", "finance_manager", "hr_manager"})
+    public PayrollRunDto getRun(@PathVariable String id) {
+        return payrollRunService.getRun(id);
+    }
+    
+    @PostMapping("/{id}/resume")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(summary = "Re-run the partitions of a payroll run that failed or were interrupted")
+    @RequiresRole({"admin", "finance_manager", "hr_manager"})
+    public PayrollRunDto resumeRun(@PathVariable String id) {
+        return payrollRunService.resumeRun(id);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package au.com.primacycare.cms.controller;
+
+import au.com.primacycare.cms.dto.PriceGuideStatusDto;
+import au.com.primacycare.cms.pricing.PriceGuide;
+import au.com.primacycare.cms.security.RequiresRole;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * NDIS price guide
+ * GET /api/price-guide
+ * POST /api/price-guide/reload
+ */
+@RestController
+@RequestMapping("/price-guide")
+@RequiredArgsConstructor
+@Tag(name = "Price Guide", description = "NDIS Price Guide")
+@PreAuthorize("isAuthenticated()")
+public class PriceGuideController {
+    
+    private final PriceGuide priceGuide;
+    
+    @GetMapping
+    @Operation(summary = "Get the loaded price guide")
+    @RequiresRole({"admin", "finance_manager"})
+    public PriceGuideStatusDto getStatus() {
+        return priceGuide.status();
+    }
+    
+    @PostMapping("/reload")
+    @Operation(summary = "Re-read the price guide export without a restart")
+    @RequiresRole({"admin", "finance_manager"})
+    public PriceGuideStatusDto reload() {
+        return priceGuide.reload(true);
+    }
+}
\ No newline at end of file
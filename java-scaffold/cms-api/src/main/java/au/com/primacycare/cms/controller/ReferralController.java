@@ -0,0 +1,62 @@
+package au.com.primacycare.cms.controller;
+
+import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.service.ReferralDedupeJob;
+import au.com.primacycare.cms.service.ReferralService;
+import au.com.primacycare.cms.security.RequiresRole;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Referral intake and duplicate detection
+ * POST /api/referrals
+ * POST /api/referrals/duplicates/check
+ * POST /api/referrals/duplicates/scan
+ * GET /api/referrals/:id/duplicates
+ */
+@RestController
+@RequestMapping("/referrals")
+@RequiredArgsConstructor
+@Tag(name = "Referrals", description = "Referral Intake")
+@PreAuthorize("isAuthenticated()")
+public class ReferralController {
+    
+    private final ReferralService referralService;
+    private final ReferralDedupeJob referralDedupeJob;
+    
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Create a referral, returning any referrals or participants that may be the same person")
+    @RequiresRole({"admin", "case_manager", "intake_officer"})
+    public ReferralDto createReferral(@Valid @RequestBody CreateReferralDto request) {
+        return referralService.createReferral(request);
+    }
+    
+    @PostMapping("/duplicates/check")
+    @Operation(summary = "Find referrals and participants that may be the same person, without creating a referral")
+    @RequiresRole({"admin", "case_manager", "intake_officer"})
+    public List<DuplicateCandidateDto> checkDuplicates(@Valid @RequestBody DuplicateCheckDto request) {
+        return referralService.checkDuplicates(request);
+    }
+    
+    @PostMapping("/duplicates/scan")
+    @Operation(summary = "Record likely duplicates for every referral, as the nightly scan does")
+    @RequiresRole({"admin"})
+    public ReferralDedupeScanDto scanDuplicates() {
+        return referralDedupeJob.scan();
+    }
+    
+    @GetMapping("/{id}/duplicates")
+    @Operation(summary = "Get the possible duplicates recorded for a referral")
+    @RequiresRole({"admin", "case_manager", "intake_officer"})
+    public List<DuplicateCandidateDto> getDuplicateCandidates(@PathVariable String id) {
+        return referralService.getDuplicateCandidates(id);
+    }
+}
\ No newline at end of file
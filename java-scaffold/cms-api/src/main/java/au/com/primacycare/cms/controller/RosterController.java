@@ -0,0 +1,58 @@
+package au.com.primacycare.cms.controller;
+
+import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.service.RosterAllocationService;
+import au.com.primacycare.cms.security.RequiresRole;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Batch roster allocation
+ * POST /api/roster/allocations
+ * GET /api/roster/allocations/:jobId
+ * DELETE /api/roster/allocations/:jobId (cancel)
+ * POST /api/roster/allocations/:jobId/apply
+ */
+@RestController
+@RequestMapping("/roster/allocations")
+@RequiredArgsConstructor
+@Tag(name = "Roster", description = "Batch Roster Allocation")
+@PreAuthorize("isAuthenticated()")
+public class RosterController {
+    
+    private final RosterAllocationService rosterAllocationService;
+    
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(summary = "Start allocating staff to all unassigned services in a date range")
+    @RequiresRole({"admin", "service_manager", "scheduler"})
+    public RosterAllocationDto startAllocation(@Valid @RequestBody RosterAllocationRequestDto request) {
+        return rosterAllocationService.startAllocation(request);
+    }
+    
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Get allocation progress, and the proposed roster once complete")
+    @RequiresRole({"admin", "service_manager", "scheduler"})
+    public RosterAllocationDto getAllocation(@PathVariable String jobId) {
+        return rosterAllocationService.getAllocation(jobId);
+    }
+    
+    @DeleteMapping("/{jobId}")
+    @Operation(summary = "Cancel a queued or running allocation")
+    @RequiresRole({"admin", "service_manager", "scheduler"})
+    public RosterAllocationDto cancelAllocation(@PathVariable String jobId) {
+        return rosterAllocationService.cancelAllocation(jobId);
+    }
+    
+    @PostMapping("/{jobId}/apply")
+    @Operation(summary = "Assign the proposed roster to services")
+    @RequiresRole({"admin", "service_manager", "scheduler"})
+    public RosterAllocationDto applyAllocation(@PathVariable String jobId) {
+        return rosterAllocationService.applyAllocation(jobId);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package au.com.primacycare.cms.controller;
+
+import au.com.primacycare.cms.dto.ShiftConflictDto;
+import au.com.primacycare.cms.service.ShiftService;
+import au.com.primacycare.cms.security.RequiresRole;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Shift scheduling queries
+ * GET /api/shifts/conflicts?from=&to=
+ */
+@RestController
+@RequestMapping("/shifts")
+@RequiredArgsConstructor
+@Tag(name = "Shifts", description = "Shift Scheduling")
+@PreAuthorize("isAuthenticated()")
+public class ShiftController {
+    
+    private final ShiftService shiftService;
+    
+    @GetMapping("/conflicts")
+    @Operation(summary = "Overlapping shifts and 11-hour rest breaches across all staff in a date range")
+    @RequiresRole({"admin", "service_manager", "scheduler", "team_leader"})
+    public List<ShiftConflictDto> getConflicts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return shiftService.getConflicts(from, to);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package au.com.primacycare.cms.controller;
+
+import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.service.StaffService;
+import au.com.primacycare.cms.security.RequiresRole;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Mirrors Express routes from server/routes.ts:463-484
+ * GET /api/staff
+ * GET /api/staff?cursor= (keyset mode)
+ * GET /api/staff/{id}/metrics?window=day|week|month|pay-period&periods=
+ * GET /api/staff/departments/{department}/metrics?window=
+ */
+@RestController
+@RequestMapping("/staff")
+@RequiredArgsConstructor
+@Tag(name = "Staff", description = "Staff Management")
+@PreAuthorize("isAuthenticated()")
+public class StaffController {
+    
+    private final StaffService staffService;
+    
+    @GetMapping
+    @Operation(summary = "Get all staff with pagination")
+    @RequiresRole({"admin", "hr_manager", "service_manager", "scheduler", "team_leader"})
+    public Page<StaffDto> getStaff(
+            Pageable pageable,
+            @RequestParam(required = false) String department) {
+        return staffService.getStaff(pageable, department);
+    }
+    
+    @GetMapping(params = "cursor")
+    @Operation(summary = "Get staff by keyset cursor (no totals, constant cost at any depth)")
+    @RequiresRole({"admin", "hr_manager", "service_manager", "scheduler", "team_leader"})
+    public CursorPageDto<StaffDto> getStaffByCursor(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String department) {
+        return staffService.getStaffByCursor(cursor, size, department);
+    }
+    
+    @GetMapping("/{id}/metrics")
+    @Operation(summary = "Get hours and utilisation per day, week, month or pay-period bucket")
+    @RequiresRole({"admin", "hr_manager", "service_manager", "scheduler", "team_leader"})
+    public List<StaffHoursBucketDto> getStaffMetrics(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "month") String window,
+            @RequestParam(defaultValue = "1") int periods) {
+        return staffService.getStaffHours(id, StaffHoursBucketDto.WindowEnum.fromValue(window), periods);
+    }
+    
+    @GetMapping("/departments/{department}/metrics")
+    @Operation(summary = "Get department hours and utilisation per bucket")
+    @RequiresRole({"admin", "hr_manager", "service_manager"})
+    public List<StaffHoursBucketDto> getDepartmentMetrics(
+            @PathVariable String department,
+            @RequestParam(defaultValue = "month") String window,
+            @RequestParam(defaultValue = "1") int periods) {
+        return staffService.getDepartmentHours(department, StaffHoursBucketDto.WindowEnum.fromValue(window), periods);
+    }
+}
\ No newline at end of file
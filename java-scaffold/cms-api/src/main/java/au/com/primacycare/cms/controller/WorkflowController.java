@@ -0,0 +1,76 @@
+package au.com.primacycare.cms.controller;
+
+import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.security.RequiresRole;
+import au.com.primacycare.cms.service.WorkflowService;
+import au.com.primacycare.cms.workflow.ReferralFunnelAggregator;
+import au.com.primacycare.cms.workflow.WorkflowSubject;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Referral and participant workflow stages
+ * GET /api/referrals/:id/workflow
+ * POST /api/referrals/:id/workflow/transitions
+ * POST /api/referrals/workflow/transitions
+ * GET /api/referrals/analytics/funnel
+ * GET /api/participants/:id/workflow
+ * POST /api/participants/:id/workflow/transitions
+ */
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Workflow", description = "Referral Workflow")
+@PreAuthorize("isAuthenticated()")
+public class WorkflowController {
+    
+    private final WorkflowService workflowService;
+    private final ReferralFunnelAggregator referralFunnelAggregator;
+    
+    @GetMapping("/referrals/{id}/workflow")
+    @Operation(summary = "Get a referral's workflow stage, allowed next stages and history")
+    @RequiresRole({"admin", "case_manager", "support_coordinator", "intake_officer"})
+    public WorkflowDto getReferralWorkflow(@PathVariable String id) {
+        return workflowService.getWorkflow(WorkflowSubject.REFERRAL, id);
+    }
+    
+    @PostMapping("/referrals/{id}/workflow/transitions")
+    @Operation(summary = "Move a referral to another workflow stage")
+    @RequiresRole({"admin", "case_manager", "support_coordinator", "intake_officer"})
+    public WorkflowDto transitionReferral(@PathVariable String id, @Valid @RequestBody WorkflowTransitionDto request) {
+        return workflowService.transition(WorkflowSubject.REFERRAL, id, request);
+    }
+    
+    @PostMapping("/referrals/workflow/transitions")
+    @Operation(summary = "Move up to 1000 referrals to one workflow stage, reporting the outcome per referral")
+    @RequiresRole({"admin", "case_manager", "intake_officer"})
+    public WorkflowTransitionResultDto bulkTransitionReferrals(@Valid @RequestBody BulkWorkflowTransitionDto request) {
+        return workflowService.bulkTransition(WorkflowSubject.REFERRAL, request);
+    }
+    
+    @GetMapping("/referrals/analytics/funnel")
+    @Operation(summary = "Referral conversion and time in each workflow stage, optionally for one source, urgency or region")
+    @RequiresRole({"admin", "case_manager"})
+    public ReferralFunnelDto getReferralFunnel(@RequestParam(required = false) String source,
+                                               @RequestParam(required = false) ReferralDto.UrgencyEnum urgency,
+                                               @RequestParam(required = false) String regionId) {
+        return referralFunnelAggregator.funnel(source, urgency, regionId);
+    }
+    
+    @GetMapping("/participants/{id}/workflow")
+    @Operation(summary = "Get a participant's workflow stage, allowed next stages and history")
+    @RequiresRole({"admin", "case_manager", "support_coordinator", "staff"})
+    public WorkflowDto getParticipantWorkflow(@PathVariable String id) {
+        return workflowService.getWorkflow(WorkflowSubject.PARTICIPANT, id);
+    }
+    
+    @PostMapping("/participants/{id}/workflow/transitions")
+    @Operation(summary = "Move a participant to another workflow stage")
+    @RequiresRole({"admin", "case_manager", "support_coordinator"})
+    public WorkflowDto transitionParticipant(@PathVariable String id, @Valid @RequestBody WorkflowTransitionDto request) {
+        return workflowService.transition(WorkflowSubject.PARTICIPANT, id, request);
+    }
+}
\ No newline at end of file
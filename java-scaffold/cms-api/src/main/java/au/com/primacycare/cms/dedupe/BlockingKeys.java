@@ -0,0 +1,63 @@
+package au.com.primacycare.cms.dedupe;
+
+import java.util.Arrays;
+
+/**
+ * Blocking keys for duplicate detection: only people sharing at least one key are compared
+ *
+ * Each key is a type in bits 36-38 over a payload below 2^36:
+ * - NAME_PAIR: the phonetic codes of both names, in either order, for records without a birth date or phone
+ * - NAME_YEAR: the phonetic code of either name with the birth year
+ * - NAME_PHONE: the phonetic code of either name with the last four phone digits
+ * - BIRTH_DATE: the birth date alone, for badly misspelt names
+ * - NDIS_NUMBER: the NDIS number alone
+ * Keying either name, not just the family name, also catches given and family names swapped.
+ */
+public final class BlockingKeys {
+    
+    static final int KEY_BITS = 39;
+    private static final int PAYLOAD_BITS = 36;
+    private static final long NAME_PAIR = 1;
+    private static final long NAME_YEAR = 2;
+    private static final long NAME_PHONE = 3;
+    private static final long BIRTH_DATE = 4;
+    private static final long NDIS_NUMBER = 5;
+    
+    private BlockingKeys() {
+    }
+    
+    public static long[] of(PersonRecord person) {
+        long[] keys = new long[7];
+        int count = 0;
+        int[] codes = person.firstCode() == person.lastCode()
+            ? new int[] {person.lastCode()}
+            : new int[] {person.firstCode(), person.lastCode()};
+        if (person.firstCode() != PhoneticKey.NONE && person.lastCode() != PhoneticKey.NONE) {
+            int low = Math.min(person.firstCode(), person.lastCode());
+            int high = Math.max(person.firstCode(), person.lastCode());
+            keys[count++] = key(NAME_PAIR, (long) low << 14 | high);
+        }
+        for (int code : codes) {
+            if (code == PhoneticKey.NONE) {
+                continue;
+            }
+            if (person.dateOfBirth() != null) {
+                keys[count++] = key(NAME_YEAR, (long) code << 12 | (person.dateOfBirth().getYear() & 0xFFF));
+            }
+            if (person.phoneSuffix() != PersonRecord.NO_PHONE) {
+                keys[count++] = key(NAME_PHONE, (long) code << 14 | person.phoneSuffix());
+            }
+        }
+        if (person.dateOfBirth() != null) {
+            keys[count++] = key(BIRTH_DATE, person.dateOfBirth().toEpochDay() & 0xFFFFFFFFL);
+        }
+        if (person.ndisNumber() != null) {
+            keys[count++] = key(NDIS_NUMBER, Long.parseLong(person.ndisNumber()));
+        }
+        return Arrays.copyOf(keys, count);
+    }
+    
+    private static long key(long type, long payload) {
+        return type << PAYLOAD_BITS | payload;
+    }
+}
\ No newline at end of file
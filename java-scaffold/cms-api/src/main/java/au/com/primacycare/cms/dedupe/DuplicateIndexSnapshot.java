@@ -0,0 +1,120 @@
+package au.com.primacycare.cms.dedupe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable blocking index over every referral and participant
+ *
+ * Each (blocking key, record ordinal) pair is packed into one long, key in the high bits, and the
+ * pairs are sorted, so a block is a contiguous run found by binary search and the whole index is
+ * two flat arrays. Blocks larger than the caller's limit say little about identity (a common
+ * surname in a common year) and are skipped rather than scored.
+ */
+public final class DuplicateIndexSnapshot {
+    
+    private static final int ORDINAL_BITS = 64 - 1 - BlockingKeys.KEY_BITS;
+    private static final long ORDINAL_MASK = (1L << ORDINAL_BITS) - 1;
+    
+    private final PersonRecord[] records;
+    // Sorted ascending; keys[i] belongs to records[ordinals[i]]
+    private final long[] keys;
+    private final int[] ordinals;
+    
+    private DuplicateIndexSnapshot(PersonRecord[] records, long[] keys, int[] ordinals) {
+        this.records = records;
+        this.keys = keys;
+        this.ordinals = ordinals;
+    }
+    
+    public static DuplicateIndexSnapshot empty() {
+        return new DuplicateIndexSnapshot(new PersonRecord[0], new long[0], new int[0]);
+    }
+    
+    public static DuplicateIndexSnapshot build(List<PersonRecord> people) {
+        if (people.size() > ORDINAL_MASK) {
+            throw new IllegalStateException("Too many people to index for duplicates: " + people.size());
+        }
+        PersonRecord[] records = people.toArray(PersonRecord[]::new);
+        long[] packed = new long[records.length * 4];
+        int count = 0;
+        for (int ordinal = 0; ordinal < records.length; ordinal++) {
+            for (long key : BlockingKeys.of(records[ordinal])) {
+                if (count == packed.length) {
+                    packed = Arrays.copyOf(packed, packed.length * 2);
+                }
+                packed[count++] = key << ORDINAL_BITS | ordinal;
+            }
+        }
+        Arrays.sort(packed, 0, count);
+        long[] keys = new long[count];
+        int[] ordinals = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = packed[i] >>> ORDINAL_BITS;
+            ordinals[i] = (int) (packed[i] & ORDINAL_MASK);
+        }
+        return new DuplicateIndexSnapshot(records, keys, ordinals);
+    }
+    
+    public int size() {
+        return records.length;
+    }
+    
+    public List<PersonRecord> records() {
+        return Arrays.asList(records);
+    }
+    
+    /**
+     * People sharing a block with the query, best first, excluding the query itself
+     *
+     * @param maxBlockSize blocks with more people than this are skipped
+     */
+    public List<DuplicateMatch> matches(PersonRecord query, int minScore, int maxBlockSize, int limit) {
+        BitSet seen = new BitSet();
+        List<DuplicateMatch> matches = new ArrayList<>();
+        for (long key : BlockingKeys.of(query)) {
+            int from = lowerBound(key);
+            int to = from;
+            while (to < keys.length && keys[to] == key) {
+                to++;
+            }
+            if (to - from > maxBlockSize) {
+                continue;
+            }
+            for (int i = from; i < to; i++) {
+                int ordinal = ordinals[i];
+                if (seen.get(ordinal)) {
+                    continue;
+                }
+                seen.set(ordinal);
+                PersonRecord candidate = records[ordinal];
+                if (candidate.source() == query.source() && candidate.id().equals(query.id())) {
+                    continue;
+                }
+                DuplicateMatch match = DuplicateScorer.score(query, candidate);
+                if (match.score() >= minScore) {
+                    matches.add(match);
+                }
+            }
+        }
+        matches.sort(Comparator.comparingInt(DuplicateMatch::score).reversed());
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+    
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
\ No newline at end of file
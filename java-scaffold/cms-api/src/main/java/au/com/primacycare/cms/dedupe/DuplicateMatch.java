@@ -0,0 +1,11 @@
+package au.com.primacycare.cms.dedupe;
+
+import au.com.primacycare.cms.dto.DuplicateCandidateDto;
+
+import java.util.Set;
+
+/**
+ * A person scored as a possible duplicate of another
+ */
+public record DuplicateMatch(PersonRecord person, int score, Set<DuplicateCandidateDto.ReasonEnum> reasons) {
+}
\ No newline at end of file
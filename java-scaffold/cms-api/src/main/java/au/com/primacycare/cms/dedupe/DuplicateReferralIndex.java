@@ -0,0 +1,158 @@
+package au.com.primacycare.cms.dedupe;
+
+import au.com.primacycare.cms.event.ReferralCreatedEvent;
+import au.com.primacycare.cms.repository.DuplicateReferralRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * In-memory blocking index of every referral and participant, for duplicate referral detection
+ * Replaces comparing a new referral against every referral and participant
+ *
+ * Holds one immutable DuplicateIndexSnapshot that is swapped atomically on rebuild. Referrals
+ * created since are held in a short list scored in full and dropped at the next rebuild; a
+ * periodic refresh picks up participants and writes made outside this app. Until the first
+ * load completes, candidates are found through referral_blocking_keys instead.
+ */
+@Component
+@Slf4j
+public class DuplicateReferralIndex {
+    
+    private final DuplicateReferralRepository duplicateReferralRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer rebuildTimer;
+    private final Timer lookupTimer;
+    private final int minScore;
+    private final int maxBlockSize;
+    private final ConcurrentLinkedQueue<Added> recent = new ConcurrentLinkedQueue<>();
+    
+    private volatile DuplicateIndexSnapshot snapshot = DuplicateIndexSnapshot.empty();
+    private volatile boolean loaded;
+    
+    public DuplicateReferralIndex(DuplicateReferralRepository duplicateReferralRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.referrals.dedupe.min-score:55}") int minScore,
+                                  @Value("${app.referrals.dedupe.max-block-size:500}") int maxBlockSize) {
+        this.duplicateReferralRepository = duplicateReferralRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.minScore = minScore;
+        this.maxBlockSize = maxBlockSize;
+        this.rebuildTimer = Timer.builder("cms.referrals.dedupe.rebuild")
+            .description("Time to reload the duplicate referral index")
+            .register(meterRegistry);
+        this.lookupTimer = Timer.builder("cms.referrals.dedupe.lookup")
+            .description("Time to find duplicate candidates for one person")
+            .register(meterRegistry);
+        meterRegistry.gauge("cms.referrals.dedupe.people", this, index -> index.snapshot.size() + index.recent.size());
+    }
+    
+    /**
+     * Likely duplicates of a person, best first, never the person itself
+     */
+    public List<DuplicateMatch> findMatches(PersonRecord person, int limit) {
+        return lookupTimer.record(() -> {
+            if (!loaded) {
+                return score(person, duplicateReferralRepository.findByBlockingKeys(BlockingKeys.of(person), maxBlockSize), limit);
+            }
+            List<DuplicateMatch> matches = snapshot.matches(person, minScore, maxBlockSize, limit);
+            if (recent.isEmpty()) {
+                return matches;
+            }
+            // The snapshot may already hold a recent referral if it was rebuilt meanwhile
+            Set<String> found = new HashSet<>();
+            matches.forEach(match -> found.add(match.person().id()));
+            List<PersonRecord> unmatched = new ArrayList<>();
+            for (Added added : recent) {
+                if (!found.contains(added.person().id())) {
+                    unmatched.add(added.person());
+                }
+            }
+            List<DuplicateMatch> merged = new ArrayList<>(matches);
+            merged.addAll(score(person, unmatched, limit));
+            merged.sort(Comparator.comparingInt(DuplicateMatch::score).reversed());
+            return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+        });
+    }
+    
+    /**
+     * Rebuild, then hand back the snapshot, for the batch scan to work against one consistent view
+     */
+    public DuplicateIndexSnapshot rebuildNow() {
+        rebuild();
+        return snapshot;
+    }
+    
+    public int minScore() {
+        return minScore;
+    }
+    
+    public int maxBlockSize() {
+        return maxBlockSize;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+    
+    @Scheduled(fixedDelayString = "${app.referrals.dedupe.refresh-interval:3600000}",
+               initialDelayString = "${app.referrals.dedupe.refresh-interval:3600000}")
+    public void refresh() {
+        rebuild();
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReferralCreated(ReferralCreatedEvent event) {
+        recent.add(new Added(System.nanoTime(), event.person()));
+    }
+    
+    synchronized void rebuild() {
+        long startedAt = System.nanoTime();
+        rebuildTimer.record(() -> {
+            List<PersonRecord> people = new ArrayList<>();
+            readOnlyTransaction.executeWithoutResult(status -> duplicateReferralRepository.streamPeople(people::add));
+            snapshot = DuplicateIndexSnapshot.build(people);
+        });
+        // Committed before the load started, so in the snapshot
+        recent.removeIf(added -> added.at() - startedAt < 0);
+        loaded = true;
+        log.info("Duplicate referral index rebuilt with {} people", snapshot.size());
+    }
+    
+    private List<DuplicateMatch> score(PersonRecord person, List<PersonRecord> candidates, int limit) {
+        List<DuplicateMatch> matches = new ArrayList<>();
+        for (PersonRecord candidate : candidates) {
+            if (candidate.source() == person.source() && candidate.id().equals(person.id())) {
+                continue;
+            }
+            DuplicateMatch match = DuplicateScorer.score(person, candidate);
+            if (match.score() >= minScore) {
+                matches.add(match);
+            }
+        }
+        matches.sort(Comparator.comparingInt(DuplicateMatch::score).reversed());
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+    
+    private record Added(long at, PersonRecord person) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package au.com.primacycare.cms.dedupe;
+
+import au.com.primacycare.cms.dto.DuplicateCandidateDto.ReasonEnum;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Scores how likely two people are to be the same, 0 to 100
+ *
+ * Names count up to 40 (Jaro-Winkler, either name order), date of birth 30, day and month
+ * swapped 20 and birth year alone 5, and the last four phone digits 15. A matching NDIS number
+ * is conclusive; different NDIS numbers or birth dates in different years count against.
+ */
+public final class DuplicateScorer {
+    
+    static final int CONCLUSIVE = 100;
+    private static final double FAMILY_WEIGHT = 0.6;
+    
+    private DuplicateScorer() {
+    }
+    
+    public static DuplicateMatch score(PersonRecord query, PersonRecord candidate) {
+        Set<ReasonEnum> reasons = EnumSet.noneOf(ReasonEnum.class);
+        int score = nameScore(query, candidate, reasons) + birthDateScore(query.dateOfBirth(), candidate.dateOfBirth(), reasons);
+        if (query.phoneSuffix() != PersonRecord.NO_PHONE && query.phoneSuffix() == candidate.phoneSuffix()) {
+            score += 15;
+            reasons.add(ReasonEnum.PHONE);
+        }
+        if (query.ndisNumber() != null && candidate.ndisNumber() != null) {
+            if (query.ndisNumber().equals(candidate.ndisNumber())) {
+                score = CONCLUSIVE;
+                reasons.add(ReasonEnum.NDIS_NUMBER);
+            } else {
+                score -= 40;
+            }
+        }
+        return new DuplicateMatch(candidate, Math.max(0, Math.min(CONCLUSIVE, score)), reasons);
+    }
+    
+    private static int nameScore(PersonRecord a, PersonRecord b, Set<ReasonEnum> reasons) {
+        double similarity;
+        boolean swapped = false;
+        if (a.firstName().isEmpty() || b.firstName().isEmpty()) {
+            // One side has a single name: compare it with either name of the other, at a discount
+            similarity = 0.8 * Math.max(
+                NameSimilarity.jaroWinkler(a.lastName(), b.lastName()),
+                Math.max(NameSimilarity.jaroWinkler(a.lastName(), b.firstName()),
+                         NameSimilarity.jaroWinkler(a.firstName(), b.lastName())));
+        } else {
+            double straight = FAMILY_WEIGHT * NameSimilarity.jaroWinkler(a.lastName(), b.lastName())
+                + (1 - FAMILY_WEIGHT) * NameSimilarity.jaroWinkler(a.firstName(), b.firstName());
+            double crossed = FAMILY_WEIGHT * NameSimilarity.jaroWinkler(a.lastName(), b.firstName())
+                + (1 - FAMILY_WEIGHT) * NameSimilarity.jaroWinkler(a.firstName(), b.lastName());
+            swapped = crossed > straight;
+            similarity = Math.max(straight, crossed);
+        }
+        int score;
+        if (similarity >= 0.97) {
+            score = 40;
+            reasons.add(ReasonEnum.NAME);
+        } else if (similarity >= 0.88) {
+            score = 30;
+            reasons.add(ReasonEnum.SIMILAR_NAME);
+        } else if (similarity >= 0.8) {
+            score = 15;
+            reasons.add(ReasonEnum.SIMILAR_NAME);
+        } else {
+            return 0;
+        }
+        if (swapped) {
+            reasons.add(ReasonEnum.NAMES_SWAPPED);
+        }
+        return score;
+    }
+    
+    private static int birthDateScore(LocalDate a, LocalDate b, Set<ReasonEnum> reasons) {
+        if (a == null || b == null) {
+            return 0;
+        }
+        if (a.equals(b)) {
+            reasons.add(ReasonEnum.DATE_OF_BIRTH);
+            return 30;
+        }
+        if (a.getYear() != b.getYear()) {
+            return -25;
+        }
+        if (a.getDayOfMonth() == b.getMonthValue() && a.getMonthValue() == b.getDayOfMonth()) {
+            reasons.add(ReasonEnum.DAY_MONTH_SWAPPED);
+            return 20;
+        }
+        reasons.add(ReasonEnum.BIRTH_YEAR);
+        return 5;
+    }
+}
\ No newline at end of file
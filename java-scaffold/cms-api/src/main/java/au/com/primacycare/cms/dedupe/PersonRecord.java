@@ -0,0 +1,76 @@
+package au.com.primacycare.cms.dedupe;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The identifying details of a referred person or participant, normalised for comparison
+ *
+ * @param firstName   first word of the given names, lower-case ASCII; empty if unknown
+ * @param lastName    last word of the family name, lower-case ASCII; empty if unknown
+ * @param phoneSuffix last four digits of the phone number, or NO_PHONE
+ * @param ndisNumber  nine digits, or null
+ */
+public record PersonRecord(PersonSource source, String id, String name, String firstName, String lastName,
+                           int firstCode, int lastCode, LocalDate dateOfBirth, int phoneSuffix, String ndisNumber) {
+    
+    public static final int NO_PHONE = -1;
+    
+    /**
+     * From a single name field, as referrals hold it: "First Middle Last" or "Last, First"
+     */
+    public static PersonRecord ofFullName(PersonSource source, String id, String fullName, LocalDate dateOfBirth,
+                                          String phone, String ndisNumber) {
+        List<String> words = PhoneticKey.words(fullName);
+        // A single word is kept as the family name
+        String first = words.size() > 1 ? words.get(0) : "";
+        String last = words.isEmpty() ? "" : words.get(words.size() - 1);
+        int comma = fullName != null ? fullName.indexOf(',') : -1;
+        if (comma > 0) {
+            List<String> family = PhoneticKey.words(fullName.substring(0, comma));
+            List<String> given = PhoneticKey.words(fullName.substring(comma + 1));
+            first = given.isEmpty() ? "" : given.get(0);
+            last = family.isEmpty() ? "" : family.get(family.size() - 1);
+        }
+        return of(source, id, fullName, first, last, dateOfBirth, phone, ndisNumber);
+    }
+    
+    /**
+     * From separate name fields, as participants hold them
+     */
+    public static PersonRecord ofNames(PersonSource source, String id, String firstName, String lastName,
+                                       LocalDate dateOfBirth, String phone, String ndisNumber) {
+        List<String> givenWords = PhoneticKey.words(firstName);
+        List<String> familyWords = PhoneticKey.words(lastName);
+        String name = ((firstName != null ? firstName : "") + " " + (lastName != null ? lastName : "")).trim();
+        return of(source, id, name,
+            givenWords.isEmpty() ? "" : givenWords.get(0),
+            familyWords.isEmpty() ? "" : familyWords.get(familyWords.size() - 1),
+            dateOfBirth, phone, ndisNumber);
+    }
+    
+    private static PersonRecord of(PersonSource source, String id, String name, String first, String last,
+                                   LocalDate dateOfBirth, String phone, String ndisNumber) {
+        return new PersonRecord(source, id, name, first, last, PhoneticKey.encode(first), PhoneticKey.encode(last),
+            dateOfBirth, phoneSuffix(phone), ndisNumber(ndisNumber));
+    }
+    
+    /**
+     * Last four digits; numbers too short to be real are ignored
+     */
+    static int phoneSuffix(String phone) {
+        if (phone == null) {
+            return NO_PHONE;
+        }
+        String digits = phone.replaceAll("\\D", "");
+        return digits.length() < 8 ? NO_PHONE : Integer.parseInt(digits.substring(digits.length() - 4));
+    }
+    
+    static String ndisNumber(String ndisNumber) {
+        if (ndisNumber == null) {
+            return null;
+        }
+        String digits = ndisNumber.replaceAll("\\D", "");
+        return digits.length() == 9 ? digits : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package au.com.primacycare.cms.dedupe;
+
+/**
+ * Where a person compared for duplicates is recorded
+ */
+public enum PersonSource {
+    REFERRAL("referral"),
+    PARTICIPANT("participant");
+    
+    private final String code;
+    
+    PersonSource(String code) {
+        this.code = code;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public static PersonSource fromCode(String code) {
+        for (PersonSource source : values()) {
+            if (source.code.equals(code)) {
+                return source;
+            }
+        }
+        throw new IllegalArgumentException("Unknown person source: " + code);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package au.com.primacycare.cms.dedupe;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Phonetic name codes for duplicate blocking: American Soundex after Metaphone-style rules for
+ * the first letters, so Catherine/Katherine, Philips/Filips and MacDonald/McDonald share a code
+ *
+ * A code is the first letter and three digits packed into an int below 2^14; 0 means no code.
+ */
+public final class PhoneticKey {
+    
+    public static final int NONE = 0;
+    
+    // Soundex digit per letter; 0 for vowels and y, -1 for h and w, which do not separate equal digits
+    private static final int[] DIGITS = {
+        0, 1, 2, 3, 0, 1, 2, -1, 0, 2, 2, 4, 5, 5, 0, 1, 2, 6, 2, 3, 0, 1, -1, 2, 0, 2
+    };
+    
+    private PhoneticKey() {
+    }
+    
+    /**
+     * Lower-case ASCII words of a name: accents removed, split on anything but letters
+     */
+    public static List<String> words(String name) {
+        List<String> words = new ArrayList<>();
+        if (name == null) {
+            return words;
+        }
+        String folded = Normalizer.normalize(name, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "")
+            .replace("'", "")
+            .toLowerCase(Locale.ROOT);
+        for (String word : folded.split("[^a-z]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+    
+    /**
+     * @param word lower-case letters, as from words
+     */
+    public static int encode(String word) {
+        if (word == null || word.isEmpty()) {
+            return NONE;
+        }
+        String normalised = normaliseStart(word);
+        char first = normalised.charAt(0);
+        int code = (first - 'a') + 1;
+        int digits = 0;
+        int previous = DIGITS[first - 'a'];
+        for (int i = 1; i < normalised.length() && digits < 3; i++) {
+            char c = normalised.charAt(i);
+            if (c < 'a' || c > 'z') {
+                continue;
+            }
+            int digit = DIGITS[c - 'a'];
+            if (digit < 0) {
+                continue;
+            }
+            if (digit > 0 && digit != previous) {
+                code = code * 7 + digit;
+                digits++;
+            }
+            previous = digit;
+        }
+        for (; digits < 3; digits++) {
+            code *= 7;
+        }
+        return code;
+    }
+    
+    /**
+     * Soundex string form, e.g. R163, for logs and tests
+     */
+    public static String toString(int code) {
+        if (code == NONE) {
+            return "";
+        }
+        char[] chars = new char[4];
+        for (int i = 3; i > 0; i--) {
+            chars[i] = (char) ('0' + code % 7);
+            code /= 7;
+        }
+        chars[0] = (char) ('A' + code - 1);
+        return new String(chars);
+    }
+    
+    private static String normaliseStart(String word) {
+        if (word.startsWith("mac") && word.length() > 4) {
+            word = "mc" + word.substring(3);
+        }
+        if (word.length() < 2) {
+            return word;
+        }
+        String start = word.substring(0, 2);
+        switch (start) {
+            case "ph":
+                return "f" + word.substring(2);
+            case "kn", "gn", "pn":
+                return word.substring(1);
+            case "wr":
+                return "r" + word.substring(2);
+            case "wh":
+                return "w" + word.substring(2);
+            case "ps":
+                return "s" + word.substring(2);
+            default:
+                break;
+        }
+        return switch (word.charAt(0)) {
+            case 'x' -> "s" + word.substring(1);
+            case 'c' -> "eiy".indexOf(word.charAt(1)) >= 0 ? "s" + word.substring(1) : "k" + word.substring(1);
+            case 'q' -> "k" + word.substring(1);
+            default -> word;
+        };
+    }
+}
\ No newline at end of file
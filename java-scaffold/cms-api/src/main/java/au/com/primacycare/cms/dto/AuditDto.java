@@ -0,0 +1,27 @@
+package au.com.primacycare.cms.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Audit trail entry
+ * Mirrors: shared/schema.ts audits table
+ */
+@Data
+public class AuditDto {
+    
+    private String id;
+    private String entityType;
+    private String entityId;
+    private String action;
+    private String userId;
+    private LocalDateTime timestamp;
+    
+    // JSON documents as stored; only changed fields for updates
+    private String oldValues;
+    private String newValues;
+    
+    private String ipAddress;
+    private String userAgent;
+}
\ No newline at end of file
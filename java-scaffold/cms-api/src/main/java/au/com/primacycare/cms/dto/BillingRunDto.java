@@ -0,0 +1,109 @@
+package au.com.primacycare.cms.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Status of a billing run over a billing period
+ * Totals are summed over completed partitions
+ */
+@Data
+public class BillingRunDto {
+    
+    private String id;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate periodStart;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate periodEnd;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate issueDate;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate dueDate;
+    
+    private StatusEnum status;
+    private int partitionCount;
+    private int completedPartitions;
+    private int failedPartitions;
+    private int participantCount;
+    private int invoiceCount;
+    private int lineCount;
+    /** Services left uninvoiced because they have neither a rate nor a price limit */
+    private int unpricedCount;
+    private BigDecimal subtotal;
+    private BigDecimal gst;
+    private BigDecimal total;
+    private String createdBy;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime createdAt;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime startedAt;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime finishedAt;
+    
+    private List<Partition> partitions;
+    
+    @Data
+    public static class Partition {
+        private int partitionNo;
+        /** Inclusive; null for the first partition */
+        private String firstParticipantId;
+        /** Exclusive, the next partition's first participant ID; null for the last partition */
+        private String endParticipantId;
+        private PartitionStatusEnum status;
+        private int participantCount;
+        private int invoiceCount;
+        private int lineCount;
+        private int unpricedCount;
+        private BigDecimal total;
+        private int attempts;
+        private String error;
+        
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+        private LocalDateTime startedAt;
+        
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+        private LocalDateTime finishedAt;
+    }
+    
+    public enum StatusEnum {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+    
+    public enum PartitionStatusEnum {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
+
+@Data
+class StartBillingRunDto {
+    
+    @NotNull(message = "Period start is required")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate periodStart;
+    
+    @NotNull(message = "Period end is required")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate periodEnd;
+    
+    /** Defaults to today */
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate issueDate;
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package au.com.primacycare.cms.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-row outcome report for a participant bulk import
+ */
+@Data
+public class BulkImportResultDto {
+    
+    private int totalRows;
+    private int created;
+    private int invalid;
+    private int duplicates;
+    private int failed;
+    private List<RowResult> rows = new ArrayList<>();
+    
+    public void add(RowResult row) {
+        rows.add(row);
+        totalRows++;
+        switch (row.getStatus()) {
+            case CREATED -> created++;
+            case INVALID -> invalid++;
+            case DUPLICATE -> duplicates++;
+            case FAILED -> failed++;
+        }
+    }
+    
+    @Data
+    public static class RowResult {
+        private int rowNumber;
+        private String ndisNumber;
+        private RowStatusEnum status;
+        private String participantId;
+        private List<String> errors;
+        
+        public static RowResult of(int rowNumber, String ndisNumber, RowStatusEnum status, List<String> errors) {
+            RowResult row = new RowResult();
+            row.setRowNumber(rowNumber);
+            row.setNdisNumber(ndisNumber);
+            row.setStatus(status);
+            row.setErrors(errors);
+            return row;
+        }
+    }
+    
+    public enum RowStatusEnum {
+        CREATED,
+        INVALID,
+        DUPLICATE,
+        FAILED
+    }
+}
\ No newline at end of file
@@ -0,0 +1,22 @@
+package au.com.primacycare.cms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Keyset (seek) page response. Unlike Page it carries no totals, so no COUNT(*) is issued.
+ * Pass nextCursor back as the cursor parameter to fetch the following page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDto<T> {
+    
+    private List<T> content;
+    private Integer size;
+    private String nextCursor;
+    private Boolean hasNext;
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package au.com.primacycare.cms.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A referral or participant that may be the same person as a referral
+ * Status and detectedAt are only set for candidates recorded against a referral
+ */
+@Data
+public class DuplicateCandidateDto {
+    
+    /** referral or participant */
+    private String subjectType;
+    private String subjectId;
+    private String name;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate dateOfBirth;
+    
+    private String ndisNumber;
+    /** 0 to 100 */
+    private int score;
+    private List<ReasonEnum> reasons;
+    private StatusEnum status;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime detectedAt;
+    
+    public enum ReasonEnum {
+        NDIS_NUMBER,
+        NAME,
+        SIMILAR_NAME,
+        NAMES_SWAPPED,
+        DATE_OF_BIRTH,
+        /** Dates of birth equal with day and month swapped, as from a US-format entry */
+        DAY_MONTH_SWAPPED,
+        BIRTH_YEAR,
+        PHONE
+    }
+    
+    public enum StatusEnum {
+        PENDING,
+        CONFIRMED,
+        DISMISSED
+    }
+}
+
+/**
+ * The details of a person about to be referred, checked before the referral is created
+ */
+@Data
+class DuplicateCheckDto {
+    
+    @NotBlank(message = "Participant name is required")
+    @Size(min = 2, max = 255)
+    private String participantName;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate participantDob;
+    
+    @Pattern(regexp = "^\\d{9}$", message = "NDIS number must be 9 digits")
+    private String participantNdis;
+    
+    private String participantPhone;
+}
\ No newline at end of file
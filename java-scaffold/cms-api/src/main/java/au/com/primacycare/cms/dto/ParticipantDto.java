@@ -1,5 +1,6 @@
 package au.com.primacycare.cms.dto;
 
+import au.com.primacycare.cms.exception.InvalidRequestException;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.*;
@@ -91,6 +92,9 @@ public class ParticipantDto {
     private String transportMethod;
     private String dietaryRequirements;
     
+    // Lifecycle status (stored as display name)
+    private String status;
+    
     // Support plans
     private String behaviourSupportPlan;
     private String riskAssessment;
@@ -114,6 +118,8 @@ public class ParticipantDto {
     private String createdBy;
     private String stateId;
     private String regionId;
+    private Double latitude;
+    private Double longitude;
     
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime createdAt;
@@ -132,6 +138,36 @@ public class ParticipantDto {
     private RegionDto region;
     private List<NdisPlanSummaryDto> recentPlans;
     private List<ServiceSummaryDto> recentServices;
+    
+    public enum ParticipantStatusEnum {
+        ACTIVE("Active"),
+        ON_HOLD("On Hold"),
+        INACTIVE("Inactive"),
+        EXITED("Exited");
+        
+        private final String displayName;
+        
+        ParticipantStatusEnum(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+        
+        /**
+         * Resolve from either the enum name or the stored display name, ignoring case
+         */
+        public static ParticipantStatusEnum fromValue(String value) {
+            for (ParticipantStatusEnum status : values()) {
+                if (status.name().equalsIgnoreCase(value.replace(' ', '_'))
+                        || status.displayName.equalsIgnoreCase(value)) {
+                    return status;
+                }
+            }
+            throw new InvalidRequestException("Unknown participant status: " + value);
+        }
+    }
 }
 
 /**
@@ -212,6 +248,14 @@ class CreateParticipantDto {
     private String notes;
     private String stateId;
     private String regionId;
+    
+    @DecimalMin(value = "-90.0")
+    @DecimalMax(value = "90.0")
+    private Double latitude;
+    
+    @DecimalMin(value = "-180.0")
+    @DecimalMax(value = "180.0")
+    private Double longitude;
 }
 
 /**
@@ -222,4 +266,7 @@ class CreateParticipantDto {
 class UpdateParticipantDto extends CreateParticipantDto {
     // Inherits all fields from CreateParticipantDto
     // All fields are optional for updates
+    
+    @Size(max = 50)
+    private String status;
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+package au.com.primacycare.cms.dto;
+
+import au.com.primacycare.cms.entity.Participant;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Normalised participant list filter
+ * Immutable with value equality, so it doubles as the cache key for filtered pages
+ * ndisPrefix matches NDIS numbers that start with it; a value from the middle of a number matches nothing
+ */
+public record ParticipantFilter(
+        String status,
+        String ndisPrefix,
+        String regionId,
+        String stateId,
+        String fundingType,
+        LocalDate createdFrom,
+        LocalDate createdTo) {
+    
+    public static final ParticipantFilter NONE = new ParticipantFilter(null, null, null, null, null, null, null);
+    
+    /**
+     * Build a filter from raw request parameters: trims values, drops blanks,
+     * canonicalises status to its stored display name and orders the date range
+     */
+    public static ParticipantFilter of(String status, String ndisPrefix, String regionId, String stateId,
+                                       String fundingType, LocalDate createdFrom, LocalDate createdTo) {
+        if (createdFrom != null && createdTo != null && createdFrom.isAfter(createdTo)) {
+            LocalDate swap = createdFrom;
+            createdFrom = createdTo;
+            createdTo = swap;
+        }
+        String normalisedStatus = blankToNull(status);
+        if (normalisedStatus != null) {
+            normalisedStatus = ParticipantDto.ParticipantStatusEnum.fromValue(normalisedStatus).getDisplayName();
+        }
+        return new ParticipantFilter(
+            normalisedStatus,
+            blankToNull(ndisPrefix),
+            blankToNull(regionId) != null ? regionId.trim().toLowerCase(Locale.ROOT) : null,
+            blankToNull(stateId) != null ? stateId.trim().toLowerCase(Locale.ROOT) : null,
+            blankToNull(fundingType),
+            createdFrom,
+            createdTo);
+    }
+    
+    public boolean isEmpty() {
+        return NONE.equals(this);
+    }
+    
+    /**
+     * In-memory equivalent of the database predicate, used to decide which cached pages a row belongs to
+     */
+    public boolean matches(Participant participant) {
+        return matches(Attributes.of(participant));
+    }
+    
+    public boolean matches(Attributes participant) {
+        if (status != null && !status.equals(participant.status())) {
+            return false;
+        }
+        if (ndisPrefix != null && (participant.ndisNumber() == null || !participant.ndisNumber().startsWith(ndisPrefix))) {
+            return false;
+        }
+        if (regionId != null && !regionId.equalsIgnoreCase(participant.regionId())) {
+            return false;
+        }
+        if (stateId != null && !stateId.equalsIgnoreCase(participant.stateId())) {
+            return false;
+        }
+        if (fundingType != null && !fundingType.equals(participant.fundingType())) {
+            return false;
+        }
+        if (createdFrom != null || createdTo != null) {
+            // Rows not yet flushed have no timestamp but will be stamped "now"
+            LocalDate created = participant.createdAt() != null
+                ? participant.createdAt().toLocalDate()
+                : LocalDate.now();
+            if (createdFrom != null && created.isBefore(createdFrom)) {
+                return false;
+            }
+            if (createdTo != null && created.isAfter(createdTo)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * The filterable columns of a participant, captured before an update so the entity need not be cloned
+     */
+    public record Attributes(
+            String status,
+            String ndisNumber,
+            String regionId,
+            String stateId,
+            String fundingType,
+            LocalDateTime createdAt) {
+        
+        public static Attributes of(Participant participant) {
+            return new Attributes(
+                participant.getStatus(),
+                participant.getNdisNumber(),
+                participant.getRegionId(),
+                participant.getStateId(),
+                participant.getFundingType(),
+                participant.getCreatedAt());
+        }
+    }
+    
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package au.com.primacycare.cms.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Slim participant row for list views
+ * Built from a single projection query; use ParticipantDto for the detail view
+ */
+@Data
+public class ParticipantListItemDto {
+    
+    private String id;
+    private String firstName;
+    private String lastName;
+    private String preferredName;
+    private String ndisNumber;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate dateOfBirth;
+    
+    private String phone;
+    private String email;
+    private String fundingType;
+    private String stateId;
+    private String regionId;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime createdAt;
+    
+    // Related data counts
+    private Integer activeServicesCount;
+    private Integer goalsCount;
+    private String currentPlanStatus;
+}
\ No newline at end of file
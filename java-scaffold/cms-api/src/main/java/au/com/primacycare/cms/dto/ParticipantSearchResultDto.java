@@ -0,0 +1,21 @@
+package au.com.primacycare.cms.dto;
+
+import lombok.Data;
+
+/**
+ * Ranked participant match for type-ahead search
+ */
+@Data
+public class ParticipantSearchResultDto {
+    
+    private String id;
+    private String firstName;
+    private String lastName;
+    private String preferredName;
+    private String ndisNumber;
+    private String phone;
+    private String status;
+    
+    // Word similarity of the query against the combined search text (0-1)
+    private Double score;
+}
\ No newline at end of file
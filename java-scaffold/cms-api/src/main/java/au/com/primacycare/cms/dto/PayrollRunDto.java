@@ -0,0 +1,92 @@
+package au.com.primacycare.cms.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Status of an organisation-wide payroll run
+ * Totals are summed over completed partitions
+ */
+@Data
+public class PayrollRunDto {
+    
+    private String id;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate periodStart;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate periodEnd;
+    
+    private StatusEnum status;
+    private int partitionCount;
+    private int completedPartitions;
+    private int failedPartitions;
+    private int staffCount;
+    private int shiftCount;
+    private BigDecimal grossPay;
+    private String createdBy;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime createdAt;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime startedAt;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime finishedAt;
+    
+    private List<Partition> partitions;
+    
+    @Data
+    public static class Partition {
+        private int partitionNo;
+        /** Inclusive; null for the first partition */
+        private String firstStaffId;
+        /** Exclusive, the next partition's first staff ID; null for the last partition */
+        private String endStaffId;
+        private PartitionStatusEnum status;
+        private int staffCount;
+        private int shiftCount;
+        private BigDecimal grossPay;
+        private int attempts;
+        private String error;
+        
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+        private LocalDateTime startedAt;
+        
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+        private LocalDateTime finishedAt;
+    }
+    
+    public enum StatusEnum {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+    
+    public enum PartitionStatusEnum {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
+
+@Data
+class StartPayrollRunDto {
+    
+    @NotNull(message = "Period start is required")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate periodStart;
+    
+    @NotNull(message = "Period end is required")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate periodEnd;
+}
\ No newline at end of file
@@ -0,0 +1,22 @@
+package au.com.primacycare.cms.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Loaded NDIS price guide; error is set when the last reload failed and the previous catalogue was kept
+ */
+@Data
+public class PriceGuideStatusDto {
+    
+    private String source;
+    private int itemCount;
+    private int versionCount;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime loadedAt;
+    
+    private String error;
+}
\ No newline at end of file
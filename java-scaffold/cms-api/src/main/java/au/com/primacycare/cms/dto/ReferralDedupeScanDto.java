@@ -0,0 +1,20 @@
+package au.com.primacycare.cms.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of a duplicate scan over all referrals
+ */
+@Data
+public class ReferralDedupeScanDto {
+    
+    private LocalDateTime startedAt;
+    private long durationMillis;
+    /** Referrals and participants indexed */
+    private int people;
+    private int referralsScanned;
+    /** Candidate pairs recorded or refreshed; pairs already confirmed or dismissed are not counted */
+    private int candidates;
+}
\ No newline at end of file
@@ -8,7 +8,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 /**
- * Referral DTOs for the 9-stage workflow management
+ * Referral DTOs for the 12-stage workflow management
  */
 @Data
 public class ReferralDto {
@@ -83,6 +83,9 @@ public class ReferralDto {
     private List<WorkflowHistoryDto> workflowHistory;
     private StaffSummaryDto assignedStaff;
     
+    // Duplicate detection, set when the referral is created
+    private List<DuplicateCandidateDto> duplicateCandidates;
+    
     public enum UrgencyEnum {
         LOW("Low - Routine"),
         MEDIUM("Medium - Within 7 days"),
@@ -94,6 +97,10 @@ public class ReferralDto {
         UrgencyEnum(String displayName) {
             this.displayName = displayName;
         }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
     }
     
     public enum ReferralStatusEnum {
@@ -147,19 +154,13 @@ public class ReferralDto {
         WorkflowStageEnum(String displayName) {
             this.displayName = displayName;
         }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
     }
 }
 
-@Data
-class WorkflowHistoryDto {
-    private String id;
-    private WorkflowStageEnum stage;
-    private LocalDateTime timestamp;
-    private String performedBy;
-    private String notes;
-    private Boolean automated;
-}
-
 @Data
 class CreateReferralDto {
     
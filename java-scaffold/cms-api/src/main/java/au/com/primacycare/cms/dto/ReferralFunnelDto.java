@@ -0,0 +1,47 @@
+package au.com.primacycare.cms.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Referral conversion funnel and time in stage for one segment
+ * Segment filters are null when not applied
+ */
+@Data
+public class ReferralFunnelDto {
+    
+    private String source;
+    private ReferralDto.UrgencyEnum urgency;
+    private String regionId;
+    /** Latest workflow history included */
+    private LocalDateTime asOf;
+    private List<Stage> stages;
+    
+    /**
+     * Durations are in minutes, to within 12.5%, over the referrals that have left the stage
+     */
+    @Data
+    public static class Stage {
+        private ReferralDto.WorkflowStageEnum stage;
+        /** Referrals that reached the stage moving forward */
+        private long entered;
+        /** Referrals sent back to the stage from a later one */
+        private long returned;
+        private long advanced;
+        private long sentBack;
+        /** In the stage now */
+        private long current;
+        /** entered as a fraction of referrals received */
+        private double conversionRate;
+        /** entered as a fraction of the previous stage's entered */
+        private double stepConversionRate;
+        private long completedVisits;
+        private long meanMinutes;
+        private long medianMinutes;
+        private long p90Minutes;
+        private long p99Minutes;
+        private long maxMinutes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package au.com.primacycare.cms.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Status and result of a batch roster allocation job
+ * Assignments and unallocated services are only present once the job has completed
+ */
+@Data
+public class RosterAllocationDto {
+    
+    private String jobId;
+    private StatusEnum status;
+    private String phase;
+    private int processed;
+    private int total;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate from;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate to;
+    
+    private String requestedBy;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime createdAt;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime finishedAt;
+    
+    private Integer assignedCount;
+    private Integer unallocatedCount;
+    private Integer appliedCount;
+    private String error;
+    
+    private List<Assignment> assignments;
+    private List<Unallocated> unallocated;
+    
+    @Data
+    public static class Assignment {
+        private String serviceId;
+        private String staffId;
+        private String staffName;
+        private int matchScore;
+        private boolean publicHoliday;
+    }
+    
+    @Data
+    public static class Unallocated {
+        private String serviceId;
+        private String reason;
+    }
+    
+    public enum StatusEnum {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED,
+        APPLIED
+    }
+}
+
+@Data
+class RosterAllocationRequestDto {
+    
+    @NotNull(message = "From date is required")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate from;
+    
+    @NotNull(message = "To date is required")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate to;
+}
\ No newline at end of file
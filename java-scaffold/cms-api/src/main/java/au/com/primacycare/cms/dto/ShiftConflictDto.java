@@ -0,0 +1,32 @@
+package au.com.primacycare.cms.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Two shifts of one staff member that overlap or leave less than the minimum rest between days
+ */
+@Data
+public class ShiftConflictDto {
+    
+    private String staffId;
+    private String shiftId;
+    private String conflictingShiftId;
+    private ConflictTypeEnum type;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm")
+    private LocalDateTime shiftStart;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm")
+    private LocalDateTime conflictingShiftStart;
+    
+    // From the end of the first shift to the start of the second; negative when they overlap
+    private Integer gapMinutes;
+    
+    public enum ConflictTypeEnum {
+        OVERLAP,
+        REST_PERIOD
+    }
+}
\ No newline at end of file
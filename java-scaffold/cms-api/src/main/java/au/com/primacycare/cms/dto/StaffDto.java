@@ -47,12 +47,16 @@ public class StaffDto {
     
     private List<String> qualifications;
     private List<String> certifications;
+    private List<String> languagesSpoken;
+    private String culturalBackground;
     
     private String emergencyContact;
     private String emergencyPhone;
     
     private String stateId;
     private String regionId;
+    private Double latitude;
+    private Double longitude;
     
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
     private LocalDateTime createdAt;
@@ -132,6 +136,8 @@ class CreateStaffDto {
     
     private List<String> qualifications;
     private List<String> certifications;
+    private List<String> languagesSpoken;
+    private String culturalBackground;
     
     private String emergencyContact;
     
@@ -140,6 +146,14 @@ class CreateStaffDto {
     
     private String stateId;
     private String regionId;
+    
+    @DecimalMin(value = "-90.0")
+    @DecimalMax(value = "90.0")
+    private Double latitude;
+    
+    @DecimalMin(value = "-180.0")
+    @DecimalMax(value = "180.0")
+    private Double longitude;
 }
 
 @Data
@@ -169,6 +183,8 @@ class UpdateStaffDto {
     
     private List<String> qualifications;
     private List<String> certifications;
+    private List<String> languagesSpoken;
+    private String culturalBackground;
     
     private String emergencyContact;
     
@@ -177,6 +193,14 @@ class UpdateStaffDto {
     
     private String stateId;
     private String regionId;
+    
+    @DecimalMin(value = "-90.0")
+    @DecimalMax(value = "90.0")
+    private Double latitude;
+    
+    @DecimalMin(value = "-180.0")
+    @DecimalMax(value = "180.0")
+    private Double longitude;
 }
 
 @Data
@@ -196,6 +220,9 @@ class StaffAvailabilityDto {
     private String endTime;
     
     private Boolean available = true;
+    
+    // Overlaps a booked shift or its rest period in the requested week
+    private Boolean hasConflict;
 }
 
 @Data
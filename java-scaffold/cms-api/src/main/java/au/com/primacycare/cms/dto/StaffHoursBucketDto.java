@@ -0,0 +1,78 @@
+package au.com.primacycare.cms.dto;
+
+import au.com.primacycare.cms.exception.InvalidRequestException;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+
+/**
+ * Hours and utilisation of one staff member or department over one time bucket
+ */
+@Data
+public class StaffHoursBucketDto {
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate bucketStart;
+    
+    // Exclusive
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate bucketEnd;
+    
+    private Double hours;
+    private Integer shiftCount;
+    private Double availableHours;
+    private Double utilizationRate;
+    
+    public enum WindowEnum {
+        DAY("1 day"),
+        WEEK("7 days"),
+        MONTH("1 month"),
+        PAY_PERIOD("14 days");
+        
+        // PostgreSQL interval literal for generate_series
+        private final String interval;
+        
+        WindowEnum(String interval) {
+            this.interval = interval;
+        }
+        
+        public String getInterval() {
+            return interval;
+        }
+        
+        /**
+         * Start of the bucket containing the date; pay periods are fortnights counted from the anchor
+         */
+        public LocalDate bucketStart(LocalDate date, LocalDate payPeriodAnchor) {
+            return switch (this) {
+                case DAY -> date;
+                case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> date.withDayOfMonth(1);
+                case PAY_PERIOD -> payPeriodAnchor.plusDays(
+                    Math.floorDiv(ChronoUnit.DAYS.between(payPeriodAnchor, date), 14) * 14);
+            };
+        }
+        
+        public LocalDate plus(LocalDate bucketStart, long buckets) {
+            return switch (this) {
+                case DAY -> bucketStart.plusDays(buckets);
+                case WEEK -> bucketStart.plusWeeks(buckets);
+                case MONTH -> bucketStart.plusMonths(buckets);
+                case PAY_PERIOD -> bucketStart.plusWeeks(buckets * 2);
+            };
+        }
+        
+        public static WindowEnum fromValue(String value) {
+            try {
+                return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+            } catch (RuntimeException e) {
+                throw new InvalidRequestException("Unknown metrics window: " + value);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package au.com.primacycare.cms.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Current workflow stage of a referral or participant
+ * version increases with every transition; send it back as expectedVersion to move from the stage shown
+ */
+@Data
+public class WorkflowDto {
+    
+    private String subjectType;
+    private String subjectId;
+    private ReferralDto.WorkflowStageEnum stage;
+    private int version;
+    private Set<ReferralDto.WorkflowStageEnum> nextStages;
+    private String updatedBy;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime updatedAt;
+    
+    private List<WorkflowHistoryDto> history;
+}
+
+@Data
+class WorkflowTransitionDto {
+    
+    @NotNull(message = "Target stage is required")
+    private ReferralDto.WorkflowStageEnum targetStage;
+    
+    /** Refuse the transition if the workflow has moved since this version was read */
+    private Integer expectedVersion;
+    
+    @Size(max = 2000)
+    private String notes;
+}
+
+@Data
+class BulkWorkflowTransitionDto {
+    
+    @NotEmpty(message = "At least one referral is required")
+    @Size(max = 1000, message = "At most 1000 referrals per request")
+    private List<String> subjectIds;
+    
+    @NotNull(message = "Target stage is required")
+    private ReferralDto.WorkflowStageEnum targetStage;
+    
+    @Size(max = 2000)
+    private String notes;
+}
\ No newline at end of file
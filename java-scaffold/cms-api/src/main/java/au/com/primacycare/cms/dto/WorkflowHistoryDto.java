@@ -0,0 +1,25 @@
+package au.com.primacycare.cms.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One workflow transition, as recorded in workflow_history
+ */
+@Data
+public class WorkflowHistoryDto {
+    private String id;
+    private ReferralDto.WorkflowStageEnum fromStage;
+    private ReferralDto.WorkflowStageEnum stage;
+    /** Workflow version after the transition */
+    private Integer version;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
+    private LocalDateTime timestamp;
+    
+    private String performedBy;
+    private String notes;
+    private Boolean automated;
+}
\ No newline at end of file
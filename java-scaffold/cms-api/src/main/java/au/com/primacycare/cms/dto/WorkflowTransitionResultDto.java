@@ -0,0 +1,37 @@
+package au.com.primacycare.cms.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk workflow transition, per subject in request order
+ * Subjects that could not move do not stop the others
+ */
+@Data
+public class WorkflowTransitionResultDto {
+    
+    private ReferralDto.WorkflowStageEnum targetStage;
+    private int transitioned;
+    private int rejected;
+    private int conflicts;
+    private int notFound;
+    private List<Item> items;
+    
+    @Data
+    public static class Item {
+        private String subjectId;
+        private OutcomeEnum outcome;
+        private ReferralDto.WorkflowStageEnum fromStage;
+        private Integer version;
+        private String reason;
+    }
+    
+    public enum OutcomeEnum {
+        TRANSITIONED,
+        REJECTED,
+        /** Moved by someone else since it was read */
+        CONFLICT,
+        NOT_FOUND
+    }
+}
\ No newline at end of file
@@ -20,7 +20,11 @@ import java.util.List;
 @Table(name = "participants", indexes = {
     @Index(name = "idx_participants_ndis", columnList = "ndis_number"),
     @Index(name = "idx_participants_user", columnList = "user_id"),
-    @Index(name = "idx_participants_created", columnList = "created_at")
+    @Index(name = "idx_participants_created_id", columnList = "created_at DESC, id DESC"),
+    @Index(name = "idx_participants_status_created", columnList = "status, created_at DESC, id DESC"),
+    @Index(name = "idx_participants_region", columnList = "region_id, status"),
+    @Index(name = "idx_participants_state", columnList = "state_id, status"),
+    @Index(name = "idx_participants_funding", columnList = "funding_type, status")
 })
 @Data
 @EqualsAndHashCode(callSuper = true)
@@ -149,6 +153,10 @@ public class Participant extends BaseAuditEntity {
     @Column(name = "funding_type", length = 50)
     private String fundingType;
     
+    @NotNull
+    @Column(name = "status", length = 50)
+    private String status = "Active";
+    
     @Column(name = "transport_method", length = 100)
     private String transportMethod;
     
@@ -188,6 +196,16 @@ public class Participant extends BaseAuditEntity {
     @Column(name = "region_id", length = 36)
     private String regionId;
     
+    // Geocoded address, optional; geohash is derived by ParticipantMapper
+    @Column(name = "latitude")
+    private Double latitude;
+    
+    @Column(name = "longitude")
+    private Double longitude;
+    
+    @Column(name = "geohash", length = 12)
+    private String geohash;
+    
     // One-to-Many relationships
     @OneToMany(mappedBy = "participant", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<NdisPlan> ndisPlans = new ArrayList<>();
@@ -0,0 +1,10 @@
+package au.com.primacycare.cms.event;
+
+import au.com.primacycare.cms.dedupe.PersonRecord;
+
+/**
+ * Published inside the transaction that creates a referral, with the referred person's
+ * details as compared for duplicates
+ */
+public record ReferralCreatedEvent(String referralId, PersonRecord person) {
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package au.com.primacycare.cms.event;
+
+import au.com.primacycare.cms.entity.Shift;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Published synchronously inside the transaction that creates, re-statuses, reassigns or
+ * clocks out a shift. Carries the metric- and schedule-relevant state before and after the change so
+ * listeners can apply deltas without re-reading the shift.
+ */
+public record ShiftChangedEvent(String shiftId, State before, State after) {
+    
+    public static ShiftChangedEvent created(Shift shift) {
+        return new ShiftChangedEvent(shift.getId(), null, State.of(shift));
+    }
+    
+    public static ShiftChangedEvent changed(State before, Shift shift) {
+        return new ShiftChangedEvent(shift.getId(), before, State.of(shift));
+    }
+    
+    /**
+     * The parts of a shift that feed staff metrics and the shift conflict index
+     */
+    public record State(String staffId, String participantId, LocalDate shiftDate, LocalTime startTime, LocalTime endTime,
+                        String status, BigDecimal totalHours) {
+        
+        public static State of(Shift shift) {
+            return new State(shift.getAssignedStaffId(), shift.getParticipantId(), shift.getShiftDate(),
+                shift.getStartTime(), shift.getEndTime(), shift.getStatus(), shift.getTotalHours());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package au.com.primacycare.cms.event;
+
+/**
+ * Published when a staff member's profile or availability changes
+ */
+public record StaffChangedEvent(String staffId) {
+}
\ No newline at end of file
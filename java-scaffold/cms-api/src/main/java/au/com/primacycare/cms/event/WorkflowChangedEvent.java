@@ -0,0 +1,12 @@
+package au.com.primacycare.cms.event;
+
+import au.com.primacycare.cms.workflow.WorkflowSubject;
+
+import java.util.List;
+
+/**
+ * Published synchronously inside the transaction that starts or moves workflows, once per batch.
+ * Listeners re-read what they need for the subjects after commit.
+ */
+public record WorkflowChangedEvent(WorkflowSubject subject, List<String> subjectIds) {
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+package au.com.primacycare.cms.exception;
+
+/**
+ * A request value the API cannot act on: a malformed pagination cursor, an unknown filter value or
+ * a range that is out of bounds
+ * Answered 400 with the message by ApiExceptionHandler, so the message is written for the caller
+ */
+public class InvalidRequestException extends RuntimeException {
+    
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+    
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
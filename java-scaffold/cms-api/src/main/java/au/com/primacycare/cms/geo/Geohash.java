@@ -0,0 +1,65 @@
+package au.com.primacycare.cms.geo;
+
+/**
+ * Geohash encoding for staff and participant addresses
+ * A shared prefix means nearby points, so 'geohash LIKE prefix%' is an indexable neighbourhood query.
+ * Precision 7 cells are roughly 150 m x 150 m.
+ */
+public final class Geohash {
+    
+    public static final int DEFAULT_PRECISION = 7;
+    
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    
+    private Geohash() {
+    }
+    
+    /**
+     * Encode at the default precision; null when either coordinate is missing
+     */
+    public static String encode(Double latitude, Double longitude) {
+        if (latitude == null || longitude == null) {
+            return null;
+        }
+        return encode(latitude, longitude, DEFAULT_PRECISION);
+    }
+    
+    public static String encode(double latitude, double longitude, int precision) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Coordinates out of range: " + latitude + ", " + longitude);
+        }
+        double minLat = -90, maxLat = 90, minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int index = 0;
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) {
+                    index = (index << 1) | 1;
+                    minLng = mid;
+                } else {
+                    index <<= 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    index = (index << 1) | 1;
+                    minLat = mid;
+                } else {
+                    index <<= 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash.append(BASE32[index]);
+                bit = 0;
+                index = 0;
+            }
+        }
+        return hash.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package au.com.primacycare.cms.geo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense region-to-region centroid distances (km), computed once from regions.centroid_lat/lng
+ * Lookups are two hash probes and an array read; rows are exposed for per-query pre-filtering.
+ *
+ * Regions without a centroid fall back to app.matching.unknown-distance-km, which
+ * preserves the old fixed 10 km answer until centroids are populated.
+ */
+@Component
+@Slf4j
+public class RegionDistanceMatrix {
+    
+    private static final String REGIONS_SQL = """
+        SELECT CAST(id AS VARCHAR) AS id, centroid_lat, centroid_lng
+        FROM regions
+        ORDER BY id
+        """;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final double unknownDistanceKm;
+    
+    private volatile Matrix matrix = new Matrix(Map.of(), new double[0], 0);
+    
+    public RegionDistanceMatrix(JdbcTemplate jdbcTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.matching.unknown-distance-km:10.0}") double unknownDistanceKm) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.unknownDistanceKm = unknownDistanceKm;
+        meterRegistry.gauge("cms.geo.regions", this, m -> m.matrix.size());
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.matching.region-reload-cron:0 0 4 * * *}")
+    public void reload() {
+        List<String> ids = new ArrayList<>();
+        List<double[]> centroids = new ArrayList<>();
+        jdbcTemplate.query(REGIONS_SQL, rs -> {
+            ids.add(rs.getString("id"));
+            double lat = rs.getDouble("centroid_lat");
+            boolean missing = rs.wasNull();
+            double lng = rs.getDouble("centroid_lng");
+            missing |= rs.wasNull();
+            centroids.add(missing ? null : new double[] {lat, lng});
+        });
+        
+        int n = ids.size();
+        Map<String, Integer> ordinals = new HashMap<>(n * 2);
+        double[] distances = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            ordinals.put(ids.get(i), i);
+            double[] a = centroids.get(i);
+            for (int j = i; j < n; j++) {
+                double[] b = centroids.get(j);
+                double km;
+                if (i == j) {
+                    km = 0;
+                } else if (a == null || b == null) {
+                    km = unknownDistanceKm;
+                } else {
+                    km = GeoDistance.haversineKm(a[0], a[1], b[0], b[1]);
+                }
+                distances[i * n + j] = km;
+                distances[j * n + i] = km;
+            }
+        }
+        matrix = new Matrix(ordinals, distances, n);
+        log.info("Region distance matrix loaded: {} regions", n);
+    }
+    
+    /**
+     * Centroid distance in km; the fallback distance when either region is unknown
+     */
+    public double distance(String regionId1, String regionId2) {
+        Matrix current = matrix;
+        Integer a = regionId1 != null ? current.ordinals().get(regionId1) : null;
+        Integer b = regionId2 != null ? current.ordinals().get(regionId2) : null;
+        if (a == null || b == null) {
+            return unknownDistanceKm;
+        }
+        return current.distances()[a * current.size() + b];
+    }
+    
+    private record Matrix(Map<String, Integer> ordinals, double[] distances, int size) {
+    }
+}
\ No newline at end of file
@@ -2,6 +2,8 @@ package au.com.primacycare.cms.mapper;
 
 import au.com.primacycare.cms.dto.*;
 import au.com.primacycare.cms.entity.Participant;
+import au.com.primacycare.cms.geo.Geohash;
+import au.com.primacycare.cms.repository.ParticipantListView;
 import org.mapstruct.*;
 
 /**
@@ -27,6 +29,12 @@ public interface ParticipantMapper {
     @Mapping(target = "recentServices", source = "services")
     ParticipantDto toDto(Participant participant);
     
+    /**
+     * List projection to slim list DTO (no collection access)
+     */
+    @Mapping(target = "currentPlanStatus", expression = "java(Boolean.TRUE.equals(view.getHasActivePlan()) ? \"Active\" : null)")
+    ParticipantListItemDto toListItemDto(ParticipantListView view);
+    
     /**
      * Create DTO to Entity conversion
      */
@@ -43,6 +51,8 @@ public interface ParticipantMapper {
     @Mapping(target = "incidents", ignore = true)
     @Mapping(target = "state", ignore = true)
     @Mapping(target = "region", ignore = true)
+    @Mapping(target = "status", ignore = true) // Defaults to Active
+    @Mapping(target = "geohash", ignore = true) // Derived from coordinates
     Participant toEntity(CreateParticipantDto dto);
     
     /**
@@ -61,8 +71,18 @@ public interface ParticipantMapper {
     @Mapping(target = "incidents", ignore = true)
     @Mapping(target = "state", ignore = true)
     @Mapping(target = "region", ignore = true)
+    @Mapping(target = "status", expression = "java(dto.getStatus() != null ? ParticipantDto.ParticipantStatusEnum.fromValue(dto.getStatus()).getDisplayName() : participant.getStatus())")
+    @Mapping(target = "geohash", ignore = true)
     void updateEntityFromDto(UpdateParticipantDto dto, @MappingTarget Participant participant);
     
+    /**
+     * Keep the geohash in step with the coordinates on create and update
+     */
+    @AfterMapping
+    default void refreshGeohash(@MappingTarget Participant participant) {
+        participant.setGeohash(Geohash.encode(participant.getLatitude(), participant.getLongitude()));
+    }
+    
     /**
      * After mapping enrichment
      */
@@ -80,7 +100,7 @@ public interface ParticipantMapper {
         // Get current active plan status
         if (participant.getNdisPlans() != null && !participant.getNdisPlans().isEmpty()) {
             participant.getNdisPlans().stream()
-                .filter(plan -> plan.getStartDate().isBefore(java.time.LocalDate.now()) 
+                .filter(plan -> plan.getStartDate().isBefore(java.time.LocalDate.now())
                     && plan.getEndDate().isAfter(java.time.LocalDate.now()))
                 .findFirst()
                 .ifPresent(plan -> dto.setCurrentPlanStatus("Active"));
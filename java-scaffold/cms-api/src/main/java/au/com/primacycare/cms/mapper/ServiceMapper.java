@@ -1,17 +1,27 @@
 package au.com.primacycare.cms.mapper;
 
+import au.com.primacycare.cms.calendar.PublicHolidayCalendar;
 import au.com.primacycare.cms.dto.*;
 import au.com.primacycare.cms.entity.Service;
 import au.com.primacycare.cms.entity.Staff;
 import au.com.primacycare.cms.entity.Participant;
+import au.com.primacycare.cms.exception.InvalidRequestException;
+import au.com.primacycare.cms.money.Money;
+import au.com.primacycare.cms.payroll.HolidayLookup;
+import au.com.primacycare.cms.pricing.PriceCatalogue;
+import au.com.primacycare.cms.pricing.PriceGuide;
+import au.com.primacycare.cms.repository.ParticipantLocationView;
+import au.com.primacycare.cms.repository.ParticipantRepository;
 import org.mapstruct.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalTime;
 
 /**
  * MapStruct mapper for Service entity with NDIS price calculations
+ * An abstract class rather than an interface so pricing can consult the price guide and holiday calendar
  */
 @Mapper(
     componentModel = "spring",
@@ -19,7 +29,19 @@ import java.time.LocalTime;
     nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS,
     imports = {BigDecimal.class, Duration.class, LocalTime.class}
 )
-public interface ServiceMapper {
+public abstract class ServiceMapper {
+    
+    /** capRateCents when there is neither a rate nor a price limit */
+    public static final long NO_RATE = -1;
+    
+    @Autowired
+    protected PublicHolidayCalendar publicHolidayCalendar;
+    
+    @Autowired
+    protected PriceGuide priceGuide;
+    
+    @Autowired
+    protected ParticipantRepository participantRepository;
     
     /**
      * Entity to DTO with cost calculations
@@ -27,7 +49,7 @@ public interface ServiceMapper {
     @Mapping(target = "participant", source = "participant", qualifiedByName = "toParticipantSummary")
     @Mapping(target = "assignedStaff", source = "assignedTo", qualifiedByName = "toStaffSummary")
     @Mapping(target = "totalCost", expression = "java(calculateTotalCost(service))")
-    ServiceDto toDto(Service service);
+    public abstract ServiceDto toDto(Service service);
     
     /**
      * Create DTO to Entity
@@ -39,7 +61,7 @@ public interface ServiceMapper {
     @Mapping(target = "assignedStaff", ignore = true)
     @Mapping(target = "durationMinutes", expression = "java(calculateDuration(dto.getStartTime(), dto.getEndTime()))")
     @Mapping(target = "totalCost", expression = "java(calculateCostFromDto(dto))")
-    Service toEntity(CreateServiceDto dto);
+    public abstract Service toEntity(CreateServiceDto dto);
     
     /**
      * Update entity from DTO
@@ -50,13 +72,13 @@ public interface ServiceMapper {
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "participant", ignore = true)
     @Mapping(target = "assignedStaff", ignore = true)
-    void updateEntityFromDto(UpdateServiceDto dto, @MappingTarget Service service);
+    public abstract void updateEntityFromDto(UpdateServiceDto dto, @MappingTarget Service service);
     
     /**
      * Map participant to summary
      */
     @Named("toParticipantSummary")
-    default ParticipantSummaryDto toParticipantSummary(Participant participant) {
+    public ParticipantSummaryDto toParticipantSummary(Participant participant) {
         if (participant == null) return null;
         
         ParticipantSummaryDto summary = new ParticipantSummaryDto();
@@ -72,7 +94,7 @@ public interface ServiceMapper {
      * Map staff to summary
      */
     @Named("toStaffSummary")
-    default StaffSummaryDto toStaffSummary(Staff staff) {
+    public StaffSummaryDto toStaffSummary(Staff staff) {
         if (staff == null) return null;
         
         StaffSummaryDto summary = new StaffSummaryDto();
@@ -86,7 +108,7 @@ public interface ServiceMapper {
     /**
      * Calculate duration in minutes
      */
-    default Integer calculateDuration(LocalTime startTime, LocalTime endTime) {
+    public Integer calculateDuration(LocalTime startTime, LocalTime endTime) {
         if (startTime == null || endTime == null) return null;
         
         Duration duration = Duration.between(startTime, endTime);
@@ -99,83 +121,144 @@ public interface ServiceMapper {
     
     /**
      * Calculate total cost based on NDIS pricing
+     * Worked in whole cents, see Money for the rounding
      */
-    default BigDecimal calculateTotalCost(Service service) {
-        if (service == null || service.getRate() == null || service.getDurationMinutes() == null) {
+    public BigDecimal calculateTotalCost(Service service) {
+        if (service == null || service.getDurationMinutes() == null) {
             return BigDecimal.ZERO;
         }
         
-        // NDIS rates are typically per hour
-        BigDecimal hours = BigDecimal.valueOf(service.getDurationMinutes())
-            .divide(BigDecimal.valueOf(60), 4, RoundingMode.HALF_UP);
-        
-        BigDecimal baseCost = service.getRate().multiply(hours);
-        
-        // Apply rate type multipliers
-        BigDecimal multiplier = getRateMultiplier(service.getRateType());
-        BigDecimal totalCost = baseCost.multiply(multiplier);
-        
-        // Add transport cost if applicable
-        if (service.getTransportCost() != null) {
-            totalCost = totalCost.add(service.getTransportCost());
+        // Price limit for the participant's state and region
+        String stateId = service.getParticipant() != null ? service.getParticipant().getStateId() : null;
+        String regionId = service.getParticipant() != null ? service.getParticipant().getRegionId() : null;
+        long rateCents = hourlyRateCents(service.getItemNumber(), service.getScheduledDate(), stateId, regionId,
+            service.getRate());
+        if (rateCents == NO_RATE) {
+            return BigDecimal.ZERO;
         }
         
-        return totalCost.setScale(2, RoundingMode.HALF_UP);
+        return Money.toBigDecimal(totalCostCents(rateCents, service.getScheduledDate(), stateId,
+            service.getRateType(), service.getDurationMinutes(), service.getTransportCost()));
+    }
+    
+    /**
+     * Hourly rate in cents capped at the price limit for the participant's state and region
+     * NO_RATE when the service has no rate and the item no price limit
+     */
+    public long hourlyRateCents(String itemNumber, LocalDate scheduledDate, String stateId, String regionId,
+                                BigDecimal rate) {
+        return capRateCents(rate, priceGuide.capCents(itemNumber, scheduledDate, stateId, regionId));
+    }
+    
+    /**
+     * Total cost in cents from a service's columns, as calculateTotalCost prices the entity
+     * For billing runs, which stream services instead of loading them
+     *
+     * @param hourlyRateCents from hourlyRateCents
+     */
+    public long totalCostCents(long hourlyRateCents, LocalDate scheduledDate, String stateId, String rateType,
+                               int durationMinutes, BigDecimal transportCost) {
+        // Apply rate type multipliers, public holiday in the participant's state
+        long multiplier = isPublicHoliday(scheduledDate, publicHolidayCalendar.forStateId(stateId))
+            ? multiplierBasisPoints(ServiceDto.RateTypeEnum.PUBLIC_HOLIDAY)
+            : multiplierBasisPoints(rateType);
+        return costCents(hourlyRateCents, durationMinutes, multiplier, transportCost);
     }
     
     /**
      * Calculate cost from DTO
+     * Priced for the participant's state and region, as calculateTotalCost prices the entity
      */
-    default BigDecimal calculateCostFromDto(CreateServiceDto dto) {
+    public BigDecimal calculateCostFromDto(CreateServiceDto dto) {
+        priceGuide.validateItem(dto.getItemNumber(), dto.getScheduledDate());
+        
         if (dto.getTotalCost() != null) {
             return dto.getTotalCost();
         }
-        
-        if (dto.getRate() == null || dto.getDurationMinutes() == null) {
+        if (dto.getDurationMinutes() == null) {
             return BigDecimal.ZERO;
         }
         
-        BigDecimal hours = BigDecimal.valueOf(dto.getDurationMinutes())
-            .divide(BigDecimal.valueOf(60), 4, RoundingMode.HALF_UP);
-        
-        BigDecimal baseCost = dto.getRate().multiply(hours);
-        BigDecimal multiplier = getRateMultiplier(dto.getRateType());
-        BigDecimal totalCost = baseCost.multiply(multiplier);
-        
-        if (dto.getTransportCost() != null) {
-            totalCost = totalCost.add(dto.getTransportCost());
+        ParticipantLocationView location = dto.getParticipantId() != null
+            ? participantRepository.findLocationById(dto.getParticipantId())
+                .orElseThrow(() -> new InvalidRequestException("Unknown participant " + dto.getParticipantId()))
+            : null;
+        String stateId = location != null ? location.getStateId() : null;
+        String regionId = location != null ? location.getRegionId() : null;
+        long rateCents = hourlyRateCents(dto.getItemNumber(), dto.getScheduledDate(), stateId, regionId, dto.getRate());
+        if (rateCents == NO_RATE) {
+            return BigDecimal.ZERO;
         }
         
-        return totalCost.setScale(2, RoundingMode.HALF_UP);
+        String rateType = dto.getRateType() != null ? dto.getRateType().name() : null;
+        return Money.toBigDecimal(totalCostCents(rateCents, dto.getScheduledDate(), stateId, rateType,
+            dto.getDurationMinutes(), dto.getTransportCost()));
+    }
+    
+    /**
+     * NDIS rates are per hour: hourly rate x hours x multiplier, plus any transport cost
+     */
+    protected long costCents(long rateCents, int durationMinutes, long multiplierBasisPoints, BigDecimal transportCost) {
+        long cost = Money.costCents(rateCents, Money.hoursFromMinutes(durationMinutes), multiplierBasisPoints);
+        return transportCost != null ? cost + Money.toCents(transportCost) : cost;
     }
     
     /**
      * Get rate multiplier based on rate type
      */
-    default BigDecimal getRateMultiplier(ServiceDto.RateTypeEnum rateType) {
-        if (rateType == null) return BigDecimal.ONE;
+    public BigDecimal getRateMultiplier(ServiceDto.RateTypeEnum rateType) {
+        return BigDecimal.valueOf(multiplierBasisPoints(rateType), 4).stripTrailingZeros();
+    }
+    
+    /**
+     * Rate multiplier in basis points, 10000 being the ordinary rate
+     */
+    public long multiplierBasisPoints(ServiceDto.RateTypeEnum rateType) {
+        if (rateType == null) return 10_000;
         
         return switch (rateType) {
-            case SATURDAY -> BigDecimal.valueOf(1.5);
-            case SUNDAY -> BigDecimal.valueOf(2.0);
-            case PUBLIC_HOLIDAY -> BigDecimal.valueOf(2.5);
-            case NIGHT -> BigDecimal.valueOf(1.15);
-            case EVENING -> BigDecimal.valueOf(1.125);
-            default -> BigDecimal.ONE;
+            case SATURDAY -> 15_000;
+            case SUNDAY -> 20_000;
+            case PUBLIC_HOLIDAY -> 25_000;
+            case NIGHT -> 11_500;
+            case EVENING -> 11_250;
+            default -> 10_000;
         };
     }
     
+    /**
+     * Hourly rate in cents capped at the NDIS price limit; the limit itself when no rate was given
+     * Rates finer than a cent are rounded to the cent, as the rate columns store them
+     */
+    protected long capRateCents(BigDecimal rate, int capCents) {
+        if (capCents == PriceCatalogue.NO_CAP) {
+            return rate != null ? Money.toCents(rate) : NO_RATE;
+        }
+        return rate == null ? capCents : Math.min(Money.toCents(rate), capCents);
+    }
+    
+    /**
+     * Public holiday rates apply on a public holiday whatever the rate type
+     */
+    protected boolean isPublicHoliday(LocalDate scheduledDate, HolidayLookup holidays) {
+        return scheduledDate != null && holidays.isPublicHoliday(scheduledDate);
+    }
+    
     /**
      * Get rate multiplier for string rate type
      */
-    default BigDecimal getRateMultiplier(String rateType) {
-        if (rateType == null) return BigDecimal.ONE;
+    public BigDecimal getRateMultiplier(String rateType) {
+        return BigDecimal.valueOf(multiplierBasisPoints(rateType), 4).stripTrailingZeros();
+    }
+    
+    public long multiplierBasisPoints(String rateType) {
+        if (rateType == null) return 10_000;
         
         try {
             ServiceDto.RateTypeEnum enumType = ServiceDto.RateTypeEnum.valueOf(rateType);
-            return getRateMultiplier(enumType);
+            return multiplierBasisPoints(enumType);
         } catch (IllegalArgumentException e) {
-            return BigDecimal.ONE;
+            return 10_000;
         }
     }
     
@@ -183,7 +266,7 @@ public interface ServiceMapper {
      * After mapping enrichment
      */
     @AfterMapping
-    default void enrichServiceDto(@MappingTarget ServiceDto dto, Service service) {
+    public void enrichServiceDto(@MappingTarget ServiceDto dto, Service service) {
         // Add NDIS item description if available
         if (service.getItemNumber() != null) {
             dto.setItemDescription(getNdisItemDescription(service.getItemNumber()));
@@ -191,11 +274,10 @@ public interface ServiceMapper {
         
         // Calculate GST if applicable
         if (dto.getTotalCost() != null) {
-            BigDecimal gst = dto.getTotalCost()
-                .multiply(BigDecimal.valueOf(0.10))
-                .setScale(2, RoundingMode.HALF_UP);
-            dto.setGstAmount(gst);
-            dto.setTotalIncGst(dto.getTotalCost().add(gst));
+            long totalCents = Money.toCents(dto.getTotalCost());
+            long gstCents = Money.gstCents(totalCents);
+            dto.setGstAmount(Money.toBigDecimal(gstCents));
+            dto.setTotalIncGst(Money.toBigDecimal(totalCents + gstCents));
         }
         
         // Add service status
@@ -213,15 +295,8 @@ public interface ServiceMapper {
     /**
      * Get NDIS item description from item number
      */
-    default String getNdisItemDescription(String itemNumber) {
-        // Sample NDIS item descriptions
-        return switch (itemNumber) {
-            case "01_011_0107_1_1" -> "Assistance With Self-Care Activities - Standard - Weekday Daytime";
-            case "04_104_0125_6_1" -> "Group-Based Community, Social And Recreational Activities";
-            case "07_001_0106_8_3" -> "Support Coordination";
-            case "01_010_0107_1_1" -> "Assistance With Self-Care Activities - Night-Time Sleepover";
-            case "01_012_0107_1_1" -> "Assistance With Self-Care Activities - Public Holiday";
-            default -> "NDIS Support Service";
-        };
+    public String getNdisItemDescription(String itemNumber) {
+        String name = priceGuide.catalogue().name(itemNumber);
+        return name != null ? name : "NDIS Support Service";
     }
 }
\ No newline at end of file
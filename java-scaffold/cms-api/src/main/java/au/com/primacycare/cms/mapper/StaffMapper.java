@@ -2,6 +2,7 @@ package au.com.primacycare.cms.mapper;
 
 import au.com.primacycare.cms.dto.*;
 import au.com.primacycare.cms.entity.Staff;
+import au.com.primacycare.cms.geo.Geohash;
 import org.mapstruct.*;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
@@ -21,7 +22,7 @@ public interface StaffMapper {
      * Entity to DTO mapping with null-safe nested object handling
      */
     @Mapping(target = "availability", source = "staffAvailability")
-    @Mapping(target = "metrics", expression = "java(calculateMetrics(staff))")
+    @Mapping(target = "metrics", ignore = true)
     @Mapping(target = "state", source = "state", nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.SET_TO_NULL)
     @Mapping(target = "region", source = "region", nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.SET_TO_NULL)
     StaffDto toDto(Staff staff);
@@ -41,6 +42,7 @@ public interface StaffMapper {
     @Mapping(target = "participantGoals", ignore = true)
     @Mapping(target = "state", ignore = true)
     @Mapping(target = "region", ignore = true)
+    @Mapping(target = "geohash", ignore = true)
     Staff toEntity(CreateStaffDto dto);
     
     /**
@@ -59,13 +61,23 @@ public interface StaffMapper {
     @Mapping(target = "participantGoals", ignore = true)
     @Mapping(target = "state", ignore = true)
     @Mapping(target = "region", ignore = true)
+    @Mapping(target = "geohash", ignore = true)
     void updateEntityFromDto(UpdateStaffDto dto, @MappingTarget Staff staff);
     
+    /**
+     * Keep the geohash in step with the coordinates on create and update
+     */
+    @AfterMapping
+    default void refreshGeohash(@MappingTarget Staff staff) {
+        staff.setGeohash(Geohash.encode(staff.getLatitude(), staff.getLongitude()));
+    }
+    
     /**
      * Map availability with time formatting
      */
     @Mapping(target = "startTime", expression = "java(formatTime(availability.getStartTime()))")
     @Mapping(target = "endTime", expression = "java(formatTime(availability.getEndTime()))")
+    @Mapping(target = "hasConflict", ignore = true)
     StaffAvailabilityDto toAvailabilityDto(StaffAvailability availability);
     
     /**
@@ -80,61 +92,6 @@ public interface StaffMapper {
     @ValueMapping(source = MappingConstants.ANY_REMAINING, target = MappingConstants.NULL)
     StaffDto.DepartmentEnum mapDepartment(String department);
     
-    /**
-     * Calculate metrics for staff (called from expression)
-     */
-    default StaffMetricsDto calculateMetrics(Staff staff) {
-        if (staff == null) {
-            return null;
-        }
-        
-        StaffMetricsDto metrics = new StaffMetricsDto();
-        
-        // Calculate active shifts
-        if (staff.getShifts() != null) {
-            metrics.setActiveShiftsCount(
-                (int) staff.getShifts().stream()
-                    .filter(shift -> "Scheduled".equals(shift.getStatus()))
-                    .count()
-            );
-            
-            metrics.setCompletedShiftsCount(
-                (int) staff.getShifts().stream()
-                    .filter(shift -> "Completed".equals(shift.getStatus()))
-                    .count()
-            );
-            
-            // Calculate total hours this month
-            java.time.LocalDate now = java.time.LocalDate.now();
-            double totalHours = staff.getShifts().stream()
-                .filter(shift -> shift.getShiftDate() != null 
-                    && shift.getShiftDate().getMonth() == now.getMonth()
-                    && shift.getTotalHours() != null)
-                .mapToDouble(shift -> shift.getTotalHours().doubleValue())
-                .sum();
-            metrics.setTotalHoursThisMonth((int) totalHours);
-        }
-        
-        // Calculate utilization rate (example: hours worked / hours available)
-        if (staff.getStaffAvailability() != null && !staff.getStaffAvailability().isEmpty()) {
-            double availableHours = staff.getStaffAvailability().stream()
-                .filter(StaffAvailability::getAvailable)
-                .mapToDouble(avail -> {
-                    if (avail.getStartTime() != null && avail.getEndTime() != null) {
-                        return java.time.Duration.between(avail.getStartTime(), avail.getEndTime()).toHours();
-                    }
-                    return 0.0;
-                })
-                .sum() * 4; // Assuming 4 weeks per month
-            
-            if (availableHours > 0 && metrics.getTotalHoursThisMonth() != null) {
-                metrics.setUtilizationRate(metrics.getTotalHoursThisMonth() / availableHours * 100);
-            }
-        }
-        
-        return metrics;
-    }
-    
     /**
      * Format time for DTO
      */
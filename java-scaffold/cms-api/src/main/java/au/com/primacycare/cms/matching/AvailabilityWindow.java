@@ -0,0 +1,11 @@
+package au.com.primacycare.cms.matching;
+
+import java.time.DayOfWeek;
+
+/**
+ * One recurring weekly availability window from staff_availability
+ *
+ * @param endMinute minutes after midnight; a window ending at or before its start runs past midnight
+ */
+public record AvailabilityWindow(String staffId, DayOfWeek day, int startMinute, int endMinute) {
+}
\ No newline at end of file
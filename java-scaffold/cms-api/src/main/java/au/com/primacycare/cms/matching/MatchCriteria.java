@@ -0,0 +1,27 @@
+package au.com.primacycare.cms.matching;
+
+import java.time.DayOfWeek;
+import java.util.Collection;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * What a participant/service needs from a staff member
+ *
+ * @param regionDistance     km from the participant to a staff region ID; evaluated once per region, not per staff,
+ *                           and once with null for staff with no region, which should get the fallback distance
+ * @param participantLatitude address coordinates when geocoded; used against geocoded staff instead of regions
+ * @param maxDistanceKm      candidates further than this are skipped before scoring (infinite = no limit)
+ * @param goodAvailabilityMinutes minimum availability on the day to earn the availability points
+ */
+public record MatchCriteria(
+        String participantId,
+        Collection<String> requiredQualifications,
+        Collection<String> languages,
+        String culturalBackground,
+        ToDoubleFunction<String> regionDistance,
+        Double participantLatitude,
+        Double participantLongitude,
+        double maxDistanceKm,
+        DayOfWeek day,
+        int goodAvailabilityMinutes) {
+}
\ No newline at end of file
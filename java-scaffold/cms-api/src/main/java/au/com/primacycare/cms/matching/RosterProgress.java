@@ -0,0 +1,11 @@
+package au.com.primacycare.cms.matching;
+
+/**
+ * Progress sink and cancellation flag for a roster solve
+ */
+public interface RosterProgress {
+    
+    void update(String phase, int done, int total);
+    
+    boolean isCancelled();
+}
\ No newline at end of file
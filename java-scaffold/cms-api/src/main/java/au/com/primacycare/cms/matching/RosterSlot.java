@@ -0,0 +1,17 @@
+package au.com.primacycare.cms.matching;
+
+import java.time.LocalDate;
+
+/**
+ * One unassigned service to be rostered
+ *
+ * @param startMinute minutes after midnight on the date, or -1 when the service has no start time
+ * @param endMinute   minutes after midnight on the date; above 1440 for services that run past midnight
+ */
+public record RosterSlot(
+        String serviceId,
+        LocalDate date,
+        int startMinute,
+        int endMinute,
+        MatchCriteria criteria) {
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+package au.com.primacycare.cms.matching;
+
+import java.util.List;
+
+/**
+ * Outcome of a roster solve: one assignment or one unallocated entry per input slot
+ */
+public record RosterSolution(List<Assignment> assignments, List<Unallocated> unallocated) {
+    
+    public record Assignment(String serviceId, String staffId, String staffName, int score) {
+    }
+    
+    public record Unallocated(String serviceId, Reason reason) {
+    }
+    
+    public enum Reason {
+        /** The service has no start time to roster against */
+        NO_TIME,
+        /** Nobody is available on the day, covers the hours and is within range */
+        NO_AVAILABLE_STAFF,
+        /** Available staff exist but all are booked, inside their rest period or at their weekly hours */
+        CONSTRAINTS
+    }
+}
\ No newline at end of file
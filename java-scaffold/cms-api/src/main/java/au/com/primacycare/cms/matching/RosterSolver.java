@@ -0,0 +1,309 @@
+package au.com.primacycare.cms.matching;
+
+import java.time.DayOfWeek;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Batch roster allocation over a StaffMatchingSnapshot
+ * Replaces one findMatchingStaff round-trip per service with one global pass over a date range.
+ *
+ * Phase 1 (parallel over services) scores every staff member with the snapshot's five factors and
+ * keeps the top K candidates whose weekly availability covers the service hours.
+ * Phase 2 (sequential) assigns the most constrained services first: fewest feasible candidates,
+ * then the largest gap between first and second choice (regret), then start time. Each service
+ * takes its best candidate that is not double-booked, keeps the minimum rest period and stays under
+ * the weekly cap; only when all K fail is every staff member rescanned.
+ *
+ * Times are absolute epoch minutes. Availability is a 15-minute weekly bitmask per staff member.
+ * The rest period applies between commitments that start on different days, so split shifts
+ * within one day are allowed; weekly hours count per ISO week by start day.
+ */
+public final class RosterSolver {
+    
+    static final int MINUTES_PER_DAY = 1440;
+    static final int SLOT_MINUTES = 15;
+    static final int SLOTS_PER_WEEK = 7 * MINUTES_PER_DAY / SLOT_MINUTES;
+    static final int MASK_WORDS = (SLOTS_PER_WEEK + 63) / 64;
+    
+    private static final int PROGRESS_INTERVAL = 256;
+    
+    private final StaffMatchingSnapshot snapshot;
+    private final int candidatesPerService;
+    private final int minRestMinutes;
+    private final int maxWeeklyMinutes;
+    
+    public RosterSolver(StaffMatchingSnapshot snapshot, int candidatesPerService, int minRestMinutes, int maxWeeklyMinutes) {
+        this.snapshot = snapshot;
+        this.candidatesPerService = Math.max(candidatesPerService, 1);
+        this.minRestMinutes = minRestMinutes;
+        this.maxWeeklyMinutes = maxWeeklyMinutes;
+    }
+    
+    public RosterSolution solve(List<RosterSlot> slots,
+                                Collection<StaffCommitment> commitments,
+                                Collection<AvailabilityWindow> availability,
+                                RosterProgress progress) {
+        int staffCount = snapshot.size();
+        long[] availabilityMasks = availabilityMasks(availability, staffCount);
+        Candidates[] candidates = rankCandidates(slots, availabilityMasks, progress);
+        
+        Bookings bookings = new Bookings(staffCount);
+        for (StaffCommitment commitment : commitments) {
+            int ordinal = snapshot.ordinalOf(commitment.staffId());
+            if (ordinal >= 0) {
+                bookings.add(ordinal, start(commitment.date().toEpochDay(), commitment.startMinute()),
+                    start(commitment.date().toEpochDay(), commitment.endMinute()));
+            }
+        }
+        
+        Integer[] order = IntStream.range(0, slots.size()).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator
+            .comparingInt((Integer i) -> candidates[i] == null ? Integer.MAX_VALUE : candidates[i].feasible())
+            .thenComparingInt(i -> candidates[i] == null ? 0 : -candidates[i].regret())
+            .thenComparingInt(i -> slots.get(i).startMinute() < 0 ? Integer.MAX_VALUE
+                : start(slots.get(i).date().toEpochDay(), slots.get(i).startMinute())));
+        
+        List<RosterSolution.Assignment> assignments = new ArrayList<>();
+        List<RosterSolution.Unallocated> unallocated = new ArrayList<>();
+        for (int n = 0; n < order.length; n++) {
+            if (n % PROGRESS_INTERVAL == 0) {
+                checkCancelled(progress);
+                progress.update("assigning", n, order.length);
+            }
+            RosterSlot slot = slots.get(order[n]);
+            Candidates ranked = candidates[order[n]];
+            if (ranked == null) {
+                unallocated.add(new RosterSolution.Unallocated(slot.serviceId(), RosterSolution.Reason.NO_TIME));
+                continue;
+            }
+            if (ranked.feasible() == 0) {
+                unallocated.add(new RosterSolution.Unallocated(slot.serviceId(), RosterSolution.Reason.NO_AVAILABLE_STAFF));
+                continue;
+            }
+            
+            long epochDay = slot.date().toEpochDay();
+            int start = start(epochDay, slot.startMinute());
+            int end = start(epochDay, slot.endMinute());
+            long chosen = -1;
+            for (long packed : ranked.top()) {
+                if (bookings.fits(TopKScores.ordinal(packed), start, end)) {
+                    chosen = packed;
+                    break;
+                }
+            }
+            if (chosen < 0 && ranked.feasible() > ranked.top().length) {
+                chosen = rescan(slot, availabilityMasks, bookings, start, end);
+            }
+            if (chosen < 0) {
+                unallocated.add(new RosterSolution.Unallocated(slot.serviceId(), RosterSolution.Reason.CONSTRAINTS));
+                continue;
+            }
+            
+            int ordinal = TopKScores.ordinal(chosen);
+            bookings.add(ordinal, start, end);
+            assignments.add(new RosterSolution.Assignment(slot.serviceId(), snapshot.staffId(ordinal),
+                snapshot.staffName(ordinal), TopKScores.score(chosen)));
+        }
+        progress.update("assigning", order.length, order.length);
+        return new RosterSolution(assignments, unallocated);
+    }
+    
+    /**
+     * Top K feasible candidates per slot; null for slots without a start time
+     */
+    private Candidates[] rankCandidates(List<RosterSlot> slots, long[] availabilityMasks, RosterProgress progress) {
+        Candidates[] candidates = new Candidates[slots.size()];
+        AtomicInteger done = new AtomicInteger();
+        progress.update("scoring", 0, slots.size());
+        
+        IntStream.range(0, slots.size()).parallel().forEach(i -> {
+            if (progress.isCancelled()) {
+                throw new CancellationException("Roster allocation cancelled");
+            }
+            RosterSlot slot = slots.get(i);
+            if (slot.startMinute() >= 0) {
+                candidates[i] = rank(slot, availabilityMasks);
+            }
+            int completed = done.incrementAndGet();
+            if (completed % PROGRESS_INTERVAL == 0) {
+                progress.update("scoring", completed, slots.size());
+            }
+        });
+        progress.update("scoring", slots.size(), slots.size());
+        return candidates;
+    }
+    
+    private Candidates rank(RosterSlot slot, long[] availabilityMasks) {
+        StaffMatchingSnapshot.Query query = snapshot.prepare(slot.criteria());
+        long[] required = slotMask(slot);
+        TopKScores top = new TopKScores(candidatesPerService);
+        int feasible = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (!covers(availabilityMasks, i, required)) {
+                continue;
+            }
+            int score = snapshot.score(query, i);
+            if (score >= 0) {
+                feasible++;
+                top.offer(score, i);
+            }
+        }
+        long[] best = top.sortedDescending();
+        int regret = best.length == 0 ? 0
+            : best.length == 1 ? TopKScores.score(best[0])
+            : TopKScores.score(best[0]) - TopKScores.score(best[1]);
+        return new Candidates(best, feasible, regret);
+    }
+    
+    /**
+     * Best bookable staff member over the whole snapshot, or -1
+     */
+    private long rescan(RosterSlot slot, long[] availabilityMasks, Bookings bookings, int start, int end) {
+        StaffMatchingSnapshot.Query query = snapshot.prepare(slot.criteria());
+        long[] required = slotMask(slot);
+        long best = -1;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (!covers(availabilityMasks, i, required)) {
+                continue;
+            }
+            int score = snapshot.score(query, i);
+            if (score < 0) {
+                continue;
+            }
+            long packed = TopKScores.pack(score, i);
+            if (packed > best && bookings.fits(i, start, end)) {
+                best = packed;
+            }
+        }
+        return best;
+    }
+    
+    private static int start(long epochDay, int minute) {
+        return Math.toIntExact(epochDay * MINUTES_PER_DAY + minute);
+    }
+    
+    private static void checkCancelled(RosterProgress progress) {
+        if (progress.isCancelled()) {
+            throw new CancellationException("Roster allocation cancelled");
+        }
+    }
+    
+    /**
+     * Weekly 15-minute slots fully covered by an availability window, MASK_WORDS longs per staff member
+     */
+    private long[] availabilityMasks(Collection<AvailabilityWindow> availability, int staffCount) {
+        long[] masks = new long[staffCount * MASK_WORDS];
+        for (AvailabilityWindow window : availability) {
+            int ordinal = snapshot.ordinalOf(window.staffId());
+            if (ordinal < 0) {
+                continue;
+            }
+            int end = window.endMinute() > window.startMinute() ? window.endMinute() : window.endMinute() + MINUTES_PER_DAY;
+            int base = weekSlot(window.day());
+            int from = (window.startMinute() + SLOT_MINUTES - 1) / SLOT_MINUTES;
+            int to = end / SLOT_MINUTES;
+            for (int slot = from; slot < to; slot++) {
+                int bit = (base + slot) % SLOTS_PER_WEEK;
+                masks[ordinal * MASK_WORDS + (bit >>> 6)] |= 1L << bit;
+            }
+        }
+        return masks;
+    }
+    
+    /**
+     * Weekly slots touched by the service, wrapping from Sunday into Monday
+     */
+    private static long[] slotMask(RosterSlot slot) {
+        long[] mask = new long[MASK_WORDS];
+        int base = weekSlot(slot.date().getDayOfWeek());
+        int from = slot.startMinute() / SLOT_MINUTES;
+        int to = (Math.max(slot.endMinute(), slot.startMinute() + 1) + SLOT_MINUTES - 1) / SLOT_MINUTES;
+        for (int s = from; s < Math.min(to, from + SLOTS_PER_WEEK); s++) {
+            int bit = (base + s) % SLOTS_PER_WEEK;
+            mask[bit >>> 6] |= 1L << bit;
+        }
+        return mask;
+    }
+    
+    private static boolean covers(long[] masks, int ordinal, long[] required) {
+        int offset = ordinal * MASK_WORDS;
+        for (int w = 0; w < MASK_WORDS; w++) {
+            if ((required[w] & ~masks[offset + w]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int weekSlot(DayOfWeek day) {
+        return (day.getValue() - 1) * (MINUTES_PER_DAY / SLOT_MINUTES);
+    }
+    
+    private record Candidates(long[] top, int feasible, int regret) {
+    }
+    
+    /**
+     * Commitments per staff member as parallel start/end arrays, plus booked minutes per ISO week
+     */
+    private final class Bookings {
+        
+        private final int[][] starts;
+        private final int[][] ends;
+        private final int[] counts;
+        private final Map<Long, int[]> weeklyMinutes = new HashMap<>();
+        
+        Bookings(int staffCount) {
+            this.starts = new int[staffCount][];
+            this.ends = new int[staffCount][];
+            this.counts = new int[staffCount];
+        }
+        
+        boolean fits(int ordinal, int start, int end) {
+            int day = Math.floorDiv(start, MINUTES_PER_DAY);
+            int[] weekly = weeklyMinutes.get(week(day));
+            if (weekly != null && weekly[ordinal] + (end - start) > maxWeeklyMinutes) {
+                return false;
+            }
+            int[] s = starts[ordinal];
+            int[] e = ends[ordinal];
+            // A handful of bookings per staff member per week, so a linear scan beats any index
+            for (int k = 0; k < counts[ordinal]; k++) {
+                if (s[k] < end && start < e[k]) {
+                    return false;
+                }
+                if (Math.floorDiv(s[k], MINUTES_PER_DAY) != day) {
+                    int gap = s[k] >= end ? s[k] - end : start - e[k];
+                    if (gap < minRestMinutes) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        
+        void add(int ordinal, int start, int end) {
+            int count = counts[ordinal];
+            if (starts[ordinal] == null) {
+                starts[ordinal] = new int[4];
+                ends[ordinal] = new int[4];
+            } else if (count == starts[ordinal].length) {
+                starts[ordinal] = Arrays.copyOf(starts[ordinal], count * 2);
+                ends[ordinal] = Arrays.copyOf(ends[ordinal], count * 2);
+            }
+            starts[ordinal][count] = start;
+            ends[ordinal][count] = end;
+            counts[ordinal] = count + 1;
+            
+            long week = week(Math.floorDiv(start, MINUTES_PER_DAY));
+            weeklyMinutes.computeIfAbsent(week, w -> new int[counts.length])[ordinal] += end - start;
+        }
+        
+        // 1970-01-01 was a Thursday; shift so weeks start on Monday
+        private long week(long epochDay) {
+            return Math.floorDiv(epochDay + 3, 7);
+        }
+    }
+}
\ No newline at end of file
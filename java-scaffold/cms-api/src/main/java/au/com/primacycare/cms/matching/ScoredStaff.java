@@ -0,0 +1,7 @@
+package au.com.primacycare.cms.matching;
+
+/**
+ * One ranked candidate
+ */
+public record ScoredStaff(String staffId, String staffName, int score) {
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package au.com.primacycare.cms.matching;
+
+import java.time.LocalDate;
+
+/**
+ * Time a staff member is already booked for (assigned services and shifts)
+ *
+ * @param endMinute minutes after midnight on the date; above 1440 when it runs past midnight
+ */
+public record StaffCommitment(String staffId, LocalDate date, int startMinute, int endMinute) {
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package au.com.primacycare.cms.matching;
+
+import java.util.Collection;
+
+/**
+ * Matching-relevant attributes of one staff member, as loaded for the index
+ *
+ * @param latitude  address coordinates when geocoded, otherwise null (region centroid is used)
+ * @param availableMinutesByDay available minutes indexed by ISO day of week - 1 (Monday = 0)
+ */
+public record StaffMatchProfile(
+        String staffId,
+        String staffName,
+        Collection<String> qualifications,
+        Collection<String> languages,
+        String culturalBackground,
+        String regionId,
+        Double latitude,
+        Double longitude,
+        int[] availableMinutesByDay) {
+}
\ No newline at end of file
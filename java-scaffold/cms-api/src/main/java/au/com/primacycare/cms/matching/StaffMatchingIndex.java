@@ -0,0 +1,122 @@
+package au.com.primacycare.cms.matching;
+
+import au.com.primacycare.cms.event.ShiftChangedEvent;
+import au.com.primacycare.cms.event.StaffChangedEvent;
+import au.com.primacycare.cms.repository.StaffMatchingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory staff matching index
+ * Replaces per-candidate lookups in StaffService.findMatchingStaff (server/workflowService.ts:findMatchingStaff())
+ *
+ * Holds one immutable StaffMatchingSnapshot that is swapped atomically on rebuild. Staff
+ * changes trigger a rebuild after commit (coalesced while one is running); completed shifts
+ * add prior relationships in place, and those added while a rebuild is loading are replayed onto
+ * its snapshot when it is swapped in; a periodic refresh picks up writes made outside this app.
+ */
+@Component
+@Slf4j
+public class StaffMatchingIndex {
+    
+    private final StaffMatchingRepository staffMatchingRepository;
+    private final Timer rebuildTimer;
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    
+    private volatile StaffMatchingSnapshot snapshot = StaffMatchingSnapshot.empty();
+    
+    /** Guards adding relationships against the swap, and pendingCompletions */
+    private final Object changeLock = new Object();
+    
+    /** Completed shifts seen since the running rebuild started loading; null when no rebuild is running */
+    private List<ShiftChangedEvent.State> pendingCompletions;
+    
+    public StaffMatchingIndex(StaffMatchingRepository staffMatchingRepository, MeterRegistry meterRegistry) {
+        this.staffMatchingRepository = staffMatchingRepository;
+        this.rebuildTimer = Timer.builder("cms.matching.index.rebuild")
+            .description("Time to reload the staff matching index")
+            .register(meterRegistry);
+        meterRegistry.gauge("cms.matching.index.staff", this, index -> index.snapshot.size());
+    }
+    
+    public List<ScoredStaff> topMatches(MatchCriteria criteria, int k) {
+        return snapshot.topMatches(criteria, k);
+    }
+    
+    /**
+     * Current snapshot, for batch work that must score against one consistent view
+     */
+    public StaffMatchingSnapshot snapshot() {
+        return snapshot;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+    
+    @Scheduled(fixedDelayString = "${app.matching.refresh-interval:600000}", initialDelayString = "${app.matching.refresh-interval:600000}")
+    public void refresh() {
+        rebuild();
+    }
+    
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStaffChanged(StaffChangedEvent event) {
+        // Bursts of staff edits collapse into the rebuild already queued
+        if (rebuildRequested.compareAndSet(false, true)) {
+            rebuild();
+        }
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onShiftChanged(ShiftChangedEvent event) {
+        ShiftChangedEvent.State after = event.after();
+        if (after != null && "Completed".equals(after.status())) {
+            synchronized (changeLock) {
+                if (pendingCompletions != null) {
+                    pendingCompletions.add(after);
+                }
+                snapshot.addRelationship(after.participantId(), after.staffId());
+            }
+        }
+    }
+    
+    synchronized void rebuild() {
+        rebuildRequested.set(false);
+        rebuildTimer.record(() -> {
+            synchronized (changeLock) {
+                pendingCompletions = new ArrayList<>();
+            }
+            StaffMatchingSnapshot rebuilt = null;
+            try {
+                List<StaffMatchProfile> profiles = staffMatchingRepository.loadProfiles();
+                rebuilt = StaffMatchingSnapshot.build(profiles, staffMatchingRepository.loadRelationships());
+            } finally {
+                synchronized (changeLock) {
+                    if (rebuilt != null) {
+                        // Relationships the load already saw are left as they are
+                        for (ShiftChangedEvent.State completed : pendingCompletions) {
+                            rebuilt.addRelationship(completed.participantId(), completed.staffId());
+                        }
+                        snapshot = rebuilt;
+                    }
+                    pendingCompletions = null;
+                }
+            }
+        });
+        log.info("Staff matching index rebuilt with {} staff", snapshot.size());
+    }
+}
\ No newline at end of file
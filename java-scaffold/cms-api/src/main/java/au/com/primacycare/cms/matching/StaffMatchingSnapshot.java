@@ -0,0 +1,374 @@
+package au.com.primacycare.cms.matching;
+
+import au.com.primacycare.cms.geo.GeoDistance;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable, array-backed view of all staff for scoring.
+ *
+ * Staff are addressed by ordinal. Qualifications and languages are interned into
+ * dictionaries and stored as bitsets (fixed words per staff in one flat long[]), regions and
+ * cultural backgrounds as int ordinals, availability as a weekday mask plus minutes per day,
+ * geocoded addresses as float coordinates (NaN when absent).
+ * Prior participant relationships are sorted ordinal arrays per participant; they are the
+ * only mutable part and are replaced copy-on-write.
+ *
+ * Scoring mirrors the weights of the original StaffService.findMatchingStaff:
+ * qualification 30, proximity 25/15/5, prior relationship 20, language/culture 15, availability 10.
+ * Candidates beyond the criteria's maximum distance are skipped before any other scoring.
+ */
+public final class StaffMatchingSnapshot {
+    
+    static final int QUALIFICATION_POINTS = 30;
+    static final int PRIOR_RELATIONSHIP_POINTS = 20;
+    static final int CULTURAL_POINTS = 15;
+    static final int AVAILABILITY_POINTS = 10;
+    
+    /** Below this many staff the fork/join overhead outweighs parallel scoring */
+    static final int PARALLEL_THRESHOLD = 4096;
+    static final int CHUNK_SIZE = 1024;
+    
+    private static final int[] NO_ORDINALS = new int[0];
+    
+    private final int size;
+    private final String[] staffIds;
+    private final String[] staffNames;
+    private final Map<String, Integer> ordinalByStaffId;
+    
+    private final Map<String, Integer> qualificationIds;
+    private final int qualificationWords;
+    private final long[] qualificationBits;
+    
+    private final Map<String, Integer> languageIds;
+    private final int languageWords;
+    private final long[] languageBits;
+    
+    private final Map<String, Integer> culturalIds;
+    private final int[] culturalOrdinal;
+    
+    private final String[] regionIdByOrdinal;
+    private final int[] regionOrdinal;
+    
+    // NaN when the staff address is not geocoded
+    private final float[] latitude;
+    private final float[] longitude;
+    
+    private final byte[] availableDays;
+    private final short[] availableMinutes;
+    
+    private final Map<String, int[]> priorStaffByParticipant;
+    
+    private StaffMatchingSnapshot(List<StaffMatchProfile> profiles, Map<String, ? extends Collection<String>> relationships) {
+        this.size = profiles.size();
+        this.staffIds = new String[size];
+        this.staffNames = new String[size];
+        this.ordinalByStaffId = new HashMap<>(size * 2);
+        this.qualificationIds = new HashMap<>();
+        this.languageIds = new HashMap<>();
+        this.culturalIds = new HashMap<>();
+        Map<String, Integer> regionIds = new HashMap<>();
+        
+        for (StaffMatchProfile profile : profiles) {
+            profile.qualifications().forEach(q -> intern(qualificationIds, q));
+            profile.languages().forEach(l -> intern(languageIds, l));
+        }
+        this.qualificationWords = words(qualificationIds.size());
+        this.languageWords = words(languageIds.size());
+        this.qualificationBits = new long[size * qualificationWords];
+        this.languageBits = new long[size * languageWords];
+        this.culturalOrdinal = new int[size];
+        this.regionOrdinal = new int[size];
+        this.latitude = new float[size];
+        this.longitude = new float[size];
+        this.availableDays = new byte[size];
+        this.availableMinutes = new short[size * 7];
+        
+        for (int i = 0; i < size; i++) {
+            StaffMatchProfile profile = profiles.get(i);
+            staffIds[i] = profile.staffId();
+            staffNames[i] = profile.staffName();
+            ordinalByStaffId.put(profile.staffId(), i);
+            for (String qualification : profile.qualifications()) {
+                setBit(qualificationBits, i * qualificationWords, qualificationIds.get(normalise(qualification)));
+            }
+            for (String language : profile.languages()) {
+                setBit(languageBits, i * languageWords, languageIds.get(normalise(language)));
+            }
+            culturalOrdinal[i] = profile.culturalBackground() != null ? intern(culturalIds, profile.culturalBackground()) : -1;
+            regionOrdinal[i] = profile.regionId() != null ? intern(regionIds, profile.regionId()) : -1;
+            boolean geocoded = profile.latitude() != null && profile.longitude() != null;
+            latitude[i] = geocoded ? profile.latitude().floatValue() : Float.NaN;
+            longitude[i] = geocoded ? profile.longitude().floatValue() : Float.NaN;
+            int[] minutes = profile.availableMinutesByDay();
+            for (int day = 0; day < 7 && minutes != null && day < minutes.length; day++) {
+                if (minutes[day] > 0) {
+                    availableDays[i] |= (byte) (1 << day);
+                    availableMinutes[i * 7 + day] = (short) Math.min(minutes[day], Short.MAX_VALUE);
+                }
+            }
+        }
+        this.regionIdByOrdinal = new String[regionIds.size()];
+        regionIds.forEach((id, ordinal) -> regionIdByOrdinal[ordinal] = id);
+        
+        this.priorStaffByParticipant = new ConcurrentHashMap<>(relationships.size() * 2);
+        relationships.forEach((participantId, staff) -> {
+            int[] ordinals = staff.stream()
+                .map(ordinalByStaffId::get)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .distinct()
+                .toArray();
+            if (ordinals.length > 0) {
+                priorStaffByParticipant.put(participantId, ordinals);
+            }
+        });
+    }
+    
+    public static StaffMatchingSnapshot build(List<StaffMatchProfile> profiles,
+                                              Map<String, ? extends Collection<String>> relationships) {
+        return new StaffMatchingSnapshot(profiles, relationships);
+    }
+    
+    public static StaffMatchingSnapshot empty() {
+        return build(List.of(), Map.of());
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Record a completed shift between a participant and a staff member
+     */
+    public void addRelationship(String participantId, String staffId) {
+        Integer ordinal = ordinalByStaffId.get(staffId);
+        if (participantId == null || ordinal == null) {
+            return;
+        }
+        priorStaffByParticipant.compute(participantId, (id, current) -> {
+            int[] ordinals = current != null ? current : NO_ORDINALS;
+            int position = Arrays.binarySearch(ordinals, ordinal);
+            if (position >= 0) {
+                return ordinals;
+            }
+            int insertAt = -position - 1;
+            int[] updated = new int[ordinals.length + 1];
+            System.arraycopy(ordinals, 0, updated, 0, insertAt);
+            updated[insertAt] = ordinal;
+            System.arraycopy(ordinals, insertAt, updated, insertAt + 1, ordinals.length - insertAt);
+            return updated;
+        });
+    }
+    
+    /**
+     * Best k staff available on the criteria's day, highest score first
+     */
+    public List<ScoredStaff> topMatches(MatchCriteria criteria, int k) {
+        if (size == 0 || k <= 0) {
+            return List.of();
+        }
+        Query query = prepare(criteria);
+        TopKScores top;
+        if (size < PARALLEL_THRESHOLD) {
+            top = scoreRange(query, 0, size, k);
+        } else {
+            int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            top = IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> scoreRange(query, chunk * CHUNK_SIZE, Math.min(size, (chunk + 1) * CHUNK_SIZE), k))
+                .reduce(TopKScores::merge)
+                .orElseGet(() -> new TopKScores(k));
+        }
+        
+        long[] best = top.sortedDescending();
+        List<ScoredStaff> matches = new ArrayList<>(best.length);
+        for (long packed : best) {
+            int ordinal = TopKScores.ordinal(packed);
+            matches.add(new ScoredStaff(staffIds[ordinal], staffNames[ordinal], TopKScores.score(packed)));
+        }
+        return matches;
+    }
+    
+    int ordinalOf(String staffId) {
+        Integer ordinal = ordinalByStaffId.get(staffId);
+        return ordinal != null ? ordinal : -1;
+    }
+    
+    String staffId(int ordinal) {
+        return staffIds[ordinal];
+    }
+    
+    String staffName(int ordinal) {
+        return staffNames[ordinal];
+    }
+    
+    Query prepare(MatchCriteria criteria) {
+        long[] required = new long[qualificationWords];
+        boolean requirementUnmet = false;
+        for (String qualification : criteria.requiredQualifications()) {
+            Integer id = qualificationIds.get(normalise(qualification));
+            if (id == null) {
+                // Nobody holds it
+                requirementUnmet = true;
+            } else {
+                setBit(required, 0, id);
+            }
+        }
+        long[] languages = new long[languageWords];
+        for (String language : criteria.languages()) {
+            Integer id = languageIds.get(normalise(language));
+            if (id != null) {
+                setBit(languages, 0, id);
+            }
+        }
+        int cultural = criteria.culturalBackground() != null
+            ? culturalIds.getOrDefault(normalise(criteria.culturalBackground()), -2)
+            : -2;
+        
+        // Distance per region, so the distance function runs O(regions) times, not O(staff)
+        double[] regionDistance = new double[regionIdByOrdinal.length];
+        for (int r = 0; r < regionIdByOrdinal.length; r++) {
+            regionDistance[r] = criteria.regionDistance().applyAsDouble(regionIdByOrdinal[r]);
+        }
+        // Staff with no region are scored at the fallback distance rather than excluded
+        double noRegionDistance = criteria.regionDistance().applyAsDouble(null);
+        
+        boolean hasPoint = criteria.participantLatitude() != null && criteria.participantLongitude() != null;
+        int day = criteria.day().getValue() - 1;
+        int[] prior = priorStaffByParticipant.getOrDefault(criteria.participantId(), NO_ORDINALS);
+        return new Query(required, requirementUnmet, languages, cultural, regionDistance, noRegionDistance,
+            hasPoint, hasPoint ? criteria.participantLatitude() : 0, hasPoint ? criteria.participantLongitude() : 0,
+            criteria.maxDistanceKm(), day, (byte) (1 << day), criteria.goodAvailabilityMinutes(), prior);
+    }
+    
+    private TopKScores scoreRange(Query query, int from, int to, int k) {
+        TopKScores top = new TopKScores(k);
+        for (int i = from; i < to; i++) {
+            int score = score(query, i);
+            if (score >= 0) {
+                top.offer(score, i);
+            }
+        }
+        return top;
+    }
+    
+    /**
+     * Score of one staff member, or -1 when not available on the day or beyond the maximum distance
+     */
+    int score(Query query, int i) {
+        if ((availableDays[i] & query.dayBit()) == 0) {
+            return -1;
+        }
+        double distance = distance(query, i);
+        if (distance > query.maxDistanceKm()) {
+            return -1;
+        }
+        int score = proximityPoints(distance);
+        
+        if (!query.requirementUnmet() && containsAll(qualificationBits, i * qualificationWords, query.required())) {
+            score += QUALIFICATION_POINTS;
+        }
+        
+        // Prior arrays hold a handful of staff per participant
+        if (query.prior().length > 0 && Arrays.binarySearch(query.prior(), i) >= 0) {
+            score += PRIOR_RELATIONSHIP_POINTS;
+        }
+        
+        if (culturalOrdinal[i] == query.cultural() || intersects(languageBits, i * languageWords, query.languages())) {
+            score += CULTURAL_POINTS;
+        }
+        
+        if (availableMinutes[i * 7 + query.day()] >= query.goodAvailabilityMinutes()) {
+            score += AVAILABILITY_POINTS;
+        }
+        return score;
+    }
+    
+    /**
+     * Address-to-address when both sides are geocoded, otherwise region centroid to centroid, or
+     * the fallback distance for staff with no region
+     */
+    private double distance(Query query, int i) {
+        if (query.hasPoint() && !Float.isNaN(latitude[i])) {
+            // Cheap latitude-band reject before the trigonometry (1 degree of latitude is ~111 km)
+            if (Math.abs(latitude[i] - query.latitude()) * 111.0 > query.maxDistanceKm()) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return GeoDistance.haversineKm(query.latitude(), query.longitude(), latitude[i], longitude[i]);
+        }
+        int region = regionOrdinal[i];
+        return region >= 0 ? query.regionDistance()[region] : query.noRegionDistance();
+    }
+    
+    /**
+     * Tiers from the original matcher: under 5 km 25 points, under 15 km 15, under 30 km 5
+     */
+    static int proximityPoints(double distanceKm) {
+        if (distanceKm < 5) {
+            return 25;
+        } else if (distanceKm < 15) {
+            return 15;
+        } else if (distanceKm < 30) {
+            return 5;
+        }
+        return 0;
+    }
+    
+    private static boolean containsAll(long[] bits, int offset, long[] required) {
+        for (int w = 0; w < required.length; w++) {
+            if ((bits[offset + w] & required[w]) != required[w]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean intersects(long[] bits, int offset, long[] wanted) {
+        for (int w = 0; w < wanted.length; w++) {
+            if ((bits[offset + w] & wanted[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static void setBit(long[] bits, int offset, int bit) {
+        bits[offset + (bit >>> 6)] |= 1L << (bit & 63);
+    }
+    
+    private static int words(int bits) {
+        return Math.max(1, (bits + 63) >>> 6);
+    }
+    
+    private static int intern(Map<String, Integer> dictionary, String value) {
+        return dictionary.computeIfAbsent(normalise(value), key -> dictionary.size());
+    }
+    
+    static String normalise(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Criteria resolved against this snapshot's dictionaries, reusable across staff
+     */
+    record Query(
+            long[] required,
+            boolean requirementUnmet,
+            long[] languages,
+            int cultural,
+            double[] regionDistance,
+            double noRegionDistance,
+            boolean hasPoint,
+            double latitude,
+            double longitude,
+            double maxDistanceKm,
+            int day,
+            byte dayBit,
+            int goodAvailabilityMinutes,
+            int[] prior) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+package au.com.primacycare.cms.matching;
+
+import java.util.Arrays;
+
+/**
+ * Bounded min-heap of (score, ordinal) packed into longs, so collecting the best K of N
+ * candidates is O(N log K) with no per-candidate allocation.
+ * Ties rank the lower ordinal first, keeping results deterministic across parallel runs.
+ */
+final class TopKScores {
+    
+    private final long[] heap;
+    private int size;
+    
+    TopKScores(int k) {
+        this.heap = new long[Math.max(k, 1)];
+    }
+    
+    static long pack(int score, int ordinal) {
+        return ((long) score << 32) | (Integer.MAX_VALUE - ordinal);
+    }
+    
+    static int score(long packed) {
+        return (int) (packed >> 32);
+    }
+    
+    static int ordinal(long packed) {
+        return Integer.MAX_VALUE - (int) packed;
+    }
+    
+    void offer(int score, int ordinal) {
+        offer(pack(score, ordinal));
+    }
+    
+    void offer(long packed) {
+        if (size < heap.length) {
+            heap[size] = packed;
+            siftUp(size++);
+        } else if (packed > heap[0]) {
+            heap[0] = packed;
+            siftDown(0);
+        }
+    }
+    
+    TopKScores merge(TopKScores other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.heap[i]);
+        }
+        return this;
+    }
+    
+    /**
+     * Packed entries, best first
+     */
+    long[] sortedDescending() {
+        long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        for (int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+            long swap = sorted[i];
+            sorted[i] = sorted[j];
+            sorted[j] = swap;
+        }
+        return sorted;
+    }
+    
+    private void siftUp(int index) {
+        long value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+    
+    private void siftDown(int index) {
+        long value = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (value <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+package au.com.primacycare.cms.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of Australian dollars held as whole cents
+ * Replaces BigDecimal intermediates in service costing, GST and invoice totals
+ *
+ * The static methods work on raw cents, so a cost calculation allocates nothing until the
+ * result is handed back as a BigDecimal; instances are for amounts that are passed around.
+ * Rounding matches the BigDecimal code it replaces and NDIS claiming: hours are taken to
+ * four decimal places, and every amount is rounded half-up (away from zero) to the cent once.
+ */
+public final class Money implements Comparable<Money> {
+    
+    public static final Money ZERO = new Money(0);
+    
+    /** GST of 10% in basis points */
+    public static final long GST_BASIS_POINTS = 1_000;
+    
+    /** Scale of basis points, and of hours in ten-thousandths */
+    static final long TEN_THOUSAND = 10_000;
+    
+    private static final long MINUTES_PER_HOUR = 60;
+    
+    private final long cents;
+    
+    private Money(long cents) {
+        this.cents = cents;
+    }
+    
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+    
+    /**
+     * @param amount rounded half-up to the cent
+     */
+    public static Money of(BigDecimal amount) {
+        return ofCents(toCents(amount));
+    }
+    
+    /**
+     * Whole cents of an amount, rounded half-up
+     *
+     * @throws ArithmeticException if the amount does not fit in a long of cents
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+    
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+    
+    /**
+     * Duration in hours to four decimal places, as ten-thousandths of an hour
+     */
+    public static long hoursFromMinutes(long minutes) {
+        return divideHalfUp(Math.multiplyExact(minutes, TEN_THOUSAND), MINUTES_PER_HOUR);
+    }
+    
+    /**
+     * rate x hours x multiplier, rounded half-up to the cent
+     *
+     * @param hoursTenThousandths   from hoursFromMinutes
+     * @param multiplierBasisPoints 10000 for the ordinary rate
+     */
+    public static long costCents(long rateCents, long hoursTenThousandths, long multiplierBasisPoints) {
+        try {
+            long product = Math.multiplyExact(Math.multiplyExact(rateCents, hoursTenThousandths), multiplierBasisPoints);
+            return divideHalfUp(product, TEN_THOUSAND * TEN_THOUSAND);
+        } catch (ArithmeticException e) {
+            // Beyond any real service, but still exact
+            return BigDecimal.valueOf(rateCents)
+                .multiply(BigDecimal.valueOf(hoursTenThousandths))
+                .multiply(BigDecimal.valueOf(multiplierBasisPoints))
+                .movePointLeft(8)
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+        }
+    }
+    
+    /**
+     * GST on an amount, rounded half-up to the cent
+     */
+    public static long gstCents(long cents) {
+        return percentCents(cents, GST_BASIS_POINTS);
+    }
+    
+    /**
+     * A share of an amount given in basis points, rounded half-up to the cent
+     */
+    public static long percentCents(long cents, long basisPoints) {
+        return divideHalfUp(Math.multiplyExact(cents, basisPoints), TEN_THOUSAND);
+    }
+    
+    /**
+     * Integer division rounding half away from zero, as RoundingMode.HALF_UP
+     */
+    public static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += Long.signum(dividend) * Long.signum(divisor);
+        }
+        return quotient;
+    }
+    
+    public long cents() {
+        return cents;
+    }
+    
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+    
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+    
+    public Money times(long quantity) {
+        return ofCents(Math.multiplyExact(cents, quantity));
+    }
+    
+    public Money gst() {
+        return ofCents(gstCents(cents));
+    }
+    
+    public boolean isNegative() {
+        return cents < 0;
+    }
+    
+    public BigDecimal toBigDecimal() {
+        return toBigDecimal(cents);
+    }
+    
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money money && money.cents == cents;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+    
+    /**
+     * Plain decimal dollars, e.g. 1234.50
+     */
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
\ No newline at end of file
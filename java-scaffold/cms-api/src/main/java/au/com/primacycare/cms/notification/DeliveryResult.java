@@ -0,0 +1,36 @@
+package au.com.primacycare.cms.notification;
+
+import java.time.Duration;
+
+/**
+ * What a transport made of one message
+ *
+ * @param providerId the provider's message id, when it returns one
+ * @param retryAfter the provider's requested delay before retrying, if any
+ */
+public record DeliveryResult(Status status, String providerId, String error, Duration retryAfter) {
+    
+    public enum Status {
+        SENT,
+        /** Worth trying again later: timeouts, throttling, provider errors */
+        RETRY,
+        /** Will never succeed as is: invalid recipient, rejected content */
+        REJECTED
+    }
+    
+    public static DeliveryResult sent(String providerId) {
+        return new DeliveryResult(Status.SENT, providerId, null, null);
+    }
+    
+    public static DeliveryResult retry(String error) {
+        return new DeliveryResult(Status.RETRY, null, error, null);
+    }
+    
+    public static DeliveryResult retry(String error, Duration retryAfter) {
+        return new DeliveryResult(Status.RETRY, null, error, retryAfter);
+    }
+    
+    public static DeliveryResult rejected(String error) {
+        return new DeliveryResult(Status.REJECTED, null, error, null);
+    }
+}
\ No newline at end of file
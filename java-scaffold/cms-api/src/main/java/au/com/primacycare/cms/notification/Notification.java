@@ -0,0 +1,17 @@
+package au.com.primacycare.cms.notification;
+
+import java.util.Map;
+
+/**
+ * A notification to be written to the outbox
+ *
+ * @param template   names the message kind, e.g. participant-welcome; SendGrid maps it to a
+ *                   dynamic template when one is configured
+ * @param subject    email only
+ * @param body       rendered text, sent as is unless the provider renders the template
+ * @param params     template data
+ * @param dedupeKey  a second notification with the same key is not written
+ */
+public record Notification(NotificationChannel channel, String recipient, String template, String subject,
+                           String body, Map<String, Object> params, String dedupeKey) {
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package au.com.primacycare.cms.notification;
+
+/**
+ * How a notification reaches its recipient
+ */
+public enum NotificationChannel {
+    EMAIL("email"),
+    SMS("sms");
+    
+    private final String code;
+    
+    NotificationChannel(String code) {
+        this.code = code;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public static NotificationChannel fromCode(String code) {
+        for (NotificationChannel channel : values()) {
+            if (channel.code.equals(code)) {
+                return channel;
+            }
+        }
+        throw new IllegalArgumentException("Unknown notification channel: " + code);
+    }
+}
\ No newline at end of file
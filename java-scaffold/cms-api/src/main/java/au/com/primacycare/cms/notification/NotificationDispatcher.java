@@ -0,0 +1,275 @@
+package au.com.primacycare.cms.notification;
+
+import au.com.primacycare.cms.repository.NotificationOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends notification_outbox rows, one worker thread per channel
+ *
+ * A worker claims up to its transport's batch size of due rows, hands them to the transport in one
+ * call outside any transaction, then records each result: sent, retried after an exponential
+ * backoff with jitter (or the provider's requested delay), or failed once it has been tried
+ * app.notifications.max-attempts times or the provider rejects it outright. Workers sleep for
+ * app.notifications.poll-interval when idle and are woken early by NotificationService once a
+ * transaction that wrote notifications commits. Claims skip rows locked by other instances, so
+ * any number of instances can dispatch; a message whose result was never recorded is sent again
+ * after its lease, making delivery at-least-once.
+ */
+@Component
+@Slf4j
+public class NotificationDispatcher {
+    
+    private static final NotificationOutboxRepository.Backlog NO_BACKLOG = new NotificationOutboxRepository.Backlog(0, 0);
+    
+    private final NotificationOutboxRepository outboxRepository;
+    private final Map<NotificationChannel, Worker> workers = new EnumMap<>(NotificationChannel.class);
+    private final long pollIntervalNanos;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    private final int retentionDays;
+    
+    private volatile Map<NotificationChannel, NotificationOutboxRepository.Backlog> backlog = Map.of();
+    private volatile boolean running = true;
+    
+    public NotificationDispatcher(List<NotificationTransport> transports,
+                                  NotificationOutboxRepository outboxRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.notifications.poll-interval:5000}") long pollIntervalMillis,
+                                  @Value("${app.notifications.lease-seconds:300}") long leaseSeconds,
+                                  @Value("${app.notifications.max-attempts:8}") int maxAttempts,
+                                  @Value("${app.notifications.backoff-seconds:30}") long backoffSeconds,
+                                  @Value("${app.notifications.max-backoff-seconds:3600}") long maxBackoffSeconds,
+                                  @Value("${app.notifications.retention-days:90}") int retentionDays) {
+        this.outboxRepository = outboxRepository;
+        this.pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pollIntervalMillis);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.maxAttempts = maxAttempts;
+        this.baseBackoff = Duration.ofSeconds(backoffSeconds);
+        this.maxBackoff = Duration.ofSeconds(maxBackoffSeconds);
+        this.retentionDays = retentionDays;
+        
+        for (NotificationTransport transport : transports) {
+            if (workers.containsKey(transport.channel())) {
+                throw new IllegalStateException("More than one transport for " + transport.channel().getCode());
+            }
+            workers.put(transport.channel(), new Worker(transport, meterRegistry));
+        }
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            String code = channel.getCode();
+            Gauge.builder("cms.notifications.lag", this, dispatcher -> dispatcher.backlogOf(channel).oldestSeconds())
+                .tag("channel", code)
+                .baseUnit("seconds")
+                .description("How long the longest-waiting due notification has been due")
+                .register(meterRegistry);
+            Gauge.builder("cms.notifications.due", this, dispatcher -> dispatcher.backlogOf(channel).due())
+                .tag("channel", code)
+                .description("Notifications due to be sent")
+                .register(meterRegistry);
+        }
+    }
+    
+    @PostConstruct
+    void start() {
+        for (Worker worker : workers.values()) {
+            worker.thread = Thread.ofPlatform()
+                .name("notification-" + worker.transport.channel().getCode())
+                .daemon()
+                .start(() -> run(worker));
+        }
+    }
+    
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Worker worker : workers.values()) {
+            LockSupport.unpark(worker.thread);
+        }
+        for (Worker worker : workers.values()) {
+            // A batch still sending is claimed until its lease ends and then sent again
+            worker.thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+    
+    /**
+     * Have the channels' workers look for due messages now rather than at their next poll
+     */
+    public void wake(Collection<NotificationChannel> channels) {
+        for (NotificationChannel channel : channels) {
+            Worker worker = workers.get(channel);
+            if (worker != null && worker.thread != null) {
+                LockSupport.unpark(worker.thread);
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${app.notifications.lag-refresh-interval:15000}")
+    public void refreshBacklog() {
+        try {
+            backlog = outboxRepository.findBacklog();
+        } catch (RuntimeException e) {
+            log.warn("Could not read the notification backlog", e);
+        }
+    }
+    
+    @Scheduled(cron = "${app.notifications.purge-cron:0 50 3 * * *}")
+    public void purge() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        int deleted = 0;
+        int batch;
+        do {
+            batch = outboxRepository.purge(before, 5000);
+            deleted += batch;
+        } while (batch == 5000);
+        if (deleted > 0) {
+            log.info("Purged {} notifications created before {}", deleted, before);
+        }
+    }
+    
+    private NotificationOutboxRepository.Backlog backlogOf(NotificationChannel channel) {
+        return backlog.getOrDefault(channel, NO_BACKLOG);
+    }
+    
+    private void run(Worker worker) {
+        NotificationChannel channel = worker.transport.channel();
+        while (running) {
+            List<OutboxMessage> batch;
+            try {
+                batch = outboxRepository.claim(channel, worker.transport.maxBatchSize(), lease);
+            } catch (RuntimeException e) {
+                log.error("Could not claim {} notifications", channel.getCode(), e);
+                LockSupport.parkNanos(pollIntervalNanos);
+                continue;
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(pollIntervalNanos);
+                continue;
+            }
+            deliver(worker, batch);
+        }
+    }
+    
+    private void deliver(Worker worker, List<OutboxMessage> batch) {
+        List<DeliveryResult> results;
+        Timer.Sample sample = Timer.start();
+        try {
+            results = worker.transport.send(batch);
+            if (results.size() != batch.size()) {
+                throw new IllegalStateException("Expected " + batch.size() + " results, got " + results.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("{} transport failed for {} notifications", worker.transport.channel().getCode(), batch.size(), e);
+            DeliveryResult failed = DeliveryResult.retry("Transport error: " + e.getMessage());
+            results = batch.stream().map(message -> failed).toList();
+        } finally {
+            sample.stop(worker.sendTimer);
+        }
+        
+        List<NotificationOutboxRepository.Delivered> delivered = new ArrayList<>();
+        List<NotificationOutboxRepository.Undelivered> retried = new ArrayList<>();
+        List<NotificationOutboxRepository.Undelivered> failed = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxMessage message = batch.get(i);
+            DeliveryResult result = results.get(i);
+            switch (result.status()) {
+                case SENT -> {
+                    delivered.add(new NotificationOutboxRepository.Delivered(message, result.providerId()));
+                    worker.deliveryTimer.record(Duration.between(message.createdAt(), now));
+                }
+                case RETRY -> {
+                    if (message.attempts() >= maxAttempts) {
+                        failed.add(new NotificationOutboxRepository.Undelivered(message, result.error(), null));
+                    } else {
+                        retried.add(new NotificationOutboxRepository.Undelivered(message, result.error(),
+                            result.retryAfter() != null ? result.retryAfter() : backoff(message.attempts())));
+                    }
+                }
+                case REJECTED -> failed.add(new NotificationOutboxRepository.Undelivered(message, result.error(), null));
+            }
+        }
+        
+        try {
+            outboxRepository.markSent(delivered);
+            outboxRepository.reschedule(retried);
+            outboxRepository.markFailed(failed);
+        } catch (RuntimeException e) {
+            // Left claimed: retried after the lease, so sent ones may be sent twice
+            log.error("Could not record results of {} {} notifications", batch.size(),
+                      worker.transport.channel().getCode(), e);
+        }
+        worker.sent.increment(delivered.size());
+        worker.retried.increment(retried.size());
+        worker.failed.increment(failed.size());
+        for (NotificationOutboxRepository.Undelivered undelivered : failed) {
+            log.warn("Notification {} to {} failed after {} attempts: {}", undelivered.message().id(),
+                     undelivered.message().recipient(), undelivered.message().attempts(), undelivered.error());
+        }
+    }
+    
+    /**
+     * Doubling from app.notifications.backoff-seconds, capped, with the upper half jittered so
+     * messages that failed together do not all retry together
+     */
+    Duration backoff(int attempts) {
+        long base = baseBackoff.toMillis() << Math.min(attempts - 1, 20);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        long half = capped / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+    
+    private static final class Worker {
+        
+        private final NotificationTransport transport;
+        private final Timer sendTimer;
+        private final Timer deliveryTimer;
+        private final Counter sent;
+        private final Counter retried;
+        private final Counter failed;
+        private volatile Thread thread;
+        
+        Worker(NotificationTransport transport, MeterRegistry meterRegistry) {
+            String code = transport.channel().getCode();
+            this.transport = transport;
+            this.sendTimer = Timer.builder("cms.notifications.send")
+                .tag("channel", code)
+                .description("Latency of one batched call to the provider")
+                .register(meterRegistry);
+            this.deliveryTimer = Timer.builder("cms.notifications.delivery")
+                .tag("channel", code)
+                .description("Time from a notification being written to it being sent")
+                .register(meterRegistry);
+            this.sent = counter(meterRegistry, code, "sent");
+            this.retried = counter(meterRegistry, code, "retried");
+            this.failed = counter(meterRegistry, code, "failed");
+        }
+        
+        private static Counter counter(MeterRegistry meterRegistry, String channel, String outcome) {
+            return Counter.builder("cms.notifications")
+                .tag("channel", channel)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+package au.com.primacycare.cms.notification;
+
+import java.util.List;
+
+/**
+ * Sends the messages of one channel to a provider
+ * Called from that channel's dispatcher thread only, outside any transaction
+ */
+public interface NotificationTransport {
+    
+    NotificationChannel channel();
+    
+    /**
+     * Most messages handed to one send call
+     */
+    int maxBatchSize();
+    
+    /**
+     * Delivery failures are reported per message rather than thrown
+     *
+     * @return one result per message, in the same order
+     */
+    List<DeliveryResult> send(List<OutboxMessage> messages);
+}
\ No newline at end of file
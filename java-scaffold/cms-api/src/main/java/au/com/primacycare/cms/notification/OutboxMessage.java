@@ -0,0 +1,13 @@
+package au.com.primacycare.cms.notification;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * An outbox row claimed for sending
+ *
+ * @param attempts including this one
+ */
+public record OutboxMessage(String id, NotificationChannel channel, String recipient, String template, String subject,
+                            String body, Map<String, Object> params, int attempts, LocalDateTime createdAt) {
+}
\ No newline at end of file
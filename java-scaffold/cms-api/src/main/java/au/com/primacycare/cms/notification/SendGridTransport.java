@@ -0,0 +1,184 @@
+package au.com.primacycare.cms.notification;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Email through SendGrid's v3 mail send API, many recipients per request
+ *
+ * Messages of one batch are grouped into requests of up to 1000 personalizations, each recipient
+ * getting a separate email: by template when a dynamic template is configured for it under
+ * app.integrations.sendgrid.templates, otherwise by identical subject and body. A request
+ * SendGrid rejects as invalid is re-sent one message at a time so one bad address cannot fail the
+ * rest of its group.
+ */
+@Slf4j
+public class SendGridTransport implements NotificationTransport {
+    
+    private static final URI MAIL_SEND_URI = URI.create("https://api.sendgrid.com/v3/mail/send");
+    
+    /** SendGrid's limit per mail send request */
+    private static final int MAX_PERSONALIZATIONS = 1000;
+    
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String apiKey;
+    private final String fromEmail;
+    private final Map<String, String> templateIds;
+    private final int maxBatchSize;
+    private final Duration timeout;
+    
+    /**
+     * @param templateIds SendGrid dynamic template id by notification template
+     */
+    public SendGridTransport(HttpClient httpClient, ObjectMapper objectMapper, String apiKey, String fromEmail,
+                             Map<String, String> templateIds, int maxBatchSize, Duration timeout) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.apiKey = apiKey;
+        this.fromEmail = fromEmail;
+        this.templateIds = Map.copyOf(templateIds);
+        this.maxBatchSize = Math.max(1, Math.min(maxBatchSize, MAX_PERSONALIZATIONS));
+        this.timeout = timeout;
+    }
+    
+    @Override
+    public NotificationChannel channel() {
+        return NotificationChannel.EMAIL;
+    }
+    
+    @Override
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+    
+    @Override
+    public List<DeliveryResult> send(List<OutboxMessage> messages) {
+        DeliveryResult[] results = new DeliveryResult[messages.size()];
+        if (apiKey == null || apiKey.isBlank()) {
+            // Kept for when the key is configured rather than dropped
+            Arrays.fill(results, DeliveryResult.retry("SendGrid API key is not configured"));
+            return Arrays.asList(results);
+        }
+        
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            groups.computeIfAbsent(groupKey(messages.get(i)), key -> new ArrayList<>()).add(i);
+        }
+        for (List<Integer> group : groups.values()) {
+            for (int from = 0; from < group.size(); from += MAX_PERSONALIZATIONS) {
+                List<Integer> chunk = group.subList(from, Math.min(from + MAX_PERSONALIZATIONS, group.size()));
+                DeliveryResult result = post(messages, chunk);
+                if (result.status() == DeliveryResult.Status.REJECTED && chunk.size() > 1) {
+                    for (int index : chunk) {
+                        results[index] = post(messages, List.of(index));
+                    }
+                } else {
+                    for (int index : chunk) {
+                        results[index] = result;
+                    }
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+    
+    private String groupKey(OutboxMessage message) {
+        return templateIds.containsKey(message.template())
+            ? "template:" + message.template()
+            : "content:" + message.subject() + '\u0000' + message.body();
+    }
+    
+    /**
+     * One mail send request for the messages at the given indexes, which share a group
+     */
+    private DeliveryResult post(List<OutboxMessage> messages, List<Integer> indexes) {
+        OutboxMessage first = messages.get(indexes.get(0));
+        String templateId = templateIds.get(first.template());
+        
+        List<Map<String, Object>> personalizations = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            OutboxMessage message = messages.get(index);
+            Map<String, Object> personalization = new LinkedHashMap<>();
+            personalization.put("to", List.of(Map.of("email", message.recipient())));
+            personalization.put("custom_args", Map.of("notification_id", message.id()));
+            if (templateId != null && message.params() != null) {
+                personalization.put("dynamic_template_data", message.params());
+            }
+            personalizations.add(personalization);
+        }
+        Map<String, Object> mail = new LinkedHashMap<>();
+        mail.put("from", Map.of("email", fromEmail));
+        mail.put("personalizations", personalizations);
+        if (templateId != null) {
+            mail.put("template_id", templateId);
+        } else {
+            mail.put("subject", first.subject());
+            mail.put("content", List.of(Map.of("type", "text/plain", "value", first.body())));
+        }
+        
+        try {
+            HttpRequest request = HttpRequest.newBuilder(MAIL_SEND_URI)
+                .timeout(timeout)
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(mail)))
+                .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            int status = response.statusCode();
+            if (status / 100 == 2) {
+                return DeliveryResult.sent(response.headers().firstValue("X-Message-Id").orElse(null));
+            }
+            String error = "SendGrid " + status + ": " + abbreviate(response.body());
+            if (status == 429) {
+                return DeliveryResult.retry(error, rateLimitReset(response));
+            }
+            if (status == 400 || status == 413) {
+                return DeliveryResult.rejected(error);
+            }
+            // 401/403 are configuration problems: keep the mail until they are fixed
+            return DeliveryResult.retry(error);
+        } catch (JsonProcessingException e) {
+            return DeliveryResult.rejected("Template data is not serializable: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            return DeliveryResult.retry("SendGrid request failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return DeliveryResult.retry("Interrupted");
+        }
+    }
+    
+    private static Duration rateLimitReset(HttpResponse<?> response) {
+        return response.headers().firstValue("X-RateLimit-Reset")
+            .map(reset -> {
+                try {
+                    return Duration.between(Instant.now(), Instant.ofEpochSecond(Long.parseLong(reset)));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            })
+            .filter(delay -> !delay.isNegative())
+            .orElse(null);
+    }
+    
+    static String abbreviate(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.length() <= 500 ? text : text.substring(0, 500) + "...";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package au.com.primacycare.cms.notification;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Local transport that logs and records messages instead of sending them
+ * Used with app.notifications.transport=stub, for tests and local development
+ */
+@Slf4j
+public class StubNotificationTransport implements NotificationTransport {
+    
+    private final NotificationChannel channel;
+    private final int maxBatchSize;
+    private final List<OutboxMessage> sent = new ArrayList<>();
+    private volatile Function<OutboxMessage, DeliveryResult> responder =
+        message -> DeliveryResult.sent("stub-" + UUID.randomUUID());
+    
+    public StubNotificationTransport(NotificationChannel channel, int maxBatchSize) {
+        this.channel = channel;
+        this.maxBatchSize = maxBatchSize;
+    }
+    
+    @Override
+    public NotificationChannel channel() {
+        return channel;
+    }
+    
+    @Override
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+    
+    @Override
+    public List<DeliveryResult> send(List<OutboxMessage> messages) {
+        List<DeliveryResult> results = new ArrayList<>(messages.size());
+        for (OutboxMessage message : messages) {
+            DeliveryResult result = responder.apply(message);
+            if (result.status() == DeliveryResult.Status.SENT) {
+                synchronized (sent) {
+                    sent.add(message);
+                }
+            }
+            log.info("Stub {} {} to {}: {}", channel.getCode(), message.template(), message.recipient(),
+                     result.status());
+            results.add(result);
+        }
+        return results;
+    }
+    
+    /**
+     * Messages sent so far, oldest first
+     */
+    public List<OutboxMessage> sent() {
+        synchronized (sent) {
+            return List.copyOf(sent);
+        }
+    }
+    
+    public void clear() {
+        synchronized (sent) {
+            sent.clear();
+        }
+    }
+    
+    /**
+     * Replace the default of sending everything, e.g. to simulate provider failures
+     */
+    public void respondWith(Function<OutboxMessage, DeliveryResult> responder) {
+        this.responder = responder;
+    }
+}
\ No newline at end of file
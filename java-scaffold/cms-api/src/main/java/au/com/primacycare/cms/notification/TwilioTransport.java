@@ -0,0 +1,188 @@
+package au.com.primacycare.cms.notification;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SMS through Twilio's Messages API
+ *
+ * Twilio takes one message per request and queues what a sender number cannot send at once, so
+ * requests are paced to app.notifications.sms.rate-per-second rather than letting that queue
+ * grow. Throttling by Twilio stops the batch; the rest is retried later.
+ */
+@Slf4j
+public class TwilioTransport implements NotificationTransport {
+    
+    private static final String MESSAGES_URI = "https://api.twilio.com/2010-04-01/Accounts/%s/Messages.json";
+    
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String accountSid;
+    private final String authToken;
+    private final String fromNumber;
+    private final int maxBatchSize;
+    private final long intervalNanos;
+    private final Duration timeout;
+    
+    private long nextSendNanos = System.nanoTime();
+    
+    public TwilioTransport(HttpClient httpClient, ObjectMapper objectMapper, String accountSid, String authToken,
+                           String fromNumber, int maxBatchSize, double ratePerSecond, Duration timeout) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("SMS rate must be positive: " + ratePerSecond);
+        }
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.accountSid = accountSid;
+        this.authToken = authToken;
+        this.fromNumber = fromNumber;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        this.timeout = timeout;
+    }
+    
+    @Override
+    public NotificationChannel channel() {
+        return NotificationChannel.SMS;
+    }
+    
+    @Override
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+    
+    @Override
+    public List<DeliveryResult> send(List<OutboxMessage> messages) {
+        if (messages.isEmpty()) {
+            return List.of();
+        }
+        List<DeliveryResult> results = new ArrayList<>(messages.size());
+        if (isBlank(accountSid) || isBlank(authToken) || isBlank(fromNumber)) {
+            // Kept for when Twilio is configured rather than dropped
+            messages.forEach(message -> results.add(DeliveryResult.retry("Twilio is not configured")));
+            return results;
+        }
+        for (OutboxMessage message : messages) {
+            DeliveryResult result;
+            try {
+                awaitSlot();
+                result = post(message);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result = DeliveryResult.retry("Interrupted");
+            }
+            results.add(result);
+            if (result.status() == DeliveryResult.Status.RETRY && (result.retryAfter() != null
+                || Thread.currentThread().isInterrupted())) {
+                break;
+            }
+        }
+        // Throttled or interrupted: the rest go back to the outbox untried
+        DeliveryResult last = results.get(results.size() - 1);
+        while (results.size() < messages.size()) {
+            results.add(DeliveryResult.retry("Not sent: " + last.error(), last.retryAfter()));
+        }
+        return results;
+    }
+    
+    private DeliveryResult post(OutboxMessage message) throws InterruptedException {
+        String to = toE164(message.recipient());
+        if (to == null) {
+            return DeliveryResult.rejected("Not a mobile number: " + message.recipient());
+        }
+        String form = "To=" + encode(to) + "&From=" + encode(fromNumber) + "&Body=" + encode(message.body());
+        String credentials = Base64.getEncoder()
+            .encodeToString((accountSid + ":" + authToken).getBytes(StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(MESSAGES_URI.formatted(accountSid)))
+            .timeout(timeout)
+            .header("Authorization", "Basic " + credentials)
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(form))
+            .build();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            int status = response.statusCode();
+            if (status / 100 == 2) {
+                JsonNode body = objectMapper.readTree(response.body());
+                return DeliveryResult.sent(body.path("sid").asText(null));
+            }
+            String error = "Twilio " + status + ": " + SendGridTransport.abbreviate(response.body());
+            if (status == 429) {
+                Duration retryAfter = response.headers().firstValue("Retry-After")
+                    .map(TwilioTransport::seconds)
+                    .orElse(Duration.ofMinutes(1));
+                return DeliveryResult.retry(error, retryAfter);
+            }
+            if (status == 400 || status == 404) {
+                // Invalid or unsubscribed number, message too long
+                return DeliveryResult.rejected(error);
+            }
+            return DeliveryResult.retry(error);
+        } catch (IOException e) {
+            return DeliveryResult.retry("Twilio request failed: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Wait for the next send slot; slots missed while idle are not saved up into a burst
+     */
+    private void awaitSlot() throws InterruptedException {
+        long now = System.nanoTime();
+        long wait = nextSendNanos - now;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+            nextSendNanos += intervalNanos;
+        } else {
+            nextSendNanos = now + intervalNanos;
+        }
+    }
+    
+    /**
+     * Australian numbers as entered (0412 345 678, +61 412 345 678) to +61412345678
+     *
+     * @return null when the number cannot be put in E.164 form
+     */
+    static String toE164(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        String digits = phone.replaceAll("[\\s()-]", "");
+        if (digits.startsWith("+")) {
+            return digits.substring(1).matches("\\d{8,15}") ? digits : null;
+        }
+        if (digits.matches("0[2-9]\\d{8}")) {
+            return "+61" + digits.substring(1);
+        }
+        return digits.matches("61[2-9]\\d{8}") ? "+" + digits : null;
+    }
+    
+    private static Duration seconds(String value) {
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return Duration.ofMinutes(1);
+        }
+    }
+    
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+    
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package au.com.primacycare.cms.payroll;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * In-memory SCHADS award rates, compiled from award_rates (see V013)
+ * A new rate version is a new effective_from date; existing versions keep pricing the periods they cover.
+ *
+ * Reloaded at startup and daily. A version that fails validation keeps the previously loaded
+ * rates in place rather than pricing shifts from a partial table.
+ */
+@Component
+@Slf4j
+public class AwardRateTable {
+    
+    private static final String RATES_SQL = """
+        SELECT effective_from, category, code, value
+        FROM award_rates
+        ORDER BY effective_from
+        """;
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    private volatile AwardRates rates = AwardRates.EMPTY;
+    
+    public AwardRateTable(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        meterRegistry.gauge("cms.payroll.award.versions", this, table -> table.rates.size());
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.payroll.award-reload-cron:0 5 0 * * *}")
+    public void reload() {
+        Map<LocalDate, VersionRows> byDate = new TreeMap<>();
+        jdbcTemplate.query(RATES_SQL, rs -> {
+            VersionRows rows = byDate.computeIfAbsent(rs.getDate("effective_from").toLocalDate(), date -> new VersionRows());
+            String code = rs.getString("code");
+            BigDecimal value = rs.getBigDecimal("value");
+            switch (rs.getString("category")) {
+                case "LEVEL" -> rows.levels.put(Integer.valueOf(code), value);
+                case "PENALTY" -> rows.penalties.put(code, value);
+                case "RULE" -> rows.rules.put(code, value);
+                case "ALLOWANCE" -> rows.allowances.put(code, value);
+                default -> log.warn("Ignoring award rate {} with unknown category {}", code, rs.getString("category"));
+            }
+        });
+        
+        List<AwardRateVersion> versions = new ArrayList<>();
+        try {
+            byDate.forEach((date, rows) ->
+                versions.add(AwardRateVersion.of(date, rows.levels, rows.penalties, rows.rules, rows.allowances)));
+        } catch (IllegalArgumentException e) {
+            log.error("Award rates not reloaded, keeping {} loaded versions: {}", rates.size(), e.getMessage());
+            return;
+        }
+        rates = new AwardRates(versions);
+        log.info("Award rate table loaded: {} versions", versions.size());
+    }
+    
+    /**
+     * Every loaded version; hold on to the result to price a batch against one consistent table
+     */
+    public AwardRates rates() {
+        return rates;
+    }
+    
+    public AwardRateVersion forDate(LocalDate date) {
+        return rates.forDate(date);
+    }
+    
+    private static final class VersionRows {
+        final Map<Integer, BigDecimal> levels = new HashMap<>();
+        final Map<String, BigDecimal> penalties = new HashMap<>();
+        final Map<String, BigDecimal> rules = new HashMap<>();
+        final Map<String, BigDecimal> allowances = new HashMap<>();
+    }
+}
\ No newline at end of file
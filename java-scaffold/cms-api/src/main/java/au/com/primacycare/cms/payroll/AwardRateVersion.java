@@ -0,0 +1,204 @@
+package au.com.primacycare.cms.payroll;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * One effective-dated version of the SCHADS award rates, as scaled longs:
+ * level rates and allowances in cents, penalty multipliers in basis points
+ *
+ * Every day of the week, plus a public holiday, is compiled once into contiguous
+ * segments of the day with their multiplier, so pricing a shift walks a few array
+ * entries instead of re-evaluating the penalty rules.
+ */
+public final class AwardRateVersion {
+    
+    public static final int MIN_LEVEL = 1;
+    public static final int MAX_LEVEL = 8;
+    
+    public static final String ORDINARY = "ORDINARY";
+    public static final String EVENING = "EVENING";
+    public static final String NIGHT = "NIGHT";
+    public static final String SATURDAY = "SATURDAY";
+    public static final String SATURDAY_AFTER = "SATURDAY_AFTER";
+    public static final String SUNDAY = "SUNDAY";
+    public static final String PUBLIC_HOLIDAY = "PUBLIC_HOLIDAY";
+    
+    public static final String EVENING_START_HOUR = "EVENING_START_HOUR";
+    public static final String NIGHT_START_HOUR = "NIGHT_START_HOUR";
+    public static final String NIGHT_END_HOUR = "NIGHT_END_HOUR";
+    public static final String SATURDAY_FIRST_HOURS = "SATURDAY_FIRST_HOURS";
+    
+    static final int SECONDS_PER_DAY = 86_400;
+    
+    private static final int HOLIDAY = 7;
+    
+    private final LocalDate effectiveFrom;
+    private final long[] levelRateCents;
+    private final Map<String, Long> allowanceCents;
+    private final long saturdayAfterBasisPoints;
+    private final int saturdayFirstSeconds;
+    private final DaySegments[] days;
+    
+    private AwardRateVersion(LocalDate effectiveFrom, long[] levelRateCents, Map<String, Long> allowanceCents,
+                             long saturdayAfterBasisPoints, int saturdayFirstSeconds, DaySegments[] days) {
+        this.effectiveFrom = effectiveFrom;
+        this.levelRateCents = levelRateCents;
+        this.allowanceCents = allowanceCents;
+        this.saturdayAfterBasisPoints = saturdayAfterBasisPoints;
+        this.saturdayFirstSeconds = saturdayFirstSeconds;
+        this.days = days;
+    }
+    
+    /**
+     * Compile a version from award_rates values
+     *
+     * @param levels     hourly rate in dollars by classification level, all of MIN_LEVEL to MAX_LEVEL
+     * @param penalties  multiplier by penalty code, e.g. 1.5 for SATURDAY
+     * @param rules      penalty boundaries in hours by rule code
+     * @param allowances amount in dollars by allowance code; may be empty
+     * @throws IllegalArgumentException if a value is missing, out of range or finer than a cent
+     */
+    public static AwardRateVersion of(LocalDate effectiveFrom, Map<Integer, BigDecimal> levels,
+                                      Map<String, BigDecimal> penalties, Map<String, BigDecimal> rules,
+                                      Map<String, BigDecimal> allowances) {
+        String version = "Award rates effective " + effectiveFrom;
+        long[] levelRateCents = new long[MAX_LEVEL + 1];
+        for (int level = MIN_LEVEL; level <= MAX_LEVEL; level++) {
+            levelRateCents[level] = cents(version, "level " + level, require(version, levels, level));
+        }
+        
+        long ordinary = basisPoints(version, ORDINARY, require(version, penalties, ORDINARY));
+        long evening = basisPoints(version, EVENING, require(version, penalties, EVENING));
+        long night = basisPoints(version, NIGHT, require(version, penalties, NIGHT));
+        long saturday = basisPoints(version, SATURDAY, require(version, penalties, SATURDAY));
+        long saturdayAfter = basisPoints(version, SATURDAY_AFTER, require(version, penalties, SATURDAY_AFTER));
+        long sunday = basisPoints(version, SUNDAY, require(version, penalties, SUNDAY));
+        long publicHoliday = basisPoints(version, PUBLIC_HOLIDAY, require(version, penalties, PUBLIC_HOLIDAY));
+        
+        int nightEnd = seconds(version, NIGHT_END_HOUR, require(version, rules, NIGHT_END_HOUR));
+        int eveningStart = seconds(version, EVENING_START_HOUR, require(version, rules, EVENING_START_HOUR));
+        int nightStart = seconds(version, NIGHT_START_HOUR, require(version, rules, NIGHT_START_HOUR));
+        int saturdayFirst = seconds(version, SATURDAY_FIRST_HOURS, require(version, rules, SATURDAY_FIRST_HOURS));
+        if (nightEnd > eveningStart || eveningStart > nightStart || nightStart > SECONDS_PER_DAY) {
+            throw new IllegalArgumentException(version + ": night end, evening start and night start must be in day order");
+        }
+        
+        Map<String, Long> allowanceCents = new HashMap<>();
+        allowances.forEach((code, amount) -> allowanceCents.put(code, cents(version, code, amount)));
+        
+        DaySegments weekday = DaySegments.of(false,
+            nightEnd, night,
+            eveningStart, ordinary,
+            nightStart, evening,
+            SECONDS_PER_DAY, night);
+        DaySegments[] days = new DaySegments[HOLIDAY + 1];
+        for (DayOfWeek day : DayOfWeek.values()) {
+            days[day.ordinal()] = switch (day) {
+                case SATURDAY -> DaySegments.of(true, SECONDS_PER_DAY, saturday);
+                case SUNDAY -> DaySegments.of(false, SECONDS_PER_DAY, sunday);
+                default -> weekday;
+            };
+        }
+        days[HOLIDAY] = DaySegments.of(false, SECONDS_PER_DAY, publicHoliday);
+        
+        return new AwardRateVersion(effectiveFrom, levelRateCents, Map.copyOf(allowanceCents),
+            saturdayAfter, saturdayFirst, days);
+    }
+    
+    public LocalDate effectiveFrom() {
+        return effectiveFrom;
+    }
+    
+    /**
+     * Hourly base rate of a classification level, in cents
+     */
+    public long levelRateCents(int level) {
+        if (level < MIN_LEVEL || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("Award level must be between " + MIN_LEVEL + " and " + MAX_LEVEL);
+        }
+        return levelRateCents[level];
+    }
+    
+    public OptionalLong allowanceCents(String code) {
+        Long amount = allowanceCents.get(code);
+        return amount != null ? OptionalLong.of(amount) : OptionalLong.empty();
+    }
+    
+    DaySegments day(LocalDate date, boolean publicHoliday) {
+        return days[publicHoliday ? HOLIDAY : date.getDayOfWeek().ordinal()];
+    }
+    
+    long saturdayAfterBasisPoints() {
+        return saturdayAfterBasisPoints;
+    }
+    
+    int saturdayFirstSeconds() {
+        return saturdayFirstSeconds;
+    }
+    
+    private static <K> BigDecimal require(String version, Map<K, BigDecimal> values, K key) {
+        BigDecimal value = values.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException(version + ": missing " + key);
+        }
+        if (value.signum() < 0) {
+            throw new IllegalArgumentException(version + ": " + key + " must not be negative");
+        }
+        return value;
+    }
+    
+    private static long cents(String version, String code, BigDecimal dollars) {
+        return exact(version, code, dollars.movePointRight(2));
+    }
+    
+    private static long basisPoints(String version, String code, BigDecimal multiplier) {
+        return exact(version, code, multiplier.movePointRight(4));
+    }
+    
+    private static int seconds(String version, String code, BigDecimal hours) {
+        long seconds = exact(version, code, hours.multiply(BigDecimal.valueOf(3600)));
+        if (seconds > SECONDS_PER_DAY) {
+            throw new IllegalArgumentException(version + ": " + code + " must be at most 24 hours");
+        }
+        return (int) seconds;
+    }
+    
+    private static long exact(String version, String code, BigDecimal scaled) {
+        try {
+            return scaled.longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(version + ": " + code + " is more precise than supported");
+        }
+    }
+    
+    /**
+     * Contiguous segments of one day: segment i ends at ends[i] seconds and pays basisPoints[i]
+     * On a Saturday the first hours of each shift are paid at basisPoints and the rest at SATURDAY_AFTER
+     */
+    record DaySegments(boolean saturday, int[] ends, long[] basisPoints) {
+        
+        /**
+         * @param boundaries pairs of segment end (seconds of day) and multiplier (basis points);
+         *                   empty segments are dropped
+         */
+        static DaySegments of(boolean saturday, long... boundaries) {
+            int[] ends = new int[boundaries.length / 2];
+            long[] basisPoints = new long[ends.length];
+            int n = 0;
+            int previous = 0;
+            for (int i = 0; i < boundaries.length; i += 2) {
+                int end = (int) boundaries[i];
+                if (end > previous) {
+                    ends[n] = end;
+                    basisPoints[n] = boundaries[i + 1];
+                    n++;
+                    previous = end;
+                }
+            }
+            return new DaySegments(saturday, Arrays.copyOf(ends, n), Arrays.copyOf(basisPoints, n));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+package au.com.primacycare.cms.payroll;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable set of award rate versions ordered by effective date
+ */
+public final class AwardRates {
+    
+    public static final AwardRates EMPTY = new AwardRates(List.of());
+    
+    private final AwardRateVersion[] versions;
+    
+    public AwardRates(List<AwardRateVersion> versions) {
+        this.versions = versions.stream()
+            .sorted(Comparator.comparing(AwardRateVersion::effectiveFrom))
+            .toArray(AwardRateVersion[]::new);
+    }
+    
+    /**
+     * The version in effect on a date: the latest one effective on or before it
+     *
+     * @throws IllegalStateException if no version is effective yet on that date
+     */
+    public AwardRateVersion forDate(LocalDate date) {
+        int low = 0;
+        int high = versions.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (versions[mid].effectiveFrom().isAfter(date)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        if (low == 0) {
+            throw new IllegalStateException("No award rates effective on " + date);
+        }
+        return versions[low - 1];
+    }
+    
+    public int size() {
+        return versions.length;
+    }
+}
\ No newline at end of file
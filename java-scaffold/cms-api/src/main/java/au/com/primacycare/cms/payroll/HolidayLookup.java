@@ -0,0 +1,14 @@
+package au.com.primacycare.cms.payroll;
+
+import java.time.LocalDate;
+
+/**
+ * Whether a date is a public holiday for the shift being priced
+ */
+@FunctionalInterface
+public interface HolidayLookup {
+    
+    HolidayLookup NONE = date -> false;
+    
+    boolean isPublicHoliday(LocalDate date);
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package au.com.primacycare.cms.payroll;
+
+import au.com.primacycare.cms.money.Money;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Shift pay from an award rate version, exact to the cent
+ * Replaces the whole-shift if/else chain of StaffService.calculatePayroll
+ *
+ * Worked time runs from the shift start for the shift's total hours and is split at the
+ * version's day segments: midnight, the evening and night boundaries, and the start of
+ * weekends and public holidays. A weekend or public holiday applies to the whole calendar day
+ * instead of the evening or night rate. Per-segment pay is summed as rate x multiplier x seconds
+ * and rounded half-up to the cent once per shift.
+ *
+ * Allowances claimed on a shift are priced separately, as the version's amount per unit times
+ * the claimed quantity.
+ */
+public final class PenaltyRateCalculator {
+    
+    static final long ONE = 10_000;
+    
+    private static final long SECONDS_PER_HUNDREDTH = 36;
+    private static final long SECONDS_PER_HOUR = 3_600;
+    
+    private PenaltyRateCalculator() {
+    }
+    
+    /**
+     * Pay for one shift in cents
+     *
+     * @param baseRateCents   hourly base rate in cents
+     * @param hoursHundredths worked hours x 100 (shifts.total_hours is DECIMAL(5, 2))
+     */
+    public static long payCents(AwardRateVersion award, long baseRateCents, LocalDate date, LocalTime startTime,
+                                long hoursHundredths, HolidayLookup holidays) {
+        long remaining = hoursHundredths * SECONDS_PER_HUNDREDTH;
+        int second = startTime != null ? startTime.toSecondOfDay() : 0;
+        LocalDate day = date;
+        long saturdaySeconds = 0;
+        // Sum of multiplier x seconds, so one division rounds the whole shift
+        long weighted = 0;
+        
+        while (remaining > 0) {
+            AwardRateVersion.DaySegments segments = award.day(day, holidays.isPublicHoliday(day));
+            int[] ends = segments.ends();
+            long[] basisPoints = segments.basisPoints();
+            for (int i = 0; i < ends.length && remaining > 0; i++) {
+                if (ends[i] <= second) {
+                    continue;
+                }
+                long taken = Math.min(ends[i] - second, remaining);
+                if (segments.saturday()) {
+                    long first = Math.max(0, Math.min(taken, award.saturdayFirstSeconds() - saturdaySeconds));
+                    weighted += basisPoints[i] * first + award.saturdayAfterBasisPoints() * (taken - first);
+                    saturdaySeconds += taken;
+                } else {
+                    weighted += basisPoints[i] * taken;
+                }
+                second += (int) taken;
+                remaining -= taken;
+            }
+            day = day.plusDays(1);
+            second = 0;
+        }
+        return Money.divideHalfUp(Math.multiplyExact(baseRateCents, weighted), ONE * SECONDS_PER_HOUR);
+    }
+    
+    /**
+     * Pay for an allowance claimed on one shift in cents
+     *
+     * @param quantityHundredths claimed units x 100, e.g. kilometres for a travel allowance
+     *                           (shift_allowances.quantity is DECIMAL(7, 2))
+     * @throws IllegalArgumentException if the version has no amount for the allowance
+     */
+    public static long allowanceCents(AwardRateVersion award, String code, long quantityHundredths) {
+        long amountCents = award.allowanceCents(code).orElseThrow(() -> new IllegalArgumentException(
+            "Award rates effective " + award.effectiveFrom() + ": no amount for allowance " + code));
+        return Money.divideHalfUp(Math.multiplyExact(amountCents, quantityHundredths), 100);
+    }
+    
+    /**
+     * Superannuation guarantee on gross pay, in cents
+     */
+    public static long superannuationCents(long grossCents, long rateBasisPoints) {
+        return Money.percentCents(grossCents, rateBasisPoints);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,167 @@
+package au.com.primacycare.cms.pricing;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Immutable NDIS price catalogue: support items by item number with effective-dated price limits
+ *
+ * Stored column-wise: one hash probe finds the item, its versions are a contiguous run of
+ * parallel int arrays sorted by start date, and a version's limits are ZONES consecutive ints.
+ * A zone is a state, remote, very remote, or the highest state limit for when the state is
+ * unknown. Some thousands of items with a few versions each fit in well under a megabyte.
+ */
+public final class PriceCatalogue {
+    
+    public static final int NO_CAP = -1;
+    
+    /** Column order of the state price limits in the support catalogue */
+    public static final List<String> STATE_CODES = List.of("ACT", "NSW", "NT", "QLD", "SA", "TAS", "VIC", "WA");
+    
+    static final int REMOTE = STATE_CODES.size();
+    static final int VERY_REMOTE = REMOTE + 1;
+    static final int SOURCE_ZONES = VERY_REMOTE + 1;
+    
+    private static final int ANY_STATE = SOURCE_ZONES;
+    private static final int ZONES = ANY_STATE + 1;
+    private static final int OPEN_ENDED = Integer.MAX_VALUE;
+    
+    public static final PriceCatalogue EMPTY = of(List.of());
+    
+    private final Map<String, Integer> ordinals;
+    private final String[] names;
+    private final String[] units;
+    private final int[] firstVersion;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] caps;
+    
+    private PriceCatalogue(Map<String, Integer> ordinals, String[] names, String[] units,
+                           int[] firstVersion, int[] starts, int[] ends, int[] caps) {
+        this.ordinals = ordinals;
+        this.names = names;
+        this.units = units;
+        this.firstVersion = firstVersion;
+        this.starts = starts;
+        this.ends = ends;
+        this.caps = caps;
+    }
+    
+    public static PriceCatalogue of(Collection<SupportItemPrice> prices) {
+        Map<String, List<SupportItemPrice>> byItem = new TreeMap<>();
+        for (SupportItemPrice price : prices) {
+            byItem.computeIfAbsent(price.itemNumber(), item -> new ArrayList<>()).add(price);
+        }
+        
+        int items = byItem.size();
+        int versions = prices.size();
+        Map<String, Integer> ordinals = new HashMap<>(items * 2);
+        String[] names = new String[items];
+        String[] units = new String[items];
+        int[] firstVersion = new int[items + 1];
+        int[] starts = new int[versions];
+        int[] ends = new int[versions];
+        int[] caps = new int[versions * ZONES];
+        
+        int item = 0;
+        int version = 0;
+        for (Map.Entry<String, List<SupportItemPrice>> entry : byItem.entrySet()) {
+            List<SupportItemPrice> itemVersions = entry.getValue();
+            itemVersions.sort(Comparator.comparing(SupportItemPrice::startDate));
+            SupportItemPrice latest = itemVersions.get(itemVersions.size() - 1);
+            ordinals.put(entry.getKey(), item);
+            names[item] = latest.name();
+            units[item] = latest.unit();
+            firstVersion[item] = version;
+            for (SupportItemPrice price : itemVersions) {
+                starts[version] = (int) price.startDate().toEpochDay();
+                ends[version] = price.endDate() != null ? (int) price.endDate().toEpochDay() : OPEN_ENDED;
+                int anyState = NO_CAP;
+                for (int zone = 0; zone < SOURCE_ZONES; zone++) {
+                    int cap = zone < price.zoneCapCents().length ? price.zoneCapCents()[zone] : NO_CAP;
+                    caps[version * ZONES + zone] = cap;
+                    if (zone < REMOTE && cap != NO_CAP) {
+                        anyState = Math.max(anyState, cap);
+                    }
+                }
+                caps[version * ZONES + ANY_STATE] = anyState;
+                version++;
+            }
+            item++;
+        }
+        firstVersion[items] = version;
+        return new PriceCatalogue(Map.copyOf(ordinals), names, units, firstVersion, starts, ends, caps);
+    }
+    
+    public boolean contains(String itemNumber) {
+        return itemNumber != null && ordinals.containsKey(itemNumber);
+    }
+    
+    /**
+     * Whether the item has a version in effect on date
+     */
+    public boolean isEffective(String itemNumber, LocalDate date) {
+        Integer item = itemNumber != null ? ordinals.get(itemNumber) : null;
+        return item != null && version(item, (int) date.toEpochDay()) >= 0;
+    }
+    
+    /**
+     * Support item name from the latest version, or null for an unknown item
+     */
+    public String name(String itemNumber) {
+        Integer item = itemNumber != null ? ordinals.get(itemNumber) : null;
+        return item != null ? names[item] : null;
+    }
+    
+    public String unit(String itemNumber) {
+        Integer item = itemNumber != null ? ordinals.get(itemNumber) : null;
+        return item != null ? units[item] : null;
+    }
+    
+    /**
+     * Price limit in cents for an item on a date
+     * Remote and very remote limits apply where the catalogue has them, otherwise the state's
+     *
+     * @param stateCode states.code; null or unknown uses the highest state limit
+     * @return NO_CAP for an unknown item, no version on that date, or an item without a limit (quotable supports)
+     */
+    public int capCents(String itemNumber, LocalDate date, String stateCode, Remoteness remoteness) {
+        Integer item = itemNumber != null ? ordinals.get(itemNumber) : null;
+        if (item == null) {
+            return NO_CAP;
+        }
+        int version = version(item, (int) date.toEpochDay());
+        if (version < 0) {
+            return NO_CAP;
+        }
+        int base = version * ZONES;
+        if (remoteness == Remoteness.VERY_REMOTE && caps[base + VERY_REMOTE] != NO_CAP) {
+            return caps[base + VERY_REMOTE];
+        }
+        if (remoteness != Remoteness.STANDARD && caps[base + REMOTE] != NO_CAP) {
+            return caps[base + REMOTE];
+        }
+        int state = stateCode != null ? STATE_CODES.indexOf(stateCode) : -1;
+        return caps[base + (state >= 0 ? state : ANY_STATE)];
+    }
+    
+    public int itemCount() {
+        return names.length;
+    }
+    
+    public int versionCount() {
+        return starts.length;
+    }
+    
+    /**
+     * Latest-starting version of the item covering epochDay, or -1
+     */
+    private int version(int item, int epochDay) {
+        for (int v = firstVersion[item + 1] - 1; v >= firstVersion[item]; v--) {
+            if (starts[v] <= epochDay && epochDay <= ends[v]) {
+                return v;
+            }
+        }
+        return -1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,186 @@
+package au.com.primacycare.cms.pricing;
+
+import au.com.primacycare.cms.dto.PriceGuideStatusDto;
+import au.com.primacycare.cms.exception.InvalidRequestException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * NDIS price guide from the support catalogue CSV export (app.price-guide.path)
+ * Replaces the hard-coded item switch in ServiceMapper; rates are validated and capped against it
+ *
+ * The path is a file or a directory of yearly exports, all loaded together so earlier
+ * versions keep pricing earlier services. The loaded catalogue is kept for
+ * app.cache.price-guide-ttl, then re-read if the files changed; POST /price-guide/reload
+ * re-reads immediately. A file that fails to parse keeps the previous catalogue.
+ */
+@Component
+@Slf4j
+public class PriceGuide {
+    
+    private static final String STATES_SQL = """
+        SELECT CAST(id AS VARCHAR) AS id, code FROM states
+        """;
+    
+    private static final String REGIONS_SQL = """
+        SELECT CAST(id AS VARCHAR) AS id, remoteness FROM regions
+        """;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final Path path;
+    
+    private volatile PriceCatalogue catalogue = PriceCatalogue.EMPTY;
+    private volatile Map<String, String> stateCodes = Map.of();
+    private volatile Map<String, Remoteness> regionRemoteness = Map.of();
+    private volatile String loadedSignature;
+    private volatile LocalDateTime loadedAt;
+    private volatile String lastError;
+    
+    public PriceGuide(JdbcTemplate jdbcTemplate,
+                      MeterRegistry meterRegistry,
+                      @Value("${app.price-guide.path:config/ndis-support-catalogue.csv}") Path path) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.path = path;
+        meterRegistry.gauge("cms.price.guide.items", this, guide -> guide.catalogue.itemCount());
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        reload(false);
+    }
+    
+    @Scheduled(fixedDelayString = "#{${app.cache.price-guide-ttl:86400} * 1000}",
+               initialDelayString = "#{${app.cache.price-guide-ttl:86400} * 1000}")
+    public void refresh() {
+        reload(false);
+    }
+    
+    /**
+     * Re-read the catalogue and the state and region lookups
+     *
+     * @param force re-read even if the files have not changed
+     */
+    public synchronized PriceGuideStatusDto reload(boolean force) {
+        try {
+            List<Path> files = files();
+            String signature = signature(files);
+            if (!force && signature.equals(loadedSignature)) {
+                return status();
+            }
+            List<SupportItemPrice> prices = new ArrayList<>();
+            for (Path file : files) {
+                prices.addAll(PriceGuideFileParser.parse(file));
+            }
+            loadLookups();
+            catalogue = PriceCatalogue.of(prices);
+            loadedSignature = signature;
+            loadedAt = LocalDateTime.now();
+            lastError = null;
+            log.info("Price guide loaded from {}: {} items, {} versions",
+                     path, catalogue.itemCount(), catalogue.versionCount());
+        } catch (IOException | RuntimeException e) {
+            lastError = e.getMessage();
+            log.error("Price guide {} not loaded, keeping {} items: {}", path, catalogue.itemCount(), e.getMessage());
+        }
+        return status();
+    }
+    
+    public PriceGuideStatusDto status() {
+        PriceCatalogue current = catalogue;
+        PriceGuideStatusDto status = new PriceGuideStatusDto();
+        status.setSource(path.toString());
+        status.setItemCount(current.itemCount());
+        status.setVersionCount(current.versionCount());
+        status.setLoadedAt(loadedAt);
+        status.setError(lastError);
+        return status;
+    }
+    
+    /**
+     * The loaded catalogue; hold on to the result for a consistent view across lookups
+     */
+    public PriceCatalogue catalogue() {
+        return catalogue;
+    }
+    
+    /**
+     * Price limit in cents for a participant's state and region, PriceCatalogue.NO_CAP if none applies
+     *
+     * @param date service date; today when null
+     */
+    public int capCents(String itemNumber, LocalDate date, String stateId, String regionId) {
+        if (itemNumber == null) {
+            return PriceCatalogue.NO_CAP;
+        }
+        return catalogue.capCents(itemNumber, date != null ? date : LocalDate.now(),
+            stateId != null ? stateCodes.get(stateId) : null,
+            regionId != null ? regionRemoteness.getOrDefault(regionId, Remoteness.STANDARD) : Remoteness.STANDARD);
+    }
+    
+    /**
+     * @throws IllegalArgumentException if a catalogue is loaded and the item is not in effect on date
+     */
+    public void validateItem(String itemNumber, LocalDate date) {
+        PriceCatalogue current = catalogue;
+        if (itemNumber == null || current.itemCount() == 0) {
+            return;
+        }
+        LocalDate effective = date != null ? date : LocalDate.now();
+        if (!current.isEffective(itemNumber, effective)) {
+            throw new InvalidRequestException(current.contains(itemNumber)
+                ? "NDIS support item " + itemNumber + " is not priced on " + effective
+                : "Unknown NDIS support item " + itemNumber);
+        }
+    }
+    
+    private void loadLookups() {
+        Map<String, String> states = new HashMap<>();
+        jdbcTemplate.query(STATES_SQL, rs -> {
+            states.put(rs.getString("id"), rs.getString("code").trim().toUpperCase(Locale.ROOT));
+        });
+        Map<String, Remoteness> regions = new HashMap<>();
+        jdbcTemplate.query(REGIONS_SQL, rs -> {
+            regions.put(rs.getString("id"), Remoteness.of(rs.getString("remoteness")));
+        });
+        stateCodes = Map.copyOf(states);
+        regionRemoteness = Map.copyOf(regions);
+    }
+    
+    private List<Path> files() throws IOException {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> entries = Files.list(path)) {
+                return entries
+                    .filter(file -> file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv"))
+                    .sorted()
+                    .toList();
+            }
+        }
+        if (Files.isRegularFile(path)) {
+            return List.of(path);
+        }
+        throw new IOException("not found");
+    }
+    
+    private static String signature(List<Path> files) throws IOException {
+        StringBuilder signature = new StringBuilder();
+        for (Path file : files) {
+            signature.append(file).append(':').append(Files.getLastModifiedTime(file).toMillis())
+                .append(':').append(Files.size(file)).append(';');
+        }
+        return signature.toString();
+    }
+}
\ No newline at end of file
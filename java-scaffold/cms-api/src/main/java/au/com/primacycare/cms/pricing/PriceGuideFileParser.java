@@ -0,0 +1,118 @@
+package au.com.primacycare.cms.pricing;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Reads the NDIS support catalogue as exported to CSV
+ *
+ * Columns are found by header name, so column order and extra columns do not matter:
+ * "Support Item Number" and "Start Date" are required; "Support Item Name", "Unit", "End Date",
+ * a column per state (ACT ... WA), "Remote" and "Very Remote" are read when present.
+ * Dates are yyyyMMdd (as published), yyyy-MM-dd or d/M/yyyy. Prices may carry "$" and
+ * thousands separators; a blank price means no limit (quotable supports).
+ */
+final class PriceGuideFileParser {
+    
+    private static final DateTimeFormatter SLASH_DATE = DateTimeFormatter.ofPattern("d/M/yyyy");
+    
+    private PriceGuideFileParser() {
+    }
+    
+    static List<SupportItemPrice> parse(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader, file.getFileName().toString());
+        }
+    }
+    
+    /**
+     * @throws IllegalArgumentException on a row that cannot be read, naming the source and row
+     */
+    static List<SupportItemPrice> parse(Reader reader, String source) throws IOException {
+        List<SupportItemPrice> prices = new ArrayList<>();
+        CsvMapper csvMapper = new CsvMapper();
+        try (MappingIterator<Map<String, String>> rows = csvMapper.readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(reader)) {
+            int rowNumber = 1;
+            while (rows.hasNext()) {
+                rowNumber++;
+                String position = source + " row " + rowNumber;
+                Map<String, String> row = new HashMap<>();
+                rows.next().forEach((key, value) -> row.put(normalise(key), value != null ? value.trim() : ""));
+                
+                String itemNumber = row.getOrDefault("support item number", "");
+                if (itemNumber.isEmpty()) {
+                    continue;
+                }
+                String start = row.getOrDefault("start date", "");
+                if (start.isEmpty()) {
+                    throw new IllegalArgumentException(position + ": missing start date");
+                }
+                String end = row.getOrDefault("end date", "");
+                
+                int[] caps = new int[PriceCatalogue.SOURCE_ZONES];
+                for (int zone = 0; zone < PriceCatalogue.STATE_CODES.size(); zone++) {
+                    caps[zone] = cents(row.get(normalise(PriceCatalogue.STATE_CODES.get(zone))), position);
+                }
+                caps[PriceCatalogue.REMOTE] = cents(row.get("remote"), position);
+                caps[PriceCatalogue.VERY_REMOTE] = cents(row.get("very remote"), position);
+                
+                prices.add(new SupportItemPrice(
+                    itemNumber,
+                    row.get("support item name"),
+                    row.get("unit"),
+                    date(start, position),
+                    end.isEmpty() ? null : date(end, position),
+                    caps));
+            }
+        }
+        return prices;
+    }
+    
+    private static String normalise(String header) {
+        return header.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+    
+    private static int cents(String value, String position) {
+        if (value == null) {
+            return PriceCatalogue.NO_CAP;
+        }
+        String amount = value.replace("$", "").replace(",", "").trim();
+        if (amount.isEmpty()) {
+            return PriceCatalogue.NO_CAP;
+        }
+        try {
+            return new BigDecimal(amount).movePointRight(2).setScale(0, RoundingMode.HALF_UP).intValueExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException(position + ": invalid price " + value);
+        }
+    }
+    
+    private static LocalDate date(String value, String position) {
+        try {
+            if (value.contains("/")) {
+                return LocalDate.parse(value, SLASH_DATE);
+            }
+            if (value.length() >= 8 && value.chars().limit(8).allMatch(Character::isDigit)) {
+                return LocalDate.parse(value.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE);
+            }
+            return LocalDate.parse(value.length() > 10 ? value.substring(0, 10) : value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(position + ": invalid date " + value);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package au.com.primacycare.cms.pricing;
+
+/**
+ * NDIS pricing remoteness of a region (regions.remoteness)
+ * Remote and very remote areas have their own, higher price limits.
+ */
+public enum Remoteness {
+    STANDARD,
+    REMOTE,
+    VERY_REMOTE;
+    
+    /**
+     * STANDARD for null or unrecognised values
+     */
+    public static Remoteness of(String value) {
+        if (value == null) {
+            return STANDARD;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase().replace(' ', '_'));
+        } catch (IllegalArgumentException e) {
+            return STANDARD;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+package au.com.primacycare.cms.pricing;
+
+import java.time.LocalDate;
+
+/**
+ * One row of the NDIS support catalogue: a support item's price limits for a date range
+ *
+ * @param endDate      last effective day, or null when open-ended
+ * @param zoneCapCents price limit in cents per PriceCatalogue zone (states in STATE_CODES order, then
+ *                     remote and very remote), PriceCatalogue.NO_CAP where the item has no limit there
+ */
+public record SupportItemPrice(String itemNumber, String name, String unit, LocalDate startDate,
+                               LocalDate endDate, int[] zoneCapCents) {
+}
\ No newline at end of file
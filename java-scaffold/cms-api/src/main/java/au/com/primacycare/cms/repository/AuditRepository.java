@@ -0,0 +1,78 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.dto.AuditDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reads over the partitioned audits table (see V006)
+ * Every query is bounded by [from, to) on the partition key, so the planner
+ * (or executor, for bind parameters) touches only the months in range
+ */
+@Repository
+@RequiredArgsConstructor
+public class AuditRepository {
+    
+    private static final RowMapper<AuditDto> AUDIT_ROW_MAPPER = (rs, rowNum) -> {
+        AuditDto dto = new AuditDto();
+        dto.setId(rs.getString("id"));
+        dto.setEntityType(rs.getString("entity_type"));
+        dto.setEntityId(rs.getString("entity_id"));
+        dto.setAction(rs.getString("action"));
+        dto.setUserId(rs.getString("user_id"));
+        dto.setTimestamp(rs.getTimestamp("timestamp").toLocalDateTime());
+        dto.setOldValues(rs.getString("old_values"));
+        dto.setNewValues(rs.getString("new_values"));
+        dto.setIpAddress(rs.getString("ip_address"));
+        dto.setUserAgent(rs.getString("user_agent"));
+        return dto;
+    };
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    /**
+     * Newest first, keyset-paginated on (timestamp, id); fetches limit + 1 rows to detect a next page
+     */
+    public List<AuditDto> find(LocalDateTime from, LocalDateTime to, String entityType, String entityId,
+                               String userId, KeysetCursor after, int limit) {
+        StringBuilder sql = new StringBuilder("""
+            SELECT CAST(id AS VARCHAR) AS id, entity_type, entity_id, action, user_id, timestamp,
+                   CAST(old_values AS TEXT) AS old_values, CAST(new_values AS TEXT) AS new_values,
+                   ip_address, user_agent
+            FROM audits
+            WHERE timestamp >= :from AND timestamp < :to
+            """);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("from", Timestamp.valueOf(from))
+            .addValue("to", Timestamp.valueOf(to))
+            .addValue("limit", limit + 1);
+        
+        if (entityType != null) {
+            sql.append(" AND entity_type = :entityType");
+            params.addValue("entityType", entityType);
+        }
+        if (entityId != null) {
+            sql.append(" AND entity_id = :entityId");
+            params.addValue("entityId", entityId);
+        }
+        if (userId != null) {
+            sql.append(" AND user_id = :userId");
+            params.addValue("userId", userId);
+        }
+        if (after != null) {
+            sql.append(" AND (timestamp, id) < (:afterTimestamp, CAST(:afterId AS UUID))");
+            params.addValue("afterTimestamp", Timestamp.valueOf(after.createdAt()));
+            params.addValue("afterId", after.id());
+        }
+        sql.append(" ORDER BY timestamp DESC, id DESC LIMIT :limit");
+        
+        return jdbcTemplate.query(sql.toString(), params, AUDIT_ROW_MAPPER);
+    }
+}
\ No newline at end of file
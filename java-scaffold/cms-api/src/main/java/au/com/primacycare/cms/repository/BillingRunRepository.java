@@ -0,0 +1,376 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.config.JdbcConfig;
+import au.com.primacycare.cms.dto.BillingRunDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * billing_runs / billing_run_partitions contents and totals, streamed service reads, invoice numbering
+ * and batched invoice writes (see V015)
+ * Partition status transitions are in PartitionedRunRepository
+ */
+@Repository
+public class BillingRunRepository {
+    
+    public static final PartitionedRunRepository.Tables TABLES =
+        new PartitionedRunRepository.Tables("billing_runs", "billing_run_partitions");
+    
+    private static final String INSERT_RUN_SQL = """
+        INSERT INTO billing_runs (id, period_start, period_end, issue_date, due_date, status, partition_count,
+                                  created_by, created_at, started_at)
+        VALUES (CAST(:id AS UUID), :periodStart, :periodEnd, :issueDate, :dueDate, 'RUNNING', 0, :createdBy,
+                CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+        """;
+    
+    /**
+     * Consecutive participant ID ranges of at most :size participants, computed in one pass
+     * Each range ends where the next begins, and the first and last are open, so together they
+     * cover every participant ID, including ones created after the run started
+     */
+    private static final String INSERT_PARTITIONS_SQL = """
+        INSERT INTO billing_run_partitions (run_id, partition_no, first_participant_id, end_participant_id,
+                                            participant_count, status)
+        SELECT CAST(:runId AS UUID), bucket,
+               CASE WHEN bucket > 0 THEN first_id END,
+               LEAD(first_id) OVER (ORDER BY bucket),
+               participant_count, 'PENDING'
+        FROM (
+            SELECT bucket, MIN(id) AS first_id, COUNT(*) AS participant_count
+            FROM (SELECT id, CAST((ROW_NUMBER() OVER (ORDER BY id) - 1) / :size AS INTEGER) AS bucket FROM participants) b
+            GROUP BY bucket
+        ) g
+        """;
+    
+    private static final String RUN_SQL = """
+        SELECT CAST(r.id AS VARCHAR) AS id, r.period_start, r.period_end, r.issue_date, r.due_date, r.status,
+               r.partition_count, r.created_by, r.created_at, r.started_at, r.finished_at,
+               COUNT(p.partition_no) FILTER (WHERE p.status = 'COMPLETED') AS completed_partitions,
+               COUNT(p.partition_no) FILTER (WHERE p.status = 'FAILED') AS failed_partitions,
+               COALESCE(SUM(p.participant_count), 0) AS participant_count,
+               COALESCE(SUM(p.invoice_count), 0) AS invoice_count,
+               COALESCE(SUM(p.line_count), 0) AS line_count,
+               COALESCE(SUM(p.unpriced_count), 0) AS unpriced_count,
+               COALESCE(SUM(p.subtotal_cents), 0) AS subtotal_cents,
+               COALESCE(SUM(p.gst_cents), 0) AS gst_cents
+        FROM billing_runs r
+        LEFT JOIN billing_run_partitions p ON p.run_id = r.id
+        WHERE %s
+        GROUP BY r.id
+        """;
+    
+    private static final String PARTITIONS_SQL = """
+        SELECT partition_no, CAST(first_participant_id AS VARCHAR) AS first_participant_id,
+               CAST(end_participant_id AS VARCHAR) AS end_participant_id, status, participant_count,
+               invoice_count, line_count, unpriced_count, subtotal_cents, gst_cents, attempts, error,
+               started_at, finished_at
+        FROM billing_run_partitions
+        WHERE run_id = CAST(:runId AS UUID)
+        ORDER BY partition_no
+        """;
+    
+    private static final String COMPLETE_PARTITION_SQL = """
+        UPDATE billing_run_partitions
+        SET status = 'COMPLETED', invoice_count = :invoiceCount, line_count = :lineCount, unpriced_count = :unpricedCount,
+            subtotal_cents = :subtotalCents, gst_cents = :gstCents, error = NULL, finished_at = CURRENT_TIMESTAMP,
+            lease_expires_at = NULL
+        WHERE run_id = CAST(:runId AS UUID) AND partition_no = :partitionNo
+        """;
+    
+    /**
+     * Delivered services not yet on any invoice, grouped by participant and the plan covering the
+     * service date, for a single forward pass
+     * services has no status column: delivered means dated in the (past) period, with a duration
+     * recorded and a staff member assigned; unallocated shifts were never worked
+     * Formatted with the partition's participant range
+     */
+    private static final String BILLABLE_SERVICES_SQL = """
+        SELECT CAST(s.id AS VARCHAR) AS service_id, CAST(s.participant_id AS VARCHAR) AS participant_id,
+               CAST(pl.id AS VARCHAR) AS plan_id, s.service_type, s.item_number, s.scheduled_date,
+               s.duration_minutes, s.rate_type, s.rate, s.transport_cost,
+               CAST(p.state_id AS VARCHAR) AS state_id, CAST(p.region_id AS VARCHAR) AS region_id
+        FROM services s
+        JOIN participants p ON p.id = s.participant_id
+        LEFT JOIN LATERAL (
+            SELECT np.id FROM ndis_plans np
+            WHERE np.participant_id = s.participant_id
+              AND s.scheduled_date BETWEEN np.start_date AND np.end_date
+            ORDER BY np.start_date DESC
+            LIMIT 1
+        ) pl ON TRUE
+        WHERE %s
+          AND s.scheduled_date BETWEEN :periodStart AND :periodEnd
+          AND s.duration_minutes IS NOT NULL
+          AND s.assigned_to IS NOT NULL
+          AND NOT EXISTS (SELECT 1 FROM invoice_lines l WHERE l.service_id = s.id)
+        ORDER BY s.participant_id, pl.id, s.scheduled_date, s.start_time
+        """;
+    
+    private static final String NEXT_INVOICE_NUMBERS_SQL = """
+        SELECT nextval('invoice_number_seq') AS number FROM generate_series(1, :count)
+        """;
+    
+    private static final String INSERT_INVOICE_SQL = """
+        INSERT INTO invoices (id, participant_id, plan_id, invoice_number, issue_date, due_date, subtotal, gst, total,
+                              status, billing_run_id, created_at, updated_at)
+        VALUES (CAST(:id AS UUID), CAST(:participantId AS UUID), CAST(:planId AS UUID), :invoiceNumber, :issueDate,
+                :dueDate, :subtotal, :gst, :total, :status, CAST(:runId AS UUID), CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+        """;
+    
+    private static final String INSERT_LINE_SQL = """
+        INSERT INTO invoice_lines (invoice_id, line_no, service_id, description, item_number, service_date,
+                                   quantity, unit_price, line_total, created_at)
+        VALUES (CAST(:invoiceId AS UUID), :lineNo, CAST(:serviceId AS UUID), :description, :itemNumber, :serviceDate,
+                :quantity, :unitPrice, :lineTotal, CURRENT_TIMESTAMP)
+        """;
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingTemplate;
+    
+    public BillingRunRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                                @Qualifier(JdbcConfig.STREAMING) NamedParameterJdbcTemplate streamingTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingTemplate = streamingTemplate;
+    }
+    
+    /**
+     * @return the number of partitions created
+     */
+    public int insertRun(String runId, LocalDate periodStart, LocalDate periodEnd, LocalDate issueDate,
+                         LocalDate dueDate, String createdBy, int partitionSize) {
+        jdbcTemplate.update(INSERT_RUN_SQL, new MapSqlParameterSource()
+            .addValue("id", runId)
+            .addValue("periodStart", Date.valueOf(periodStart))
+            .addValue("periodEnd", Date.valueOf(periodEnd))
+            .addValue("issueDate", Date.valueOf(issueDate))
+            .addValue("dueDate", dueDate != null ? Date.valueOf(dueDate) : null)
+            .addValue("createdBy", createdBy));
+        int partitions = jdbcTemplate.update(INSERT_PARTITIONS_SQL, new MapSqlParameterSource()
+            .addValue("runId", runId)
+            .addValue("size", partitionSize));
+        jdbcTemplate.update("UPDATE billing_runs SET partition_count = :count WHERE id = CAST(:runId AS UUID)",
+            new MapSqlParameterSource("count", partitions).addValue("runId", runId));
+        return partitions;
+    }
+    
+    public Optional<BillingRunDto> findRun(String runId) {
+        List<BillingRunDto> runs = jdbcTemplate.query(RUN_SQL.formatted("r.id = CAST(:runId AS UUID)"),
+            new MapSqlParameterSource("runId", runId), (rs, rowNum) -> toRun(rs));
+        return runs.stream().findFirst();
+    }
+    
+    public Optional<BillingRunDto> findRunByPeriod(LocalDate periodStart, LocalDate periodEnd) {
+        List<BillingRunDto> runs = jdbcTemplate.query(RUN_SQL.formatted("r.period_start = :periodStart AND r.period_end = :periodEnd"),
+            new MapSqlParameterSource()
+                .addValue("periodStart", Date.valueOf(periodStart))
+                .addValue("periodEnd", Date.valueOf(periodEnd)),
+            (rs, rowNum) -> toRun(rs));
+        return runs.stream().findFirst();
+    }
+    
+    public List<BillingRunDto.Partition> findPartitions(String runId) {
+        return jdbcTemplate.query(PARTITIONS_SQL, new MapSqlParameterSource("runId", runId), (rs, rowNum) -> {
+            BillingRunDto.Partition partition = new BillingRunDto.Partition();
+            partition.setPartitionNo(rs.getInt("partition_no"));
+            partition.setFirstParticipantId(rs.getString("first_participant_id"));
+            partition.setEndParticipantId(rs.getString("end_participant_id"));
+            partition.setStatus(BillingRunDto.PartitionStatusEnum.valueOf(rs.getString("status")));
+            partition.setParticipantCount(rs.getInt("participant_count"));
+            partition.setInvoiceCount(rs.getInt("invoice_count"));
+            partition.setLineCount(rs.getInt("line_count"));
+            partition.setUnpricedCount(rs.getInt("unpriced_count"));
+            partition.setTotal(cents(rs.getLong("subtotal_cents") + rs.getLong("gst_cents")));
+            partition.setAttempts(rs.getInt("attempts"));
+            partition.setError(rs.getString("error"));
+            partition.setStartedAt(dateTime(rs.getTimestamp("started_at")));
+            partition.setFinishedAt(dateTime(rs.getTimestamp("finished_at")));
+            return partition;
+        });
+    }
+    
+    public void completePartition(String runId, int partitionNo, PartitionTotals totals) {
+        jdbcTemplate.update(COMPLETE_PARTITION_SQL, partitionKey(runId, partitionNo)
+            .addValue("invoiceCount", totals.invoiceCount())
+            .addValue("lineCount", totals.lineCount())
+            .addValue("unpricedCount", totals.unpricedCount())
+            .addValue("subtotalCents", totals.subtotalCents())
+            .addValue("gstCents", totals.gstCents()));
+    }
+    
+    /**
+     * Stream billable services of a participant ID range grouped by participant and plan;
+     * must run inside a transaction for the cursor to apply
+     *
+     * @param firstParticipantId inclusive, null for no lower bound
+     * @param endParticipantId   exclusive, null for no upper bound
+     */
+    public void streamBillableServices(String firstParticipantId, String endParticipantId, LocalDate periodStart,
+                                       LocalDate periodEnd, BillableServiceHandler handler) {
+        StringBuilder condition = new StringBuilder("TRUE");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("periodStart", Date.valueOf(periodStart))
+            .addValue("periodEnd", Date.valueOf(periodEnd));
+        // Separate predicates rather than IS NULL checks, so each keeps its index range
+        if (firstParticipantId != null) {
+            condition.append(" AND s.participant_id >= CAST(:firstParticipantId AS UUID)");
+            params.addValue("firstParticipantId", firstParticipantId);
+        }
+        if (endParticipantId != null) {
+            condition.append(" AND s.participant_id < CAST(:endParticipantId AS UUID)");
+            params.addValue("endParticipantId", endParticipantId);
+        }
+        streamingTemplate.query(BILLABLE_SERVICES_SQL.formatted(condition), params, (RowCallbackHandler) rs -> handler.accept(new BillableService(
+            rs.getString("service_id"),
+            rs.getString("participant_id"),
+            rs.getString("plan_id"),
+            rs.getString("service_type"),
+            rs.getString("item_number"),
+            rs.getDate("scheduled_date").toLocalDate(),
+            rs.getInt("duration_minutes"),
+            rs.getString("rate_type"),
+            rs.getBigDecimal("rate"),
+            rs.getBigDecimal("transport_cost"),
+            rs.getString("state_id"),
+            rs.getString("region_id"))));
+    }
+    
+    /**
+     * Reserve invoice numbers in one round trip
+     * A sequence never blocks concurrent callers; numbers of a rolled-back transaction are not reused
+     */
+    public long[] nextInvoiceNumbers(int count) {
+        if (count == 0) {
+            return new long[0];
+        }
+        return jdbcTemplate.queryForList(NEXT_INVOICE_NUMBERS_SQL, new MapSqlParameterSource("count", count), Long.class)
+            .stream()
+            .mapToLong(Long::longValue)
+            .sorted()
+            .toArray();
+    }
+    
+    public void insertInvoices(List<InvoiceRow> invoices, LocalDate issueDate, LocalDate dueDate, String status,
+                               String runId) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_INVOICE_SQL, invoices.stream()
+            .map(invoice -> new MapSqlParameterSource()
+                .addValue("id", invoice.id())
+                .addValue("participantId", invoice.participantId())
+                .addValue("planId", invoice.planId())
+                .addValue("invoiceNumber", invoice.invoiceNumber())
+                .addValue("issueDate", Date.valueOf(issueDate))
+                .addValue("dueDate", dueDate != null ? Date.valueOf(dueDate) : null)
+                .addValue("subtotal", cents(invoice.subtotalCents()))
+                .addValue("gst", cents(invoice.gstCents()))
+                .addValue("total", cents(invoice.subtotalCents() + invoice.gstCents()))
+                .addValue("status", status)
+                .addValue("runId", runId))
+            .toArray(SqlParameterSource[]::new));
+    }
+    
+    public void insertLines(List<InvoiceLineRow> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_LINE_SQL, lines.stream()
+            .map(line -> new MapSqlParameterSource()
+                .addValue("invoiceId", line.invoiceId())
+                .addValue("lineNo", line.lineNo())
+                .addValue("serviceId", line.serviceId())
+                .addValue("description", line.description())
+                .addValue("itemNumber", line.itemNumber())
+                .addValue("serviceDate", Date.valueOf(line.serviceDate()))
+                .addValue("quantity", BigDecimal.valueOf(line.quantityTenThousandths(), 4))
+                .addValue("unitPrice", cents(line.unitPriceCents()))
+                .addValue("lineTotal", cents(line.lineTotalCents())))
+            .toArray(SqlParameterSource[]::new));
+    }
+    
+    private BillingRunDto toRun(ResultSet rs) throws SQLException {
+        BillingRunDto run = new BillingRunDto();
+        run.setId(rs.getString("id"));
+        run.setPeriodStart(rs.getDate("period_start").toLocalDate());
+        run.setPeriodEnd(rs.getDate("period_end").toLocalDate());
+        run.setIssueDate(rs.getDate("issue_date").toLocalDate());
+        Date dueDate = rs.getDate("due_date");
+        run.setDueDate(dueDate != null ? dueDate.toLocalDate() : null);
+        run.setStatus(BillingRunDto.StatusEnum.valueOf(rs.getString("status")));
+        run.setPartitionCount(rs.getInt("partition_count"));
+        run.setCompletedPartitions(rs.getInt("completed_partitions"));
+        run.setFailedPartitions(rs.getInt("failed_partitions"));
+        run.setParticipantCount(rs.getInt("participant_count"));
+        run.setInvoiceCount(rs.getInt("invoice_count"));
+        run.setLineCount(rs.getInt("line_count"));
+        run.setUnpricedCount(rs.getInt("unpriced_count"));
+        long subtotalCents = rs.getLong("subtotal_cents");
+        long gstCents = rs.getLong("gst_cents");
+        run.setSubtotal(cents(subtotalCents));
+        run.setGst(cents(gstCents));
+        run.setTotal(cents(subtotalCents + gstCents));
+        run.setCreatedBy(rs.getString("created_by"));
+        run.setCreatedAt(dateTime(rs.getTimestamp("created_at")));
+        run.setStartedAt(dateTime(rs.getTimestamp("started_at")));
+        run.setFinishedAt(dateTime(rs.getTimestamp("finished_at")));
+        return run;
+    }
+    
+    private static MapSqlParameterSource partitionKey(String runId, int partitionNo) {
+        return new MapSqlParameterSource()
+            .addValue("runId", runId)
+            .addValue("partitionNo", partitionNo);
+    }
+    
+    private static BigDecimal cents(long value) {
+        return BigDecimal.valueOf(value, 2);
+    }
+    
+    private static LocalDateTime dateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+    
+    @FunctionalInterface
+    public interface BillableServiceHandler {
+        void accept(BillableService service);
+    }
+    
+    /**
+     * @param planId  the plan whose dates cover the service, null if none does
+     * @param stateId the participant's state, for price limits and public holidays
+     */
+    public record BillableService(String serviceId, String participantId, String planId, String serviceType,
+                                  String itemNumber, LocalDate scheduledDate, int durationMinutes, String rateType,
+                                  BigDecimal rate, BigDecimal transportCost, String stateId, String regionId) {
+    }
+    
+    public record InvoiceRow(String id, String participantId, String planId, String invoiceNumber,
+                             long subtotalCents, long gstCents) {
+    }
+    
+    /**
+     * @param quantityTenThousandths hours x 10000
+     */
+    public record InvoiceLineRow(String invoiceId, int lineNo, String serviceId, String description, String itemNumber,
+                                 LocalDate serviceDate, long quantityTenThousandths, long unitPriceCents,
+                                 long lineTotalCents) {
+    }
+    
+    public record PartitionTotals(int invoiceCount, int lineCount, int unpricedCount, long subtotalCents,
+                                  long gstCents) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.config.JdbcConfig;
+import au.com.primacycare.cms.dedupe.BlockingKeys;
+import au.com.primacycare.cms.dedupe.PersonRecord;
+import au.com.primacycare.cms.dedupe.PersonSource;
+import au.com.primacycare.cms.dto.DuplicateCandidateDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * People compared for duplicate referrals, their blocking keys and the candidates found (see V019)
+ */
+@Repository
+public class DuplicateReferralRepository {
+    
+    private static final String PEOPLE_SQL = """
+        SELECT 'referral' AS subject_type, CAST(r.id AS VARCHAR) AS id, r.participant_name AS full_name,
+               NULL AS first_name, NULL AS last_name, r.participant_dob AS date_of_birth,
+               r.participant_phone AS phone, r.participant_ndis AS ndis_number
+        FROM referrals r
+        %s
+        UNION ALL
+        SELECT 'participant', CAST(p.id AS VARCHAR), NULL, p.first_name, p.last_name, p.date_of_birth,
+               p.phone, p.ndis_number
+        FROM participants p
+        %s
+        """;
+    
+    private static final String BLOCKED_PEOPLE_SQL = PEOPLE_SQL.formatted(
+        "WHERE r.id IN (SELECT subject_id FROM referral_blocking_keys WHERE subject_type = 'referral' AND block_key IN (:keys))",
+        "WHERE p.id IN (SELECT subject_id FROM referral_blocking_keys WHERE subject_type = 'participant' AND block_key IN (:keys))")
+        + "LIMIT :limit";
+    
+    private static final String INSERT_KEY_SQL = """
+        INSERT INTO referral_blocking_keys (subject_type, subject_id, block_key)
+        VALUES (:subjectType, CAST(:subjectId AS UUID), :key)
+        ON CONFLICT DO NOTHING
+        """;
+    
+    private static final String UPSERT_CANDIDATE_SQL = """
+        INSERT INTO referral_duplicate_candidates (referral_id, candidate_type, candidate_id, score, reasons)
+        VALUES (CAST(:referralId AS UUID), :candidateType, CAST(:candidateId AS UUID), :score, :reasons)
+        ON CONFLICT (referral_id, candidate_type, candidate_id) DO UPDATE
+        SET score = EXCLUDED.score, reasons = EXCLUDED.reasons, detected_at = CURRENT_TIMESTAMP
+        WHERE referral_duplicate_candidates.status = 'PENDING'
+        """;
+    
+    /**
+     * Candidates on either side of a pair, with the other side's details
+     */
+    private static final String FIND_CANDIDATES_SQL = """
+        SELECT c.candidate_type, CAST(c.candidate_id AS VARCHAR) AS candidate_id, c.score, c.reasons, c.status,
+               c.detected_at,
+               COALESCE(r.participant_name, p.first_name || ' ' || p.last_name) AS name,
+               COALESCE(r.participant_dob, p.date_of_birth) AS date_of_birth,
+               COALESCE(r.participant_ndis, p.ndis_number) AS ndis_number
+        FROM (
+            SELECT candidate_type, candidate_id, score, reasons, status, detected_at
+            FROM referral_duplicate_candidates WHERE referral_id = CAST(:referralId AS UUID)
+            UNION ALL
+            SELECT 'referral', referral_id, score, reasons, status, detected_at
+            FROM referral_duplicate_candidates
+            WHERE candidate_type = 'referral' AND candidate_id = CAST(:referralId AS UUID)
+        ) c
+        LEFT JOIN referrals r ON c.candidate_type = 'referral' AND r.id = c.candidate_id
+        LEFT JOIN participants p ON c.candidate_type = 'participant' AND p.id = c.candidate_id
+        ORDER BY c.score DESC, c.detected_at DESC
+        """;
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingTemplate;
+    
+    public DuplicateReferralRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                                       @Qualifier(JdbcConfig.STREAMING) NamedParameterJdbcTemplate streamingTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingTemplate = streamingTemplate;
+    }
+    
+    /**
+     * Every referral and participant; must run inside a transaction for the cursor to apply
+     */
+    public void streamPeople(Consumer<PersonRecord> handler) {
+        streamingTemplate.query(PEOPLE_SQL.formatted("", ""), new MapSqlParameterSource(),
+            (RowCallbackHandler) rs -> handler.accept(toPerson(rs)));
+    }
+    
+    /**
+     * People sharing a blocking key, for while the in-memory index is loading
+     */
+    public List<PersonRecord> findByBlockingKeys(long[] keys, int limit) {
+        if (keys.length == 0) {
+            return List.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("keys", Arrays.stream(keys).boxed().toList())
+            .addValue("limit", limit);
+        return jdbcTemplate.query(BLOCKED_PEOPLE_SQL, params, (rs, rowNum) -> toPerson(rs));
+    }
+    
+    public void insertBlockingKeys(Collection<PersonRecord> people) {
+        List<SqlParameterSource> rows = new ArrayList<>();
+        for (PersonRecord person : people) {
+            for (long key : BlockingKeys.of(person)) {
+                rows.add(new MapSqlParameterSource()
+                    .addValue("subjectType", person.source().getCode())
+                    .addValue("subjectId", person.id())
+                    .addValue("key", key));
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_KEY_SQL, rows.toArray(SqlParameterSource[]::new));
+        }
+    }
+    
+    public void deleteAllBlockingKeys() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM referral_blocking_keys");
+    }
+    
+    /**
+     * Record or refresh candidate pairs; pairs already confirmed or dismissed are left alone
+     */
+    public int upsertCandidates(List<CandidatePair> pairs) {
+        if (pairs.isEmpty()) {
+            return 0;
+        }
+        int[] counts = jdbcTemplate.batchUpdate(UPSERT_CANDIDATE_SQL, pairs.stream()
+            .map(pair -> new MapSqlParameterSource()
+                .addValue("referralId", pair.referralId())
+                .addValue("candidateType", pair.candidateType().getCode())
+                .addValue("candidateId", pair.candidateId())
+                .addValue("score", pair.score())
+                .addValue("reasons", pair.reasons().stream().map(Enum::name).collect(Collectors.joining(","))))
+            .toArray(SqlParameterSource[]::new));
+        return Arrays.stream(counts).map(count -> Math.max(count, 0)).sum();
+    }
+    
+    public List<DuplicateCandidateDto> findCandidates(String referralId) {
+        return jdbcTemplate.query(FIND_CANDIDATES_SQL, new MapSqlParameterSource("referralId", referralId), (rs, rowNum) -> {
+            DuplicateCandidateDto candidate = new DuplicateCandidateDto();
+            candidate.setSubjectType(rs.getString("candidate_type"));
+            candidate.setSubjectId(rs.getString("candidate_id"));
+            candidate.setName(rs.getString("name"));
+            Date dateOfBirth = rs.getDate("date_of_birth");
+            candidate.setDateOfBirth(dateOfBirth != null ? dateOfBirth.toLocalDate() : null);
+            candidate.setNdisNumber(rs.getString("ndis_number"));
+            candidate.setScore(rs.getInt("score"));
+            candidate.setReasons(Arrays.stream(rs.getString("reasons").split(","))
+                .filter(reason -> !reason.isEmpty())
+                .map(DuplicateCandidateDto.ReasonEnum::valueOf)
+                .toList());
+            candidate.setStatus(DuplicateCandidateDto.StatusEnum.valueOf(rs.getString("status")));
+            candidate.setDetectedAt(rs.getTimestamp("detected_at").toLocalDateTime());
+            return candidate;
+        });
+    }
+    
+    private static PersonRecord toPerson(ResultSet rs) throws SQLException {
+        PersonSource source = PersonSource.fromCode(rs.getString("subject_type"));
+        Date dateOfBirth = rs.getDate("date_of_birth");
+        return source == PersonSource.REFERRAL
+            ? PersonRecord.ofFullName(source, rs.getString("id"), rs.getString("full_name"),
+                dateOfBirth != null ? dateOfBirth.toLocalDate() : null, rs.getString("phone"), rs.getString("ndis_number"))
+            : PersonRecord.ofNames(source, rs.getString("id"), rs.getString("first_name"), rs.getString("last_name"),
+                dateOfBirth != null ? dateOfBirth.toLocalDate() : null, rs.getString("phone"), rs.getString("ndis_number"));
+    }
+    
+    /**
+     * A referral and a person that may be the same; referral pairs have the greater id as referralId
+     */
+    public record CandidatePair(String referralId, PersonSource candidateType, String candidateId, int score,
+                                Collection<DuplicateCandidateDto.ReasonEnum> reasons) {
+    }
+}
\ No newline at end of file
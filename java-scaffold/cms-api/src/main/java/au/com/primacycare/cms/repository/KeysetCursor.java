@@ -0,0 +1,58 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.dto.CursorPageDto;
+import au.com.primacycare.cms.exception.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Opaque continuation token for keyset pagination over (created_at, id)
+ * Encoded as base64url("epochMicros:id") so clients cannot depend on its shape
+ */
+public record KeysetCursor(LocalDateTime createdAt, String id) {
+    
+    public String encode() {
+        long micros = ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), createdAt);
+        String raw = micros + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decode a token, or null for the first page
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            long micros = Long.parseLong(raw.substring(0, separator));
+            LocalDateTime createdAt = LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC).plus(micros, ChronoUnit.MICROS);
+            return new KeysetCursor(createdAt, raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new InvalidRequestException("Invalid pagination cursor", e);
+        }
+    }
+    
+    /**
+     * Build a cursor page from rows fetched with limit + 1, using the extra row only to detect a next page
+     */
+    public static <E, D> CursorPageDto<D> toPage(List<E> rows, int limit, Function<E, D> mapper,
+                                                 Function<E, LocalDateTime> createdAt, Function<E, String> id) {
+        boolean hasNext = rows.size() > limit;
+        List<E> page = hasNext ? rows.subList(0, limit) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            E last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(createdAt.apply(last), id.apply(last)).encode();
+        }
+        return new CursorPageDto<>(page.stream().map(mapper).toList(), page.size(), nextCursor, hasNext);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,229 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.notification.Notification;
+import au.com.primacycare.cms.notification.NotificationChannel;
+import au.com.primacycare.cms.notification.OutboxMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outgoing notifications and their delivery state (see V020)
+ */
+@Repository
+public class NotificationOutboxRepository {
+    
+    private static final TypeReference<Map<String, Object>> PARAMS_TYPE = new TypeReference<>() {
+    };
+    
+    private static final String INSERT_SQL = """
+        INSERT INTO notification_outbox (channel, recipient, template, subject, body, params, dedupe_key)
+        VALUES (?, ?, ?, ?, ?, CAST(? AS jsonb), ?)
+        ON CONFLICT (dedupe_key) DO NOTHING
+        """;
+    
+    /**
+     * Due rows, including those whose sender's lease ran out, moved to SENDING until the new lease ends
+     * Rows claimed by another worker are skipped rather than waited for
+     */
+    private static final String CLAIM_SQL = """
+        UPDATE notification_outbox o
+        SET status = 'SENDING', attempts = o.attempts + 1,
+            next_attempt_at = CURRENT_TIMESTAMP + ? * INTERVAL '1 second'
+        WHERE o.id IN (
+            SELECT id FROM notification_outbox
+            WHERE channel = ? AND status IN ('PENDING', 'SENDING') AND next_attempt_at <= CURRENT_TIMESTAMP
+            ORDER BY next_attempt_at
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED)
+        RETURNING CAST(o.id AS VARCHAR) AS id, o.recipient, o.template, o.subject, o.body, CAST(o.params AS VARCHAR) AS params,
+                  o.attempts, o.created_at
+        """;
+    
+    /** Results only apply while the row is still claimed, so a late result cannot undo a later claim's */
+    private static final String MARK_SENT_SQL = """
+        UPDATE notification_outbox
+        SET status = 'SENT', sent_at = CURRENT_TIMESTAMP, provider_id = ?, last_error = NULL
+        WHERE id = CAST(? AS UUID) AND status = 'SENDING' AND attempts = ?
+        """;
+    
+    private static final String RESCHEDULE_SQL = """
+        UPDATE notification_outbox
+        SET status = 'PENDING', next_attempt_at = CURRENT_TIMESTAMP + ? * INTERVAL '1 second', last_error = ?
+        WHERE id = CAST(? AS UUID) AND status = 'SENDING' AND attempts = ?
+        """;
+    
+    private static final String MARK_FAILED_SQL = """
+        UPDATE notification_outbox
+        SET status = 'FAILED', last_error = ?
+        WHERE id = CAST(? AS UUID) AND status = 'SENDING' AND attempts = ?
+        """;
+    
+    private static final String BACKLOG_SQL = """
+        SELECT channel, COUNT(*) AS due,
+               EXTRACT(EPOCH FROM CURRENT_TIMESTAMP - MIN(next_attempt_at)) AS oldest_seconds
+        FROM notification_outbox
+        WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= CURRENT_TIMESTAMP
+        GROUP BY channel
+        """;
+    
+    private static final String PURGE_SQL = """
+        DELETE FROM notification_outbox
+        WHERE id IN (SELECT id FROM notification_outbox
+                     WHERE status IN ('SENT', 'FAILED') AND created_at < ?
+                     LIMIT ?)
+        """;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    
+    public NotificationOutboxRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * Write in the caller's transaction; notifications whose dedupe key exists are skipped
+     *
+     * @return per notification, whether it was written
+     */
+    public boolean[] enqueue(List<Notification> notifications) {
+        boolean[] written = new boolean[notifications.size()];
+        if (notifications.isEmpty()) {
+            return written;
+        }
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_SQL, notifications.stream()
+            .map(notification -> new Object[]{
+                notification.channel().getCode(),
+                notification.recipient(),
+                notification.template(),
+                notification.subject(),
+                notification.body(),
+                toJson(notification.params()),
+                notification.dedupeKey()})
+            .toList());
+        for (int i = 0; i < counts.length; i++) {
+            written[i] = counts[i] > 0;
+        }
+        return written;
+    }
+    
+    /**
+     * Claim up to limit due messages of a channel in a statement of its own
+     *
+     * @param lease how long the caller has to report results before the messages are due again
+     */
+    public List<OutboxMessage> claim(NotificationChannel channel, int limit, Duration lease) {
+        return jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> toMessage(channel, rs),
+            lease.toSeconds(), channel.getCode(), limit);
+    }
+    
+    public void markSent(List<Delivered> delivered) {
+        if (delivered.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(MARK_SENT_SQL, delivered.stream()
+            .map(row -> new Object[]{row.providerId(), row.message().id(), row.message().attempts()})
+            .toList());
+    }
+    
+    public void reschedule(List<Undelivered> undelivered) {
+        if (undelivered.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(RESCHEDULE_SQL, undelivered.stream()
+            .map(row -> new Object[]{row.retryIn().toSeconds(), row.error(), row.message().id(), row.message().attempts()})
+            .toList());
+    }
+    
+    public void markFailed(List<Undelivered> undelivered) {
+        if (undelivered.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(MARK_FAILED_SQL, undelivered.stream()
+            .map(row -> new Object[]{row.error(), row.message().id(), row.message().attempts()})
+            .toList());
+    }
+    
+    /**
+     * Due messages per channel; channels with none are absent
+     */
+    public Map<NotificationChannel, Backlog> findBacklog() {
+        Map<NotificationChannel, Backlog> backlog = new EnumMap<>(NotificationChannel.class);
+        jdbcTemplate.query(BACKLOG_SQL, (RowCallbackHandler) rs -> {
+            backlog.put(NotificationChannel.fromCode(rs.getString("channel")),
+                new Backlog(rs.getLong("due"), rs.getDouble("oldest_seconds")));
+        });
+        return backlog;
+    }
+    
+    /**
+     * Delete up to limit sent or failed messages created before the cutoff
+     */
+    public int purge(LocalDateTime before, int limit) {
+        return jdbcTemplate.update(PURGE_SQL, Timestamp.valueOf(before), limit);
+    }
+    
+    private OutboxMessage toMessage(NotificationChannel channel, ResultSet rs) throws SQLException {
+        String params = rs.getString("params");
+        return new OutboxMessage(
+            rs.getString("id"),
+            channel,
+            rs.getString("recipient"),
+            rs.getString("template"),
+            rs.getString("subject"),
+            rs.getString("body"),
+            params != null ? fromJson(params) : null,
+            rs.getInt("attempts"),
+            rs.getTimestamp("created_at").toLocalDateTime());
+    }
+    
+    private String toJson(Map<String, Object> params) {
+        if (params == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(params);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Notification params are not serializable", e);
+        }
+    }
+    
+    private Map<String, Object> fromJson(String params) {
+        try {
+            return objectMapper.readValue(params, PARAMS_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable notification params", e);
+        }
+    }
+    
+    /**
+     * @param providerId the provider's message id, if any
+     */
+    public record Delivered(OutboxMessage message, String providerId) {
+    }
+    
+    /**
+     * @param retryIn ignored when marking failed
+     */
+    public record Undelivered(OutboxMessage message, String error, Duration retryIn) {
+    }
+    
+    /**
+     * @param oldestSeconds how long the longest-waiting due message has been due
+     */
+    public record Backlog(long due, double oldestSeconds) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package au.com.primacycare.cms.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Interface projection for participant list rows
+ * Counts are computed in SQL so no participant collections are loaded
+ */
+public interface ParticipantListView {
+    
+    String getId();
+    
+    String getFirstName();
+    
+    String getLastName();
+    
+    String getPreferredName();
+    
+    String getNdisNumber();
+    
+    LocalDate getDateOfBirth();
+    
+    String getPhone();
+    
+    String getEmail();
+    
+    String getFundingType();
+    
+    String getStateId();
+    
+    String getRegionId();
+    
+    LocalDateTime getCreatedAt();
+    
+    Integer getActiveServicesCount();
+    
+    Integer getGoalsCount();
+    
+    Boolean getHasActivePlan();
+}
\ No newline at end of file
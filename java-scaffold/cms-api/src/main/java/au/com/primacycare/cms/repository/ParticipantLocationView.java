@@ -0,0 +1,11 @@
+package au.com.primacycare.cms.repository;
+
+/**
+ * Interface projection for a participant's state and region, which set price limits and public holidays
+ */
+public interface ParticipantLocationView {
+    
+    String getStateId();
+    
+    String getRegionId();
+}
@@ -0,0 +1,90 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.entity.Participant;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Spring Data repository for 'participants' table
+ * Mirrors query helpers from server/storage.ts
+ */
+@Repository
+public interface ParticipantRepository extends JpaRepository<Participant, String>, JpaSpecificationExecutor<Participant> {
+    
+    boolean existsByNdisNumber(String ndisNumber);
+    
+    /**
+     * State and region for pricing a service, without loading the participant
+     */
+    @Query("SELECT p.stateId AS stateId, p.regionId AS regionId FROM Participant p WHERE p.id = :id")
+    Optional<ParticipantLocationView> findLocationById(@Param("id") String id);
+    
+    /**
+     * Set-based NDIS uniqueness check for bulk imports
+     */
+    @Query("SELECT p.ndisNumber FROM Participant p WHERE p.ndisNumber IN :ndisNumbers")
+    Set<String> findExistingNdisNumbers(@Param("ndisNumbers") Collection<String> ndisNumbers);
+    
+    /**
+     * List read model: one statement for the rows and their related counts, plus the page count.
+     * Correlated counts use idx_services_composite and idx_goals_participant per returned row only
+     */
+    @Query(value = """
+        SELECT CAST(p.id AS VARCHAR) AS id,
+               p.first_name AS firstName,
+               p.last_name AS lastName,
+               p.preferred_name AS preferredName,
+               p.ndis_number AS ndisNumber,
+               p.date_of_birth AS dateOfBirth,
+               p.phone AS phone,
+               p.email AS email,
+               p.funding_type AS fundingType,
+               CAST(p.state_id AS VARCHAR) AS stateId,
+               CAST(p.region_id AS VARCHAR) AS regionId,
+               p.created_at AS createdAt,
+               (SELECT CAST(COUNT(*) AS INTEGER) FROM services s
+                 WHERE s.participant_id = p.id AND s.scheduled_date > CURRENT_DATE) AS activeServicesCount,
+               (SELECT CAST(COUNT(*) AS INTEGER) FROM participant_goals g
+                 WHERE g.participant_id = p.id) AS goalsCount,
+               EXISTS (SELECT 1 FROM ndis_plans np
+                 WHERE np.participant_id = p.id
+                   AND np.start_date < CURRENT_DATE AND np.end_date > CURRENT_DATE) AS hasActivePlan
+        FROM participants p
+        ORDER BY p.created_at DESC, p.id DESC
+        """,
+        countQuery = "SELECT COUNT(*) FROM participants",
+        nativeQuery = true)
+    Page<ParticipantListView> findListPage(Pageable pageable);
+    
+    /**
+     * First keyset page, newest first. Returning a List skips the COUNT(*) query.
+     * Uses idx_participants_created_id
+     */
+    @Query("SELECT p FROM Participant p ORDER BY p.createdAt DESC, p.id DESC")
+    List<Participant> findFirstKeysetPage(Pageable limit);
+    
+    /**
+     * Keyset page strictly after (createdAt, id), seeking on the index instead of OFFSET scanning
+     */
+    @Query("""
+        SELECT p FROM Participant p
+        WHERE p.createdAt < :createdAt
+           OR (p.createdAt = :createdAt AND p.id < :id)
+        ORDER BY p.createdAt DESC, p.id DESC
+        """)
+    List<Participant> findKeysetPageAfter(
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") String id,
+        Pageable limit);
+}
\ No newline at end of file
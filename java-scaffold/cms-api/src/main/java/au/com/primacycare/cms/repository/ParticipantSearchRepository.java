@@ -0,0 +1,79 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.dto.ParticipantSearchResultDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Trigram-ranked participant search backed by idx_participants_search_trgm (see V004)
+ * Must run inside a transaction of its own: SET LOCAL scopes the budget to it, and a statement
+ * that exceeds the budget aborts it
+ */
+@Repository
+@RequiredArgsConstructor
+public class ParticipantSearchRepository {
+    
+    /** PostgreSQL query_canceled, raised when statement_timeout expires */
+    private static final String QUERY_CANCELED = "57014";
+    
+    private static final String SEARCH_SQL = """
+        SELECT CAST(p.id AS VARCHAR) AS id, p.first_name, p.last_name, p.preferred_name,
+               p.ndis_number, p.phone, p.status,
+               word_similarity(:query, p.search_text) AS score
+        FROM participants p
+        WHERE :query <% p.search_text
+           OR p.search_text LIKE :contains
+        ORDER BY (p.ndis_number = :exact) DESC, score DESC, p.last_name, p.first_name
+        LIMIT :limit
+        """;
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public List<ParticipantSearchResultDto> search(String query, int limit, long timeoutMillis, double threshold) {
+        // Values are validated numbers, so inlining them into SET LOCAL is safe
+        jdbcTemplate.getJdbcTemplate().execute("SET LOCAL statement_timeout = " + timeoutMillis);
+        jdbcTemplate.getJdbcTemplate().execute("SET LOCAL pg_trgm.word_similarity_threshold = " + threshold);
+        
+        String normalised = query.trim().toLowerCase(Locale.ROOT);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("query", normalised)
+            .addValue("contains", "%" + escapeLike(normalised) + "%")
+            .addValue("exact", query.trim())
+            .addValue("limit", limit);
+        
+        return jdbcTemplate.query(SEARCH_SQL, params, (rs, rowNum) -> {
+            ParticipantSearchResultDto dto = new ParticipantSearchResultDto();
+            dto.setId(rs.getString("id"));
+            dto.setFirstName(rs.getString("first_name"));
+            dto.setLastName(rs.getString("last_name"));
+            dto.setPreferredName(rs.getString("preferred_name"));
+            dto.setNdisNumber(rs.getString("ndis_number"));
+            dto.setPhone(rs.getString("phone"));
+            dto.setStatus(rs.getString("status"));
+            dto.setScore(rs.getDouble("score"));
+            return dto;
+        });
+    }
+    
+    /**
+     * Whether a failure was the search budget expiring, however Spring translated it
+     */
+    public static boolean isStatementTimeout(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && QUERY_CANCELED.equals(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
\ No newline at end of file
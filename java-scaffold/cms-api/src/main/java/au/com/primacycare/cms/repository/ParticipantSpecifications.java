@@ -0,0 +1,71 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.dto.ParticipantFilter;
+import au.com.primacycare.cms.entity.Participant;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria predicates for the participant list filter
+ * Every criterion becomes a bind parameter in a single query; see V003 for the backing indexes
+ */
+public final class ParticipantSpecifications {
+    
+    /**
+     * Newest first, matching the keyset queries in ParticipantRepository
+     */
+    public static final Sort KEYSET_ORDER = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+    
+    private ParticipantSpecifications() {
+    }
+    
+    public static Specification<Participant> matching(ParticipantFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            
+            if (filter.status() != null) {
+                predicates.add(cb.equal(root.get("status"), filter.status()));
+            }
+            if (filter.ndisPrefix() != null) {
+                // Prefix LIKE can use the varchar_pattern_ops index, unlike a leading wildcard
+                predicates.add(cb.like(root.get("ndisNumber"), escapeLike(filter.ndisPrefix()) + "%", '\\'));
+            }
+            if (filter.regionId() != null) {
+                predicates.add(cb.equal(root.get("regionId"), filter.regionId()));
+            }
+            if (filter.stateId() != null) {
+                predicates.add(cb.equal(root.get("stateId"), filter.stateId()));
+            }
+            if (filter.fundingType() != null) {
+                predicates.add(cb.equal(root.get("fundingType"), filter.fundingType()));
+            }
+            if (filter.createdFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), filter.createdFrom().atStartOfDay()));
+            }
+            if (filter.createdTo() != null) {
+                predicates.add(cb.lessThan(root.get("createdAt"), filter.createdTo().plusDays(1).atStartOfDay()));
+            }
+            
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+    
+    /**
+     * Rows strictly after a cursor in KEYSET_ORDER
+     */
+    public static Specification<Participant> after(KeysetCursor cursor) {
+        return (root, query, cb) -> cb.or(
+            cb.lessThan(root.get("createdAt"), cursor.createdAt()),
+            cb.and(
+                cb.equal(root.get("createdAt"), cursor.createdAt()),
+                cb.lessThan(root.get("id"), cursor.id())));
+    }
+    
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,142 @@
+package au.com.primacycare.cms.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * Status bookkeeping shared by partitioned runs (payroll_runs, billing_runs and their partition
+ * tables), whose partitions carry status, attempts, error, lease_expires_at, started_at and
+ * finished_at (see V012, V015)
+ * Each run type adds its own partition contents and completion totals
+ */
+@Repository
+public class PartitionedRunRepository {
+    
+    /**
+     * Claimable: PENDING, or RUNNING on an instance whose lease ran out; a row whose work is
+     * still in progress is locked by it and skipped
+     */
+    private static final String CLAIM_PARTITION_SQL = """
+        UPDATE %1$s p
+        SET status = 'RUNNING', attempts = p.attempts + 1, error = NULL, started_at = CURRENT_TIMESTAMP,
+            finished_at = NULL, lease_expires_at = CURRENT_TIMESTAMP + make_interval(secs => :leaseSeconds)
+        FROM (
+            SELECT run_id, partition_no FROM %1$s
+            WHERE run_id = CAST(:runId AS UUID) AND partition_no = :partitionNo
+              AND (status = 'PENDING' OR (status = 'RUNNING' AND lease_expires_at < CURRENT_TIMESTAMP))
+            FOR UPDATE SKIP LOCKED
+        ) c
+        WHERE p.run_id = c.run_id AND p.partition_no = c.partition_no
+        RETURNING p.attempts
+        """;
+    
+    private static final String LOCK_CLAIM_SQL = """
+        SELECT partition_no FROM %s
+        WHERE run_id = CAST(:runId AS UUID) AND partition_no = :partitionNo
+          AND status = 'RUNNING' AND attempts = :attempt
+        FOR UPDATE SKIP LOCKED
+        """;
+    
+    private static final String FAIL_PARTITION_SQL = """
+        UPDATE %s
+        SET status = 'FAILED', error = :error, finished_at = CURRENT_TIMESTAMP, lease_expires_at = NULL
+        WHERE run_id = CAST(:runId AS UUID) AND partition_no = :partitionNo
+          AND status = 'RUNNING' AND attempts = :attempt
+        """;
+    
+    /**
+     * COMPLETED once every partition is, FAILED when none is still pending or running but some failed
+     */
+    private static final String REFRESH_RUN_SQL = """
+        UPDATE %s r
+        SET status = CASE
+                WHEN p.completed = p.total THEN 'COMPLETED'
+                WHEN p.active > 0 THEN 'RUNNING'
+                ELSE 'FAILED' END,
+            finished_at = CASE WHEN p.active = 0 THEN CURRENT_TIMESTAMP END
+        FROM (
+            SELECT COUNT(*) AS total,
+                   COUNT(*) FILTER (WHERE status = 'COMPLETED') AS completed,
+                   COUNT(*) FILTER (WHERE status IN ('PENDING', 'RUNNING')) AS active
+            FROM %s
+            WHERE run_id = CAST(:runId AS UUID)
+        ) p
+        WHERE r.id = CAST(:runId AS UUID)
+        """;
+    
+    private static final String RESUME_RUN_SQL = """
+        UPDATE %s SET status = 'RUNNING', finished_at = NULL WHERE id = CAST(:runId AS UUID) AND status <> 'COMPLETED'
+        """;
+    
+    private static final String RETRY_FAILED_SQL = """
+        UPDATE %s SET status = 'PENDING' WHERE run_id = CAST(:runId AS UUID) AND status = 'FAILED'
+        """;
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public PartitionedRunRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /**
+     * Claim a partition for this instance until the lease runs out
+     *
+     * @return the claim's attempt number, or empty when the partition is completed, failed or
+     *         claimed elsewhere
+     */
+    public OptionalInt claimPartition(Tables tables, String runId, int partitionNo, Duration lease) {
+        List<Integer> attempts = jdbcTemplate.queryForList(CLAIM_PARTITION_SQL.formatted(tables.partitions()),
+            partitionKey(runId, partitionNo).addValue("leaseSeconds", lease.toSeconds()), Integer.class);
+        return attempts.isEmpty() ? OptionalInt.empty() : OptionalInt.of(attempts.get(0));
+    }
+    
+    /**
+     * Lock a claimed partition row for the rest of the transaction, which keeps other instances
+     * from claiming it even after the lease has run out
+     *
+     * @return false when the claim was lost, to a later claim after the lease ran out
+     */
+    public boolean lockClaim(Tables tables, String runId, int partitionNo, int attempt) {
+        return !jdbcTemplate.queryForList(LOCK_CLAIM_SQL.formatted(tables.partitions()),
+            partitionKey(runId, partitionNo).addValue("attempt", attempt), Integer.class).isEmpty();
+    }
+    
+    /**
+     * Ignored when the claim has since been lost
+     */
+    public void failPartition(Tables tables, String runId, int partitionNo, int attempt, String error) {
+        jdbcTemplate.update(FAIL_PARTITION_SQL.formatted(tables.partitions()), partitionKey(runId, partitionNo)
+            .addValue("attempt", attempt)
+            .addValue("error", error));
+    }
+    
+    public void refreshRunStatus(Tables tables, String runId) {
+        jdbcTemplate.update(REFRESH_RUN_SQL.formatted(tables.runs(), tables.partitions()),
+            new MapSqlParameterSource("runId", runId));
+    }
+    
+    /**
+     * Reopen a run and return its failed partitions to PENDING
+     */
+    public void resumeRun(Tables tables, String runId) {
+        jdbcTemplate.update(RESUME_RUN_SQL.formatted(tables.runs()), new MapSqlParameterSource("runId", runId));
+        jdbcTemplate.update(RETRY_FAILED_SQL.formatted(tables.partitions()), new MapSqlParameterSource("runId", runId));
+    }
+    
+    private static MapSqlParameterSource partitionKey(String runId, int partitionNo) {
+        return new MapSqlParameterSource()
+            .addValue("runId", runId)
+            .addValue("partitionNo", partitionNo);
+    }
+    
+    /**
+     * A run table and its partition table; constants only, as they are formatted into the SQL
+     */
+    public record Tables(String runs, String partitions) {
+    }
+}
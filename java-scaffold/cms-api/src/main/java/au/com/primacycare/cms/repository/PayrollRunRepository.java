@@ -0,0 +1,352 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.config.JdbcConfig;
+import au.com.primacycare.cms.dto.PayrollRunDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * payroll_runs / payroll_run_partitions contents and totals, streamed shift reads and batched pay writes (see V012)
+ * Partition status transitions are in PartitionedRunRepository
+ */
+@Repository
+public class PayrollRunRepository {
+    
+    public static final PartitionedRunRepository.Tables TABLES =
+        new PartitionedRunRepository.Tables("payroll_runs", "payroll_run_partitions");
+    
+    private static final String INSERT_RUN_SQL = """
+        INSERT INTO payroll_runs (id, period_start, period_end, status, partition_count, created_by, created_at, started_at)
+        VALUES (CAST(:id AS UUID), :periodStart, :periodEnd, 'RUNNING', :partitionCount, :createdBy,
+                CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+        """;
+    
+    /**
+     * Consecutive staff ID ranges of at most :size staff, computed in one pass
+     * Each range ends where the next begins, and the first and last are open, so together they
+     * cover every staff ID, including ones created after the run started
+     */
+    private static final String INSERT_PARTITIONS_SQL = """
+        INSERT INTO payroll_run_partitions (run_id, partition_no, first_staff_id, end_staff_id, staff_count, status)
+        SELECT CAST(:runId AS UUID), bucket,
+               CASE WHEN bucket > 0 THEN first_id END,
+               LEAD(first_id) OVER (ORDER BY bucket),
+               staff_count, 'PENDING'
+        FROM (
+            SELECT bucket, MIN(id) AS first_id, COUNT(*) AS staff_count
+            FROM (SELECT id, CAST((ROW_NUMBER() OVER (ORDER BY id) - 1) / :size AS INTEGER) AS bucket FROM staff) b
+            GROUP BY bucket
+        ) g
+        """;
+    
+    private static final String RUN_SQL = """
+        SELECT CAST(r.id AS VARCHAR) AS id, r.period_start, r.period_end, r.status, r.partition_count,
+               r.created_by, r.created_at, r.started_at, r.finished_at,
+               COUNT(p.partition_no) FILTER (WHERE p.status = 'COMPLETED') AS completed_partitions,
+               COUNT(p.partition_no) FILTER (WHERE p.status = 'FAILED') AS failed_partitions,
+               COALESCE(SUM(p.staff_count), 0) AS staff_count,
+               COALESCE(SUM(p.shift_count), 0) AS shift_count,
+               COALESCE(SUM(p.gross_pay_cents), 0) AS gross_pay_cents
+        FROM payroll_runs r
+        LEFT JOIN payroll_run_partitions p ON p.run_id = r.id
+        WHERE %s
+        GROUP BY r.id
+        """;
+    
+    private static final String PARTITIONS_SQL = """
+        SELECT partition_no, CAST(first_staff_id AS VARCHAR) AS first_staff_id,
+               CAST(end_staff_id AS VARCHAR) AS end_staff_id, status, staff_count, shift_count,
+               gross_pay_cents, attempts, error, started_at, finished_at
+        FROM payroll_run_partitions
+        WHERE run_id = CAST(:runId AS UUID)
+        ORDER BY partition_no
+        """;
+    
+    private static final String COMPLETE_PARTITION_SQL = """
+        UPDATE payroll_run_partitions
+        SET status = 'COMPLETED', shift_count = :shiftCount, gross_pay_cents = :grossPayCents, error = NULL,
+            finished_at = CURRENT_TIMESTAMP, lease_expires_at = NULL
+        WHERE run_id = CAST(:runId AS UUID) AND partition_no = :partitionNo
+        """;
+    
+    /**
+     * Completed shifts with recorded hours and their claimed allowances, grouped by staff member for a
+     * single forward pass
+     * Formatted with the staff condition: a partition's range or a single staff member
+     */
+    private static final String PAYABLE_SHIFTS_SQL = """
+        SELECT CAST(s.id AS VARCHAR) AS shift_id, CAST(s.assigned_staff_id AS VARCHAR) AS staff_id,
+               s.shift_date, s.start_time, s.total_hours, st.base_rate, sta.code AS state_code,
+               a.allowance_codes, a.allowance_quantities
+        FROM shifts s
+        JOIN staff st ON st.id = s.assigned_staff_id
+        LEFT JOIN states sta ON sta.id = st.state_id
+        LEFT JOIN LATERAL (
+            SELECT ARRAY_AGG(code ORDER BY code) AS allowance_codes,
+                   ARRAY_AGG(quantity ORDER BY code) AS allowance_quantities
+            FROM shift_allowances
+            WHERE shift_id = s.id
+        ) a ON TRUE
+        WHERE %s
+          AND s.shift_date BETWEEN :periodStart AND :periodEnd
+          AND s.status = 'Completed' AND s.total_hours IS NOT NULL
+        ORDER BY s.assigned_staff_id, s.shift_date, s.start_time
+        """;
+    
+    private static final String UPDATE_SHIFT_PAY_SQL = """
+        UPDATE shifts SET total_pay = :totalPay WHERE id = CAST(:shiftId AS UUID)
+        """;
+    
+    private static final String UPSERT_PAYROLL_RECORD_SQL = """
+        INSERT INTO payroll_records (staff_id, period_start, period_end, total_hours, gross_pay, superannuation,
+                                     run_id, created_at, updated_at)
+        VALUES (CAST(:staffId AS UUID), :periodStart, :periodEnd, :totalHours, :grossPay, :superannuation,
+                CAST(:runId AS UUID), CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+        ON CONFLICT (staff_id, period_start, period_end) DO UPDATE SET
+            total_hours = EXCLUDED.total_hours,
+            gross_pay = EXCLUDED.gross_pay,
+            superannuation = EXCLUDED.superannuation,
+            run_id = EXCLUDED.run_id,
+            updated_at = EXCLUDED.updated_at
+        """;
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingTemplate;
+    
+    public PayrollRunRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                                @Qualifier(JdbcConfig.STREAMING) NamedParameterJdbcTemplate streamingTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingTemplate = streamingTemplate;
+    }
+    
+    /**
+     * @return the number of partitions created
+     */
+    public int insertRun(String runId, LocalDate periodStart, LocalDate periodEnd, String createdBy, int partitionSize) {
+        jdbcTemplate.update(INSERT_RUN_SQL, new MapSqlParameterSource()
+            .addValue("id", runId)
+            .addValue("periodStart", Date.valueOf(periodStart))
+            .addValue("periodEnd", Date.valueOf(periodEnd))
+            .addValue("partitionCount", 0)
+            .addValue("createdBy", createdBy));
+        int partitions = jdbcTemplate.update(INSERT_PARTITIONS_SQL, new MapSqlParameterSource()
+            .addValue("runId", runId)
+            .addValue("size", partitionSize));
+        jdbcTemplate.update("UPDATE payroll_runs SET partition_count = :count WHERE id = CAST(:runId AS UUID)",
+            new MapSqlParameterSource("count", partitions).addValue("runId", runId));
+        return partitions;
+    }
+    
+    public Optional<PayrollRunDto> findRun(String runId) {
+        List<PayrollRunDto> runs = jdbcTemplate.query(RUN_SQL.formatted("r.id = CAST(:runId AS UUID)"),
+            new MapSqlParameterSource("runId", runId), (rs, rowNum) -> toRun(rs));
+        return runs.stream().findFirst();
+    }
+    
+    public Optional<PayrollRunDto> findRunByPeriod(LocalDate periodStart, LocalDate periodEnd) {
+        List<PayrollRunDto> runs = jdbcTemplate.query(RUN_SQL.formatted("r.period_start = :periodStart AND r.period_end = :periodEnd"),
+            new MapSqlParameterSource()
+                .addValue("periodStart", Date.valueOf(periodStart))
+                .addValue("periodEnd", Date.valueOf(periodEnd)),
+            (rs, rowNum) -> toRun(rs));
+        return runs.stream().findFirst();
+    }
+    
+    public List<PayrollRunDto.Partition> findPartitions(String runId) {
+        return jdbcTemplate.query(PARTITIONS_SQL, new MapSqlParameterSource("runId", runId), (rs, rowNum) -> {
+            PayrollRunDto.Partition partition = new PayrollRunDto.Partition();
+            partition.setPartitionNo(rs.getInt("partition_no"));
+            partition.setFirstStaffId(rs.getString("first_staff_id"));
+            partition.setEndStaffId(rs.getString("end_staff_id"));
+            partition.setStatus(PayrollRunDto.PartitionStatusEnum.valueOf(rs.getString("status")));
+            partition.setStaffCount(rs.getInt("staff_count"));
+            partition.setShiftCount(rs.getInt("shift_count"));
+            partition.setGrossPay(cents(rs.getLong("gross_pay_cents")));
+            partition.setAttempts(rs.getInt("attempts"));
+            partition.setError(rs.getString("error"));
+            partition.setStartedAt(dateTime(rs.getTimestamp("started_at")));
+            partition.setFinishedAt(dateTime(rs.getTimestamp("finished_at")));
+            return partition;
+        });
+    }
+    
+    public void completePartition(String runId, int partitionNo, int shiftCount, long grossPayCents) {
+        jdbcTemplate.update(COMPLETE_PARTITION_SQL, partitionKey(runId, partitionNo)
+            .addValue("shiftCount", shiftCount)
+            .addValue("grossPayCents", grossPayCents));
+    }
+    
+    /**
+     * Stream payable shifts of a partition's staff ID range in staff order; must run inside a
+     * transaction for the cursor to apply
+     *
+     * @param firstStaffId inclusive, null for no lower bound
+     * @param endStaffId   exclusive, null for no upper bound
+     */
+    public void streamPayableShifts(String firstStaffId, String endStaffId, LocalDate periodStart, LocalDate periodEnd,
+                                    PayableShiftHandler handler) {
+        StringBuilder condition = new StringBuilder("TRUE");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        // Separate predicates rather than IS NULL checks, so each keeps its index range
+        if (firstStaffId != null) {
+            condition.append(" AND s.assigned_staff_id >= CAST(:firstStaffId AS UUID)");
+            params.addValue("firstStaffId", firstStaffId);
+        }
+        if (endStaffId != null) {
+            condition.append(" AND s.assigned_staff_id < CAST(:endStaffId AS UUID)");
+            params.addValue("endStaffId", endStaffId);
+        }
+        streamPayableShifts(condition.toString(), params, periodStart, periodEnd, handler);
+    }
+    
+    /**
+     * Stream one staff member's payable shifts; must run inside a transaction for the cursor to apply
+     */
+    public void streamPayableShifts(String staffId, LocalDate periodStart, LocalDate periodEnd,
+                                    PayableShiftHandler handler) {
+        streamPayableShifts("s.assigned_staff_id = CAST(:staffId AS UUID)",
+            new MapSqlParameterSource("staffId", staffId), periodStart, periodEnd, handler);
+    }
+    
+    private void streamPayableShifts(String staffCondition, MapSqlParameterSource params, LocalDate periodStart,
+                                     LocalDate periodEnd, PayableShiftHandler handler) {
+        params.addValue("periodStart", Date.valueOf(periodStart))
+            .addValue("periodEnd", Date.valueOf(periodEnd));
+        streamingTemplate.query(PAYABLE_SHIFTS_SQL.formatted(staffCondition), params, (RowCallbackHandler) rs -> {
+            Time start = rs.getTime("start_time");
+            BigDecimal baseRate = rs.getBigDecimal("base_rate");
+            handler.accept(new PayableShift(
+                rs.getString("shift_id"),
+                rs.getString("staff_id"),
+                rs.getDate("shift_date").toLocalDate(),
+                start != null ? start.toLocalTime() : null,
+                hundredths(rs.getBigDecimal("total_hours")),
+                baseRate != null ? hundredths(baseRate) : -1,
+                rs.getString("state_code"),
+                allowances(rs)));
+        });
+    }
+    
+    public void updateShiftPay(List<ShiftPay> pays) {
+        if (pays.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SHIFT_PAY_SQL, pays.stream()
+            .map(pay -> new MapSqlParameterSource()
+                .addValue("shiftId", pay.shiftId())
+                .addValue("totalPay", cents(pay.payCents())))
+            .toArray(SqlParameterSource[]::new));
+    }
+    
+    public void upsertPayrollRecords(List<PayrollTotals> totals, LocalDate periodStart, LocalDate periodEnd, String runId) {
+        if (totals.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_PAYROLL_RECORD_SQL, totals.stream()
+            .map(total -> new MapSqlParameterSource()
+                .addValue("staffId", total.staffId())
+                .addValue("periodStart", Date.valueOf(periodStart))
+                .addValue("periodEnd", Date.valueOf(periodEnd))
+                .addValue("totalHours", cents(total.hoursHundredths()))
+                .addValue("grossPay", cents(total.grossCents()))
+                .addValue("superannuation", cents(total.superannuationCents()))
+                .addValue("runId", runId))
+            .toArray(SqlParameterSource[]::new));
+    }
+    
+    private PayrollRunDto toRun(ResultSet rs) throws SQLException {
+        PayrollRunDto run = new PayrollRunDto();
+        run.setId(rs.getString("id"));
+        run.setPeriodStart(rs.getDate("period_start").toLocalDate());
+        run.setPeriodEnd(rs.getDate("period_end").toLocalDate());
+        run.setStatus(PayrollRunDto.StatusEnum.valueOf(rs.getString("status")));
+        run.setPartitionCount(rs.getInt("partition_count"));
+        run.setCompletedPartitions(rs.getInt("completed_partitions"));
+        run.setFailedPartitions(rs.getInt("failed_partitions"));
+        run.setStaffCount(rs.getInt("staff_count"));
+        run.setShiftCount(rs.getInt("shift_count"));
+        run.setGrossPay(cents(rs.getLong("gross_pay_cents")));
+        run.setCreatedBy(rs.getString("created_by"));
+        run.setCreatedAt(dateTime(rs.getTimestamp("created_at")));
+        run.setStartedAt(dateTime(rs.getTimestamp("started_at")));
+        run.setFinishedAt(dateTime(rs.getTimestamp("finished_at")));
+        return run;
+    }
+    
+    private static MapSqlParameterSource partitionKey(String runId, int partitionNo) {
+        return new MapSqlParameterSource()
+            .addValue("runId", runId)
+            .addValue("partitionNo", partitionNo);
+    }
+    
+    /**
+     * Claimed quantity x 100 by allowance code, from the aggregated shift_allowances arrays
+     */
+    private static Map<String, Long> allowances(ResultSet rs) throws SQLException {
+        Array codes = rs.getArray("allowance_codes");
+        if (codes == null) {
+            return Map.of();
+        }
+        String[] codeValues = (String[]) codes.getArray();
+        BigDecimal[] quantities = (BigDecimal[]) rs.getArray("allowance_quantities").getArray();
+        Map<String, Long> allowances = new LinkedHashMap<>();
+        for (int i = 0; i < codeValues.length; i++) {
+            allowances.put(codeValues[i], hundredths(quantities[i]));
+        }
+        return allowances;
+    }
+    
+    private static long hundredths(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+    
+    private static BigDecimal cents(long value) {
+        return BigDecimal.valueOf(value, 2);
+    }
+    
+    private static LocalDateTime dateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+    
+    @FunctionalInterface
+    public interface PayableShiftHandler {
+        void accept(PayableShift shift);
+    }
+    
+    /**
+     * @param hoursHundredths total_hours x 100
+     * @param baseRateCents   staff.base_rate in cents, -1 when not set
+     * @param stateCode       the staff member's states.code, for public holidays
+     * @param allowances      claimed quantity x 100 by allowance code, empty when none are claimed
+     */
+    public record PayableShift(String shiftId, String staffId, LocalDate shiftDate, LocalTime startTime,
+                               long hoursHundredths, long baseRateCents, String stateCode,
+                               Map<String, Long> allowances) {
+    }
+    
+    public record ShiftPay(String shiftId, long payCents) {
+    }
+    
+    public record PayrollTotals(String staffId, long hoursHundredths, long grossCents, long superannuationCents) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,154 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.config.JdbcConfig;
+import au.com.primacycare.cms.dto.ReferralDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Referral workflow history for funnel analytics, and the aggregator's snapshots (see V016, V018)
+ */
+@Repository
+public class ReferralFunnelRepository {
+    
+    /**
+     * Each referral transition with when its from stage was entered (the previous version) and the
+     * referral's current segment; region is that of the assigned staff member
+     * Formatted with the position condition; rows come in (xact_id, id) order up to the horizon
+     */
+    private static final String HISTORY_SQL = """
+        SELECT CAST(CAST(h.xact_id AS TEXT) AS BIGINT) AS xact_id, CAST(h.id AS VARCHAR) AS id,
+               CAST(h.workflow_id AS VARCHAR) AS workflow_id, h.version, h.from_stage, h.stage, h.created_at,
+               p.created_at AS entered_from_at, r.referral_source, r.urgency, CAST(s.region_id AS VARCHAR) AS region_id
+        FROM workflow_history h
+        JOIN workflows w ON w.id = h.workflow_id AND w.subject_type = 'referral'
+        JOIN referrals r ON r.id = w.subject_id
+        LEFT JOIN staff s ON s.id = r.assigned_to
+        LEFT JOIN workflow_history p ON p.workflow_id = h.workflow_id AND p.version = h.version - 1
+        WHERE %s
+          AND h.xact_id < CAST(CAST(:horizon AS TEXT) AS XID8)
+        ORDER BY h.xact_id, h.id
+        """;
+    
+    /**
+     * Every transaction below the snapshot's xmin has committed or rolled back, so no history row
+     * can still appear below it
+     */
+    private static final String HORIZON_SQL = """
+        SELECT CAST(CAST(pg_snapshot_xmin(pg_current_snapshot()) AS TEXT) AS BIGINT)
+        """;
+    
+    private static final String LATEST_SNAPSHOT_SQL = """
+        SELECT watermark, payload FROM referral_funnel_snapshots ORDER BY created_at DESC LIMIT 1
+        """;
+    
+    private static final String INSERT_SNAPSHOT_SQL = """
+        INSERT INTO referral_funnel_snapshots (watermark, segments, payload) VALUES (?, ?, ?)
+        """;
+    
+    private static final String PRUNE_SNAPSHOTS_SQL = """
+        DELETE FROM referral_funnel_snapshots
+        WHERE id NOT IN (SELECT id FROM referral_funnel_snapshots ORDER BY created_at DESC LIMIT ?)
+        """;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingTemplate;
+    
+    public ReferralFunnelRepository(JdbcTemplate jdbcTemplate,
+                                    @Qualifier(JdbcConfig.STREAMING) NamedParameterJdbcTemplate streamingTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingTemplate = streamingTemplate;
+    }
+    
+    /**
+     * The transaction ID below which workflow history is complete
+     */
+    public long currentHorizon() {
+        return jdbcTemplate.queryForObject(HORIZON_SQL, Long.class);
+    }
+    
+    /**
+     * Stream referral transitions after a position and written by transactions below a horizon, in
+     * (xact_id, id) order; must run inside a transaction for the cursor to apply
+     *
+     * @param horizon from currentHorizon()
+     */
+    public void streamHistory(Position after, long horizon, Consumer<HistoryRow> handler) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("xactId", after.xactId())
+            .addValue("horizon", horizon);
+        // Separate predicates rather than IS NULL checks, so each keeps its index range
+        String condition;
+        if (after.id() != null) {
+            condition = "(h.xact_id > CAST(CAST(:xactId AS TEXT) AS XID8)"
+                + " OR (h.xact_id = CAST(CAST(:xactId AS TEXT) AS XID8) AND h.id > CAST(:id AS UUID)))";
+            params.addValue("id", after.id());
+        } else {
+            condition = "h.xact_id >= CAST(CAST(:xactId AS TEXT) AS XID8)";
+        }
+        streamingTemplate.query(HISTORY_SQL.formatted(condition), params, (RowCallbackHandler) rs -> {
+            String fromStage = rs.getString("from_stage");
+            Timestamp enteredFromAt = rs.getTimestamp("entered_from_at");
+            handler.accept(new HistoryRow(
+                new Position(rs.getLong("xact_id"), rs.getString("id")),
+                rs.getString("workflow_id"),
+                rs.getInt("version"),
+                fromStage != null ? ReferralDto.WorkflowStageEnum.valueOf(fromStage) : null,
+                ReferralDto.WorkflowStageEnum.valueOf(rs.getString("stage")),
+                rs.getTimestamp("created_at").toLocalDateTime(),
+                enteredFromAt != null ? enteredFromAt.toLocalDateTime() : null,
+                rs.getString("referral_source"),
+                rs.getString("urgency"),
+                rs.getString("region_id")));
+        });
+    }
+    
+    public Optional<Snapshot> findLatestSnapshot() {
+        return jdbcTemplate.query(LATEST_SNAPSHOT_SQL, (rs, rowNum) -> {
+            Timestamp watermark = rs.getTimestamp("watermark");
+            return new Snapshot(watermark != null ? watermark.toLocalDateTime() : null, rs.getBytes("payload"));
+        }).stream().findFirst();
+    }
+    
+    /**
+     * Insert a snapshot and drop all but the latest keep
+     */
+    public void saveSnapshot(LocalDateTime watermark, int segments, byte[] payload, int keep) {
+        jdbcTemplate.update(INSERT_SNAPSHOT_SQL, watermark != null ? Timestamp.valueOf(watermark) : null, segments, payload);
+        jdbcTemplate.update(PRUNE_SNAPSHOTS_SQL, keep);
+    }
+    
+    /**
+     * A point in workflow history: every row written by a transaction below xactId, plus those of
+     * transaction xactId up to and including id
+     *
+     * @param id null when none of transaction xactId's rows are included
+     */
+    public record Position(long xactId, String id) {
+        
+        public static final Position START = new Position(0, null);
+    }
+    
+    /**
+     * @param position      this row's position in history
+     * @param fromStage     null when the workflow started
+     * @param enteredFromAt when the from stage was entered; null when the workflow started
+     */
+    public record HistoryRow(Position position, String workflowId, int version,
+                             ReferralDto.WorkflowStageEnum fromStage, ReferralDto.WorkflowStageEnum stage,
+                             LocalDateTime createdAt, LocalDateTime enteredFromAt,
+                             String referralSource, String urgency, String regionId) {
+    }
+    
+    public record Snapshot(LocalDateTime watermark, byte[] payload) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.dto.ReferralDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Referral rows; status is left to the column default on insert
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReferralRepository {
+    
+    private static final String INSERT_SQL = """
+        INSERT INTO referrals (referral_date, referral_source, referrer_name, referrer_email, referrer_phone,
+                               participant_name, participant_dob, participant_ndis, participant_phone,
+                               participant_email, guardian_name, guardian_phone, guardian_email,
+                               support_requirements, urgency, notes)
+        VALUES (:referralDate, :referralSource, :referrerName, :referrerEmail, :referrerPhone,
+                :participantName, :participantDob, :participantNdis, :participantPhone,
+                :participantEmail, :guardianName, :guardianPhone, :guardianEmail,
+                :supportRequirements, :urgency, :notes)
+        RETURNING CAST(id AS VARCHAR) AS id, created_at, updated_at
+        """;
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    /**
+     * Insert the referral, setting its id and timestamps
+     */
+    public void insert(ReferralDto referral) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("referralDate", referral.getReferralDate())
+            .addValue("referralSource", referral.getReferralSource())
+            .addValue("referrerName", referral.getReferrerName())
+            .addValue("referrerEmail", referral.getReferrerEmail())
+            .addValue("referrerPhone", referral.getReferrerPhone())
+            .addValue("participantName", referral.getParticipantName())
+            .addValue("participantDob", referral.getParticipantDob())
+            .addValue("participantNdis", referral.getParticipantNdis())
+            .addValue("participantPhone", referral.getParticipantPhone())
+            .addValue("participantEmail", referral.getParticipantEmail())
+            .addValue("guardianName", referral.getGuardianName())
+            .addValue("guardianPhone", referral.getGuardianPhone())
+            .addValue("guardianEmail", referral.getGuardianEmail())
+            .addValue("supportRequirements", referral.getSupportRequirements())
+            .addValue("urgency", referral.getUrgency() != null ? referral.getUrgency().name() : null)
+            .addValue("notes", referral.getNotes());
+        jdbcTemplate.query(INSERT_SQL, params, (RowCallbackHandler) rs -> {
+            referral.setId(rs.getString("id"));
+            referral.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+            referral.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+        });
+    }
+}
\ No newline at end of file
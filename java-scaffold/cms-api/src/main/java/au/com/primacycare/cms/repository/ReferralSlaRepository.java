@@ -0,0 +1,171 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.config.JdbcConfig;
+import au.com.primacycare.cms.dto.ReferralDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Open referral stage deadlines and their breach alerts (see V016, V017)
+ */
+@Repository
+public class ReferralSlaRepository {
+    
+    /** referrals.status values, as enum names or display names, that end the workflow */
+    private static final List<String> CLOSED_STATUSES = List.of(
+        "REJECTED", "Rejected", "WITHDRAWN", "Withdrawn", "CONVERTED", "Converted to Participant");
+    
+    /**
+     * Referrals with a stage still to complete and no breach raised for the current stage visit
+     */
+    private static final String OPEN_TIMERS_SQL = """
+        SELECT CAST(r.id AS VARCHAR) AS referral_id, CAST(w.id AS VARCHAR) AS workflow_id, w.version, w.stage,
+               w.updated_at, r.urgency
+        FROM workflows w
+        JOIN referrals r ON r.id = w.subject_id
+        WHERE w.subject_type = 'referral'
+          AND w.stage <> 'SERVICE_COMMENCED'
+          AND (r.status IS NULL OR r.status NOT IN (:closedStatuses))
+          AND NOT EXISTS (SELECT 1 FROM alerts a WHERE a.workflow_id = w.id AND a.workflow_version = w.version)
+          %s
+        """;
+    
+    /**
+     * Only raised if the workflow is still at the version the timer was set for and the referral is open
+     */
+    private static final String RAISE_BREACH_SQL = """
+        INSERT INTO alerts (referral_id, workflow_id, workflow_version, alert_type, priority, message, action_required,
+                            due_date, is_read, created_at)
+        SELECT r.id, w.id, w.version, 'REFERRAL_SLA_BREACH', :priority, 'Referral for ' || r.participant_name || :detail,
+               :actionRequired, :dueDate, FALSE, CURRENT_TIMESTAMP
+        FROM workflows w
+        JOIN referrals r ON r.id = w.subject_id
+        WHERE w.id = CAST(:workflowId AS UUID) AND w.version = :version
+          AND (r.status IS NULL OR r.status NOT IN (:closedStatuses))
+        ON CONFLICT (workflow_id, workflow_version) WHERE workflow_id IS NOT NULL DO NOTHING
+        """;
+    
+    private static final String CONTACTS_SQL = """
+        SELECT CAST(r.id AS VARCHAR) AS referral_id, r.participant_name, s.first_name, s.email, s.phone
+        FROM referrals r
+        LEFT JOIN staff s ON s.id = r.assigned_to
+        WHERE r.id IN (:referralIds)
+        """;
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingTemplate;
+    
+    public ReferralSlaRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                                 @Qualifier(JdbcConfig.STREAMING) NamedParameterJdbcTemplate streamingTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingTemplate = streamingTemplate;
+    }
+    
+    /**
+     * Stream every open stage deadline; must run inside a transaction for the cursor to apply
+     */
+    public void streamOpenTimers(Consumer<OpenTimer> handler) {
+        streamingTemplate.query(OPEN_TIMERS_SQL.formatted(""),
+            new MapSqlParameterSource("closedStatuses", CLOSED_STATUSES),
+            (RowCallbackHandler) rs -> handler.accept(toTimer(rs)));
+    }
+    
+    public List<OpenTimer> findOpenTimers(Collection<String> referralIds) {
+        if (referralIds.isEmpty()) {
+            return List.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("closedStatuses", CLOSED_STATUSES)
+            .addValue("referralIds", referralIds.stream().map(UUID::fromString).toList());
+        return jdbcTemplate.query(OPEN_TIMERS_SQL.formatted("AND r.id IN (:referralIds)"), params,
+            (rs, rowNum) -> toTimer(rs));
+    }
+    
+    /**
+     * @return per breach, whether an alert was raised; false when the referral has moved on or
+     *         the breach was already raised
+     */
+    public boolean[] raiseBreaches(List<Breach> breaches) {
+        boolean[] raised = new boolean[breaches.size()];
+        if (breaches.isEmpty()) {
+            return raised;
+        }
+        int[] counts = jdbcTemplate.batchUpdate(RAISE_BREACH_SQL, breaches.stream()
+            .map(breach -> new MapSqlParameterSource()
+                .addValue("workflowId", breach.timer().workflowId())
+                .addValue("version", breach.timer().version())
+                .addValue("closedStatuses", CLOSED_STATUSES)
+                .addValue("priority", breach.urgency().name())
+                .addValue("detail", breach.detail())
+                .addValue("actionRequired", "Progress the referral past " + breach.timer().stage().getDisplayName())
+                .addValue("dueDate", Date.valueOf(breach.deadline().toLocalDate())))
+            .toArray(SqlParameterSource[]::new));
+        for (int i = 0; i < counts.length; i++) {
+            raised[i] = counts[i] > 0;
+        }
+        return raised;
+    }
+    
+    /**
+     * Who to tell about a breach, by referral ID; staff fields are null for an unassigned referral
+     */
+    public Map<String, BreachContact> findContacts(Collection<String> referralIds) {
+        Map<String, BreachContact> contacts = new HashMap<>();
+        if (referralIds.isEmpty()) {
+            return contacts;
+        }
+        jdbcTemplate.query(CONTACTS_SQL,
+            new MapSqlParameterSource("referralIds", referralIds.stream().map(UUID::fromString).toList()),
+            (RowCallbackHandler) rs -> contacts.put(rs.getString("referral_id"), new BreachContact(
+                rs.getString("participant_name"),
+                rs.getString("first_name"),
+                rs.getString("email"),
+                rs.getString("phone"))));
+        return contacts;
+    }
+    
+    private static OpenTimer toTimer(ResultSet rs) throws SQLException {
+        return new OpenTimer(
+            rs.getString("referral_id"),
+            rs.getString("workflow_id"),
+            rs.getInt("version"),
+            ReferralDto.WorkflowStageEnum.valueOf(rs.getString("stage")),
+            rs.getTimestamp("updated_at").toLocalDateTime(),
+            rs.getString("urgency"));
+    }
+    
+    /**
+     * @param enteredAt when the referral entered its current stage
+     * @param urgency   referrals.urgency as stored
+     */
+    public record OpenTimer(String referralId, String workflowId, int version, ReferralDto.WorkflowStageEnum stage,
+                            LocalDateTime enteredAt, String urgency) {
+    }
+    
+    /**
+     * @param detail completes "Referral for <participant name>"
+     */
+    public record Breach(OpenTimer timer, ReferralDto.UrgencyEnum urgency, LocalDateTime deadline, String detail) {
+    }
+    
+    /**
+     * @param staffFirstName first name of the assigned staff member
+     */
+    public record BreachContact(String participantName, String staffFirstName, String staffEmail, String staffPhone) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.matching.AvailabilityWindow;
+import au.com.primacycare.cms.matching.StaffCommitment;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based loads for batch roster allocation: one query each for the open services, existing
+ * bookings and availability of a date range, and one batched conditional update to apply a roster
+ */
+@Repository
+@RequiredArgsConstructor
+public class RosterRepository {
+    
+    private static final String UNASSIGNED_SQL = """
+        SELECT CAST(v.id AS VARCHAR) AS id, CAST(v.participant_id AS VARCHAR) AS participant_id,
+               v.service_type, v.scheduled_date, v.start_time,
+               COALESCE(v.end_time, v.start_time + make_interval(mins => v.duration_minutes)) AS end_time,
+               p.languages_spoken, p.cultural_background, CAST(p.region_id AS VARCHAR) AS region_id,
+               p.latitude, p.longitude, CAST(p.state_id AS VARCHAR) AS state_id
+        FROM services v
+        JOIN participants p ON p.id = v.participant_id
+        WHERE v.assigned_to IS NULL AND v.scheduled_date BETWEEN :from AND :to
+        ORDER BY v.scheduled_date, v.start_time, v.id
+        """;
+    
+    private static final String COMMITMENTS_SQL = """
+        SELECT CAST(assigned_to AS VARCHAR) AS staff_id, scheduled_date AS work_date, start_time,
+               COALESCE(end_time, start_time + make_interval(mins => duration_minutes)) AS end_time
+        FROM services
+        WHERE assigned_to IS NOT NULL AND scheduled_date BETWEEN :from AND :to AND start_time IS NOT NULL
+        UNION ALL
+        SELECT CAST(assigned_staff_id AS VARCHAR), shift_date, start_time, end_time
+        FROM shifts
+        WHERE assigned_staff_id IS NOT NULL AND shift_date BETWEEN :from AND :to AND status <> 'Cancelled'
+        """;
+    
+    private static final String AVAILABILITY_SQL = """
+        SELECT CAST(staff_id AS VARCHAR) AS staff_id, day_of_week, start_time, end_time
+        FROM staff_availability
+        WHERE available = TRUE AND day_of_week BETWEEN 1 AND 7
+        """;
+    
+    private static final String ASSIGN_SQL = """
+        UPDATE services
+        SET assigned_to = CAST(:staffId AS UUID), updated_at = CURRENT_TIMESTAMP
+        WHERE id = CAST(:serviceId AS UUID) AND assigned_to IS NULL
+        """;
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    /**
+     * Services with no assigned staff scheduled between from and to inclusive, with the participant
+     * attributes the matching factors need
+     */
+    public List<UnassignedService> findUnassignedServices(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(UNASSIGNED_SQL, range(from, to), (rs, rowNum) -> new UnassignedService(
+            rs.getString("id"),
+            rs.getString("participant_id"),
+            rs.getString("service_type"),
+            rs.getDate("scheduled_date").toLocalDate(),
+            minute(rs, "start_time"),
+            minute(rs, "end_time"),
+            rs.getString("languages_spoken"),
+            rs.getString("cultural_background"),
+            rs.getString("region_id"),
+            rs.getObject("latitude", Double.class),
+            rs.getObject("longitude", Double.class),
+            rs.getString("state_id")));
+    }
+    
+    /**
+     * Assigned services and non-cancelled shifts between from and to inclusive
+     * End minutes run past 1440 when the booking crosses midnight
+     */
+    public List<StaffCommitment> findCommitments(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(COMMITMENTS_SQL, range(from, to), (rs, rowNum) -> {
+            int start = minute(rs, "start_time");
+            int end = minute(rs, "end_time");
+            return new StaffCommitment(
+                rs.getString("staff_id"),
+                rs.getDate("work_date").toLocalDate(),
+                start,
+                end < 0 ? start : end > start ? end : end + 1440);
+        });
+    }
+    
+    public List<AvailabilityWindow> findAvailability() {
+        return jdbcTemplate.query(AVAILABILITY_SQL, new MapSqlParameterSource(), (rs, rowNum) -> new AvailabilityWindow(
+            rs.getString("staff_id"),
+            DayOfWeek.of(rs.getInt("day_of_week")),
+            minute(rs, "start_time"),
+            minute(rs, "end_time")));
+    }
+    
+    /**
+     * Assign services to staff, skipping any that were assigned since the roster was computed
+     *
+     * @return the number of services actually assigned
+     */
+    public int assign(Map<String, String> staffIdByServiceId) {
+        if (staffIdByServiceId.isEmpty()) {
+            return 0;
+        }
+        SqlParameterSource[] batch = staffIdByServiceId.entrySet().stream()
+            .map(entry -> new MapSqlParameterSource()
+                .addValue("serviceId", entry.getKey())
+                .addValue("staffId", entry.getValue()))
+            .toArray(SqlParameterSource[]::new);
+        int assigned = 0;
+        for (int count : jdbcTemplate.batchUpdate(ASSIGN_SQL, batch)) {
+            assigned += Math.max(count, 0);
+        }
+        return assigned;
+    }
+    
+    private static MapSqlParameterSource range(LocalDate from, LocalDate to) {
+        return new MapSqlParameterSource()
+            .addValue("from", Date.valueOf(from))
+            .addValue("to", Date.valueOf(to));
+    }
+    
+    /**
+     * Minutes after midnight, or -1 for NULL
+     */
+    private static int minute(ResultSet rs, String column) throws SQLException {
+        Time time = rs.getTime(column);
+        if (time == null) {
+            return -1;
+        }
+        LocalTime local = time.toLocalTime();
+        return local.getHour() * 60 + local.getMinute();
+    }
+    
+    /**
+     * One open service row
+     *
+     * @param startMinute minutes after midnight, -1 when unscheduled
+     * @param endMinute   minutes after midnight, -1 when neither an end time nor a duration is recorded
+     */
+    public record UnassignedService(
+            String id,
+            String participantId,
+            String serviceType,
+            LocalDate scheduledDate,
+            int startMinute,
+            int endMinute,
+            String languagesSpoken,
+            String culturalBackground,
+            String regionId,
+            Double latitude,
+            Double longitude,
+            String stateId) {
+    }
+}
\ No newline at end of file
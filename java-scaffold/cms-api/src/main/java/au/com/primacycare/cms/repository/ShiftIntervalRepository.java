@@ -0,0 +1,51 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.scheduling.ShiftInterval;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk loads of booked shift times for the shift conflict index
+ */
+@Repository
+@RequiredArgsConstructor
+public class ShiftIntervalRepository {
+    
+    private static final String INTERVALS_SQL = """
+        SELECT CAST(id AS VARCHAR) AS id, CAST(assigned_staff_id AS VARCHAR) AS staff_id,
+               shift_date, start_time, end_time
+        FROM shifts
+        WHERE assigned_staff_id IS NOT NULL AND shift_date BETWEEN :from AND :to AND status <> 'Cancelled'
+          AND (CAST(:staffId AS UUID) IS NULL OR assigned_staff_id = CAST(:staffId AS UUID))
+        """;
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    /**
+     * Non-cancelled shifts dated between from and to inclusive, grouped by staff ID
+     *
+     * @param staffId one staff member, or null for everyone
+     */
+    public Map<String, List<ShiftInterval>> findIntervals(String staffId, LocalDate from, LocalDate to) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("staffId", staffId)
+            .addValue("from", Date.valueOf(from))
+            .addValue("to", Date.valueOf(to));
+        Map<String, List<ShiftInterval>> intervals = new HashMap<>();
+        jdbcTemplate.query(INTERVALS_SQL, params, rs -> {
+            intervals.computeIfAbsent(rs.getString("staff_id"), id -> new ArrayList<>())
+                .add(ShiftInterval.of(rs.getString("id"), rs.getDate("shift_date").toLocalDate(),
+                    rs.getTime("start_time").toLocalTime(), rs.getTime("end_time").toLocalTime()));
+        });
+        return intervals;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.entity.Shift;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Spring Data repository for 'shifts' table
+ * Mirrors query helpers from server/storage.ts
+ */
+@Repository
+public interface ShiftRepository extends JpaRepository<Shift, String> {
+    
+    @Query("""
+        SELECT s FROM Shift s
+        WHERE s.assignedStaffId = :staffId AND s.shiftDate BETWEEN :from AND :to
+        ORDER BY s.shiftDate, s.startTime
+        """)
+    List<Shift> findByStaffIdAndPeriod(
+        @Param("staffId") String staffId,
+        @Param("from") LocalDate from,
+        @Param("to") LocalDate to);
+}
\ No newline at end of file
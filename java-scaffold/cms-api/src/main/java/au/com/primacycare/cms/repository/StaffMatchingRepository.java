@@ -0,0 +1,97 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.matching.StaffMatchProfile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Bulk loads for the staff matching index: three set-based queries regardless of roster size
+ */
+@Repository
+@RequiredArgsConstructor
+public class StaffMatchingRepository {
+    
+    private static final String STAFF_SQL = """
+        SELECT CAST(id AS VARCHAR) AS id, first_name, last_name, qualifications,
+               languages_spoken, cultural_background, CAST(region_id AS VARCHAR) AS region_id,
+               latitude, longitude
+        FROM staff
+        ORDER BY id
+        """;
+    
+    private static final String AVAILABILITY_SQL = """
+        SELECT CAST(staff_id AS VARCHAR) AS staff_id, day_of_week,
+               CAST(SUM(EXTRACT(EPOCH FROM (end_time - start_time)) / 60) AS INTEGER) AS minutes
+        FROM staff_availability
+        WHERE available = TRUE AND day_of_week BETWEEN 1 AND 7
+        GROUP BY staff_id, day_of_week
+        """;
+    
+    private static final String RELATIONSHIPS_SQL = """
+        SELECT DISTINCT CAST(participant_id AS VARCHAR) AS participant_id,
+                        CAST(assigned_staff_id AS VARCHAR) AS staff_id
+        FROM shifts
+        WHERE status = 'Completed' AND participant_id IS NOT NULL AND assigned_staff_id IS NOT NULL
+        """;
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public List<StaffMatchProfile> loadProfiles() {
+        Map<String, int[]> minutesByStaff = new HashMap<>();
+        jdbcTemplate.query(AVAILABILITY_SQL, rs -> {
+            int[] minutes = minutesByStaff.computeIfAbsent(rs.getString("staff_id"), id -> new int[7]);
+            minutes[rs.getInt("day_of_week") - 1] = rs.getInt("minutes");
+        });
+        
+        return jdbcTemplate.query(STAFF_SQL, (rs, rowNum) -> new StaffMatchProfile(
+            rs.getString("id"),
+            rs.getString("first_name") + " " + rs.getString("last_name"),
+            splitList(rs.getString("qualifications")),
+            splitList(rs.getString("languages_spoken")),
+            blankToNull(rs.getString("cultural_background")),
+            rs.getString("region_id"),
+            rs.getObject("latitude", Double.class),
+            rs.getObject("longitude", Double.class),
+            minutesByStaff.getOrDefault(rs.getString("id"), new int[7])));
+    }
+    
+    /**
+     * Participant ID to the staff who have completed shifts with them
+     */
+    public Map<String, List<String>> loadRelationships() {
+        Map<String, List<String>> relationships = new HashMap<>();
+        jdbcTemplate.query(RELATIONSHIPS_SQL, rs -> {
+            relationships.computeIfAbsent(rs.getString("participant_id"), id -> new ArrayList<>())
+                .add(rs.getString("staff_id"));
+        });
+        return relationships;
+    }
+    
+    /**
+     * Parse list columns stored either as JSON arrays or comma-separated text
+     */
+    public static List<String> splitList(String value) {
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        String trimmed = value.trim();
+        if (trimmed.startsWith("[") && trimmed.endsWith("]")) {
+            trimmed = trimmed.substring(1, trimmed.length() - 1);
+        }
+        List<String> items = new ArrayList<>();
+        for (String item : trimmed.split("[,;]")) {
+            String cleaned = item.trim().replaceAll("^\"|\"$", "").trim();
+            if (!cleaned.isEmpty()) {
+                items.add(cleaned);
+            }
+        }
+        return items;
+    }
+    
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
\ No newline at end of file
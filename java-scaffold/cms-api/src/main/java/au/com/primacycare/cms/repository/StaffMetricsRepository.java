@@ -0,0 +1,255 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.dto.StaffHoursBucketDto;
+import au.com.primacycare.cms.dto.StaffMetricsDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * staff_metrics / staff_hours_daily read model (see V007)
+ */
+@Repository
+@RequiredArgsConstructor
+public class StaffMetricsRepository {
+    
+    private static final String ADD_COUNTS_SQL = """
+        INSERT INTO staff_metrics (staff_id, scheduled_shifts, completed_shifts, updated_at, version)
+        VALUES (CAST(:staffId AS UUID), :scheduled, :completed, CURRENT_TIMESTAMP, 1)
+        ON CONFLICT (staff_id) DO UPDATE SET
+            scheduled_shifts = staff_metrics.scheduled_shifts + EXCLUDED.scheduled_shifts,
+            completed_shifts = staff_metrics.completed_shifts + EXCLUDED.completed_shifts,
+            updated_at = EXCLUDED.updated_at,
+            version = staff_metrics.version + 1
+        """;
+    
+    private static final String ADD_HOURS_SQL = """
+        INSERT INTO staff_hours_daily (staff_id, work_date, hours, shift_count, version)
+        VALUES (CAST(:staffId AS UUID), :workDate, :hours, :shifts, 1)
+        ON CONFLICT (staff_id, work_date) DO UPDATE SET
+            hours = staff_hours_daily.hours + EXCLUDED.hours,
+            shift_count = staff_hours_daily.shift_count + EXCLUDED.shift_count,
+            version = staff_hours_daily.version + 1
+        """;
+    
+    /**
+     * Counters, hours in the current calendar month and weekly available hours for a page of staff
+     * Utilisation assumes 4 weeks of availability per month, as the original mapper did
+     */
+    private static final String FIND_SQL = """
+        SELECT CAST(s.id AS VARCHAR) AS staff_id,
+               COALESCE(m.scheduled_shifts, 0) AS scheduled_shifts,
+               COALESCE(m.completed_shifts, 0) AS completed_shifts,
+               COALESCE(h.hours, 0) AS hours_this_month,
+               COALESCE(a.weekly_hours, 0) AS weekly_available_hours
+        FROM staff s
+        LEFT JOIN staff_metrics m ON m.staff_id = s.id
+        LEFT JOIN LATERAL (
+            SELECT SUM(d.hours) AS hours
+            FROM staff_hours_daily d
+            WHERE d.staff_id = s.id AND d.work_date >= :monthStart AND d.work_date < :monthEnd
+        ) h ON TRUE
+        LEFT JOIN LATERAL (
+            SELECT SUM(EXTRACT(EPOCH FROM (sa.end_time - sa.start_time)) / 3600) AS weekly_hours
+            FROM staff_availability sa
+            WHERE sa.staff_id = s.id AND sa.available = TRUE
+        ) a ON TRUE
+        WHERE s.id IN (:staffIds)
+        """;
+    
+    /**
+     * Counts and row versions come from the same snapshot; a row whose version has moved on by the
+     * time it is written took an increment this snapshot did not see, so it is left alone (see V007)
+     */
+    private static final String RECONCILE_COUNTS_SQL = """
+        INSERT INTO staff_metrics (staff_id, scheduled_shifts, completed_shifts, updated_at, reconciled_at, version)
+        SELECT s.id,
+               COUNT(sh.id) FILTER (WHERE sh.status = 'Scheduled'),
+               COUNT(sh.id) FILTER (WHERE sh.status = 'Completed'),
+               CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, COALESCE(m.version, 0)
+        FROM staff s
+        LEFT JOIN staff_metrics m ON m.staff_id = s.id
+        LEFT JOIN shifts sh ON sh.assigned_staff_id = s.id
+        GROUP BY s.id, m.version
+        ON CONFLICT (staff_id) DO UPDATE SET
+            scheduled_shifts = EXCLUDED.scheduled_shifts,
+            completed_shifts = EXCLUDED.completed_shifts,
+            updated_at = EXCLUDED.updated_at,
+            reconciled_at = EXCLUDED.reconciled_at
+        WHERE staff_metrics.version = EXCLUDED.version
+          AND (staff_metrics.scheduled_shifts <> EXCLUDED.scheduled_shifts
+            OR staff_metrics.completed_shifts <> EXCLUDED.completed_shifts)
+        """;
+    
+    /**
+     * Version-guarded like RECONCILE_COUNTS_SQL; a deleted row is re-checked against the version
+     * seen in the snapshot, so one incremented meanwhile is kept
+     */
+    private static final String RECONCILE_HOURS_SQL = """
+        WITH seen AS (
+            SELECT staff_id, work_date, version FROM staff_hours_daily WHERE work_date >= :from
+        ),
+        actual AS (
+            SELECT sh.assigned_staff_id AS staff_id, sh.shift_date AS work_date,
+                   COALESCE(SUM(sh.total_hours), 0) AS hours, COUNT(*) AS shift_count,
+                   COALESCE(MAX(v.version), 0) AS version
+            FROM shifts sh
+            LEFT JOIN seen v ON v.staff_id = sh.assigned_staff_id AND v.work_date = sh.shift_date
+            WHERE sh.assigned_staff_id IS NOT NULL AND sh.status = 'Completed' AND sh.shift_date >= :from
+            GROUP BY sh.assigned_staff_id, sh.shift_date
+        ),
+        removed AS (
+            DELETE FROM staff_hours_daily d
+            USING seen v
+            WHERE v.staff_id = d.staff_id AND v.work_date = d.work_date AND d.version = v.version
+              AND NOT EXISTS (SELECT 1 FROM actual a WHERE a.staff_id = d.staff_id AND a.work_date = d.work_date)
+            RETURNING 1
+        ),
+        upserted AS (
+            INSERT INTO staff_hours_daily (staff_id, work_date, hours, shift_count, version)
+            SELECT staff_id, work_date, hours, shift_count, version FROM actual
+            ON CONFLICT (staff_id, work_date) DO UPDATE SET
+                hours = EXCLUDED.hours,
+                shift_count = EXCLUDED.shift_count
+            WHERE staff_hours_daily.version = EXCLUDED.version
+              AND (staff_hours_daily.hours <> EXCLUDED.hours
+                OR staff_hours_daily.shift_count <> EXCLUDED.shift_count)
+            RETURNING 1
+        )
+        SELECT (SELECT COUNT(*) FROM removed) + (SELECT COUNT(*) FROM upserted)
+        """;
+    
+    /**
+     * One row per bucket, including empty ones; %s is a fixed staff scope predicate on d.staff_id
+     */
+    private static final String BUCKETS_SQL = """
+        SELECT CAST(b.bucket_start AS DATE) AS bucket_start,
+               CAST(b.bucket_start + CAST(:step AS INTERVAL) AS DATE) AS bucket_end,
+               COALESCE(SUM(d.hours), 0) AS hours,
+               COALESCE(SUM(d.shift_count), 0) AS shift_count
+        FROM generate_series(CAST(:first AS TIMESTAMP), CAST(:last AS TIMESTAMP), CAST(:step AS INTERVAL)) AS b(bucket_start)
+        LEFT JOIN staff_hours_daily d
+               ON d.work_date >= b.bucket_start
+              AND d.work_date < b.bucket_start + CAST(:step AS INTERVAL)
+              AND %s
+        GROUP BY b.bucket_start
+        ORDER BY b.bucket_start
+        """;
+    
+    private static final String WEEKLY_AVAILABLE_HOURS_SQL = """
+        SELECT COALESCE(SUM(EXTRACT(EPOCH FROM (sa.end_time - sa.start_time)) / 3600), 0)
+        FROM staff_availability sa
+        WHERE sa.available = TRUE AND %s
+        """;
+    
+    private static final String STAFF_SCOPE = "%s = CAST(:staffId AS UUID)";
+    private static final String DEPARTMENT_SCOPE = "%s IN (SELECT id FROM staff WHERE department = :department)";
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public void addCounts(String staffId, int scheduled, int completed) {
+        jdbcTemplate.update(ADD_COUNTS_SQL, new MapSqlParameterSource()
+            .addValue("staffId", staffId)
+            .addValue("scheduled", scheduled)
+            .addValue("completed", completed));
+    }
+    
+    public void addHours(String staffId, LocalDate workDate, BigDecimal hours, int shifts) {
+        jdbcTemplate.update(ADD_HOURS_SQL, new MapSqlParameterSource()
+            .addValue("staffId", staffId)
+            .addValue("workDate", Date.valueOf(workDate))
+            .addValue("hours", hours)
+            .addValue("shifts", shifts));
+    }
+    
+    /**
+     * Metrics for the given staff, keyed by staff ID; one round trip per page
+     */
+    public Map<String, StaffMetricsDto> findByStaffIds(Collection<String> staffIds, YearMonth month) {
+        if (staffIds.isEmpty()) {
+            return Map.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("staffIds", staffIds.stream().map(UUID::fromString).toList())
+            .addValue("monthStart", Date.valueOf(month.atDay(1)))
+            .addValue("monthEnd", Date.valueOf(month.plusMonths(1).atDay(1)));
+        
+        Map<String, StaffMetricsDto> metrics = new HashMap<>(staffIds.size() * 2);
+        jdbcTemplate.query(FIND_SQL, params, rs -> {
+            StaffMetricsDto dto = new StaffMetricsDto();
+            dto.setActiveShiftsCount(rs.getInt("scheduled_shifts"));
+            dto.setCompletedShiftsCount(rs.getInt("completed_shifts"));
+            double hours = rs.getDouble("hours_this_month");
+            dto.setTotalHoursThisMonth((int) Math.round(hours));
+            double availableHours = rs.getDouble("weekly_available_hours") * 4;
+            if (availableHours > 0) {
+                dto.setUtilizationRate(hours / availableHours * 100);
+            }
+            metrics.put(rs.getString("staff_id"), dto);
+        });
+        return metrics;
+    }
+    
+    /**
+     * Hours per bucket for one staff member (staffId) or a whole department, from first to last bucket start inclusive
+     * Reads at most one staff_hours_daily row per staff member per day, never the shifts table
+     */
+    public List<StaffHoursBucketDto> findHoursBuckets(String staffId, String department, StaffHoursBucketDto.WindowEnum window,
+                                                      LocalDate firstBucket, LocalDate lastBucket) {
+        String scope = staffId != null ? STAFF_SCOPE : DEPARTMENT_SCOPE;
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("staffId", staffId)
+            .addValue("department", department)
+            .addValue("step", window.getInterval())
+            .addValue("first", Date.valueOf(firstBucket))
+            .addValue("last", Date.valueOf(lastBucket));
+        
+        Double weeklyAvailable = jdbcTemplate.queryForObject(
+            WEEKLY_AVAILABLE_HOURS_SQL.formatted(scope.formatted("sa.staff_id")), params, Double.class);
+        double availablePerDay = weeklyAvailable != null ? weeklyAvailable / 7 : 0;
+        
+        return jdbcTemplate.query(BUCKETS_SQL.formatted(scope.formatted("d.staff_id")), params, (rs, rowNum) -> {
+            StaffHoursBucketDto bucket = new StaffHoursBucketDto();
+            bucket.setBucketStart(rs.getDate("bucket_start").toLocalDate());
+            bucket.setBucketEnd(rs.getDate("bucket_end").toLocalDate());
+            bucket.setHours(rs.getDouble("hours"));
+            bucket.setShiftCount(rs.getInt("shift_count"));
+            double available = availablePerDay * ChronoUnit.DAYS.between(bucket.getBucketStart(), bucket.getBucketEnd());
+            bucket.setAvailableHours(available);
+            if (available > 0) {
+                bucket.setUtilizationRate(bucket.getHours() / available * 100);
+            }
+            return bucket;
+        });
+    }
+    
+    /**
+     * Recompute counters from shifts; returns the number of rows that had drifted
+     * Rows incremented while this runs are skipped rather than overwritten
+     */
+    public int reconcileCounts() {
+        return jdbcTemplate.update(RECONCILE_COUNTS_SQL, new MapSqlParameterSource());
+    }
+    
+    /**
+     * Recompute daily hours of completed shifts from the given date onwards; returns the number of
+     * rows corrected
+     */
+    public int reconcileHours(LocalDate from) {
+        Long corrected = jdbcTemplate.queryForObject(RECONCILE_HOURS_SQL,
+            new MapSqlParameterSource("from", Date.valueOf(from)), Long.class);
+        return corrected != null ? corrected.intValue() : 0;
+    }
+}
\ No newline at end of file
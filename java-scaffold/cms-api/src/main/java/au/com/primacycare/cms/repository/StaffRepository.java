@@ -0,0 +1,70 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.entity.Staff;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Spring Data repository for 'staff' table
+ * Mirrors query helpers from server/storage.ts
+ */
+@Repository
+public interface StaffRepository extends JpaRepository<Staff, String> {
+    
+    Page<Staff> findByDepartment(String department, Pageable pageable);
+    
+    boolean existsByEmail(String email);
+    
+    /**
+     * Set staff.base_rate, the hourly rate payroll runs price shifts at (see V012)
+     * Flushes first so a staff member saved in the same transaction is inserted before the update
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE staff SET base_rate = :baseRate WHERE id = CAST(:id AS UUID)", nativeQuery = true)
+    int updateBaseRate(@Param("id") String id, @Param("baseRate") BigDecimal baseRate);
+    
+    /**
+     * Staff with an available slot on the day of week of the given date
+     */
+    @Query("""
+        SELECT DISTINCT s FROM Staff s JOIN s.staffAvailability a
+        WHERE a.dayOfWeek = :#{#date.dayOfWeek.value} AND a.available = true
+        """)
+    List<Staff> findAvailableStaff(@Param("date") LocalDate date);
+    
+    /**
+     * First keyset page, newest first, optionally restricted to a department
+     * Uses idx_staff_created_id
+     */
+    @Query("""
+        SELECT s FROM Staff s
+        WHERE (:department IS NULL OR s.department = :department)
+        ORDER BY s.createdAt DESC, s.id DESC
+        """)
+    List<Staff> findFirstKeysetPage(@Param("department") String department, Pageable limit);
+    
+    /**
+     * Keyset page strictly after (createdAt, id)
+     */
+    @Query("""
+        SELECT s FROM Staff s
+        WHERE (:department IS NULL OR s.department = :department)
+          AND (s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id))
+        ORDER BY s.createdAt DESC, s.id DESC
+        """)
+    List<Staff> findKeysetPageAfter(
+        @Param("department") String department,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") String id,
+        Pageable limit);
+}
\ No newline at end of file
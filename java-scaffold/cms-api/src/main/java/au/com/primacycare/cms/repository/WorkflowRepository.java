@@ -0,0 +1,189 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.dto.ReferralDto;
+import au.com.primacycare.cms.dto.WorkflowHistoryDto;
+import au.com.primacycare.cms.workflow.WorkflowSubject;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * workflows / workflow_history (see V016)
+ * Stage changes are conditional on the version read and history rows are only ever inserted
+ */
+@Repository
+public class WorkflowRepository {
+    
+    /**
+     * Idempotent: a subject that already has a workflow keeps it, and gets no second history row
+     */
+    private static final String INITIALIZE_SQL = """
+        WITH created AS (
+            INSERT INTO workflows (subject_type, subject_id, stage, version, updated_by, created_at, updated_at)
+            VALUES (:subjectType, CAST(:subjectId AS UUID), :stage, 0, :performedBy, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+            ON CONFLICT (subject_type, subject_id) DO NOTHING
+            RETURNING id, stage
+        )
+        INSERT INTO workflow_history (workflow_id, version, stage, performed_by, notes, automated, created_at)
+        SELECT id, 0, stage, :performedBy, :notes, :automated, CURRENT_TIMESTAMP FROM created
+        """;
+    
+    private static final String FIND_SQL = """
+        SELECT CAST(id AS VARCHAR) AS id, CAST(subject_id AS VARCHAR) AS subject_id, stage, version,
+               updated_by, updated_at
+        FROM workflows
+        WHERE subject_type = :subjectType AND subject_id IN (:subjectIds)
+        """;
+    
+    private static final String ADVANCE_SQL = """
+        UPDATE workflows
+        SET stage = :stage, version = version + 1, updated_by = :performedBy, updated_at = CURRENT_TIMESTAMP
+        WHERE id = CAST(:id AS UUID) AND version = :version
+        """;
+    
+    private static final String APPEND_HISTORY_SQL = """
+        INSERT INTO workflow_history (workflow_id, version, from_stage, stage, performed_by, notes, automated, created_at)
+        VALUES (CAST(:workflowId AS UUID), :version, :fromStage, :stage, :performedBy, :notes, :automated, CURRENT_TIMESTAMP)
+        """;
+    
+    private static final String HISTORY_SQL = """
+        SELECT CAST(id AS VARCHAR) AS id, version, from_stage, stage, performed_by, notes, automated, created_at
+        FROM workflow_history
+        WHERE workflow_id = CAST(:workflowId AS UUID)
+        ORDER BY version
+        """;
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public WorkflowRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /**
+     * Start workflows for the subjects that have none
+     *
+     * @return the subject IDs whose workflow was started here, in the order given
+     */
+    public List<String> initialize(WorkflowSubject subject, Collection<String> subjectIds,
+                                   ReferralDto.WorkflowStageEnum stage, String performedBy, String notes) {
+        if (subjectIds.isEmpty()) {
+            return List.of();
+        }
+        List<String> ids = List.copyOf(subjectIds);
+        // One history row per workflow created, none for a subject that already had one
+        int[] counts = jdbcTemplate.batchUpdate(INITIALIZE_SQL, ids.stream()
+            .map(subjectId -> new MapSqlParameterSource()
+                .addValue("subjectType", subject.getCode())
+                .addValue("subjectId", subjectId)
+                .addValue("stage", stage.name())
+                .addValue("performedBy", performedBy)
+                .addValue("notes", notes)
+                .addValue("automated", true))
+            .toArray(SqlParameterSource[]::new));
+        List<String> started = new ArrayList<>(ids.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                started.add(ids.get(i));
+            }
+        }
+        return started;
+    }
+    
+    /**
+     * Current state by subject ID; subjects without a workflow are absent
+     */
+    public Map<String, WorkflowState> findStates(WorkflowSubject subject, Collection<String> subjectIds) {
+        if (subjectIds.isEmpty()) {
+            return Map.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("subjectType", subject.getCode())
+            .addValue("subjectIds", subjectIds.stream().map(UUID::fromString).toList());
+        Map<String, WorkflowState> states = new HashMap<>(subjectIds.size() * 2);
+        jdbcTemplate.query(FIND_SQL, params, rs -> {
+            Timestamp updatedAt = rs.getTimestamp("updated_at");
+            states.put(rs.getString("subject_id"), new WorkflowState(
+                rs.getString("id"),
+                rs.getString("subject_id"),
+                ReferralDto.WorkflowStageEnum.valueOf(rs.getString("stage")),
+                rs.getInt("version"),
+                rs.getString("updated_by"),
+                updatedAt != null ? updatedAt.toLocalDateTime() : null));
+        });
+        return states;
+    }
+    
+    /**
+     * Move each workflow to its new stage if it is still at the version read
+     *
+     * @return per advance, whether it applied; false means another transition got there first
+     */
+    public boolean[] advance(List<Advance> advances) {
+        boolean[] applied = new boolean[advances.size()];
+        if (advances.isEmpty()) {
+            return applied;
+        }
+        int[] counts = jdbcTemplate.batchUpdate(ADVANCE_SQL, advances.stream()
+            .map(advance -> new MapSqlParameterSource()
+                .addValue("id", advance.workflowId())
+                .addValue("version", advance.version())
+                .addValue("stage", advance.to().name())
+                .addValue("performedBy", advance.performedBy()))
+            .toArray(SqlParameterSource[]::new));
+        for (int i = 0; i < counts.length; i++) {
+            applied[i] = counts[i] > 0;
+        }
+        return applied;
+    }
+    
+    /**
+     * History rows for applied advances, each recorded at the version it produced
+     */
+    public void appendHistory(List<Advance> advances, String notes, boolean automated) {
+        if (advances.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(APPEND_HISTORY_SQL, advances.stream()
+            .map(advance -> new MapSqlParameterSource()
+                .addValue("workflowId", advance.workflowId())
+                .addValue("version", advance.version() + 1)
+                .addValue("fromStage", advance.from().name())
+                .addValue("stage", advance.to().name())
+                .addValue("performedBy", advance.performedBy())
+                .addValue("notes", notes)
+                .addValue("automated", automated))
+            .toArray(SqlParameterSource[]::new));
+    }
+    
+    public List<WorkflowHistoryDto> findHistory(String workflowId) {
+        return jdbcTemplate.query(HISTORY_SQL, new MapSqlParameterSource("workflowId", workflowId), (rs, rowNum) -> {
+            WorkflowHistoryDto history = new WorkflowHistoryDto();
+            history.setId(rs.getString("id"));
+            history.setVersion(rs.getInt("version"));
+            String fromStage = rs.getString("from_stage");
+            history.setFromStage(fromStage != null ? ReferralDto.WorkflowStageEnum.valueOf(fromStage) : null);
+            history.setStage(ReferralDto.WorkflowStageEnum.valueOf(rs.getString("stage")));
+            history.setPerformedBy(rs.getString("performed_by"));
+            history.setNotes(rs.getString("notes"));
+            history.setAutomated(rs.getBoolean("automated"));
+            history.setTimestamp(rs.getTimestamp("created_at").toLocalDateTime());
+            return history;
+        });
+    }
+    
+    public record WorkflowState(String workflowId, String subjectId, ReferralDto.WorkflowStageEnum stage, int version,
+                                String updatedBy, LocalDateTime updatedAt) {
+    }
+    
+    /**
+     * @param version the version the transition was checked against
+     */
+    public record Advance(String workflowId, int version, ReferralDto.WorkflowStageEnum from,
+                          ReferralDto.WorkflowStageEnum to, String performedBy) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package au.com.primacycare.cms.scheduling;
+
+/**
+ * Two shifts of one staff member that overlap or leave less than the minimum rest between days
+ *
+ * @param gapMinutes minutes from the end of the first shift to the start of the second; negative when they overlap
+ */
+public record ShiftConflict(
+        String staffId,
+        String shiftId,
+        String conflictingShiftId,
+        Type type,
+        int shiftStart,
+        int conflictingShiftStart,
+        int gapMinutes) {
+    
+    public enum Type {
+        OVERLAP,
+        REST_PERIOD
+    }
+}
\ No newline at end of file
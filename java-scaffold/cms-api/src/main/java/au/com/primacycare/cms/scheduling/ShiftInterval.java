@@ -0,0 +1,35 @@
+package au.com.primacycare.cms.scheduling;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Comparator;
+
+/**
+ * One shift as a half-open interval of epoch minutes
+ * Overnight shifts (end time before start time) end on the following day, as in ServiceMapper.calculateDuration
+ */
+public record ShiftInterval(String shiftId, int start, int end) {
+    
+    static final Comparator<ShiftInterval> BY_START = Comparator.comparingInt(ShiftInterval::start)
+        .thenComparingInt(ShiftInterval::end);
+    
+    public static ShiftInterval of(String shiftId, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        int start = epochMinute(date, startTime);
+        int end = epochMinute(date, endTime);
+        if (end < start) {
+            end += StaffShiftIntervals.MINUTES_PER_DAY;
+        }
+        return new ShiftInterval(shiftId, start, end);
+    }
+    
+    static int epochMinute(LocalDate date, LocalTime time) {
+        return Math.toIntExact(date.toEpochDay() * StaffShiftIntervals.MINUTES_PER_DAY + time.toSecondOfDay() / 60);
+    }
+    
+    public static LocalDateTime toDateTime(int epochMinute) {
+        return LocalDateTime.of(
+            LocalDate.ofEpochDay(Math.floorDiv(epochMinute, StaffShiftIntervals.MINUTES_PER_DAY)),
+            LocalTime.ofSecondOfDay(Math.floorMod(epochMinute, StaffShiftIntervals.MINUTES_PER_DAY) * 60L));
+    }
+}
\ No newline at end of file
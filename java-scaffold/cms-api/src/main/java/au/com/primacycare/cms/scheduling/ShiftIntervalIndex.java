@@ -0,0 +1,187 @@
+package au.com.primacycare.cms.scheduling;
+
+import au.com.primacycare.cms.event.ShiftChangedEvent;
+import au.com.primacycare.cms.repository.ShiftIntervalRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-staff interval index of booked shifts for conflict detection
+ * Replaces the stubbed StaffService.hasConflictingShift and a query per availability row
+ *
+ * Covers a rolling horizon of app.shift-index.lookback-days before today to lookahead-days
+ * after. Shift writes are applied after commit from ShiftChangedEvent; a periodic rebuild rolls
+ * the horizon forward and picks up writes made outside this app. Changes that arrive while a
+ * rebuild is loading are replayed onto the new horizon when it is swapped in, as the load may
+ * have read the shifts before they committed. Questions about dates outside the horizon are
+ * answered from a one-off load instead.
+ */
+@Component
+@Slf4j
+public class ShiftIntervalIndex {
+    
+    private static final String CANCELLED = "Cancelled";
+    
+    private final ShiftIntervalRepository shiftIntervalRepository;
+    private final Timer rebuildTimer;
+    private final int lookbackDays;
+    private final int lookaheadDays;
+    private final int minRestMinutes;
+    
+    private volatile Horizon horizon = new Horizon(LocalDate.MAX, LocalDate.MIN, new ConcurrentHashMap<>());
+    
+    /** Guards applying changes against the swap, and pendingChanges */
+    private final Object changeLock = new Object();
+    
+    /** Changes seen since the running rebuild started loading; null when no rebuild is running */
+    private List<ShiftChangedEvent> pendingChanges;
+    
+    public ShiftIntervalIndex(ShiftIntervalRepository shiftIntervalRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.shift-index.lookback-days:35}") int lookbackDays,
+                              @Value("${app.shift-index.lookahead-days:180}") int lookaheadDays,
+                              @Value("${app.roster.min-rest-hours:11}") int minRestHours) {
+        this.shiftIntervalRepository = shiftIntervalRepository;
+        this.lookbackDays = lookbackDays;
+        this.lookaheadDays = lookaheadDays;
+        this.minRestMinutes = minRestHours * 60;
+        this.rebuildTimer = Timer.builder("cms.shift.index.rebuild")
+            .description("Time to reload the shift conflict index")
+            .register(meterRegistry);
+        meterRegistry.gauge("cms.shift.index.staff", this, index -> index.horizon.byStaff().size());
+    }
+    
+    /**
+     * Whether [startTime, endTime) on date overlaps another booked shift of the staff member,
+     * or falls inside the minimum rest period of a shift on another day
+     *
+     * @param excludeShiftId a shift to ignore, so a shift can be checked against its own staff member; may be null
+     */
+    public boolean hasConflict(String staffId, LocalDate date, LocalTime startTime, LocalTime endTime, String excludeShiftId) {
+        ShiftInterval interval = ShiftInterval.of(null, date, startTime, endTime);
+        StaffShiftIntervals intervals = intervalsFor(staffId, date);
+        return intervals.overlaps(interval.start(), interval.end(), excludeShiftId)
+            || intervals.violatesRest(interval.start(), interval.end(), minRestMinutes, excludeShiftId);
+    }
+    
+    /**
+     * Every overlap and rest-period breach involving a shift dated between from and to inclusive, across all staff
+     */
+    public List<ShiftConflict> findConflicts(LocalDate from, LocalDate to) {
+        Horizon current = horizon;
+        Map<String, StaffShiftIntervals> byStaff = current.covers(from.minusDays(2), to.plusDays(1))
+            ? current.byStaff()
+            : load(null, from.minusDays(2), to.plusDays(1));
+        
+        int fromMinute = ShiftInterval.epochMinute(from, LocalTime.MIDNIGHT);
+        int toMinute = ShiftInterval.epochMinute(to.plusDays(1), LocalTime.MIDNIGHT);
+        List<ShiftConflict> conflicts = new ArrayList<>();
+        byStaff.forEach((staffId, intervals) ->
+            intervals.collectConflicts(staffId, fromMinute, toMinute, minRestMinutes, conflicts));
+        conflicts.sort(Comparator.comparingInt(ShiftConflict::shiftStart).thenComparing(ShiftConflict::staffId));
+        return conflicts;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+    
+    @Scheduled(fixedDelayString = "${app.shift-index.refresh-interval:900000}", initialDelayString = "${app.shift-index.refresh-interval:900000}")
+    public void refresh() {
+        rebuild();
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onShiftChanged(ShiftChangedEvent event) {
+        synchronized (changeLock) {
+            if (pendingChanges != null) {
+                pendingChanges.add(event);
+            }
+            apply(horizon, event);
+        }
+    }
+    
+    synchronized void rebuild() {
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(lookbackDays);
+        LocalDate to = today.plusDays(lookaheadDays);
+        rebuildTimer.record(() -> {
+            synchronized (changeLock) {
+                pendingChanges = new ArrayList<>();
+            }
+            Horizon rebuilt = null;
+            try {
+                rebuilt = new Horizon(from, to, new ConcurrentHashMap<>(load(null, from, to)));
+            } finally {
+                synchronized (changeLock) {
+                    if (rebuilt != null) {
+                        // Applying a change the load already saw leaves the same intervals
+                        for (ShiftChangedEvent change : pendingChanges) {
+                            apply(rebuilt, change);
+                        }
+                        horizon = rebuilt;
+                    }
+                    pendingChanges = null;
+                }
+            }
+        });
+        log.info("Shift conflict index rebuilt for {} staff, {} to {}", horizon.byStaff().size(), from, to);
+    }
+    
+    private static void apply(Horizon target, ShiftChangedEvent event) {
+        ShiftChangedEvent.State before = event.before();
+        ShiftChangedEvent.State after = event.after();
+        Map<String, StaffShiftIntervals> byStaff = target.byStaff();
+        if (before != null && before.staffId() != null) {
+            byStaff.computeIfPresent(before.staffId(), (id, intervals) -> intervals.without(event.shiftId()));
+        }
+        if (after != null && after.staffId() != null && !CANCELLED.equals(after.status())
+                && after.startTime() != null && after.endTime() != null && target.covers(after.shiftDate(), after.shiftDate())) {
+            ShiftInterval interval = ShiftInterval.of(event.shiftId(), after.shiftDate(), after.startTime(), after.endTime());
+            byStaff.merge(after.staffId(), StaffShiftIntervals.EMPTY.with(interval),
+                (current, added) -> current.with(interval));
+        }
+    }
+    
+    /**
+     * A day either side of the date, for overnight shifts and rest periods
+     */
+    private StaffShiftIntervals intervalsFor(String staffId, LocalDate date) {
+        Horizon current = horizon;
+        if (current.covers(date.minusDays(1), date.plusDays(1))) {
+            return current.byStaff().getOrDefault(staffId, StaffShiftIntervals.EMPTY);
+        }
+        return load(staffId, date.minusDays(1), date.plusDays(1)).getOrDefault(staffId, StaffShiftIntervals.EMPTY);
+    }
+    
+    private Map<String, StaffShiftIntervals> load(String staffId, LocalDate from, LocalDate to) {
+        Map<String, StaffShiftIntervals> byStaff = new HashMap<>();
+        shiftIntervalRepository.findIntervals(staffId, from, to)
+            .forEach((id, intervals) -> byStaff.put(id, StaffShiftIntervals.of(intervals)));
+        return byStaff;
+    }
+    
+    /**
+     * Indexed date range (inclusive) and its per-staff intervals
+     */
+    private record Horizon(LocalDate from, LocalDate to, Map<String, StaffShiftIntervals> byStaff) {
+        
+        boolean covers(LocalDate start, LocalDate end) {
+            return !start.isBefore(from) && !end.isAfter(to);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+package au.com.primacycare.cms.scheduling;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable interval set of one staff member's shifts, in epoch minutes
+ *
+ * Intervals are sorted by start with a running maximum of end times, which makes this a
+ * flattened interval tree: "does anything overlap [s, e)" is one binary search for the last
+ * start before e and one look at the maximum end up to there. The same trick answers the
+ * latest end before a day and the first start after a day for rest-gap checks.
+ * Updates copy the arrays; one staff member holds a few hundred shifts in the index horizon.
+ */
+final class StaffShiftIntervals {
+    
+    static final int MINUTES_PER_DAY = 1440;
+    
+    static final StaffShiftIntervals EMPTY = new StaffShiftIntervals(new String[0], new int[0], new int[0]);
+    
+    private final String[] shiftIds;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] maxEnds;
+    
+    private StaffShiftIntervals(String[] shiftIds, int[] starts, int[] ends) {
+        this.shiftIds = shiftIds;
+        this.starts = starts;
+        this.ends = ends;
+        this.maxEnds = new int[starts.length];
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < starts.length; i++) {
+            max = Math.max(max, ends[i]);
+            maxEnds[i] = max;
+        }
+    }
+    
+    /**
+     * Build from unsorted intervals
+     */
+    static StaffShiftIntervals of(List<ShiftInterval> intervals) {
+        ShiftInterval[] sorted = intervals.toArray(ShiftInterval[]::new);
+        Arrays.sort(sorted, ShiftInterval.BY_START);
+        String[] ids = new String[sorted.length];
+        int[] starts = new int[sorted.length];
+        int[] ends = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            ids[i] = sorted[i].shiftId();
+            starts[i] = sorted[i].start();
+            ends[i] = sorted[i].end();
+        }
+        return new StaffShiftIntervals(ids, starts, ends);
+    }
+    
+    int size() {
+        return starts.length;
+    }
+    
+    StaffShiftIntervals with(ShiftInterval interval) {
+        StaffShiftIntervals base = without(interval.shiftId());
+        int position = base.upperBound(interval.start());
+        int n = base.starts.length;
+        String[] ids = new String[n + 1];
+        int[] starts = new int[n + 1];
+        int[] ends = new int[n + 1];
+        System.arraycopy(base.shiftIds, 0, ids, 0, position);
+        System.arraycopy(base.starts, 0, starts, 0, position);
+        System.arraycopy(base.ends, 0, ends, 0, position);
+        ids[position] = interval.shiftId();
+        starts[position] = interval.start();
+        ends[position] = interval.end();
+        System.arraycopy(base.shiftIds, position, ids, position + 1, n - position);
+        System.arraycopy(base.starts, position, starts, position + 1, n - position);
+        System.arraycopy(base.ends, position, ends, position + 1, n - position);
+        return new StaffShiftIntervals(ids, starts, ends);
+    }
+    
+    StaffShiftIntervals without(String shiftId) {
+        for (int i = 0; i < shiftIds.length; i++) {
+            if (shiftIds[i].equals(shiftId)) {
+                int n = shiftIds.length - 1;
+                String[] ids = new String[n];
+                int[] starts = new int[n];
+                int[] ends = new int[n];
+                System.arraycopy(shiftIds, 0, ids, 0, i);
+                System.arraycopy(this.starts, 0, starts, 0, i);
+                System.arraycopy(this.ends, 0, ends, 0, i);
+                System.arraycopy(shiftIds, i + 1, ids, i, n - i);
+                System.arraycopy(this.starts, i + 1, starts, i, n - i);
+                System.arraycopy(this.ends, i + 1, ends, i, n - i);
+                return new StaffShiftIntervals(ids, starts, ends);
+            }
+        }
+        return this;
+    }
+    
+    /**
+     * Whether any shift other than excludeShiftId overlaps [start, end)
+     * O(log n) unless the only overlapping shift is the excluded one
+     */
+    boolean overlaps(int start, int end, String excludeShiftId) {
+        int last = upperBound(end - 1) - 1;
+        if (last < 0 || maxEnds[last] <= start) {
+            return false;
+        }
+        if (excludeShiftId == null) {
+            return true;
+        }
+        for (int i = last; i >= 0 && maxEnds[i] > start; i--) {
+            if (ends[i] > start && starts[i] < end && !shiftIds[i].equals(excludeShiftId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Whether [start, end) falls within minRestMinutes of a shift that starts on another day
+     * Shifts on the same day as start (split shifts) are not subject to the rest period
+     */
+    boolean violatesRest(int start, int end, int minRestMinutes, String excludeShiftId) {
+        int dayStart = Math.floorDiv(start, MINUTES_PER_DAY) * MINUTES_PER_DAY;
+        
+        // Shifts that started on earlier days, walking back only while the running maximum end is close enough
+        for (int i = lowerBound(dayStart) - 1; i >= 0 && maxEnds[i] > start - minRestMinutes; i--) {
+            if (ends[i] > start - minRestMinutes && !shiftIds[i].equals(excludeShiftId)) {
+                return true;
+            }
+        }
+        
+        // Shifts on later days, in start order
+        for (int i = lowerBound(dayStart + MINUTES_PER_DAY); i < starts.length && starts[i] < end + minRestMinutes; i++) {
+            if (!shiftIds[i].equals(excludeShiftId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Overlaps and rest-period breaches involving a shift that starts in [from, to), each pair reported once
+     * A shift lasts at most a day, so partners can start no earlier than a day plus the rest period before from
+     */
+    void collectConflicts(String staffId, int from, int to, int minRestMinutes, List<ShiftConflict> conflicts) {
+        for (int i = lowerBound(from - MINUTES_PER_DAY - minRestMinutes); i < starts.length && starts[i] < to; i++) {
+            int day = Math.floorDiv(starts[i], MINUTES_PER_DAY);
+            for (int j = i + 1; j < starts.length && starts[j] < ends[i] + minRestMinutes; j++) {
+                if (starts[i] < from && starts[j] < from || starts[j] >= to && starts[i] >= to) {
+                    continue;
+                }
+                if (starts[j] < ends[i]) {
+                    conflicts.add(new ShiftConflict(staffId, shiftIds[i], shiftIds[j], ShiftConflict.Type.OVERLAP,
+                        starts[i], starts[j], starts[j] - ends[i]));
+                } else if (Math.floorDiv(starts[j], MINUTES_PER_DAY) != day) {
+                    conflicts.add(new ShiftConflict(staffId, shiftIds[i], shiftIds[j], ShiftConflict.Type.REST_PERIOD,
+                        starts[i], starts[j], starts[j] - ends[i]));
+                }
+            }
+        }
+    }
+    
+    /**
+     * First index whose start is >= value
+     */
+    private int lowerBound(int value) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * First index whose start is > value
+     */
+    private int upperBound(int value) {
+        return lowerBound(value + 1);
+    }
+}
\ No newline at end of file
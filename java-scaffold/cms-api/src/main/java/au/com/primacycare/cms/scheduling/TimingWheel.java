@@ -0,0 +1,180 @@
+package au.com.primacycare.cms.scheduling;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for many long-lived timers
+ *
+ * Five levels of 64 slots: level 0 holds timers due in the current 64 ticks, level 1 those due
+ * within 64^2 ticks, and so on, so one-second ticks cover about 34 years. A timer sits in the
+ * level of the highest tick digit where its expiry differs from the current tick, and moves down
+ * a level each time the wheel reaches that digit. Scheduling and cancelling are O(1) and each
+ * tick only touches the timers that are due or moving down, however many are pending.
+ * Timers later than the top level are parked in it and re-placed once per top-level rotation.
+ *
+ * Not thread-safe: one thread schedules, cancels and advances.
+ */
+public final class TimingWheel<T> {
+    
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 5;
+    
+    private final long tickMillis;
+    private final long originMillis;
+    private final Timer<T>[][] slots;
+    private long currentTick;
+    private int size;
+    
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.originMillis = nowMillis;
+        this.slots = new Timer[LEVELS][SLOTS];
+    }
+    
+    /**
+     * A deadline already passed fires on the next tick
+     */
+    public Timer<T> schedule(T payload, long deadlineMillis) {
+        long tick = Math.floorDiv(deadlineMillis - originMillis + tickMillis - 1, tickMillis);
+        Timer<T> timer = new Timer<>(payload, tick);
+        place(timer, Math.max(tick, currentTick + 1));
+        size++;
+        return timer;
+    }
+    
+    /**
+     * @return false if the timer had already fired or been cancelled
+     */
+    public boolean cancel(Timer<T> timer) {
+        if (timer.level < 0) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+    
+    /**
+     * Move the wheel on to a time, handing every timer due by then to the consumer
+     *
+     * @return the number of timers that fired
+     */
+    public int advanceTo(long nowMillis, Consumer<T> expired) {
+        long target = Math.floorDiv(nowMillis - originMillis, tickMillis);
+        int fired = 0;
+        while (currentTick < target) {
+            currentTick++;
+            // Higher levels first, so their timers can land in a lower slot reached at this same tick
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    Timer<T> timer = detach(level, digit(currentTick, level));
+                    while (timer != null) {
+                        Timer<T> next = timer.next;
+                        place(timer, timer.expiryTick);
+                        timer = next;
+                    }
+                }
+            }
+            Timer<T> timer = detach(0, digit(currentTick, 0));
+            while (timer != null) {
+                Timer<T> next = timer.next;
+                if (timer.expiryTick <= currentTick) {
+                    size--;
+                    fired++;
+                    expired.accept(timer.payload);
+                } else {
+                    place(timer, timer.expiryTick);
+                }
+                timer = next;
+            }
+        }
+        return fired;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public long tickMillis() {
+        return tickMillis;
+    }
+    
+    /**
+     * Put a timer in the slot for its expiry relative to the current tick
+     * An expiry at or before the current tick goes in the current level 0 slot
+     */
+    private void place(Timer<T> timer, long expiry) {
+        long effective = Math.max(expiry, currentTick);
+        long differing = effective ^ currentTick;
+        int level = differing == 0 ? 0 : Math.min((63 - Long.numberOfLeadingZeros(differing)) / SLOT_BITS, LEVELS - 1);
+        int slot = digit(effective, level);
+        Timer<T> head = slots[level][slot];
+        timer.level = level;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = head;
+        if (head != null) {
+            head.prev = timer;
+        }
+        slots[level][slot] = timer;
+    }
+    
+    private void unlink(Timer<T> timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            slots[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.level = -1;
+    }
+    
+    /**
+     * Empty a slot, returning its timers as a list linked through next
+     */
+    private Timer<T> detach(int level, int slot) {
+        Timer<T> head = slots[level][slot];
+        slots[level][slot] = null;
+        for (Timer<T> timer = head; timer != null; timer = timer.next) {
+            timer.level = -1;
+        }
+        return head;
+    }
+    
+    private static int digit(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+    
+    public static final class Timer<T> {
+        
+        private final T payload;
+        private final long expiryTick;
+        private Timer<T> prev;
+        private Timer<T> next;
+        private int level = -1;
+        private int slot;
+        
+        private Timer(T payload, long expiryTick) {
+            this.payload = payload;
+            this.expiryTick = expiryTick;
+        }
+        
+        public T payload() {
+            return payload;
+        }
+        
+        public boolean isPending() {
+            return level >= 0;
+        }
+    }
+}
\ No newline at end of file
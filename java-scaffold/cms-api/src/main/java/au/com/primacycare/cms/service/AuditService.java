@@ -0,0 +1,223 @@
+package au.com.primacycare.cms.service;
+
+import au.com.primacycare.cms.audit.AuditEvent;
+import au.com.primacycare.cms.audit.AuditSnapshots;
+import au.com.primacycare.cms.audit.AuditWriter;
+import au.com.primacycare.cms.dto.AuditDto;
+import au.com.primacycare.cms.dto.CursorPageDto;
+import au.com.primacycare.cms.exception.InvalidRequestException;
+import au.com.primacycare.cms.repository.AuditRepository;
+import au.com.primacycare.cms.repository.KeysetCursor;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Audit trail for entity changes
+ * Mirrors: server/storage.ts createAudit()
+ *
+ * Events raised in a transaction are written to the audit outbox just before it commits, in that
+ * transaction, so a rolled-back change never leaves an audit row and a crash after commit cannot
+ * lose one. Setting app.audit.write-ahead to false hands them to AuditWriter's in-memory buffer
+ * after commit instead, which keeps the insert out of the business transaction but can lose up to
+ * queue-capacity events on a crash.
+ */
+@Service
+@Slf4j
+public class AuditService {
+    
+    private final AuditWriter auditWriter;
+    private final AuditRepository auditRepository;
+    private final boolean enabled;
+    private final boolean writeAhead;
+    private final int maxPageSize;
+    private final Duration maxQueryRange;
+    
+    public AuditService(AuditWriter auditWriter,
+                        AuditRepository auditRepository,
+                        @Value("${app.audit.enabled:true}") boolean enabled,
+                        @Value("${app.audit.write-ahead:true}") boolean writeAhead,
+                        @Value("${app.pagination.max-size:200}") int maxPageSize,
+                        @Value("${app.audit.query.max-range-days:366}") long maxQueryRangeDays) {
+        this.auditWriter = auditWriter;
+        this.auditRepository = auditRepository;
+        this.enabled = enabled;
+        this.writeAhead = writeAhead;
+        this.maxPageSize = maxPageSize;
+        this.maxQueryRange = Duration.ofDays(maxQueryRangeDays);
+    }
+    
+    /**
+     * Query the audit trail by entity and/or user within a mandatory [from, to) window
+     * The window is what bounds the number of partitions scanned, so it cannot be open-ended
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDto<AuditDto> getAudits(LocalDateTime from, LocalDateTime to, String entityType,
+                                             String entityId, String userId, String cursor, int size) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new InvalidRequestException("Audit queries require from < to");
+        }
+        if (Duration.between(from, to).compareTo(maxQueryRange) > 0) {
+            throw new InvalidRequestException("Audit query range exceeds " + maxQueryRange.toDays() + " days");
+        }
+        if (entityId != null && entityType == null) {
+            throw new InvalidRequestException("entityId requires entityType");
+        }
+        int limit = Math.max(1, Math.min(size, maxPageSize));
+        List<AuditDto> rows = auditRepository.find(from, to, entityType, entityId, userId,
+            KeysetCursor.decode(cursor), limit);
+        return KeysetCursor.toPage(rows, limit, audit -> audit, AuditDto::getTimestamp, AuditDto::getId);
+    }
+    
+    /**
+     * Capture the auditable column values of an entity before it is modified
+     */
+    public Map<String, Object> snapshot(Object entity) {
+        return AuditSnapshots.snapshot(entity);
+    }
+    
+    public void logCreate(String entityType, String entityId, Object entity) {
+        record(entityType, entityId, "CREATE", null, AuditSnapshots.snapshot(entity));
+    }
+    
+    /**
+     * For bulk imports, attributed to the user who uploaded the file
+     */
+    public void logCreate(String entityType, String entityId, String userId, Object entity) {
+        record(entityType, entityId, "CREATE", null, AuditSnapshots.snapshot(entity), userId);
+    }
+    
+    /**
+     * Records only the fields that changed; an update that changed nothing is not audited
+     */
+    public void logUpdate(String entityType, String entityId, Map<String, Object> before, Object after) {
+        AuditSnapshots.Diff diff = AuditSnapshots.diff(before, AuditSnapshots.snapshot(after));
+        if (diff.isEmpty()) {
+            return;
+        }
+        record(entityType, entityId, "UPDATE", diff.oldValues(), diff.newValues());
+    }
+    
+    public void logDelete(String entityType, String entityId, Object entity) {
+        record(entityType, entityId, "DELETE", AuditSnapshots.snapshot(entity), null);
+    }
+    
+    public void logStaffOnboarded(String staffId, String userId, Object staff) {
+        record("staff", staffId, "ONBOARD", null, AuditSnapshots.snapshot(staff), userId);
+    }
+    
+    public void logPayrollCalculated(String staffId, Object payroll) {
+        record("payroll", staffId, "CALCULATE", null, AuditSnapshots.snapshot(payroll));
+    }
+    
+    /**
+     * For payroll runs, whose workers have no security context of their own
+     */
+    public void logPayrollCalculated(String staffId, String userId, Object payroll) {
+        record("payroll", staffId, "CALCULATE", null, AuditSnapshots.snapshot(payroll), userId);
+    }
+    
+    /**
+     * For billing runs, whose workers have no security context of their own
+     */
+    public void logInvoiceCreated(String invoiceId, String userId, Object invoice) {
+        record("invoice", invoiceId, "CREATE", null, AuditSnapshots.snapshot(invoice), userId);
+    }
+    
+    private void record(String entityType, String entityId, String action,
+                        Map<String, Object> oldValues, Map<String, Object> newValues) {
+        record(entityType, entityId, action, oldValues, newValues, SecurityUtils.getCurrentUserId());
+    }
+    
+    private void record(String entityType, String entityId, String action,
+                        Map<String, Object> oldValues, Map<String, Object> newValues, String userId) {
+        if (!enabled) {
+            return;
+        }
+        HttpServletRequest request = currentRequest();
+        AuditEvent event = new AuditEvent(
+            entityType,
+            entityId,
+            action,
+            userId,
+            LocalDateTime.now(),
+            oldValues,
+            newValues,
+            request != null ? request.getRemoteAddr() : null,
+            request != null ? request.getHeader("User-Agent") : null);
+        
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            auditWriter.submit(List.of(event));
+            return;
+        }
+        pendingEvents().add(event);
+    }
+    
+    /**
+     * Events raised in the current transaction, flushed together at commit
+     *
+     * The list is unbound while the transaction is suspended, so a REQUIRES_NEW transaction
+     * started inside it collects, and commits or discards, its own events.
+     */
+    private List<AuditEvent> pendingEvents() {
+        @SuppressWarnings("unchecked")
+        List<AuditEvent> pending = (List<AuditEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        List<AuditEvent> events = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, events);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (writeAhead) {
+                    // Same connection and transaction as the change itself: survives a crash after commit
+                    auditWriter.writeOutbox(events);
+                }
+            }
+            
+            @Override
+            public void afterCommit() {
+                if (!writeAhead) {
+                    auditWriter.submit(events);
+                }
+            }
+            
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(AuditService.this);
+            }
+            
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(AuditService.this, events);
+            }
+            
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(AuditService.this);
+            }
+        });
+        return events;
+    }
+    
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servletAttributes
+            ? servletAttributes.getRequest()
+            : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,308 @@
+package au.com.primacycare.cms.service;
+
+import au.com.primacycare.cms.batch.PartitionedRunner;
+import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.exception.InvalidRequestException;
+import au.com.primacycare.cms.mapper.ServiceMapper;
+import au.com.primacycare.cms.money.Money;
+import au.com.primacycare.cms.repository.BillingRunRepository;
+import au.com.primacycare.cms.repository.PartitionedRunRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Billing runs: invoices for every participant's delivered services in a billing period
+ * Replaces finance building invoices participant by participant
+ *
+ * A run splits participants into partitions of consecutive IDs (app.billing.run.partition-size)
+ * that a PartitionedRunner works through. Each partition streams its uninvoiced services grouped by
+ * participant and plan, prices them with ServiceMapper and writes one invoice per participant and
+ * plan. Invoices and lines are written in batches of app.billing.run.chunk-size, each batch taking
+ * its invoice numbers from the database sequence in one round trip, all in one transaction
+ * together with the partition's COMPLETED status. Resuming a run, or starting the same period
+ * again, only picks up partitions that did not complete, and a service already on an invoice
+ * line is never billed again.
+ */
+@Service
+@Slf4j
+public class BillingRunService {
+    
+    private static final int MAX_DESCRIPTION_LENGTH = 500;
+    
+    private final BillingRunRepository billingRunRepository;
+    private final ServiceMapper serviceMapper;
+    private final AuditService auditService;
+    private final TransactionTemplate transactionTemplate;
+    private final PartitionedRunner<BillingRunDto.Partition> runner;
+    
+    @Value("${app.billing.payment-terms-days:14}")
+    private int paymentTermsDays;
+    
+    @Value("${app.billing.run.partition-size:500}")
+    private int partitionSize;
+    
+    @Value("${app.billing.run.chunk-size:1000}")
+    private int chunkSize;
+    
+    @Value("${app.billing.run.max-period-days:31}")
+    private int maxPeriodDays;
+    
+    public BillingRunService(BillingRunRepository billingRunRepository,
+                             PartitionedRunRepository partitionedRunRepository,
+                             ServiceMapper serviceMapper,
+                             AuditService auditService,
+                             TransactionTemplate transactionTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.billing.run.workers:4}") int workers,
+                             @Value("${app.billing.run.lease-seconds:60}") long leaseSeconds) {
+        this.billingRunRepository = billingRunRepository;
+        this.serviceMapper = serviceMapper;
+        this.auditService = auditService;
+        this.transactionTemplate = transactionTemplate;
+        this.runner = new PartitionedRunner<>("billing", BillingRunRepository.TABLES, partitionedRunRepository,
+            transactionTemplate, meterRegistry, workers, Duration.ofSeconds(leaseSeconds),
+            "Time to price and invoice one billing run partition",
+            BillingRunDto.Partition::getPartitionNo,
+            partition -> partition.getStatus() == BillingRunDto.PartitionStatusEnum.COMPLETED);
+    }
+    
+    /**
+     * Start a billing run for a period, or resume the period's unfinished run
+     */
+    public BillingRunDto startRun(StartBillingRunDto request) {
+        LocalDate periodStart = request.getPeriodStart();
+        LocalDate periodEnd = request.getPeriodEnd();
+        if (periodEnd.isBefore(periodStart)) {
+            throw new InvalidRequestException("Period end must not be before period start");
+        }
+        if (ChronoUnit.DAYS.between(periodStart, periodEnd) >= maxPeriodDays) {
+            throw new InvalidRequestException("Billing period cannot exceed " + maxPeriodDays + " days");
+        }
+        if (!periodEnd.isBefore(LocalDate.now())) {
+            throw new InvalidRequestException("Billing period must end before today: only delivered services are invoiced");
+        }
+        
+        Optional<BillingRunDto> existing = billingRunRepository.findRunByPeriod(periodStart, periodEnd);
+        if (existing.isPresent()) {
+            return resumeRun(existing.get().getId());
+        }
+        
+        String runId = UUID.randomUUID().toString();
+        String createdBy = SecurityUtils.getCurrentUserId();
+        LocalDate issueDate = request.getIssueDate() != null ? request.getIssueDate() : LocalDate.now();
+        LocalDate dueDate = issueDate.plusDays(paymentTermsDays);
+        try {
+            Integer partitions = transactionTemplate.execute(status ->
+                billingRunRepository.insertRun(runId, periodStart, periodEnd, issueDate, dueDate, createdBy, partitionSize));
+            log.info("Billing run {} started for {} to {} by {} with {} partitions",
+                     runId, periodStart, periodEnd, createdBy, partitions);
+        } catch (DuplicateKeyException e) {
+            throw new BusinessRuleException("A billing run for " + periodStart + " to " + periodEnd + " was started concurrently");
+        }
+        submitPending(findRun(runId), createdBy);
+        return getRun(runId);
+    }
+    
+    /**
+     * Re-queue every partition of a run that has not completed
+     */
+    public BillingRunDto resumeRun(String runId) {
+        BillingRunDto run = findRun(runId);
+        if (run.getStatus() == BillingRunDto.StatusEnum.COMPLETED) {
+            throw new BusinessRuleException("Billing run " + runId + " for " + run.getPeriodStart()
+                + " to " + run.getPeriodEnd() + " has already completed");
+        }
+        runner.resume(runId);
+        log.info("Billing run {} resumed by {}", runId, SecurityUtils.getCurrentUserId());
+        submitPending(run, SecurityUtils.getCurrentUserId());
+        return getRun(runId);
+    }
+    
+    public BillingRunDto getRun(String runId) {
+        BillingRunDto run = findRun(runId);
+        run.setPartitions(billingRunRepository.findPartitions(runId));
+        return run;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdown();
+    }
+    
+    private void submitPending(BillingRunDto run, String userId) {
+        runner.submitPending(run.getId(), billingRunRepository.findPartitions(run.getId()),
+            partition -> processPartition(run, partition, userId));
+    }
+    
+    /**
+     * Runs in the partition's transaction
+     */
+    private void processPartition(BillingRunDto run, BillingRunDto.Partition partition, String userId) {
+        BillingRunRepository.PartitionTotals totals = invoice(run, partition, userId);
+        billingRunRepository.completePartition(run.getId(), partition.getPartitionNo(), totals);
+        log.debug("Billing run {} partition {} completed: {} invoices, {} lines, {} unpriced services",
+                  run.getId(), partition.getPartitionNo(), totals.invoiceCount(), totals.lineCount(),
+                  totals.unpricedCount());
+    }
+    
+    /**
+     * One pass over the uninvoiced services of a participant ID range, in participant and plan order
+     * Invoices and their lines are flushed once chunkSize lines are closed, so memory does not grow with the range
+     */
+    private BillingRunRepository.PartitionTotals invoice(BillingRunDto run, BillingRunDto.Partition partition,
+                                                         String userId) {
+        Batch batch = new Batch(run, userId);
+        
+        billingRunRepository.streamBillableServices(partition.getFirstParticipantId(), partition.getEndParticipantId(),
+            run.getPeriodStart(), run.getPeriodEnd(), service -> {
+                long rateCents = serviceMapper.hourlyRateCents(service.itemNumber(), service.scheduledDate(),
+                    service.stateId(), service.regionId(), service.rate());
+                if (rateCents == ServiceMapper.NO_RATE) {
+                    // Left uninvoiced for a later run once it has a rate
+                    batch.unpricedCount++;
+                    return;
+                }
+                if (batch.current == null || !batch.current.isFor(service)) {
+                    batch.close();
+                    if (batch.lines.size() >= chunkSize) {
+                        flush(batch);
+                    }
+                    batch.current = new InvoiceAccumulator(service);
+                }
+                InvoiceAccumulator current = batch.current;
+                long lineTotalCents = serviceMapper.totalCostCents(rateCents, service.scheduledDate(), service.stateId(),
+                    service.rateType(), service.durationMinutes(), service.transportCost());
+                current.lines.add(new BillingRunRepository.InvoiceLineRow(current.invoiceId, current.lines.size() + 1,
+                    service.serviceId(), description(service), service.itemNumber(), service.scheduledDate(),
+                    Money.hoursFromMinutes(service.durationMinutes()), rateCents, lineTotalCents));
+                current.subtotalCents += lineTotalCents;
+            });
+        batch.close();
+        flush(batch);
+        return new BillingRunRepository.PartitionTotals(batch.invoiceCount, batch.lineCount, batch.unpricedCount,
+            batch.subtotalCents, batch.gstCents);
+    }
+    
+    /**
+     * Number and write the closed invoices, then their lines
+     */
+    private void flush(Batch batch) {
+        if (batch.invoices.isEmpty()) {
+            return;
+        }
+        long[] numbers = billingRunRepository.nextInvoiceNumbers(batch.invoices.size());
+        List<BillingRunRepository.InvoiceRow> rows = new ArrayList<>(batch.invoices.size());
+        for (int i = 0; i < numbers.length; i++) {
+            InvoiceAccumulator invoice = batch.invoices.get(i);
+            rows.add(new BillingRunRepository.InvoiceRow(invoice.invoiceId, invoice.participantId, invoice.planId,
+                invoiceNumber(numbers[i]), invoice.subtotalCents, invoice.gstCents));
+        }
+        billingRunRepository.insertInvoices(rows, batch.run.getIssueDate(), batch.run.getDueDate(),
+            InvoiceDto.InvoiceStatusEnum.DRAFT.getDisplayName(), batch.run.getId());
+        billingRunRepository.insertLines(batch.lines);
+        
+        for (BillingRunRepository.InvoiceRow row : rows) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("invoiceNumber", row.invoiceNumber());
+            summary.put("participantId", row.participantId());
+            summary.put("planId", row.planId());
+            summary.put("subtotal", Money.toBigDecimal(row.subtotalCents()));
+            summary.put("gst", Money.toBigDecimal(row.gstCents()));
+            summary.put("total", Money.toBigDecimal(row.subtotalCents() + row.gstCents()));
+            summary.put("runId", batch.run.getId());
+            auditService.logInvoiceCreated(row.id(), batch.userId, summary);
+        }
+        batch.invoices.clear();
+        batch.lines.clear();
+    }
+    
+    private String description(BillingRunRepository.BillableService service) {
+        String description = service.itemNumber() != null
+            ? serviceMapper.getNdisItemDescription(service.itemNumber())
+            : service.serviceType();
+        return description.length() > MAX_DESCRIPTION_LENGTH ? description.substring(0, MAX_DESCRIPTION_LENGTH) : description;
+    }
+    
+    /**
+     * INV-000001; wider once the sequence passes six digits
+     */
+    private static String invoiceNumber(long number) {
+        return String.format("INV-%06d", number);
+    }
+    
+    private BillingRunDto findRun(String runId) {
+        return billingRunRepository.findRun(runId)
+            .orElseThrow(() -> new EntityNotFoundException("Billing run not found: " + runId));
+    }
+    
+    /**
+     * Closed invoices awaiting a flush, the open one, and the partition's running totals
+     */
+    private static final class Batch {
+        
+        final BillingRunDto run;
+        final String userId;
+        final List<InvoiceAccumulator> invoices = new ArrayList<>();
+        final List<BillingRunRepository.InvoiceLineRow> lines = new ArrayList<>();
+        InvoiceAccumulator current;
+        int invoiceCount;
+        int lineCount;
+        int unpricedCount;
+        long subtotalCents;
+        long gstCents;
+        
+        Batch(BillingRunDto run, String userId) {
+            this.run = run;
+            this.userId = userId;
+        }
+        
+        /**
+         * Close the open invoice, with GST once on its subtotal rather than per line
+         */
+        void close() {
+            if (current == null) {
+                return;
+            }
+            current.gstCents = Money.gstCents(current.subtotalCents);
+            invoices.add(current);
+            lines.addAll(current.lines);
+            invoiceCount++;
+            lineCount += current.lines.size();
+            subtotalCents += current.subtotalCents;
+            gstCents += current.gstCents;
+            current = null;
+        }
+    }
+    
+    /**
+     * The invoice of one participant and plan
+     */
+    private static final class InvoiceAccumulator {
+        
+        final String invoiceId = UUID.randomUUID().toString();
+        final String participantId;
+        final String planId;
+        final List<BillingRunRepository.InvoiceLineRow> lines = new ArrayList<>();
+        long subtotalCents;
+        long gstCents;
+        
+        InvoiceAccumulator(BillingRunRepository.BillableService service) {
+            this.participantId = service.participantId();
+            this.planId = service.planId();
+        }
+        
+        boolean isFor(BillingRunRepository.BillableService service) {
+            return service.participantId().equals(participantId) && Objects.equals(service.planId(), planId);
+        }
+    }
+}
\ No newline at end of file
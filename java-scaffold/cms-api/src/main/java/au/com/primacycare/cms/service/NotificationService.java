@@ -0,0 +1,220 @@
+package au.com.primacycare.cms.service;
+
+import au.com.primacycare.cms.dto.ReferralDto;
+import au.com.primacycare.cms.entity.Participant;
+import au.com.primacycare.cms.entity.Staff;
+import au.com.primacycare.cms.notification.Notification;
+import au.com.primacycare.cms.notification.NotificationChannel;
+import au.com.primacycare.cms.notification.NotificationDispatcher;
+import au.com.primacycare.cms.repository.NotificationOutboxRepository;
+import au.com.primacycare.cms.repository.ReferralSlaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Participant, staff and referral notifications by email and SMS
+ * Mirrors: server/routes.ts notification logic
+ *
+ * Nothing is sent here: notifications are written to notification_outbox in the caller's
+ * transaction, so they are sent if and only if it commits, and NotificationDispatcher's workers
+ * are woken once it has. Each notification has a dedupe key, so a retried request or a re-raised
+ * alert does not notify anyone twice.
+ */
+@Service
+@Transactional
+@Slf4j
+public class NotificationService {
+    
+    private final NotificationOutboxRepository outboxRepository;
+    private final NotificationDispatcher dispatcher;
+    private final ReferralSlaRepository referralSlaRepository;
+    private final String intakeEmail;
+    
+    public NotificationService(NotificationOutboxRepository outboxRepository,
+                               NotificationDispatcher dispatcher,
+                               ReferralSlaRepository referralSlaRepository,
+                               @Value("${app.notifications.intake-email:}") String intakeEmail) {
+        this.outboxRepository = outboxRepository;
+        this.dispatcher = dispatcher;
+        this.referralSlaRepository = referralSlaRepository;
+        this.intakeEmail = intakeEmail;
+    }
+    
+    public void sendWelcomeNotifications(Participant participant) {
+        sendWelcomeNotifications(List.of(participant));
+    }
+    
+    /**
+     * Welcome email and SMS to each participant with an email address or phone number
+     */
+    public void sendWelcomeNotifications(Collection<Participant> participants) {
+        List<Notification> notifications = new ArrayList<>();
+        for (Participant participant : participants) {
+            Map<String, Object> params = params("firstName", participant.getFirstName());
+            String dedupeKey = "participant-welcome:" + participant.getId();
+            if (hasText(participant.getEmail())) {
+                notifications.add(new Notification(NotificationChannel.EMAIL, participant.getEmail().trim(),
+                    "participant-welcome", "Welcome to Primacy Care",
+                    "Hi " + participant.getFirstName() + ",\n\n"
+                        + "Welcome to Primacy Care. Your case manager will be in touch shortly to arrange your "
+                        + "first supports.\n\nPrimacy Care",
+                    params, dedupeKey + ":email"));
+            }
+            if (hasText(participant.getPhone())) {
+                notifications.add(new Notification(NotificationChannel.SMS, participant.getPhone().trim(),
+                    "participant-welcome", null,
+                    "Hi " + participant.getFirstName() + ", welcome to Primacy Care. Your case manager will "
+                        + "contact you soon to arrange your first supports.",
+                    params, dedupeKey + ":sms"));
+            }
+        }
+        enqueue(notifications);
+    }
+    
+    /**
+     * Welcome email, and an SMS when a phone number is on file, to a new staff member
+     */
+    public void sendStaffOnboardingNotifications(Staff staff) {
+        List<Notification> notifications = new ArrayList<>(2);
+        Map<String, Object> params = params("firstName", staff.getFirstName(), "position", staff.getPosition());
+        String dedupeKey = "staff-onboarding:" + staff.getId();
+        if (hasText(staff.getEmail())) {
+            notifications.add(new Notification(NotificationChannel.EMAIL, staff.getEmail().trim(),
+                "staff-onboarding", "Welcome to the Primacy Care team",
+                "Hi " + staff.getFirstName() + ",\n\n"
+                    + "Welcome to Primacy Care. Please sign in to complete your onboarding: upload your "
+                    + "compliance documents and confirm your availability.\n\nPrimacy Care",
+                params, dedupeKey + ":email"));
+        }
+        if (hasText(staff.getPhone())) {
+            notifications.add(new Notification(NotificationChannel.SMS, staff.getPhone().trim(),
+                "staff-onboarding", null,
+                "Hi " + staff.getFirstName() + ", welcome to Primacy Care. Check your email to complete your "
+                    + "onboarding.",
+                params, dedupeKey + ":sms"));
+        }
+        enqueue(notifications);
+    }
+    
+    /**
+     * Email the assigned staff member, or app.notifications.intake-email for unassigned referrals,
+     * about each breach; critical referrals also go to the staff member by SMS
+     */
+    public void sendReferralSlaBreachNotifications(List<ReferralSlaRepository.Breach> breaches) {
+        Map<String, ReferralSlaRepository.BreachContact> contacts = referralSlaRepository.findContacts(
+            breaches.stream().map(breach -> breach.timer().referralId()).toList());
+        List<Notification> notifications = new ArrayList<>();
+        for (ReferralSlaRepository.Breach breach : breaches) {
+            ReferralSlaRepository.BreachContact contact = contacts.get(breach.timer().referralId());
+            if (contact == null) {
+                continue;
+            }
+            String stage = breach.timer().stage().getDisplayName();
+            Map<String, Object> params = params(
+                "referralId", breach.timer().referralId(),
+                "participantName", contact.participantName(),
+                "stage", stage,
+                "urgency", breach.urgency().getDisplayName(),
+                "deadline", breach.deadline().toString());
+            // Once per stage visit, as the alert is
+            String dedupeKey = "referral-sla:" + breach.timer().workflowId() + ":" + breach.timer().version();
+            
+            String email = hasText(contact.staffEmail()) ? contact.staffEmail().trim() : intakeEmail;
+            if (hasText(email)) {
+                notifications.add(new Notification(NotificationChannel.EMAIL, email, "referral-sla-breach",
+                    "Referral overdue: " + contact.participantName(),
+                    (contact.staffFirstName() != null ? "Hi " + contact.staffFirstName() + ",\n\n" : "")
+                        + "The referral for " + contact.participantName() + breach.detail() + ".\n\n"
+                        + "Please progress it past " + stage + ".",
+                    params, dedupeKey + ":email"));
+            } else {
+                log.warn("No one to email about the overdue referral {}: it is unassigned and "
+                         + "app.notifications.intake-email is not set", breach.timer().referralId());
+            }
+            if (breach.urgency() == ReferralDto.UrgencyEnum.CRITICAL && hasText(contact.staffPhone())) {
+                notifications.add(new Notification(NotificationChannel.SMS, contact.staffPhone().trim(),
+                    "referral-sla-breach", null,
+                    "Critical referral for " + contact.participantName() + " is overdue at " + stage
+                        + ". Please action it now.",
+                    params, dedupeKey + ":sms"));
+            }
+        }
+        enqueue(notifications);
+    }
+    
+    private void enqueue(List<Notification> notifications) {
+        boolean[] written = outboxRepository.enqueue(notifications);
+        Set<NotificationChannel> channels = EnumSet.noneOf(NotificationChannel.class);
+        for (int i = 0; i < written.length; i++) {
+            if (written[i]) {
+                channels.add(notifications.get(i).channel());
+            }
+        }
+        if (!channels.isEmpty()) {
+            pendingChannels().addAll(channels);
+        }
+    }
+    
+    /**
+     * Channels written to in the current transaction, whose workers are woken after it commits
+     *
+     * Unbound while the transaction is suspended, so a REQUIRES_NEW transaction wakes its own channels
+     */
+    private Set<NotificationChannel> pendingChannels() {
+        @SuppressWarnings("unchecked")
+        Set<NotificationChannel> pending = (Set<NotificationChannel>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        Set<NotificationChannel> channels = EnumSet.noneOf(NotificationChannel.class);
+        TransactionSynchronizationManager.bindResource(this, channels);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.wake(channels);
+            }
+            
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(NotificationService.this);
+            }
+            
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(NotificationService.this, channels);
+            }
+            
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(NotificationService.this);
+            }
+        });
+        return channels;
+    }
+    
+    private static Map<String, Object> params(Object... keysAndValues) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            if (keysAndValues[i + 1] != null) {
+                params.put((String) keysAndValues[i], keysAndValues[i + 1]);
+            }
+        }
+        return params;
+    }
+    
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
\ No newline at end of file
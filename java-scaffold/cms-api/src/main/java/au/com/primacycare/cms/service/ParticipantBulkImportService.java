@@ -0,0 +1,302 @@
+package au.com.primacycare.cms.service;
+
+import au.com.primacycare.cms.cache.ParticipantCacheIndex;
+import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.entity.Participant;
+import au.com.primacycare.cms.mapper.ParticipantMapper;
+import au.com.primacycare.cms.repository.ParticipantRepository;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Streaming participant bulk import for onboarding whole regions
+ * Replaces per-row createParticipant calls with chunked, set-based validation and JDBC-batched inserts
+ *
+ * Each chunk's workflows, welcome notifications (outbox rows) and audits are written in the
+ * chunk's own transaction, so a committed participant always has them and a failure in any of
+ * them fails the chunk.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ParticipantBulkImportService {
+    
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
+    private final ParticipantRepository participantRepository;
+    private final ParticipantMapper participantMapper;
+    private final ParticipantCacheIndex participantCacheIndex;
+    private final WorkflowService workflowService;
+    private final NotificationService notificationService;
+    private final AuditService auditService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Value("${app.bulk-import.chunk-size:500}")
+    private int chunkSize;
+    
+    /**
+     * Import participants from a CSV (header row required) or NDJSON stream
+     * Rows are read lazily, so memory is bounded by the chunk size rather than the upload size
+     * A row that cannot be parsed is reported INVALID and the import carries on with the next one
+     */
+    public BulkImportResultDto importParticipants(InputStream input, MediaType contentType) throws IOException {
+        String importedBy = SecurityUtils.getCurrentUserId();
+        BulkImportResultDto result = new BulkImportResultDto();
+        
+        try (RowReader rows = openReader(input, contentType)) {
+            List<PendingRow> chunk = new ArrayList<>(chunkSize);
+            int rowNumber = 0;
+            
+            while (true) {
+                CreateParticipantDto dto;
+                try {
+                    dto = rows.next();
+                } catch (UnreadableRowException e) {
+                    result.add(BulkImportResultDto.RowResult.of(++rowNumber, null,
+                        BulkImportResultDto.RowStatusEnum.INVALID, List.of("Unreadable row: " + e.getMessage())));
+                    if (!e.isResumable()) {
+                        log.warn("Bulk import stopped at unreadable row {}", rowNumber, e);
+                        break;
+                    }
+                    continue;
+                }
+                if (dto == null) {
+                    break;
+                }
+                rowNumber++;
+                
+                List<String> errors = validate(dto);
+                if (!errors.isEmpty()) {
+                    result.add(BulkImportResultDto.RowResult.of(rowNumber, dto.getNdisNumber(),
+                        BulkImportResultDto.RowStatusEnum.INVALID, errors));
+                    continue;
+                }
+                
+                chunk.add(new PendingRow(rowNumber, dto));
+                if (chunk.size() == chunkSize) {
+                    processChunk(chunk, importedBy, result);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(chunk, importedBy, result);
+            }
+        }
+        
+        log.info("Bulk import finished: {} rows, {} created, {} invalid, {} duplicates, {} failed",
+                 result.getTotalRows(), result.getCreated(), result.getInvalid(),
+                 result.getDuplicates(), result.getFailed());
+        return result;
+    }
+    
+    private RowReader openReader(InputStream input, MediaType contentType) throws IOException {
+        if (contentType != null && TEXT_CSV.isCompatibleWith(contentType)) {
+            CsvMapper csvMapper = new CsvMapper();
+            csvMapper.findAndRegisterModules();
+            return csvReader(csvMapper.readerFor(CreateParticipantDto.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(input));
+        }
+        return ndjsonReader(input);
+    }
+    
+    /**
+     * The CSV parser reads a record at a time and, after a malformed one, resumes at the next;
+     * a failure from either hasNext() or next() is that record's
+     */
+    private static RowReader csvReader(MappingIterator<CreateParticipantDto> rows) {
+        return new RowReader() {
+            
+            private JsonLocation failedAt;
+            
+            @Override
+            public CreateParticipantDto next() {
+                try {
+                    return rows.hasNext() ? rows.next() : null;
+                } catch (RuntimeException e) {
+                    JsonLocation location = rows.getCurrentLocation();
+                    // Failing again without moving on: nothing further can be read
+                    boolean resumable = !location.equals(failedAt);
+                    failedAt = location;
+                    throw new UnreadableRowException(
+                        resumable ? e.getMessage() : "the rest of the upload could not be read", resumable, e);
+                }
+            }
+            
+            @Override
+            public void close() throws IOException {
+                rows.close();
+            }
+        };
+    }
+    
+    /**
+     * One value per line, each parsed on its own: a streaming JSON parser cannot find the start of
+     * the next value after a syntax error, but the next line is always one
+     */
+    private RowReader ndjsonReader(InputStream input) {
+        BufferedReader lines = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        ObjectReader reader = objectMapper.readerFor(CreateParticipantDto.class);
+        return new RowReader() {
+            
+            @Override
+            public CreateParticipantDto next() throws IOException {
+                String line;
+                do {
+                    line = lines.readLine();
+                    if (line == null) {
+                        return null;
+                    }
+                } while (line.isBlank());
+                try {
+                    return reader.readValue(line);
+                } catch (JsonProcessingException e) {
+                    throw new UnreadableRowException(e.getOriginalMessage(), true, e);
+                }
+            }
+            
+            @Override
+            public void close() throws IOException {
+                lines.close();
+            }
+        };
+    }
+    
+    private List<String> validate(CreateParticipantDto dto) {
+        Set<ConstraintViolation<CreateParticipantDto>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return List.of();
+        }
+        return violations.stream()
+            .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+            .sorted()
+            .toList();
+    }
+    
+    /**
+     * Check NDIS uniqueness for the whole chunk in one query, then insert the survivors in one transaction
+     */
+    private void processChunk(List<PendingRow> chunk, String importedBy, BulkImportResultDto result) {
+        Set<String> ndisNumbers = new HashSet<>();
+        chunk.forEach(row -> ndisNumbers.add(row.dto().getNdisNumber()));
+        Set<String> existing = participantRepository.findExistingNdisNumbers(ndisNumbers);
+        
+        List<PendingRow> accepted = new ArrayList<>(chunk.size());
+        Set<String> seenInUpload = new HashSet<>();
+        for (PendingRow row : chunk) {
+            String ndis = row.dto().getNdisNumber();
+            if (existing.contains(ndis) || !seenInUpload.add(ndis)) {
+                result.add(BulkImportResultDto.RowResult.of(row.rowNumber(), ndis,
+                    BulkImportResultDto.RowStatusEnum.DUPLICATE, List.of("NDIS number already exists: " + ndis)));
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+        
+        try {
+            List<Participant> inserted = transactionTemplate.execute(status -> insertChunk(accepted, importedBy));
+            for (int i = 0; i < accepted.size(); i++) {
+                PendingRow row = accepted.get(i);
+                BulkImportResultDto.RowResult rowResult = BulkImportResultDto.RowResult.of(row.rowNumber(),
+                    row.dto().getNdisNumber(), BulkImportResultDto.RowStatusEnum.CREATED, List.of());
+                rowResult.setParticipantId(inserted.get(i).getId());
+                result.add(rowResult);
+            }
+            participantCacheIndex.participantsCreated(inserted);
+        } catch (RuntimeException e) {
+            // A concurrent insert can still violate the unique constraint, and follow-up writes can fail;
+            // the chunk rolls back as a whole and is reported rather than aborting the upload
+            log.error("Bulk import chunk of {} rows failed", accepted.size(), e);
+            accepted.forEach(row -> result.add(BulkImportResultDto.RowResult.of(row.rowNumber(),
+                row.dto().getNdisNumber(), BulkImportResultDto.RowStatusEnum.FAILED, List.of(e.getMessage()))));
+        }
+    }
+    
+    /**
+     * Persist without pre-assigned IDs so Hibernate generates them in memory and never issues a
+     * per-row SELECT (as save() does for entities with an ID set); a single flush lets
+     * hibernate.jdbc.batch_size group the INSERTs
+     *
+     * Follow-up work for the chunk is one batched insert per step in the same transaction
+     */
+    private List<Participant> insertChunk(List<PendingRow> rows, String importedBy) {
+        List<Participant> participants = new ArrayList<>(rows.size());
+        for (PendingRow row : rows) {
+            Participant participant = participantMapper.toEntity(row.dto());
+            participant.setUserId(importedBy);
+            participant.setCreatedBy(importedBy);
+            entityManager.persist(participant);
+            participants.add(participant);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        
+        workflowService.initializeParticipantWorkflows(participants.stream().map(Participant::getId).toList());
+        notificationService.sendWelcomeNotifications(participants);
+        for (Participant participant : participants) {
+            auditService.logCreate("participant", participant.getId(), importedBy, participant);
+        }
+        return participants;
+    }
+    
+    private record PendingRow(int rowNumber, CreateParticipantDto dto) {
+    }
+    
+    private interface RowReader extends Closeable {
+        
+        /**
+         * @return the next row, or null at the end of the upload
+         * @throws UnreadableRowException when the row cannot be parsed
+         */
+        CreateParticipantDto next() throws IOException;
+    }
+    
+    private static final class UnreadableRowException extends RuntimeException {
+        
+        private final boolean resumable;
+        
+        UnreadableRowException(String message, boolean resumable, Throwable cause) {
+            super(message, cause);
+            this.resumable = resumable;
+        }
+        
+        /**
+         * Whether reading can carry on with the row after this one
+         */
+        boolean isResumable() {
+            return resumable;
+        }
+    }
+}
\ No newline at end of file
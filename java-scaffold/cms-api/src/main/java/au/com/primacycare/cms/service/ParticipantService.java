@@ -1,19 +1,31 @@
 package au.com.primacycare.cms.service;
 
+import au.com.primacycare.cms.cache.ParticipantCacheIndex;
 import au.com.primacycare.cms.dto.*;
 import au.com.primacycare.cms.entity.Participant;
 import au.com.primacycare.cms.mapper.ParticipantMapper;
+import au.com.primacycare.cms.repository.KeysetCursor;
 import au.com.primacycare.cms.repository.ParticipantRepository;
+import au.com.primacycare.cms.repository.ParticipantSearchRepository;
+import au.com.primacycare.cms.repository.ParticipantSpecifications;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -31,40 +43,125 @@ public class ParticipantService {
     private final AuditService auditService;
     private final NotificationService notificationService;
     private final WorkflowService workflowService;
+    private final ParticipantCacheIndex participantCacheIndex;
+    private final ParticipantSearchRepository participantSearchRepository;
+    private final PlatformTransactionManager transactionManager;
+    
+    @Value("${app.pagination.max-size:200}")
+    private int maxPageSize;
+    
+    @Value("${app.search.participants.timeout-ms:50}")
+    private long searchTimeoutMillis;
+    
+    @Value("${app.search.participants.similarity-threshold:0.3}")
+    private double searchSimilarityThreshold;
+    
+    @Value("${app.search.participants.max-results:50}")
+    private int searchMaxResults;
+    
+    @Value("${app.search.participants.min-query-length:2}")
+    private int searchMinQueryLength;
     
     /**
      * Get paginated participants with caching
      * Mirrors: server/storage.ts:getParticipants()
      */
-    @Cacheable(value = "participants", key = "#pageable.pageNumber + '-' + #pageable.pageSize + '-' + #status + '-' + #ndisNumber")
     @Transactional(readOnly = true)
-    public Page<ParticipantDto> getParticipants(Pageable pageable, String status, String ndisNumber) {
-        log.debug("Fetching participants page: {}, status: {}, ndis: {}", pageable.getPageNumber(), status, ndisNumber);
-        
-        // TODO: Implement filtering logic from server/storage.ts:getParticipants()
-        // - Filter by status if provided
-        // - Filter by NDIS number if provided
-        // - Apply role-based data filtering based on current user
-        
-        Page<Participant> participants;
+    public Page<ParticipantDto> getParticipants(Pageable pageable, ParticipantFilter filter) {
+        return participantCacheIndex.cachedPage(ParticipantCacheIndex.pageKey(pageable, filter), () -> {
+            log.debug("Fetching participants page: {}, filter: {}", pageable.getPageNumber(), filter);
+            
+            // TODO: Apply role-based data filtering based on current user
+            // Reference: server/storage.ts:getParticipants()
+            
+            Page<Participant> participants = filter.isEmpty()
+                ? participantRepository.findAll(pageable)
+                : participantRepository.findAll(ParticipantSpecifications.matching(filter), pageable);
+            return participants.map(participantMapper::toDto);
+        });
+    }
+    
+    /**
+     * Get participant list rows from the projection read model
+     * Issues a constant two statements (rows + count) regardless of page size
+     */
+    @Transactional(readOnly = true)
+    public Page<ParticipantListItemDto> getParticipantList(Pageable pageable) {
+        log.debug("Fetching participant list page: {}", pageable.getPageNumber());
         
-        if (ndisNumber != null && !ndisNumber.isEmpty()) {
-            participants = participantRepository.findByNdisNumberContaining(ndisNumber, pageable);
-        } else if (status != null && !status.isEmpty()) {
-            // TODO: Implement status-based filtering
-            participants = participantRepository.findAll(pageable);
+        // Ordering is fixed in the query; only page and size are honoured
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), Math.min(pageable.getPageSize(), maxPageSize));
+        return participantRepository.findListPage(unsorted).map(participantMapper::toListItemDto);
+    }
+    
+    /**
+     * Get participants by keyset cursor, newest first
+     * Seeks on (created_at, id) so deep pages cost the same as the first and no COUNT(*) is issued
+     * The cursor does not carry the filter, so each page must be requested with the same one
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDto<ParticipantDto> getParticipantsByCursor(String cursor, int size, ParticipantFilter filter) {
+        int limit = Math.min(Math.max(size, 1), maxPageSize);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        log.debug("Fetching participants by cursor: {}, size: {}, filter: {}", after, limit, filter);
+        
+        // Fetch one extra row to learn whether another page exists
+        List<Participant> rows;
+        if (filter.isEmpty()) {
+            PageRequest fetch = PageRequest.of(0, limit + 1);
+            rows = after == null
+                ? participantRepository.findFirstKeysetPage(fetch)
+                : participantRepository.findKeysetPageAfter(after.createdAt(), after.id(), fetch);
         } else {
-            participants = participantRepository.findAll(pageable);
+            Specification<Participant> matching = after == null
+                ? ParticipantSpecifications.matching(filter)
+                : ParticipantSpecifications.matching(filter).and(ParticipantSpecifications.after(after));
+            rows = participantRepository.findBy(matching, query -> query
+                .sortBy(ParticipantSpecifications.KEYSET_ORDER)
+                .limit(limit + 1)
+                .all());
         }
         
-        return participants.map(participantMapper::toDto);
+        return KeysetCursor.toPage(rows, limit, participantMapper::toDto, Participant::getCreatedAt, Participant::getId);
+    }
+    
+    /**
+     * Fuzzy type-ahead search over name, preferred name, phone and NDIS number
+     * Ranked by trigram word similarity; an exact NDIS number match always ranks first
+     *
+     * Runs in a transaction of its own, so a search that exceeds its budget is rolled back on its
+     * own instead of leaving an aborted transaction behind for the caller.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ParticipantSearchResultDto> searchParticipants(String query, int limit) {
+        if (query == null || query.trim().length() < searchMinQueryLength) {
+            return List.of();
+        }
+        int boundedLimit = Math.min(Math.max(limit, 1), searchMaxResults);
+        
+        // TODO: Apply role-based data filtering based on current user
+        
+        TransactionTemplate searchTransaction = new TransactionTemplate(transactionManager);
+        searchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        searchTransaction.setReadOnly(true);
+        try {
+            return searchTransaction.execute(status -> participantSearchRepository.search(
+                query, boundedLimit, searchTimeoutMillis, searchSimilarityThreshold));
+        } catch (RuntimeException e) {
+            if (!ParticipantSearchRepository.isStatementTimeout(e)) {
+                throw e;
+            }
+            // Already rolled back; type-ahead must stay responsive and the next keystroke will narrow the query
+            log.warn("Participant search exceeded {} ms budget for query length {}", searchTimeoutMillis, query.length());
+            return List.of();
+        }
     }
     
     /**
      * Get single participant by ID
      * Mirrors: server/storage.ts:getParticipantById()
      */
-    @Cacheable(value = "participant", key = "#id")
+    @Cacheable(value = ParticipantCacheIndex.PARTICIPANT_CACHE, key = "#id")
     @Transactional(readOnly = true)
     public ParticipantDto getParticipant(String id) {
         log.debug("Fetching participant: {}", id);
@@ -87,7 +184,6 @@ public class ParticipantService {
      * Create new participant
      * Mirrors: server/storage.ts:createParticipant()
      */
-    @CacheEvict(value = "participants", allEntries = true)
     @Transactional
     public ParticipantDto createParticipant(CreateParticipantDto dto) {
         log.info("Creating new participant: {} {}", dto.getFirstName(), dto.getLastName());
@@ -116,13 +212,15 @@ public class ParticipantService {
         // Reference: server/workflowService.ts:createReferral()
         workflowService.initializeParticipantWorkflow(participant.getId());
         
-        // TODO: Business rule - Send welcome notifications
+        // Welcome notifications, queued in the outbox and sent once this transaction commits
         // Reference: server/routes.ts notification logic
         notificationService.sendWelcomeNotifications(participant);
         
         // Audit log
         auditService.logCreate("participant", participant.getId(), participant);
         
+        participantCacheIndex.participantCreated(participant);
+        
         return participantMapper.toDto(participant);
     }
     
@@ -130,7 +228,6 @@ public class ParticipantService {
      * Update participant
      * Mirrors: server/storage.ts:updateParticipant()
      */
-    @CacheEvict(value = {"participant", "participants"}, allEntries = true)
     @Transactional
     public ParticipantDto updateParticipant(String id, UpdateParticipantDto dto) {
         log.info("Updating participant: {}", id);
@@ -141,8 +238,9 @@ public class ParticipantService {
         // TODO: Business rule - Check user has permission to edit this participant
         // Reference: server/routes.ts authorization checks
         
-        // Store old values for audit
-        Participant oldParticipant = participant.clone();
+        // Store old values for audit and cache invalidation
+        Map<String, Object> oldValues = auditService.snapshot(participant);
+        ParticipantFilter.Attributes oldAttributes = ParticipantFilter.Attributes.of(participant);
         
         // TODO: Business rule - Validate changes
         // - Cannot change NDIS number once set
@@ -164,7 +262,9 @@ public class ParticipantService {
         // - Notify assigned staff if availability changed
         
         // Audit log
-        auditService.logUpdate("participant", participant.getId(), oldParticipant, participant);
+        auditService.logUpdate("participant", participant.getId(), oldValues, participant);
+        
+        participantCacheIndex.participantUpdated(oldAttributes, participant);
         
         return participantMapper.toDto(participant);
     }
@@ -173,7 +273,6 @@ public class ParticipantService {
      * Delete participant (soft delete)
      * Mirrors: server/storage.ts:deleteParticipant()
      */
-    @CacheEvict(value = {"participant", "participants"}, allEntries = true)
     @Transactional
     public void deleteParticipant(String id) {
         log.warn("Deleting participant: {}", id);
@@ -203,6 +302,8 @@ public class ParticipantService {
         
         // Audit log
         auditService.logDelete("participant", participant.getId(), participant);
+        
+        participantCacheIndex.participantDeleted(participant);
     }
     
     /**
@@ -287,9 +388,9 @@ public class ParticipantService {
     private boolean hasActiveServices(Participant participant) {
         // TODO: Implement check for active services
         // Reference: server/storage.ts service checking logic
-        return participant.getServices() != null && 
+        return participant.getServices() != null &&
                participant.getServices().stream()
-                   .anyMatch(service -> service.getScheduledDate() != null && 
+                   .anyMatch(service -> service.getScheduledDate() != null &&
                             service.getScheduledDate().isAfter(java.time.LocalDate.now()));
     }
 }
\ No newline at end of file
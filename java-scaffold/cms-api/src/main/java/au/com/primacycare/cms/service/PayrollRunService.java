@@ -0,0 +1,282 @@
+package au.com.primacycare.cms.service;
+
+import au.com.primacycare.cms.batch.PartitionedRunner;
+import au.com.primacycare.cms.calendar.PublicHolidayCalendar;
+import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.exception.InvalidRequestException;
+import au.com.primacycare.cms.payroll.AwardRateTable;
+import au.com.primacycare.cms.payroll.AwardRateVersion;
+import au.com.primacycare.cms.payroll.AwardRates;
+import au.com.primacycare.cms.payroll.HolidayLookup;
+import au.com.primacycare.cms.payroll.PenaltyRateCalculator;
+import au.com.primacycare.cms.repository.PartitionedRunRepository;
+import au.com.primacycare.cms.repository.PayrollRunRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Organisation-wide payroll runs
+ * Replaces calling StaffService.calculatePayroll per staff member, which loaded every shift as
+ * an entity and saved them one at a time
+ *
+ * A run splits staff into partitions of consecutive IDs (app.payroll.run.partition-size) that a
+ * PartitionedRunner works through. Each partition streams its completed shifts in staff order, prices
+ * them in cents and writes shift pay and payroll records in batches of app.payroll.run.chunk-size,
+ * all in one transaction together with the partition's COMPLETED status. Resuming a run, or
+ * starting the same period again, only picks up partitions that did not complete. Partition ranges
+ * cover every staff ID and a partition is claimed by one instance at a time, so no staff member
+ * is skipped or paid twice.
+ */
+@Service
+@Slf4j
+public class PayrollRunService {
+    
+    private final PayrollRunRepository payrollRunRepository;
+    private final AuditService auditService;
+    private final AwardRateTable awardRateTable;
+    private final PublicHolidayCalendar publicHolidayCalendar;
+    private final TransactionTemplate transactionTemplate;
+    private final PartitionedRunner<PayrollRunDto.Partition> runner;
+    
+    @Value("${app.payroll.default-level:3}")
+    private int defaultLevel;
+    
+    @Value("${app.payroll.superannuation-rate:0.11}")
+    private BigDecimal superannuationRate;
+    
+    @Value("${app.payroll.run.partition-size:100}")
+    private int partitionSize;
+    
+    @Value("${app.payroll.run.chunk-size:1000}")
+    private int chunkSize;
+    
+    @Value("${app.payroll.run.max-period-days:31}")
+    private int maxPeriodDays;
+    
+    public PayrollRunService(PayrollRunRepository payrollRunRepository,
+                             PartitionedRunRepository partitionedRunRepository,
+                             AuditService auditService,
+                             AwardRateTable awardRateTable,
+                             PublicHolidayCalendar publicHolidayCalendar,
+                             TransactionTemplate transactionTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.payroll.run.workers:4}") int workers,
+                             @Value("${app.payroll.run.lease-seconds:60}") long leaseSeconds) {
+        this.payrollRunRepository = payrollRunRepository;
+        this.auditService = auditService;
+        this.awardRateTable = awardRateTable;
+        this.publicHolidayCalendar = publicHolidayCalendar;
+        this.transactionTemplate = transactionTemplate;
+        this.runner = new PartitionedRunner<>("payroll", PayrollRunRepository.TABLES, partitionedRunRepository,
+            transactionTemplate, meterRegistry, workers, Duration.ofSeconds(leaseSeconds),
+            "Time to calculate and write one payroll run partition",
+            PayrollRunDto.Partition::getPartitionNo,
+            partition -> partition.getStatus() == PayrollRunDto.PartitionStatusEnum.COMPLETED);
+    }
+    
+    /**
+     * Start a payroll run for a pay period, or resume the period's unfinished run
+     */
+    public PayrollRunDto startRun(StartPayrollRunDto request) {
+        LocalDate periodStart = request.getPeriodStart();
+        LocalDate periodEnd = request.getPeriodEnd();
+        if (periodEnd.isBefore(periodStart)) {
+            throw new InvalidRequestException("Period end must not be before period start");
+        }
+        if (ChronoUnit.DAYS.between(periodStart, periodEnd) >= maxPeriodDays) {
+            throw new InvalidRequestException("Pay period cannot exceed " + maxPeriodDays + " days");
+        }
+        
+        Optional<PayrollRunDto> existing = payrollRunRepository.findRunByPeriod(periodStart, periodEnd);
+        if (existing.isPresent()) {
+            return resumeRun(existing.get().getId());
+        }
+        
+        String runId = UUID.randomUUID().toString();
+        String createdBy = SecurityUtils.getCurrentUserId();
+        try {
+            Integer partitions = transactionTemplate.execute(status ->
+                payrollRunRepository.insertRun(runId, periodStart, periodEnd, createdBy, partitionSize));
+            log.info("Payroll run {} started for {} to {} by {} with {} partitions",
+                     runId, periodStart, periodEnd, createdBy, partitions);
+        } catch (DuplicateKeyException e) {
+            throw new BusinessRuleException("A payroll run for " + periodStart + " to " + periodEnd + " was started concurrently");
+        }
+        submitPending(runId, periodStart, periodEnd, createdBy);
+        return getRun(runId);
+    }
+    
+    /**
+     * Re-queue every partition of a run that has not completed
+     */
+    public PayrollRunDto resumeRun(String runId) {
+        PayrollRunDto run = findRun(runId);
+        if (run.getStatus() == PayrollRunDto.StatusEnum.COMPLETED) {
+            throw new BusinessRuleException("Payroll run " + runId + " for " + run.getPeriodStart()
+                + " to " + run.getPeriodEnd() + " has already completed");
+        }
+        runner.resume(runId);
+        log.info("Payroll run {} resumed by {}", runId, SecurityUtils.getCurrentUserId());
+        submitPending(runId, run.getPeriodStart(), run.getPeriodEnd(), SecurityUtils.getCurrentUserId());
+        return getRun(runId);
+    }
+    
+    public PayrollRunDto getRun(String runId) {
+        PayrollRunDto run = findRun(runId);
+        run.setPartitions(payrollRunRepository.findPartitions(runId));
+        return run;
+    }
+    
+    /**
+     * Single staff member's pay for a period, priced exactly as in a run
+     * Joins the caller's transaction if there is one
+     */
+    public void calculateStaffPayroll(String staffId, LocalDate periodStart, LocalDate periodEnd) {
+        String userId = SecurityUtils.getCurrentUserId();
+        transactionTemplate.executeWithoutResult(status -> {
+            PartitionTotals totals = calculate(handler ->
+                payrollRunRepository.streamPayableShifts(staffId, periodStart, periodEnd, handler),
+                periodStart, periodEnd, null, userId);
+            if (totals.shiftCount() == 0) {
+                // Still record the period as calculated
+                List<PayrollRunRepository.PayrollTotals> empty = new ArrayList<>();
+                empty.add(new PayrollRunRepository.PayrollTotals(staffId, 0, 0, 0));
+                flushRecords(empty, periodStart, periodEnd, null, userId);
+            }
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdown();
+    }
+    
+    private void submitPending(String runId, LocalDate periodStart, LocalDate periodEnd, String userId) {
+        runner.submitPending(runId, payrollRunRepository.findPartitions(runId),
+            partition -> processPartition(runId, partition, periodStart, periodEnd, userId));
+    }
+    
+    /**
+     * Runs in the partition's transaction
+     */
+    private void processPartition(String runId, PayrollRunDto.Partition partition,
+                                  LocalDate periodStart, LocalDate periodEnd, String userId) {
+        PartitionTotals totals = calculate(handler -> payrollRunRepository.streamPayableShifts(
+                partition.getFirstStaffId(), partition.getEndStaffId(), periodStart, periodEnd, handler),
+            periodStart, periodEnd, runId, userId);
+        payrollRunRepository.completePartition(runId, partition.getPartitionNo(), totals.shiftCount(), totals.grossCents());
+        log.debug("Payroll run {} partition {} completed: {} shifts, {} cents",
+                  runId, partition.getPartitionNo(), totals.shiftCount(), totals.grossCents());
+    }
+    
+    /**
+     * One pass over streamed completed shifts, in staff order
+     * A shift's pay includes the allowances claimed on it
+     * Shift pay and payroll records are flushed every chunkSize rows, so memory does not grow with the range
+     *
+     * @param shifts streams a staff ID range's or a single staff member's shifts to the handler
+     */
+    private PartitionTotals calculate(Consumer<PayrollRunRepository.PayableShiftHandler> shifts, LocalDate periodStart,
+                                      LocalDate periodEnd, String runId, String userId) {
+        // One table for the whole pass, even if it is reloaded meanwhile
+        AwardRates rates = awardRateTable.rates();
+        long superBasisPoints = superannuationRate.movePointRight(4).longValueExact();
+        
+        List<PayrollRunRepository.ShiftPay> pays = new ArrayList<>(chunkSize);
+        List<PayrollRunRepository.PayrollTotals> records = new ArrayList<>();
+        StaffAccumulator current = new StaffAccumulator();
+        long[] partition = new long[2]; // shifts, gross cents
+        
+        shifts.accept(shift -> {
+            if (!shift.staffId().equals(current.staffId)) {
+                current.close(records, superBasisPoints);
+                current.reset(shift.staffId(), publicHolidayCalendar.forState(shift.stateCode()));
+            }
+            AwardRateVersion award = rates.forDate(shift.shiftDate());
+            long rateCents = shift.baseRateCents() >= 0 ? shift.baseRateCents() : award.levelRateCents(defaultLevel);
+            long payCents = PenaltyRateCalculator.payCents(award, rateCents, shift.shiftDate(), shift.startTime(),
+                shift.hoursHundredths(), current.holidays);
+            for (Map.Entry<String, Long> allowance : shift.allowances().entrySet()) {
+                payCents += PenaltyRateCalculator.allowanceCents(award, allowance.getKey(), allowance.getValue());
+            }
+            pays.add(new PayrollRunRepository.ShiftPay(shift.shiftId(), payCents));
+            current.hoursHundredths += shift.hoursHundredths();
+            current.grossCents += payCents;
+            partition[0]++;
+            partition[1] += payCents;
+            
+            if (pays.size() >= chunkSize) {
+                payrollRunRepository.updateShiftPay(pays);
+                pays.clear();
+            }
+            if (records.size() >= chunkSize) {
+                flushRecords(records, periodStart, periodEnd, runId, userId);
+            }
+        });
+        current.close(records, superBasisPoints);
+        payrollRunRepository.updateShiftPay(pays);
+        flushRecords(records, periodStart, periodEnd, runId, userId);
+        return new PartitionTotals((int) partition[0], partition[1]);
+    }
+    
+    private void flushRecords(List<PayrollRunRepository.PayrollTotals> records, LocalDate periodStart,
+                              LocalDate periodEnd, String runId, String userId) {
+        payrollRunRepository.upsertPayrollRecords(records, periodStart, periodEnd, runId);
+        for (PayrollRunRepository.PayrollTotals record : records) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("periodStart", periodStart);
+            summary.put("periodEnd", periodEnd);
+            summary.put("totalHours", BigDecimal.valueOf(record.hoursHundredths(), 2));
+            summary.put("grossPay", BigDecimal.valueOf(record.grossCents(), 2));
+            summary.put("superannuation", BigDecimal.valueOf(record.superannuationCents(), 2));
+            summary.put("runId", runId);
+            auditService.logPayrollCalculated(record.staffId(), userId, summary);
+        }
+        records.clear();
+    }
+    
+    private PayrollRunDto findRun(String runId) {
+        return payrollRunRepository.findRun(runId)
+            .orElseThrow(() -> new EntityNotFoundException("Payroll run not found: " + runId));
+    }
+    
+    private record PartitionTotals(int shiftCount, long grossCents) {
+    }
+    
+    /**
+     * Running totals of the staff member currently being streamed
+     */
+    private static final class StaffAccumulator {
+        
+        String staffId;
+        long hoursHundredths;
+        long grossCents;
+        HolidayLookup holidays;
+        
+        void reset(String staffId, HolidayLookup holidays) {
+            this.staffId = staffId;
+            this.holidays = holidays;
+            this.hoursHundredths = 0;
+            this.grossCents = 0;
+        }
+        
+        void close(List<PayrollRunRepository.PayrollTotals> records, long superBasisPoints) {
+            if (staffId != null) {
+                records.add(new PayrollRunRepository.PayrollTotals(staffId, hoursHundredths, grossCents,
+                    PenaltyRateCalculator.superannuationCents(grossCents, superBasisPoints)));
+            }
+        }
+    }
+}
\ No newline at end of file
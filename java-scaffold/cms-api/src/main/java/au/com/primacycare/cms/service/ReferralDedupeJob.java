@@ -0,0 +1,125 @@
+package au.com.primacycare.cms.service;
+
+import au.com.primacycare.cms.dedupe.DuplicateIndexSnapshot;
+import au.com.primacycare.cms.dedupe.DuplicateMatch;
+import au.com.primacycare.cms.dedupe.DuplicateReferralIndex;
+import au.com.primacycare.cms.dedupe.PersonRecord;
+import au.com.primacycare.cms.dedupe.PersonSource;
+import au.com.primacycare.cms.dto.ReferralDedupeScanDto;
+import au.com.primacycare.cms.repository.DuplicateReferralRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Nightly duplicate scan over all referrals, for historical data and referrals made outside this app
+ *
+ * Rebuilds DuplicateReferralIndex, rewrites referral_blocking_keys from it in one transaction and
+ * records every referral's likely duplicates in chunks of app.referrals.dedupe.chunk-size. A pair
+ * of referrals is scored from the greater id only, so each pair is recorded once.
+ */
+@Component
+@Slf4j
+public class ReferralDedupeJob {
+    
+    private final DuplicateReferralIndex duplicateReferralIndex;
+    private final DuplicateReferralRepository duplicateReferralRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter candidatesFound;
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    @Value("${app.referrals.dedupe.max-candidates:10}")
+    private int maxCandidates;
+    
+    @Value("${app.referrals.dedupe.chunk-size:1000}")
+    private int chunkSize;
+    
+    public ReferralDedupeJob(DuplicateReferralIndex duplicateReferralIndex,
+                             DuplicateReferralRepository duplicateReferralRepository,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry) {
+        this.duplicateReferralIndex = duplicateReferralIndex;
+        this.duplicateReferralRepository = duplicateReferralRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.candidatesFound = Counter.builder("cms.referrals.dedupe.candidates")
+            .description("Duplicate referral candidates recorded by the batch scan")
+            .register(meterRegistry);
+    }
+    
+    @Scheduled(cron = "${app.referrals.dedupe.scan-cron:0 45 2 * * *}")
+    public void scheduledScan() {
+        if (running.get()) {
+            log.info("Duplicate referral scan skipped, one is already running");
+            return;
+        }
+        scan();
+    }
+    
+    public ReferralDedupeScanDto scan() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessRuleException("A duplicate referral scan is already running");
+        }
+        try {
+            ReferralDedupeScanDto result = new ReferralDedupeScanDto();
+            result.setStartedAt(LocalDateTime.now());
+            long start = System.currentTimeMillis();
+            
+            DuplicateIndexSnapshot snapshot = duplicateReferralIndex.rebuildNow();
+            List<PersonRecord> people = snapshot.records();
+            transactionTemplate.executeWithoutResult(status -> {
+                duplicateReferralRepository.deleteAllBlockingKeys();
+                for (int from = 0; from < people.size(); from += chunkSize) {
+                    duplicateReferralRepository.insertBlockingKeys(people.subList(from, Math.min(from + chunkSize, people.size())));
+                }
+            });
+            
+            int scanned = 0;
+            int recorded = 0;
+            List<DuplicateReferralRepository.CandidatePair> pairs = new ArrayList<>();
+            for (PersonRecord person : people) {
+                if (person.source() != PersonSource.REFERRAL) {
+                    continue;
+                }
+                scanned++;
+                List<DuplicateMatch> matches = snapshot.matches(person, duplicateReferralIndex.minScore(),
+                    duplicateReferralIndex.maxBlockSize(), maxCandidates);
+                for (DuplicateMatch match : matches) {
+                    if (match.person().source() == PersonSource.PARTICIPANT || match.person().id().compareTo(person.id()) < 0) {
+                        pairs.add(ReferralService.candidatePair(person, match));
+                    }
+                }
+                if (pairs.size() >= chunkSize) {
+                    recorded += record(pairs);
+                }
+            }
+            recorded += record(pairs);
+            
+            result.setPeople(people.size());
+            result.setReferralsScanned(scanned);
+            result.setCandidates(recorded);
+            result.setDurationMillis(System.currentTimeMillis() - start);
+            candidatesFound.increment(recorded);
+            log.info("Duplicate referral scan: {} referrals against {} people, {} candidate pairs in {} ms",
+                     scanned, people.size(), recorded, result.getDurationMillis());
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    private int record(List<DuplicateReferralRepository.CandidatePair> pairs) {
+        Integer recorded = transactionTemplate.execute(status -> duplicateReferralRepository.upsertCandidates(pairs));
+        pairs.clear();
+        return recorded != null ? recorded : 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+package au.com.primacycare.cms.service;
+
+import au.com.primacycare.cms.dedupe.DuplicateMatch;
+import au.com.primacycare.cms.dedupe.DuplicateReferralIndex;
+import au.com.primacycare.cms.dedupe.PersonRecord;
+import au.com.primacycare.cms.dedupe.PersonSource;
+import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.event.ReferralCreatedEvent;
+import au.com.primacycare.cms.repository.DuplicateReferralRepository;
+import au.com.primacycare.cms.repository.ReferralRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Referral intake with duplicate detection
+ * Mirrors: server/workflowService.ts createReferral()
+ *
+ * A new referral is compared with every referral and participant through DuplicateReferralIndex.
+ * Likely duplicates do not block the referral: they are recorded for intake to confirm or dismiss
+ * and returned with it.
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+@Slf4j
+public class ReferralService {
+    
+    private final ReferralRepository referralRepository;
+    private final DuplicateReferralRepository duplicateReferralRepository;
+    private final DuplicateReferralIndex duplicateReferralIndex;
+    private final WorkflowService workflowService;
+    private final AuditService auditService;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @Value("${app.referrals.dedupe.max-candidates:10}")
+    private int maxCandidates;
+    
+    public ReferralDto createReferral(CreateReferralDto dto) {
+        ReferralDto referral = new ReferralDto();
+        referral.setReferralDate(dto.getReferralDate());
+        referral.setReferralSource(dto.getReferralSource());
+        referral.setReferrerName(dto.getReferrerName());
+        referral.setReferrerEmail(dto.getReferrerEmail());
+        referral.setReferrerPhone(dto.getReferrerPhone());
+        referral.setParticipantName(dto.getParticipantName());
+        referral.setParticipantDob(dto.getParticipantDob());
+        referral.setParticipantNdis(dto.getParticipantNdis());
+        referral.setParticipantPhone(dto.getParticipantPhone());
+        referral.setParticipantEmail(dto.getParticipantEmail());
+        referral.setGuardianName(dto.getGuardianName());
+        referral.setGuardianPhone(dto.getGuardianPhone());
+        referral.setGuardianEmail(dto.getGuardianEmail());
+        referral.setSupportRequirements(dto.getSupportRequirements());
+        referral.setUrgency(dto.getUrgency());
+        referral.setNotes(dto.getNotes());
+        referral.setStatus(ReferralDto.ReferralStatusEnum.NEW);
+        referralRepository.insert(referral);
+        
+        workflowService.initializeReferralWorkflow(referral.getId());
+        referral.setCurrentStage(ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED);
+        
+        PersonRecord person = PersonRecord.ofFullName(PersonSource.REFERRAL, referral.getId(),
+            referral.getParticipantName(), referral.getParticipantDob(), referral.getParticipantPhone(),
+            referral.getParticipantNdis());
+        List<DuplicateMatch> matches = duplicateReferralIndex.findMatches(person, maxCandidates);
+        duplicateReferralRepository.insertBlockingKeys(List.of(person));
+        duplicateReferralRepository.upsertCandidates(matches.stream()
+            .map(match -> candidatePair(person, match))
+            .toList());
+        referral.setDuplicateCandidates(toCandidates(matches));
+        if (!matches.isEmpty()) {
+            log.info("Referral {} has {} possible duplicates, best score {}", referral.getId(), matches.size(),
+                     matches.get(0).score());
+        }
+        
+        auditService.logCreate("referral", referral.getId(), referral);
+        eventPublisher.publishEvent(new ReferralCreatedEvent(referral.getId(), person));
+        return referral;
+    }
+    
+    /**
+     * Likely duplicates of a person before a referral is made for them
+     */
+    @Transactional(readOnly = true)
+    public List<DuplicateCandidateDto> checkDuplicates(DuplicateCheckDto dto) {
+        PersonRecord person = PersonRecord.ofFullName(PersonSource.REFERRAL, "", dto.getParticipantName(),
+            dto.getParticipantDob(), dto.getParticipantPhone(), dto.getParticipantNdis());
+        return toCandidates(duplicateReferralIndex.findMatches(person, maxCandidates));
+    }
+    
+    /**
+     * Possible duplicates recorded for a referral, on either side of the pair
+     */
+    @Transactional(readOnly = true)
+    public List<DuplicateCandidateDto> getDuplicateCandidates(String id) {
+        try {
+            return duplicateReferralRepository.findCandidates(UUID.fromString(id).toString());
+        } catch (IllegalArgumentException e) {
+            throw new EntityNotFoundException("Referral not found: " + id);
+        }
+    }
+    
+    /**
+     * Referral pairs are recorded against the greater id, so each pair is kept once
+     */
+    static DuplicateReferralRepository.CandidatePair candidatePair(PersonRecord referral, DuplicateMatch match) {
+        PersonRecord candidate = match.person();
+        if (candidate.source() == PersonSource.REFERRAL && candidate.id().compareTo(referral.id()) > 0) {
+            return new DuplicateReferralRepository.CandidatePair(candidate.id(), PersonSource.REFERRAL, referral.id(),
+                match.score(), match.reasons());
+        }
+        return new DuplicateReferralRepository.CandidatePair(referral.id(), candidate.source(), candidate.id(),
+            match.score(), match.reasons());
+    }
+    
+    private static List<DuplicateCandidateDto> toCandidates(List<DuplicateMatch> matches) {
+        List<DuplicateCandidateDto> candidates = new ArrayList<>(matches.size());
+        for (DuplicateMatch match : matches) {
+            DuplicateCandidateDto candidate = new DuplicateCandidateDto();
+            candidate.setSubjectType(match.person().source().getCode());
+            candidate.setSubjectId(match.person().id());
+            candidate.setName(match.person().name());
+            candidate.setDateOfBirth(match.person().dateOfBirth());
+            candidate.setNdisNumber(match.person().ndisNumber());
+            candidate.setScore(match.score());
+            candidate.setReasons(List.copyOf(match.reasons()));
+            candidates.add(candidate);
+        }
+        return candidates;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,338 @@
+package au.com.primacycare.cms.service;
+
+import au.com.primacycare.cms.calendar.PublicHolidayCalendar;
+import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.exception.InvalidRequestException;
+import au.com.primacycare.cms.geo.RegionDistanceMatrix;
+import au.com.primacycare.cms.matching.*;
+import au.com.primacycare.cms.repository.RosterRepository;
+import au.com.primacycare.cms.repository.StaffMatchingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Batch roster allocation for all unassigned services in a date range
+ * Replaces one findMatchingStaff call per service with a single RosterSolver pass
+ *
+ * Jobs run on a small bounded pool (the solver itself fans out over the common pool), report
+ * progress while running and can be cancelled. A completed roster is a proposal until applied;
+ * applying skips services that were assigned in the meantime. Finished jobs are kept for
+ * app.roster.job-ttl-minutes.
+ */
+@Service
+@Slf4j
+public class RosterAllocationService {
+    
+    private final RosterRepository rosterRepository;
+    private final StaffMatchingIndex staffMatchingIndex;
+    private final RegionDistanceMatrix regionDistanceMatrix;
+    private final PublicHolidayCalendar publicHolidayCalendar;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer solveTimer;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, RosterJob> jobs = new ConcurrentHashMap<>();
+    
+    @Value("${app.roster.max-range-days:31}")
+    private int maxRangeDays;
+    
+    @Value("${app.roster.candidates-per-service:24}")
+    private int candidatesPerService;
+    
+    @Value("${app.roster.min-rest-hours:11}")
+    private int minRestHours;
+    
+    @Value("${app.roster.max-weekly-hours:38}")
+    private int maxWeeklyHours;
+    
+    @Value("${app.roster.job-ttl-minutes:60}")
+    private long jobTtlMinutes;
+    
+    @Value("${app.matching.good-availability-minutes:240}")
+    private int goodAvailabilityMinutes;
+    
+    @Value("${app.matching.max-distance-km:Infinity}")
+    private double maxMatchDistanceKm;
+    
+    public RosterAllocationService(RosterRepository rosterRepository,
+                                   StaffMatchingIndex staffMatchingIndex,
+                                   RegionDistanceMatrix regionDistanceMatrix,
+                                   PublicHolidayCalendar publicHolidayCalendar,
+                                   TransactionTemplate transactionTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.roster.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                                   @Value("${app.roster.queue-capacity:4}") int queueCapacity) {
+        this.rosterRepository = rosterRepository;
+        this.staffMatchingIndex = staffMatchingIndex;
+        this.regionDistanceMatrix = regionDistanceMatrix;
+        this.publicHolidayCalendar = publicHolidayCalendar;
+        this.transactionTemplate = transactionTemplate;
+        this.solveTimer = Timer.builder("cms.roster.solve")
+            .description("Time to compute a batch roster allocation")
+            .register(meterRegistry);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "roster-allocation-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        meterRegistry.gauge("cms.roster.jobs.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+    
+    /**
+     * Queue an allocation of every unassigned service scheduled between from and to inclusive
+     */
+    public RosterAllocationDto startAllocation(RosterAllocationRequestDto request) {
+        LocalDate from = request.getFrom();
+        LocalDate to = request.getTo();
+        if (to.isBefore(from)) {
+            throw new InvalidRequestException("to must not be before from");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxRangeDays) {
+            throw new InvalidRequestException("Roster range cannot exceed " + maxRangeDays + " days");
+        }
+        
+        RosterJob job = new RosterJob(UUID.randomUUID().toString(), from, to, SecurityUtils.getCurrentUserId());
+        jobs.put(job.id, job);
+        try {
+            job.future = executor.submit(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new BusinessRuleException("Too many roster allocations in progress, try again shortly");
+        }
+        log.info("Roster allocation {} queued for {} to {} by {}", job.id, from, to, job.requestedBy);
+        return toDto(job);
+    }
+    
+    public RosterAllocationDto getAllocation(String jobId) {
+        return toDto(findJob(jobId));
+    }
+    
+    /**
+     * Stop a queued or running job; the solver checks the flag between services
+     */
+    public RosterAllocationDto cancelAllocation(String jobId) {
+        RosterJob job = findJob(jobId);
+        job.cancelled = true;
+        if (job.status == RosterAllocationDto.StatusEnum.QUEUED && job.future != null && job.future.cancel(false)) {
+            job.finish(RosterAllocationDto.StatusEnum.CANCELLED);
+        }
+        return toDto(job);
+    }
+    
+    /**
+     * Write a completed roster to services.assigned_to in one batched transaction
+     * Services assigned since the roster was computed are left untouched and not counted
+     */
+    public RosterAllocationDto applyAllocation(String jobId) {
+        RosterJob job = findJob(jobId);
+        synchronized (job) {
+            if (job.status != RosterAllocationDto.StatusEnum.COMPLETED) {
+                throw new BusinessRuleException("Roster allocation " + jobId + " is " + job.status + " and cannot be applied");
+            }
+            Map<String, String> staffIdByServiceId = new LinkedHashMap<>();
+            job.solution.assignments().forEach(a -> staffIdByServiceId.put(a.serviceId(), a.staffId()));
+            Integer applied = transactionTemplate.execute(status -> rosterRepository.assign(staffIdByServiceId));
+            job.appliedCount = applied;
+            job.status = RosterAllocationDto.StatusEnum.APPLIED;
+            log.info("Roster allocation {} applied by {}: {} of {} services assigned",
+                     jobId, SecurityUtils.getCurrentUserId(), applied, staffIdByServiceId.size());
+        }
+        return toDto(job);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.roster.cleanup-interval:300000}")
+    public void removeExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(jobTtlMinutes);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(job -> job.cancelled = true);
+        executor.shutdownNow();
+    }
+    
+    private void run(RosterJob job) {
+        if (job.cancelled) {
+            job.finish(RosterAllocationDto.StatusEnum.CANCELLED);
+            return;
+        }
+        job.status = RosterAllocationDto.StatusEnum.RUNNING;
+        job.update("loading", 0, 0);
+        Timer.Sample sample = Timer.start();
+        try {
+            // One consistent staff view for the whole job, even if the index is rebuilt meanwhile
+            StaffMatchingSnapshot snapshot = staffMatchingIndex.snapshot();
+            List<RosterRepository.UnassignedService> services = rosterRepository.findUnassignedServices(job.from, job.to);
+            List<RosterSlot> slots = services.stream()
+                .map(this::toSlot)
+                .toList();
+            // Public holiday penalty rates apply in the participant's state
+            job.publicHolidayServiceIds = services.stream()
+                .filter(service -> publicHolidayCalendar.forStateId(service.stateId()).isPublicHoliday(service.scheduledDate()))
+                .map(RosterRepository.UnassignedService::id)
+                .collect(Collectors.toUnmodifiableSet());
+            
+            // Whole ISO weeks for the weekly cap, plus a day either side for the rest period
+            LocalDate bookingsFrom = job.from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).minusDays(1);
+            LocalDate bookingsTo = job.to.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY)).plusDays(1);
+            List<StaffCommitment> commitments = rosterRepository.findCommitments(bookingsFrom, bookingsTo);
+            List<AvailabilityWindow> availability = rosterRepository.findAvailability();
+            
+            RosterSolver solver = new RosterSolver(snapshot, candidatesPerService,
+                minRestHours * 60, maxWeeklyHours * 60);
+            job.solution = solver.solve(slots, commitments, availability, job);
+            job.finish(RosterAllocationDto.StatusEnum.COMPLETED);
+            log.info("Roster allocation {} completed: {} assigned, {} unallocated",
+                     job.id, job.solution.assignments().size(), job.solution.unallocated().size());
+        } catch (CancellationException e) {
+            job.finish(RosterAllocationDto.StatusEnum.CANCELLED);
+            log.info("Roster allocation {} cancelled", job.id);
+        } catch (RuntimeException e) {
+            job.error = e.getMessage();
+            job.finish(RosterAllocationDto.StatusEnum.FAILED);
+            log.error("Roster allocation {} failed", job.id, e);
+        } finally {
+            sample.stop(solveTimer);
+        }
+    }
+    
+    /**
+     * Same criteria StaffService.findMatchingStaff builds for a single service
+     */
+    private RosterSlot toSlot(RosterRepository.UnassignedService service) {
+        MatchCriteria criteria = new MatchCriteria(
+            service.participantId(),
+            StaffService.requiredQualifications(service.serviceType()),
+            StaffMatchingRepository.splitList(service.languagesSpoken()),
+            service.culturalBackground(),
+            staffRegionId -> regionDistanceMatrix.distance(staffRegionId, service.regionId()),
+            service.latitude(),
+            service.longitude(),
+            maxMatchDistanceKm,
+            service.scheduledDate().getDayOfWeek(),
+            goodAvailabilityMinutes);
+        
+        int start = service.startMinute();
+        int end = service.endMinute();
+        if (start < 0 || end < 0) {
+            return new RosterSlot(service.id(), service.scheduledDate(), -1, -1, criteria);
+        }
+        return new RosterSlot(service.id(), service.scheduledDate(), start, end > start ? end : end + 1440, criteria);
+    }
+    
+    private RosterJob findJob(String jobId) {
+        RosterJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new EntityNotFoundException("Roster allocation not found: " + jobId);
+        }
+        return job;
+    }
+    
+    private RosterAllocationDto toDto(RosterJob job) {
+        RosterAllocationDto dto = new RosterAllocationDto();
+        dto.setJobId(job.id);
+        dto.setStatus(job.status);
+        dto.setPhase(job.phase);
+        dto.setProcessed(job.processed);
+        dto.setTotal(job.total);
+        dto.setFrom(job.from);
+        dto.setTo(job.to);
+        dto.setRequestedBy(job.requestedBy);
+        dto.setCreatedAt(job.createdAt);
+        dto.setFinishedAt(job.finishedAt);
+        dto.setAppliedCount(job.appliedCount);
+        dto.setError(job.error);
+        
+        RosterSolution solution = job.solution;
+        if (solution != null) {
+            dto.setAssignedCount(solution.assignments().size());
+            dto.setUnallocatedCount(solution.unallocated().size());
+            dto.setAssignments(solution.assignments().stream()
+                .map(a -> {
+                    RosterAllocationDto.Assignment assignment = new RosterAllocationDto.Assignment();
+                    assignment.setServiceId(a.serviceId());
+                    assignment.setStaffId(a.staffId());
+                    assignment.setStaffName(a.staffName());
+                    assignment.setMatchScore(a.score());
+                    assignment.setPublicHoliday(job.publicHolidayServiceIds.contains(a.serviceId()));
+                    return assignment;
+                })
+                .toList());
+            dto.setUnallocated(solution.unallocated().stream()
+                .map(u -> {
+                    RosterAllocationDto.Unallocated unallocated = new RosterAllocationDto.Unallocated();
+                    unallocated.setServiceId(u.serviceId());
+                    unallocated.setReason(u.reason().name());
+                    return unallocated;
+                })
+                .toList());
+        }
+        return dto;
+    }
+    
+    /**
+     * Mutable job state, written by the worker and read by status requests
+     */
+    private static final class RosterJob implements RosterProgress {
+        
+        final String id;
+        final LocalDate from;
+        final LocalDate to;
+        final String requestedBy;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        
+        volatile Future<?> future;
+        volatile boolean cancelled;
+        volatile RosterAllocationDto.StatusEnum status = RosterAllocationDto.StatusEnum.QUEUED;
+        volatile String phase = "queued";
+        volatile int processed;
+        volatile int total;
+        volatile RosterSolution solution;
+        volatile Set<String> publicHolidayServiceIds = Set.of();
+        volatile Integer appliedCount;
+        volatile String error;
+        volatile LocalDateTime finishedAt;
+        
+        RosterJob(String id, LocalDate from, LocalDate to, String requestedBy) {
+            this.id = id;
+            this.from = from;
+            this.to = to;
+            this.requestedBy = requestedBy;
+        }
+        
+        @Override
+        public void update(String phase, int done, int total) {
+            this.phase = phase;
+            this.processed = done;
+            this.total = total;
+        }
+        
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+        
+        void finish(RosterAllocationDto.StatusEnum status) {
+            this.status = status;
+            this.finishedAt = LocalDateTime.now();
+        }
+    }
+}
\ No newline at end of file
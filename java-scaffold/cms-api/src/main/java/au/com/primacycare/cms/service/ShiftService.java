@@ -0,0 +1,176 @@
+package au.com.primacycare.cms.service;
+
+import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.entity.Shift;
+import au.com.primacycare.cms.event.ShiftChangedEvent;
+import au.com.primacycare.cms.exception.InvalidRequestException;
+import au.com.primacycare.cms.mapper.ShiftMapper;
+import au.com.primacycare.cms.repository.ShiftRepository;
+import au.com.primacycare.cms.scheduling.ShiftConflict;
+import au.com.primacycare.cms.scheduling.ShiftInterval;
+import au.com.primacycare.cms.scheduling.ShiftIntervalIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service skeleton for Shift write operations with TODO markers for business logic
+ * References Node.js implementation in server/storage.ts (createShift, clockOutShift)
+ *
+ * Every write publishes a ShiftChangedEvent so read models (staff metrics) stay current.
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+@Slf4j
+public class ShiftService {
+    
+    private static final String CANCELLED = "Cancelled";
+    
+    private final ShiftRepository shiftRepository;
+    private final ShiftMapper shiftMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShiftIntervalIndex shiftIntervalIndex;
+    
+    @Value("${app.shift-index.max-report-days:93}")
+    private int maxConflictReportDays;
+    
+    /**
+     * Create shift
+     * Mirrors: server/routes.ts POST /api/shifts
+     */
+    public ShiftDto createShift(ShiftDto dto) {
+        log.info("Creating shift for staff: {} on {}", dto.getAssignedStaffId(), dto.getShiftDate());
+        
+        Shift shift = shiftMapper.toEntity(dto);
+        shift.setId(UUID.randomUUID().toString());
+        checkConflicts(shift.getId(), ShiftChangedEvent.State.of(shift));
+        shift = shiftRepository.save(shift);
+        
+        eventPublisher.publishEvent(ShiftChangedEvent.created(shift));
+        
+        return shiftMapper.toDto(shift);
+    }
+    
+    /**
+     * Change shift status (cancel, no-show, reassign back to scheduled)
+     */
+    public ShiftDto updateShiftStatus(String id, String status) {
+        log.info("Updating shift {} status to {}", id, status);
+        
+        Shift shift = shiftRepository.findById(id)
+            .orElseThrow(() -> new EntityNotFoundException("Shift not found: " + id));
+        ShiftChangedEvent.State before = ShiftChangedEvent.State.of(shift);
+        
+        // TODO: Business rule - Notify participant and staff on cancellation
+        shift.setStatus(status);
+        if (CANCELLED.equals(before.status())) {
+            // A cancelled shift is not booked; reinstating it books its slot again
+            checkConflicts(id, ShiftChangedEvent.State.of(shift));
+        }
+        shift = shiftRepository.save(shift);
+        
+        eventPublisher.publishEvent(ShiftChangedEvent.changed(before, shift));
+        
+        return shiftMapper.toDto(shift);
+    }
+    
+    /**
+     * Clock out of a shift, recording actual hours
+     * Mirrors: server/storage.ts:clockOutShift()
+     */
+    public ShiftDto clockOut(ClockOutDto dto) {
+        Shift shift = shiftRepository.findById(dto.getShiftId())
+            .orElseThrow(() -> new EntityNotFoundException("Shift not found: " + dto.getShiftId()));
+        if (shift.getActualStartTime() == null) {
+            throw new BusinessRuleException("Cannot clock out of a shift that was not clocked in");
+        }
+        ShiftChangedEvent.State before = ShiftChangedEvent.State.of(shift);
+        
+        // TODO: Business rule - Verify clock-out location is within range of the participant address
+        LocalTime end = LocalTime.now();
+        shift.setActualEndTime(end);
+        shift.setClockOutLat(dto.getLatitude());
+        shift.setClockOutLng(dto.getLongitude());
+        shift.setCaseNotes(dto.getCaseNotes());
+        shift.setIncidentReport(dto.getIncidentReport());
+        if (dto.getBreakMinutes() != null) {
+            shift.setBreakMinutes(dto.getBreakMinutes());
+        }
+        shift.setTotalHours(workedHours(shift.getActualStartTime(), end, shift.getBreakMinutes()));
+        shift.setStatus("Completed");
+        shift = shiftRepository.save(shift);
+        
+        eventPublisher.publishEvent(ShiftChangedEvent.changed(before, shift));
+        
+        return shiftMapper.toDto(shift);
+    }
+    
+    /**
+     * Organisation-wide overlap and rest-period report for shifts dated between from and to inclusive
+     */
+    @Transactional(readOnly = true)
+    public List<ShiftConflictDto> getConflicts(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new InvalidRequestException("to must not be before from");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxConflictReportDays) {
+            throw new InvalidRequestException("Conflict report range cannot exceed " + maxConflictReportDays + " days");
+        }
+        return shiftIntervalIndex.findConflicts(from, to).stream()
+            .map(this::toConflictDto)
+            .toList();
+    }
+    
+    /**
+     * Reject booking a shift that overlaps another shift of its staff member or falls within their
+     * minimum rest period of a shift on another day
+     * Checked against committed shifts, so two concurrent bookings can both pass; GET /shifts/conflicts reports them
+     */
+    private void checkConflicts(String shiftId, ShiftChangedEvent.State shift) {
+        if (shift.staffId() == null || shift.shiftDate() == null || shift.startTime() == null
+                || shift.endTime() == null || CANCELLED.equals(shift.status())) {
+            return;
+        }
+        if (shiftIntervalIndex.hasConflict(shift.staffId(), shift.shiftDate(), shift.startTime(), shift.endTime(), shiftId)) {
+            throw new BusinessRuleException("Shift on " + shift.shiftDate() + " overlaps another shift of staff "
+                + shift.staffId() + " or falls within their minimum rest period");
+        }
+    }
+    
+    private ShiftConflictDto toConflictDto(ShiftConflict conflict) {
+        ShiftConflictDto dto = new ShiftConflictDto();
+        dto.setStaffId(conflict.staffId());
+        dto.setShiftId(conflict.shiftId());
+        dto.setConflictingShiftId(conflict.conflictingShiftId());
+        dto.setType(ShiftConflictDto.ConflictTypeEnum.valueOf(conflict.type().name()));
+        dto.setShiftStart(ShiftInterval.toDateTime(conflict.shiftStart()));
+        dto.setConflictingShiftStart(ShiftInterval.toDateTime(conflict.conflictingShiftStart()));
+        dto.setGapMinutes(conflict.gapMinutes());
+        return dto;
+    }
+    
+    /**
+     * Hours between start and end less breaks, allowing shifts that cross midnight
+     */
+    private BigDecimal workedHours(LocalTime start, LocalTime end, Integer breakMinutes) {
+        long minutes = Duration.between(start, end).toMinutes();
+        if (minutes < 0) {
+            minutes += Duration.ofDays(1).toMinutes();
+        }
+        minutes -= breakMinutes != null ? breakMinutes : 0;
+        return BigDecimal.valueOf(Math.max(minutes, 0)).divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package au.com.primacycare.cms.service;
+
+import au.com.primacycare.cms.repository.StaffMetricsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Nightly rebuild of the staff metrics read model from shifts
+ * Corrects drift from shift writes that bypass ShiftService (e.g. the Node.js app or manual SQL)
+ */
+@Component
+@Slf4j
+public class StaffMetricsReconciliationJob {
+    
+    private final StaffMetricsRepository staffMetricsRepository;
+    private final StaffMetricsUpdater staffMetricsUpdater;
+    private final int hoursLookbackDays;
+    private final Counter correctedRows;
+    
+    public StaffMetricsReconciliationJob(StaffMetricsRepository staffMetricsRepository,
+                                         StaffMetricsUpdater staffMetricsUpdater,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${app.staff-metrics.reconcile-lookback-days:400}") int hoursLookbackDays) {
+        this.staffMetricsRepository = staffMetricsRepository;
+        this.staffMetricsUpdater = staffMetricsUpdater;
+        this.hoursLookbackDays = hoursLookbackDays;
+        this.correctedRows = Counter.builder("cms.staff.metrics.reconciled")
+            .description("Staff metrics rows corrected by the nightly reconciliation")
+            .register(meterRegistry);
+    }
+    
+    @Scheduled(cron = "${app.staff-metrics.reconcile-cron:0 15 3 * * *}")
+    @Transactional
+    public void reconcile() {
+        int counts = staffMetricsRepository.reconcileCounts();
+        int hours = staffMetricsRepository.reconcileHours(LocalDate.now().minusDays(hoursLookbackDays));
+        correctedRows.increment(counts + hours);
+        if (counts + hours > 0) {
+            log.warn("Staff metrics drift corrected: {} counter rows, {} daily hour rows", counts, hours);
+            staffMetricsUpdater.evictStaffPages();
+        } else {
+            log.info("Staff metrics reconciled, no drift");
+        }
+    }
+}
\ No newline at end of file
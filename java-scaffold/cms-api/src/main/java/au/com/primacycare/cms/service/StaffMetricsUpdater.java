@@ -0,0 +1,106 @@
+package au.com.primacycare.cms.service;
+
+import au.com.primacycare.cms.event.ShiftChangedEvent;
+import au.com.primacycare.cms.repository.StaffMetricsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Applies shift changes to the staff_metrics read model as counter deltas
+ * Hours are those of completed shifts only: scheduled hours have not been worked yet, and
+ * cancelled ones never will be
+ * Runs synchronously in the publishing transaction, so metrics commit or roll back with the shift
+ * Cached staff pages embed these metrics, so they are evicted once the change has committed
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StaffMetricsUpdater {
+    
+    private static final String SCHEDULED = "Scheduled";
+    private static final String COMPLETED = "Completed";
+    
+    private static final String STAFF_CACHE = "staff";
+    
+    private final StaffMetricsRepository staffMetricsRepository;
+    private final CacheManager cacheManager;
+    
+    @EventListener
+    public void onShiftChanged(ShiftChangedEvent event) {
+        ShiftChangedEvent.State before = event.before();
+        ShiftChangedEvent.State after = event.after();
+        if (sameMetrics(before, after)) {
+            return;
+        }
+        log.debug("Applying shift {} change to staff metrics", event.shiftId());
+        if (before != null) {
+            apply(before, -1);
+        }
+        if (after != null) {
+            apply(after, 1);
+        }
+        evictStaffPages();
+    }
+    
+    /**
+     * Drop cached staff pages after the current transaction commits, or now outside one
+     * Pages are keyed by page and department rather than staff member, so all of them go
+     */
+    public void evictStaffPages() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clearStaffCache();
+                }
+            });
+        } else {
+            clearStaffCache();
+        }
+    }
+    
+    private void clearStaffCache() {
+        Cache cache = cacheManager.getCache(STAFF_CACHE);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+    
+    /**
+     * Rescheduling within the same day changes nothing here
+     */
+    private static boolean sameMetrics(ShiftChangedEvent.State before, ShiftChangedEvent.State after) {
+        if (before == null || after == null) {
+            return before == after;
+        }
+        return Objects.equals(before.staffId(), after.staffId())
+            && Objects.equals(before.shiftDate(), after.shiftDate())
+            && Objects.equals(before.status(), after.status())
+            && Objects.equals(before.totalHours(), after.totalHours());
+    }
+    
+    private void apply(ShiftChangedEvent.State state, int sign) {
+        if (state.staffId() == null) {
+            return;
+        }
+        int scheduled = SCHEDULED.equals(state.status()) ? sign : 0;
+        int completed = COMPLETED.equals(state.status()) ? sign : 0;
+        if (scheduled != 0 || completed != 0) {
+            staffMetricsRepository.addCounts(state.staffId(), scheduled, completed);
+        }
+        if (completed != 0 && state.shiftDate() != null) {
+            BigDecimal hours = state.totalHours() != null ? state.totalHours() : BigDecimal.ZERO;
+            staffMetricsRepository.addHours(state.staffId(), state.shiftDate(),
+                sign > 0 ? hours : hours.negate(), sign);
+        }
+    }
+}
\ No newline at end of file
@@ -2,13 +2,25 @@ package au.com.primacycare.cms.service;
 
 import au.com.primacycare.cms.dto.*;
 import au.com.primacycare.cms.entity.Staff;
+import au.com.primacycare.cms.event.StaffChangedEvent;
+import au.com.primacycare.cms.geo.RegionDistanceMatrix;
 import au.com.primacycare.cms.mapper.StaffMapper;
+import au.com.primacycare.cms.matching.MatchCriteria;
+import au.com.primacycare.cms.matching.StaffMatchingIndex;
+import au.com.primacycare.cms.payroll.AwardRateTable;
+import au.com.primacycare.cms.repository.KeysetCursor;
+import au.com.primacycare.cms.repository.StaffMatchingRepository;
+import au.com.primacycare.cms.repository.StaffMetricsRepository;
 import au.com.primacycare.cms.repository.StaffRepository;
+import au.com.primacycare.cms.scheduling.ShiftIntervalIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -17,7 +29,10 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -30,18 +45,46 @@ import java.util.stream.Collectors;
 @Slf4j
 public class StaffService {
     
+    /** SCHADS classification named in a position title, e.g. "Support Worker Level 2" */
+    private static final Pattern AWARD_LEVEL = Pattern.compile("\\blevel\\s*([1-8])\\b", Pattern.CASE_INSENSITIVE);
+    
     private final StaffRepository staffRepository;
+    private final StaffMetricsRepository staffMetricsRepository;
+    private final StaffMatchingIndex staffMatchingIndex;
+    private final RegionDistanceMatrix regionDistanceMatrix;
+    private final ShiftIntervalIndex shiftIntervalIndex;
+    private final ApplicationEventPublisher eventPublisher;
     private final StaffMapper staffMapper;
     private final AuditService auditService;
     private final NotificationService notificationService;
     private final PayrollService payrollService;
+    private final PayrollRunService payrollRunService;
+    private final AwardRateTable awardRateTable;
     private final SchedulingService schedulingService;
     
+    @Value("${app.pagination.max-size:200}")
+    private int maxPageSize;
+    
+    @Value("${app.staff-metrics.max-buckets:366}")
+    private int maxMetricBuckets;
+    
+    @Value("${app.payroll.pay-period-anchor:2024-01-01}")
+    private LocalDate payPeriodAnchor;
+    
+    @Value("${app.payroll.default-level:3}")
+    private int defaultAwardLevel;
+    
+    @Value("${app.matching.good-availability-minutes:240}")
+    private int goodAvailabilityMinutes;
+    
+    @Value("${app.matching.max-distance-km:Infinity}")
+    private double maxMatchDistanceKm;
+    
     /**
      * Get all staff with filtering and pagination
      * Mirrors: server/storage.ts:getStaff()
      */
-    @Cacheable(value = "staff", key = "#pageable.pageNumber + '-' + #department")
+    @Cacheable(value = "staff", key = "#pageable.pageNumber + '-' + #pageable.pageSize + '-' + #department")
     @Transactional(readOnly = true)
     public Page<StaffDto> getStaff(Pageable pageable, String department) {
         log.debug("Fetching staff page: {}, department: {}", pageable.getPageNumber(), department);
@@ -59,15 +102,62 @@ public class StaffService {
             staff = staffRepository.findAll(pageable);
         }
         
-        return staff.map(s -> {
-            StaffDto dto = staffMapper.toDto(s);
-            
-            // TODO: Calculate utilization metrics
-            // Reference: server/cache.ts staff metrics calculation
-            calculateStaffMetrics(s, dto);
-            
-            return dto;
-        });
+        Page<StaffDto> page = staff.map(staffMapper::toDto);
+        
+        // Utilization metrics come from the staff_metrics read model in one query for the page
+        // Reference: server/cache.ts staff metrics calculation
+        calculateStaffMetrics(page.getContent());
+        
+        return page;
+    }
+    
+    /**
+     * Get staff by keyset cursor, newest first, without a count query
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDto<StaffDto> getStaffByCursor(String cursor, int size, String department) {
+        int limit = Math.min(Math.max(size, 1), maxPageSize);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        String departmentFilter = department != null && !department.isEmpty() ? department : null;
+        log.debug("Fetching staff by cursor: {}, size: {}, department: {}", after, limit, departmentFilter);
+        
+        PageRequest fetch = PageRequest.of(0, limit + 1);
+        List<Staff> rows = after == null
+            ? staffRepository.findFirstKeysetPage(departmentFilter, fetch)
+            : staffRepository.findKeysetPageAfter(departmentFilter, after.createdAt(), after.id(), fetch);
+        
+        CursorPageDto<StaffDto> page = KeysetCursor.toPage(rows, limit, staffMapper::toDto,
+            Staff::getCreatedAt, Staff::getId);
+        calculateStaffMetrics(page.getContent());
+        return page;
+    }
+    
+    /**
+     * Hours and utilisation for a staff member over the current and previous buckets of a window
+     * Cost is proportional to the days covered, independent of shift history
+     */
+    @Transactional(readOnly = true)
+    public List<StaffHoursBucketDto> getStaffHours(String staffId, StaffHoursBucketDto.WindowEnum window, int periods) {
+        if (!staffRepository.existsById(staffId)) {
+            throw new EntityNotFoundException("Staff not found: " + staffId);
+        }
+        return getHoursBuckets(staffId, null, window, periods);
+    }
+    
+    /**
+     * Department-wide hours and utilisation over the current and previous buckets of a window
+     */
+    @Transactional(readOnly = true)
+    public List<StaffHoursBucketDto> getDepartmentHours(String department, StaffHoursBucketDto.WindowEnum window, int periods) {
+        return getHoursBuckets(null, department, window, periods);
+    }
+    
+    private List<StaffHoursBucketDto> getHoursBuckets(String staffId, String department,
+                                                      StaffHoursBucketDto.WindowEnum window, int periods) {
+        int buckets = Math.min(Math.max(periods, 1), maxMetricBuckets);
+        LocalDate current = window.bucketStart(LocalDate.now(), payPeriodAnchor);
+        LocalDate first = window.plus(current, -(buckets - 1));
+        return staffMetricsRepository.findHoursBuckets(staffId, department, window, first, current);
     }
     
     /**
@@ -95,17 +185,15 @@ public class StaffService {
         // - Schedule initial training
         // - Set up system access based on role
         
-        // TODO: Business rule - Set up SCHADS award classification
-        // Reference: Australian SCHADS Award rates
-        // - Determine classification level based on qualifications
-        // - Set base rate according to award
-        // - Configure penalty rates for weekends/public holidays
+        // SCHADS base rate from the award classification; penalty rates come from the award rate table
         BigDecimal baseRate = calculateSchadsBaseRate(dto.getPosition(), dto.getQualifications());
         
         staff = staffRepository.save(staff);
+        staffRepository.updateBaseRate(staff.getId(), baseRate);
         
-        // TODO: Business rule - Send onboarding notifications
-        // - Welcome email with login credentials
+        // Welcome email and SMS, queued in the outbox and sent once this transaction commits
+        // TODO: Business rule - Remaining onboarding notifications
+        // - Login credentials
         // - Manager notification
         // - HR task assignment
         notificationService.sendStaffOnboardingNotifications(staff);
@@ -113,6 +201,8 @@ public class StaffService {
         // Audit log
         auditService.logStaffOnboarded(staff.getId(), SecurityUtils.getCurrentUserId(), staff);
         
+        eventPublisher.publishEvent(new StaffChangedEvent(staff.getId()));
+        
         return staffMapper.toDto(staff);
     }
     
@@ -128,7 +218,7 @@ public class StaffService {
         Staff staff = staffRepository.findById(id)
             .orElseThrow(() -> new EntityNotFoundException("Staff not found: " + id));
         
-        Staff oldStaff = staff.clone();
+        Map<String, Object> oldValues = auditService.snapshot(staff);
         
         // TODO: Business rule - Handle department change
         // Reference: server/routes.ts staff department logic
@@ -150,7 +240,9 @@ public class StaffService {
         staff = staffRepository.save(staff);
         
         // Audit log
-        auditService.logUpdate("staff", staff.getId(), oldStaff, staff);
+        auditService.logUpdate("staff", staff.getId(), oldValues, staff);
+        
+        eventPublisher.publishEvent(new StaffChangedEvent(staff.getId()));
         
         return staffMapper.toDto(staff);
     }
@@ -164,10 +256,9 @@ public class StaffService {
     public List<StaffAvailabilityDto> getStaffAvailability(String staffId, LocalDate weekStart) {
         log.debug("Fetching availability for staff: {} week: {}", staffId, weekStart);
         
-        // TODO: Business rule - Calculate availability with conflict detection
+        // Conflicts (overlapping shifts, 11-hour rest between days) come from the in-memory shift index
+        // TODO: Business rule - Remaining availability rules
         // Reference: server/storage.ts availability logic
-        // - Check against existing shifts
-        // - Validate minimum rest periods (11 hours between shifts)
         // - Apply maximum hours per week restrictions
         // - Consider public holidays and leave
         
@@ -178,10 +269,7 @@ public class StaffService {
             .map(avail -> {
                 StaffAvailabilityDto dto = staffMapper.toAvailabilityDto(avail);
                 
-                // TODO: Mark conflicts
-                if (hasConflictingShift(avail)) {
-                    dto.setHasConflict(true);
-                }
+                dto.setHasConflict(hasConflictingShift(staffId, avail, weekStart));
                 
                 return dto;
             })
@@ -194,220 +282,113 @@ public class StaffService {
      */
     @Transactional(readOnly = true)
     public List<StaffAllocationDto> findMatchingStaff(String participantId, String serviceType, LocalDate date) {
-        log.info("Finding matching staff for participant: {} service: {} date: {}", 
+        log.info("Finding matching staff for participant: {} service: {} date: {}",
                  participantId, serviceType, date);
         
-        // TODO: Business rule - Implement intelligent staff matching
-        // Reference: server/workflowService.ts matching algorithm
-        
-        List<Staff> availableStaff = staffRepository.findAvailableStaff(date);
         Participant participant = participantRepository.findById(participantId)
             .orElseThrow(() -> new EntityNotFoundException("Participant not found"));
         
-        return availableStaff.stream()
-            .map(staff -> {
+        // Candidates and scores come from the in-memory index: availability on the weekday,
+        // qualification (30), proximity (25/15/5), prior relationship (20), language/culture (15),
+        // availability fit (10). Only the top 10 are materialised.
+        MatchCriteria criteria = new MatchCriteria(
+            participantId,
+            requiredQualifications(serviceType),
+            StaffMatchingRepository.splitList(participant.getLanguagesSpoken()),
+            participant.getCulturalBackground(),
+            staffRegionId -> calculateDistance(staffRegionId, participant.getRegionId()),
+            participant.getLatitude(),
+            participant.getLongitude(),
+            maxMatchDistanceKm,
+            date.getDayOfWeek(),
+            goodAvailabilityMinutes);
+        
+        return staffMatchingIndex.topMatches(criteria, 10).stream()
+            .map(match -> {
                 StaffAllocationDto allocation = new StaffAllocationDto();
-                allocation.setStaffId(staff.getId());
-                allocation.setStaffName(staff.getFirstName() + " " + staff.getLastName());
-                
-                // TODO: Calculate matching score based on multiple factors
-                int score = 0;
-                
-                // 1. Qualification match (0-30 points)
-                // Reference: NDIS qualification requirements
-                if (hasRequiredQualification(staff, serviceType)) {
-                    score += 30;
-                }
-                
-                // 2. Geographic proximity (0-25 points)
-                // Reference: server/workflowService.ts distance calculation
-                double distance = calculateDistance(staff.getRegionId(), participant.getRegionId());
-                if (distance < 5) {
-                    score += 25;
-                } else if (distance < 15) {
-                    score += 15;
-                } else if (distance < 30) {
-                    score += 5;
-                }
-                
-                // 3. Previous relationship (0-20 points)
-                // Reference: Continuity of care principle
-                if (hasWorkedWithParticipant(staff.getId(), participantId)) {
-                    score += 20;
-                }
-                
-                // 4. Language/cultural match (0-15 points)
-                // Reference: Cultural safety requirements
-                if (matchesCulturalNeeds(staff, participant)) {
-                    score += 15;
-                }
-                
-                // 5. Availability fit (0-10 points)
-                // Reference: Roster optimization
-                if (hasGoodAvailability(staff.getId(), date)) {
-                    score += 10;
-                }
-                
-                allocation.setMatchScore(score);
-                allocation.setRecommendationReason(generateRecommendationReason(score));
-                
+                allocation.setStaffId(match.staffId());
+                allocation.setStaffName(match.staffName());
+                allocation.setMatchScore(match.score());
+                allocation.setRecommendationReason(generateRecommendationReason(match.score()));
                 return allocation;
             })
-            .sorted((a, b) -> Integer.compare(b.getMatchScore(), a.getMatchScore()))
-            .limit(10) // Return top 10 matches
             .collect(Collectors.toList());
     }
     
     /**
      * Calculate SCHADS payroll
      * Mirrors: Payroll calculation logic
+     * Organisation-wide pay periods go through PayrollRunService runs instead
      */
     @Async
     @Transactional
     public void calculatePayroll(String staffId, LocalDate payPeriodStart, LocalDate payPeriodEnd) {
-        log.info("Calculating payroll for staff: {} period: {} to {}", 
+        log.info("Calculating payroll for staff: {} period: {} to {}",
                  staffId, payPeriodStart, payPeriodEnd);
         
-        Staff staff = staffRepository.findById(staffId)
-            .orElseThrow(() -> new EntityNotFoundException("Staff not found"));
+        if (!staffRepository.existsById(staffId)) {
+            throw new EntityNotFoundException("Staff not found");
+        }
         
         // TODO: Business rule - SCHADS Award calculation
         // Reference: Australian SCHADS Modern Award
         // https://www.fairwork.gov.au/employment-conditions/awards/
-        
-        List<Shift> shifts = shiftRepository.findByStaffIdAndPeriod(staffId, payPeriodStart, payPeriodEnd);
-        
-        BigDecimal totalPay = BigDecimal.ZERO;
-        BigDecimal totalHours = BigDecimal.ZERO;
-        
-        for (Shift shift : shifts) {
-            // TODO: Calculate rates based on time of shift
-            BigDecimal rate = staff.getBaseRate();
-            
-            // Apply penalty rates
-            if (isWeekend(shift.getShiftDate())) {
-                // Saturday: 150% for first 2 hours, 200% thereafter
-                // Sunday: 200% all day
-                if (shift.getShiftDate().getDayOfWeek() == DayOfWeek.SATURDAY) {
-                    rate = applyPenaltyRate(rate, 1.5, 2.0, shift.getTotalHours());
-                } else {
-                    rate = rate.multiply(BigDecimal.valueOf(2.0));
-                }
-            } else if (isPublicHoliday(shift.getShiftDate())) {
-                // Public holiday: 250%
-                rate = rate.multiply(BigDecimal.valueOf(2.5));
-            } else if (isNightShift(shift.getStartTime())) {
-                // Night shift (10pm-6am): 115%
-                rate = rate.multiply(BigDecimal.valueOf(1.15));
-            } else if (isEveningShift(shift.getStartTime())) {
-                // Evening shift (6pm-10pm): 112.5%
-                rate = rate.multiply(BigDecimal.valueOf(1.125));
-            }
-            
-            // TODO: Add allowances
-            // - Travel allowance
-            // - Meal allowance
-            // - Sleep-over allowance
-            // - First aid allowance
-            
-            BigDecimal shiftPay = rate.multiply(shift.getTotalHours());
-            totalPay = totalPay.add(shiftPay);
-            totalHours = totalHours.add(shift.getTotalHours());
-            
-            // Update shift with calculated pay
-            shift.setTotalPay(shiftPay);
-            shiftRepository.save(shift);
-        }
-        
-        // TODO: Calculate superannuation (11% as of 2024)
-        BigDecimal superannuation = totalPay.multiply(BigDecimal.valueOf(0.11));
-        
-        // TODO: Create payroll record
-        PayrollRecord payroll = new PayrollRecord();
-        payroll.setStaffId(staffId);
-        payroll.setPeriodStart(payPeriodStart);
-        payroll.setPeriodEnd(payPeriodEnd);
-        payroll.setTotalHours(totalHours);
-        payroll.setGrossPay(totalPay);
-        payroll.setSuperannuation(superannuation);
-        payrollRepository.save(payroll);
-        
-        // Audit log
-        auditService.logPayrollCalculated(staffId, payroll);
+        // Allowances claimed on shifts (shift_allowances) are priced into the shift pay
+        payrollRunService.calculateStaffPayroll(staffId, payPeriodStart, payPeriodEnd);
     }
     
     /**
-     * Helper: Calculate SCHADS base rate
+     * Helper: Calculate SCHADS base rate from the award rates in effect today
      */
     private BigDecimal calculateSchadsBaseRate(String position, List<String> qualifications) {
-        // TODO: Implement SCHADS award rate calculation
-        // Reference: SCHADS Modern Award pay rates
-        // Level 1: $28.26/hour (2024 rate)
-        // Level 2: $29.65/hour
-        // Level 3: $30.91/hour
-        // Level 4: $32.58/hour
-        // Level 5: $35.39/hour
-        // Level 6: $37.28/hour
-        // Level 7: $38.52/hour
-        // Level 8: $41.72/hour
-        
-        return BigDecimal.valueOf(30.91); // Default Level 3
+        // TODO: Determine classification level from qualifications as well
+        int level = defaultAwardLevel;
+        if (position != null) {
+            Matcher matcher = AWARD_LEVEL.matcher(position);
+            if (matcher.find()) {
+                level = Integer.parseInt(matcher.group(1));
+            }
+        }
+        return BigDecimal.valueOf(awardRateTable.forDate(LocalDate.now()).levelRateCents(level), 2);
     }
     
     /**
-     * Helper: Calculate staff metrics
+     * Helper: Attach staff metrics from the read model (maintained by StaffMetricsUpdater)
      */
-    private void calculateStaffMetrics(Staff staff, StaffDto dto) {
-        // TODO: Implement metrics calculation
-        // Reference: server/cache.ts metrics logic
+    private void calculateStaffMetrics(List<StaffDto> staff) {
+        List<String> ids = staff.stream().map(StaffDto::getId).toList();
+        Map<String, StaffMetricsDto> metrics = staffMetricsRepository.findByStaffIds(ids, YearMonth.now());
+        // TODO: Business rule - averageRating once participant feedback is captured
+        staff.forEach(dto -> dto.setMetrics(metrics.getOrDefault(dto.getId(), new StaffMetricsDto())));
     }
     
     /**
      * Helper: Check for conflicting shifts
      */
-    private boolean hasConflictingShift(StaffAvailability availability) {
-        // TODO: Check for shift conflicts
-        return false;
+    private boolean hasConflictingShift(String staffId, StaffAvailability availability, LocalDate weekStart) {
+        if (availability.getDayOfWeek() == null || availability.getStartTime() == null || availability.getEndTime() == null) {
+            return false;
+        }
+        // Concrete date of the recurring window within the requested week
+        int offset = Math.floorMod(availability.getDayOfWeek() - weekStart.getDayOfWeek().getValue(), 7);
+        return shiftIntervalIndex.hasConflict(staffId, weekStart.plusDays(offset),
+            availability.getStartTime(), availability.getEndTime(), null);
     }
     
     /**
-     * Helper: Check required qualifications
+     * Helper: Qualifications a service type requires
      */
-    private boolean hasRequiredQualification(Staff staff, String serviceType) {
+    static Set<String> requiredQualifications(String serviceType) {
         // TODO: Match qualifications to service requirements
-        return true;
+        // Reference: NDIS qualification requirements
+        return Set.of();
     }
     
     /**
-     * Helper: Calculate distance between regions
+     * Helper: Calculate distance between regions (centroid to centroid, km)
      */
     private double calculateDistance(String regionId1, String regionId2) {
-        // TODO: Implement distance calculation
-        return 10.0;
-    }
-    
-    /**
-     * Helper: Check previous participant relationship
-     */
-    private boolean hasWorkedWithParticipant(String staffId, String participantId) {
-        // TODO: Check service history
-        return false;
-    }
-    
-    /**
-     * Helper: Check cultural match
-     */
-    private boolean matchesCulturalNeeds(Staff staff, Participant participant) {
-        // TODO: Compare languages and cultural background
-        return false;
-    }
-    
-    /**
-     * Helper: Check availability quality
-     */
-    private boolean hasGoodAvailability(String staffId, LocalDate date) {
-        // TODO: Check roster gaps and preferences
-        return true;
+        return regionDistanceMatrix.distance(regionId1, regionId2);
     }
     
     /**
@@ -0,0 +1,227 @@
+package au.com.primacycare.cms.service;
+
+import au.com.primacycare.cms.dto.*;
+import au.com.primacycare.cms.event.WorkflowChangedEvent;
+import au.com.primacycare.cms.exception.InvalidRequestException;
+import au.com.primacycare.cms.repository.WorkflowRepository;
+import au.com.primacycare.cms.workflow.ReferralWorkflow;
+import au.com.primacycare.cms.workflow.Transition;
+import au.com.primacycare.cms.workflow.WorkflowStateMachine;
+import au.com.primacycare.cms.workflow.WorkflowSubject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Referral and participant workflow stages
+ * Mirrors: server/workflowService.ts
+ *
+ * Transitions are checked against ReferralWorkflow's table in memory and written with a version
+ * condition instead of a row lock, so intake officers working on different referrals never wait
+ * on each other and a referral moved by someone else since it was read is reported as a
+ * conflict rather than overwritten. Bulk transitions read, update and append history in batches
+ * of app.workflow.batch-size. Each batch that starts or moves workflows publishes a
+ * WorkflowChangedEvent.
+ */
+@Service
+@Transactional
+@Slf4j
+public class WorkflowService {
+    
+    private final WorkflowRepository workflowRepository;
+    private final WorkflowStateMachine<ReferralDto.WorkflowStageEnum> machine;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @Value("${app.workflow.batch-size:500}")
+    private int batchSize;
+    
+    public WorkflowService(WorkflowRepository workflowRepository, ReferralWorkflow referralWorkflow,
+                           ApplicationEventPublisher eventPublisher) {
+        this.workflowRepository = workflowRepository;
+        this.machine = referralWorkflow.machine();
+        this.eventPublisher = eventPublisher;
+    }
+    
+    /**
+     * Start a participant's workflow at the first stage; does nothing if it already has one
+     */
+    public void initializeParticipantWorkflow(String participantId) {
+        initializeParticipantWorkflows(List.of(participantId));
+    }
+    
+    public void initializeParticipantWorkflows(Collection<String> participantIds) {
+        List<String> started = workflowRepository.initialize(WorkflowSubject.PARTICIPANT, participantIds,
+            ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED, SecurityUtils.getCurrentUserId(), "Participant created");
+        if (!started.isEmpty()) {
+            eventPublisher.publishEvent(new WorkflowChangedEvent(WorkflowSubject.PARTICIPANT, started));
+        }
+    }
+    
+    public void initializeReferralWorkflow(String referralId) {
+        List<String> started = workflowRepository.initialize(WorkflowSubject.REFERRAL, List.of(referralId),
+            ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED, SecurityUtils.getCurrentUserId(), "Referral received");
+        if (!started.isEmpty()) {
+            eventPublisher.publishEvent(new WorkflowChangedEvent(WorkflowSubject.REFERRAL, started));
+        }
+    }
+    
+    @Transactional(readOnly = true)
+    public WorkflowDto getWorkflow(WorkflowSubject subject, String subjectId) {
+        WorkflowRepository.WorkflowState state = findState(subject, subjectId);
+        WorkflowDto workflow = new WorkflowDto();
+        workflow.setSubjectType(subject.getCode());
+        workflow.setSubjectId(subjectId);
+        workflow.setStage(state.stage());
+        workflow.setVersion(state.version());
+        workflow.setNextStages(machine.targets(state.stage()));
+        workflow.setUpdatedBy(state.updatedBy());
+        workflow.setUpdatedAt(state.updatedAt());
+        workflow.setHistory(workflowRepository.findHistory(state.workflowId()));
+        return workflow;
+    }
+    
+    /**
+     * Move one subject, optionally only from the version the caller last saw
+     */
+    public WorkflowDto transition(WorkflowSubject subject, String id, WorkflowTransitionDto request) {
+        String subjectId = normalize(id);
+        WorkflowRepository.WorkflowState state = findState(subject, subjectId);
+        if (request.getExpectedVersion() != null && request.getExpectedVersion() != state.version()) {
+            throw staleVersion(subjectId);
+        }
+        WorkflowTransitionResultDto.Item item = transitionAll(subject, Map.of(subjectId, state),
+            List.of(subjectId), request.getTargetStage(), request.getNotes()).get(0);
+        if (item.getOutcome() == WorkflowTransitionResultDto.OutcomeEnum.REJECTED) {
+            throw new BusinessRuleException(item.getReason());
+        }
+        if (item.getOutcome() == WorkflowTransitionResultDto.OutcomeEnum.CONFLICT) {
+            throw staleVersion(subjectId);
+        }
+        return getWorkflow(subject, subjectId);
+    }
+    
+    /**
+     * Move many subjects to one stage; each is checked and reported on its own
+     */
+    public WorkflowTransitionResultDto bulkTransition(WorkflowSubject subject, BulkWorkflowTransitionDto request) {
+        List<String> subjectIds = request.getSubjectIds().stream()
+            .map(WorkflowService::normalize)
+            .distinct()
+            .toList();
+        List<WorkflowTransitionResultDto.Item> items = new ArrayList<>(subjectIds.size());
+        for (int from = 0; from < subjectIds.size(); from += batchSize) {
+            List<String> batch = subjectIds.subList(from, Math.min(from + batchSize, subjectIds.size()));
+            items.addAll(transitionAll(subject, workflowRepository.findStates(subject, batch), batch,
+                request.getTargetStage(), request.getNotes()));
+        }
+        
+        WorkflowTransitionResultDto result = new WorkflowTransitionResultDto();
+        result.setTargetStage(request.getTargetStage());
+        result.setItems(items);
+        for (WorkflowTransitionResultDto.Item item : items) {
+            switch (item.getOutcome()) {
+                case TRANSITIONED -> result.setTransitioned(result.getTransitioned() + 1);
+                case REJECTED -> result.setRejected(result.getRejected() + 1);
+                case CONFLICT -> result.setConflicts(result.getConflicts() + 1);
+                case NOT_FOUND -> result.setNotFound(result.getNotFound() + 1);
+            }
+        }
+        log.info("Bulk workflow transition of {} {}s to {} by {}: {} moved, {} rejected, {} conflicts, {} not found",
+                 subjectIds.size(), subject.getCode(), request.getTargetStage(), SecurityUtils.getCurrentUserId(),
+                 result.getTransitioned(), result.getRejected(), result.getConflicts(), result.getNotFound());
+        return result;
+    }
+    
+    /**
+     * Check every subject against the table, then write the allowed ones as one batched update
+     * and one batched history insert
+     */
+    private List<WorkflowTransitionResultDto.Item> transitionAll(WorkflowSubject subject,
+                                                                 Map<String, WorkflowRepository.WorkflowState> states,
+                                                                 List<String> subjectIds,
+                                                                 ReferralDto.WorkflowStageEnum target, String notes) {
+        String userId = SecurityUtils.getCurrentUserId();
+        List<WorkflowTransitionResultDto.Item> items = new ArrayList<>(subjectIds.size());
+        List<WorkflowRepository.Advance> advances = new ArrayList<>();
+        List<WorkflowTransitionResultDto.Item> pending = new ArrayList<>();
+        List<Transition<ReferralDto.WorkflowStageEnum>> transitions = new ArrayList<>();
+        
+        for (String subjectId : subjectIds) {
+            WorkflowTransitionResultDto.Item item = new WorkflowTransitionResultDto.Item();
+            item.setSubjectId(subjectId);
+            items.add(item);
+            WorkflowRepository.WorkflowState state = states.get(subjectId);
+            if (state == null) {
+                item.setOutcome(WorkflowTransitionResultDto.OutcomeEnum.NOT_FOUND);
+                continue;
+            }
+            item.setFromStage(state.stage());
+            item.setVersion(state.version());
+            Transition<ReferralDto.WorkflowStageEnum> transition =
+                new Transition<>(subjectId, state.stage(), target, userId, notes, false);
+            String reason = machine.check(transition);
+            if (reason != null) {
+                item.setOutcome(WorkflowTransitionResultDto.OutcomeEnum.REJECTED);
+                item.setReason(reason);
+                continue;
+            }
+            advances.add(new WorkflowRepository.Advance(state.workflowId(), state.version(), state.stage(), target, userId));
+            pending.add(item);
+            transitions.add(transition);
+        }
+        
+        boolean[] applied = workflowRepository.advance(advances);
+        List<WorkflowRepository.Advance> written = new ArrayList<>(advances.size());
+        for (int i = 0; i < applied.length; i++) {
+            WorkflowTransitionResultDto.Item item = pending.get(i);
+            if (applied[i]) {
+                item.setOutcome(WorkflowTransitionResultDto.OutcomeEnum.TRANSITIONED);
+                item.setVersion(item.getVersion() + 1);
+                written.add(advances.get(i));
+            } else {
+                item.setOutcome(WorkflowTransitionResultDto.OutcomeEnum.CONFLICT);
+                item.setReason("Moved by someone else since it was read");
+            }
+        }
+        workflowRepository.appendHistory(written, notes, false);
+        List<String> moved = new ArrayList<>(written.size());
+        for (int i = 0; i < applied.length; i++) {
+            if (applied[i]) {
+                machine.fire(transitions.get(i));
+                moved.add(transitions.get(i).subjectId());
+            }
+        }
+        if (!moved.isEmpty()) {
+            eventPublisher.publishEvent(new WorkflowChangedEvent(subject, moved));
+        }
+        return items;
+    }
+    
+    private WorkflowRepository.WorkflowState findState(WorkflowSubject subject, String id) {
+        String subjectId = normalize(id);
+        WorkflowRepository.WorkflowState state = workflowRepository.findStates(subject, List.of(subjectId)).get(subjectId);
+        if (state == null) {
+            throw new EntityNotFoundException("Workflow not found for " + subject.getCode() + ": " + subjectId);
+        }
+        return state;
+    }
+    
+    /**
+     * Lower-case canonical form, as Postgres renders UUIDs
+     */
+    private static String normalize(String subjectId) {
+        try {
+            return UUID.fromString(subjectId).toString();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid ID: " + subjectId);
+        }
+    }
+    
+    private static BusinessRuleException staleVersion(String subjectId) {
+        return new BusinessRuleException("Workflow for " + subjectId + " has changed since it was read; reload and retry");
+    }
+}
\ No newline at end of file
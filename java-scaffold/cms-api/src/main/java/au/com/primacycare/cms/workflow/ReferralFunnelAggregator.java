@@ -0,0 +1,431 @@
+package au.com.primacycare.cms.workflow;
+
+import au.com.primacycare.cms.dto.ReferralDto;
+import au.com.primacycare.cms.dto.ReferralFunnelDto;
+import au.com.primacycare.cms.repository.ReferralFunnelRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Referral funnel counters and time-in-stage histograms, kept up to date from workflow history
+ * Replaces scanning workflow_history for every analytics request
+ *
+ * Every app.referrals.analytics.refresh-interval the referral transitions written since the last
+ * one applied are read and each is applied once: a count against the stage left and the stage
+ * entered, and the time spent in the stage left into its StageDurationHistogram. Totals are kept
+ * per source, urgency and region segment and for every roll-up of them, so the funnel for any
+ * filter is one lookup and twelve fixed-size histograms however long the history is. A compact
+ * snapshot is saved every app.referrals.analytics.snapshot-interval and loaded at start-up, so
+ * only the history written since has to be replayed.
+ *
+ * Transactions do not commit in created_at order, so history is tailed by (xact_id, id) and only
+ * up to the oldest transaction still running (see V018): no row can later appear behind the
+ * position reached, however long its transaction took. Tailing the shared history rather than
+ * this instance's own transitions keeps every instance's totals complete.
+ *
+ * Segments are the referral's source, urgency and assigned staff member's region as they are when
+ * a transition is read; referrals carry no region of their own.
+ */
+@Component
+@Slf4j
+public class ReferralFunnelAggregator {
+    
+    private static final int FORMAT_VERSION = 2;
+    private static final String UNKNOWN_SOURCE = "unknown";
+    private static final String UNASSIGNED_REGION = "unassigned";
+    private static final ReferralDto.WorkflowStageEnum[] STAGES = ReferralDto.WorkflowStageEnum.values();
+    
+    private final ReferralFunnelRepository referralFunnelRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int snapshotsKept;
+    private final Timer refreshTimer;
+    private final Counter transitions;
+    private final Object refreshing = new Object();
+    
+    // Guarded by this
+    private final Map<Segment, StageTotals> segments = new HashMap<>();
+    private ReferralFunnelRepository.Position position = ReferralFunnelRepository.Position.START;
+    private LocalDateTime watermark;
+    private boolean dirty;
+    
+    private volatile boolean loaded;
+    
+    public ReferralFunnelAggregator(ReferralFunnelRepository referralFunnelRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.referrals.analytics.snapshots-kept:3}") int snapshotsKept) {
+        this.referralFunnelRepository = referralFunnelRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.snapshotsKept = snapshotsKept;
+        this.refreshTimer = Timer.builder("cms.referrals.funnel.refresh")
+            .description("Time to apply new workflow history to the referral funnel")
+            .register(meterRegistry);
+        this.transitions = Counter.builder("cms.referrals.funnel.transitions")
+            .description("Referral transitions applied to the funnel")
+            .register(meterRegistry);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            referralFunnelRepository.findLatestSnapshot().ifPresent(this::restore);
+        } catch (RuntimeException e) {
+            log.warn("Referral funnel snapshot could not be read, replaying all workflow history", e);
+            synchronized (this) {
+                clear();
+            }
+        }
+        long start = System.currentTimeMillis();
+        int applied = catchUp();
+        loaded = true;
+        log.info("Referral funnel loaded: {} transitions replayed in {} ms", applied, System.currentTimeMillis() - start);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.referrals.analytics.refresh-interval:5000}",
+               initialDelayString = "${app.referrals.analytics.refresh-interval:5000}")
+    public void refresh() {
+        if (loaded) {
+            catchUp();
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${app.referrals.analytics.snapshot-interval:300000}",
+               initialDelayString = "${app.referrals.analytics.snapshot-interval:300000}")
+    public void snapshot() {
+        if (!loaded) {
+            return;
+        }
+        Encoded encoded;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            encoded = encode();
+            dirty = false;
+        }
+        try {
+            referralFunnelRepository.saveSnapshot(encoded.watermark(), encoded.segments(), encoded.payload(), snapshotsKept);
+            log.debug("Referral funnel snapshot saved: {} segments, {} bytes", encoded.segments(), encoded.payload().length);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            log.error("Failed to save referral funnel snapshot", e);
+        }
+    }
+    
+    /**
+     * Funnel for one segment; any filter may be null for all
+     */
+    public synchronized ReferralFunnelDto funnel(String source, ReferralDto.UrgencyEnum urgency, String regionId) {
+        Segment segment = new Segment(
+            source != null ? sourceOf(source) : null,
+            urgency,
+            regionId != null ? regionId.trim().toLowerCase(Locale.ROOT) : null);
+        StageTotals totals = segments.getOrDefault(segment, new StageTotals());
+        
+        ReferralFunnelDto funnel = new ReferralFunnelDto();
+        funnel.setSource(segment.source());
+        funnel.setUrgency(urgency);
+        funnel.setRegionId(segment.regionId());
+        funnel.setAsOf(watermark);
+        List<ReferralFunnelDto.Stage> stages = new ArrayList<>(STAGES.length);
+        long received = totals.entered[0];
+        for (int i = 0; i < STAGES.length; i++) {
+            ReferralFunnelDto.Stage stage = new ReferralFunnelDto.Stage();
+            stage.setStage(STAGES[i]);
+            stage.setEntered(totals.entered[i]);
+            stage.setReturned(totals.returned[i]);
+            stage.setAdvanced(totals.advanced[i]);
+            stage.setSentBack(totals.sentBack[i]);
+            stage.setCurrent(totals.entered[i] + totals.returned[i] - totals.advanced[i] - totals.sentBack[i]);
+            stage.setConversionRate(rate(totals.entered[i], received));
+            stage.setStepConversionRate(i == 0 ? rate(received, received) : rate(totals.entered[i], totals.entered[i - 1]));
+            StageDurationHistogram durations = totals.durations[i];
+            if (durations != null) {
+                stage.setCompletedVisits(durations.count());
+                stage.setMeanMinutes(durations.mean());
+                stage.setMedianMinutes(durations.percentile(50));
+                stage.setP90Minutes(durations.percentile(90));
+                stage.setP99Minutes(durations.percentile(99));
+                stage.setMaxMinutes(durations.max());
+            }
+            stages.add(stage);
+        }
+        funnel.setStages(stages);
+        return funnel;
+    }
+    
+    /**
+     * Apply the history written since the position, up to the oldest running transaction
+     *
+     * @return transitions applied
+     */
+    private int catchUp() {
+        synchronized (refreshing) {
+            ReferralFunnelRepository.Position after;
+            synchronized (this) {
+                after = position;
+            }
+            int[] applied = new int[1];
+            refreshTimer.record(() -> readOnlyTransaction.executeWithoutResult(status -> {
+                long horizon = referralFunnelRepository.currentHorizon();
+                referralFunnelRepository.streamHistory(after, horizon, row -> {
+                    apply(row);
+                    applied[0]++;
+                });
+                advance(horizon);
+            }));
+            transitions.increment(applied[0]);
+            return applied[0];
+        }
+    }
+    
+    /**
+     * Every transaction below the horizon has been read in full
+     */
+    private synchronized void advance(long horizon) {
+        if (horizon > position.xactId()) {
+            position = new ReferralFunnelRepository.Position(horizon, null);
+        }
+    }
+    
+    /**
+     * Rows arrive in position order, so the position moves with each one; a read that fails
+     * part-way resumes after the last row applied
+     */
+    private synchronized void apply(ReferralFunnelRepository.HistoryRow row) {
+        position = row.position();
+        if (watermark == null || row.createdAt().isAfter(watermark)) {
+            watermark = row.createdAt();
+        }
+        
+        Segment segment = new Segment(
+            sourceOf(row.referralSource()),
+            ReferralSlaScheduler.urgencyOf(row.urgency()),
+            row.regionId() != null ? row.regionId() : UNASSIGNED_REGION);
+        for (Segment rollUp : segment.rollUps()) {
+            segments.computeIfAbsent(rollUp, s -> new StageTotals()).apply(row);
+        }
+        dirty = true;
+    }
+    
+    private void clear() {
+        segments.clear();
+        position = ReferralFunnelRepository.Position.START;
+        watermark = null;
+    }
+    
+    private static String sourceOf(String referralSource) {
+        return referralSource == null || referralSource.isBlank()
+            ? UNKNOWN_SOURCE
+            : referralSource.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private static double rate(long count, long of) {
+        return of == 0 ? 0 : Math.round(10_000.0 * count / of) / 10_000.0;
+    }
+    
+    /**
+     * Gzipped: format version, position, watermark, then each fully specified segment; the roll-ups
+     * are rebuilt from those on restore
+     */
+    private Encoded encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int written = 0;
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(STAGES.length);
+            StageDurationHistogram.writeVarLong(out, position.xactId());
+            out.writeBoolean(position.id() != null);
+            if (position.id() != null) {
+                out.writeUTF(position.id());
+            }
+            writeTime(out, watermark);
+            List<Map.Entry<Segment, StageTotals>> exact = segments.entrySet().stream()
+                .filter(entry -> entry.getKey().isExact())
+                .toList();
+            StageDurationHistogram.writeVarLong(out, exact.size());
+            for (Map.Entry<Segment, StageTotals> entry : exact) {
+                out.writeUTF(entry.getKey().source());
+                out.writeUTF(entry.getKey().urgency().name());
+                out.writeUTF(entry.getKey().regionId());
+                entry.getValue().write(out);
+                written++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Encoded(watermark, written, bytes.toByteArray());
+    }
+    
+    private synchronized void restore(ReferralFunnelRepository.Snapshot snapshot) {
+        clear();
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(snapshot.payload())))) {
+            int format = in.readInt();
+            int stages = in.readInt();
+            if (format != FORMAT_VERSION || stages != STAGES.length) {
+                throw new IOException("Unsupported referral funnel snapshot: format " + format + ", " + stages + " stages");
+            }
+            long xactId = StageDurationHistogram.readVarLong(in);
+            position = new ReferralFunnelRepository.Position(xactId, in.readBoolean() ? in.readUTF() : null);
+            watermark = readTime(in);
+            long exact = StageDurationHistogram.readVarLong(in);
+            for (long i = 0; i < exact; i++) {
+                Segment segment = new Segment(in.readUTF(), ReferralDto.UrgencyEnum.valueOf(in.readUTF()), in.readUTF());
+                StageTotals totals = StageTotals.read(in);
+                for (Segment rollUp : segment.rollUps()) {
+                    segments.computeIfAbsent(rollUp, s -> new StageTotals()).add(totals);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Referral funnel snapshot loaded: {} segments up to {} ({})", segments.size(), position, watermark);
+    }
+    
+    private static void writeTime(DataOutput out, LocalDateTime time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        }
+    }
+    
+    private static LocalDateTime readTime(DataInput in) throws IOException {
+        return in.readBoolean() ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+    }
+    
+    /**
+     * Null fields match every value
+     */
+    private record Segment(String source, ReferralDto.UrgencyEnum urgency, String regionId) {
+        
+        boolean isExact() {
+            return source != null && urgency != null && regionId != null;
+        }
+        
+        /**
+         * This segment and each combination of its fields replaced by null
+         */
+        List<Segment> rollUps() {
+            List<Segment> rollUps = new ArrayList<>(8);
+            for (int mask = 0; mask < 8; mask++) {
+                rollUps.add(new Segment(
+                    (mask & 1) == 0 ? source : null,
+                    (mask & 2) == 0 ? urgency : null,
+                    (mask & 4) == 0 ? regionId : null));
+            }
+            return rollUps;
+        }
+    }
+    
+    /**
+     * Counters by stage ordinal; histograms are created on the first visit to leave a stage
+     */
+    private static final class StageTotals {
+        
+        final long[] entered = new long[STAGES.length];
+        final long[] returned = new long[STAGES.length];
+        final long[] advanced = new long[STAGES.length];
+        final long[] sentBack = new long[STAGES.length];
+        final StageDurationHistogram[] durations = new StageDurationHistogram[STAGES.length];
+        
+        void apply(ReferralFunnelRepository.HistoryRow row) {
+            int to = row.stage().ordinal();
+            if (row.fromStage() == null) {
+                entered[to]++;
+                return;
+            }
+            int from = row.fromStage().ordinal();
+            if (to < from) {
+                sentBack[from]++;
+                returned[to]++;
+            } else {
+                advanced[from]++;
+                entered[to]++;
+            }
+            if (row.enteredFromAt() != null) {
+                durations(from).record(Duration.between(row.enteredFromAt(), row.createdAt()).toMinutes());
+            }
+        }
+        
+        void add(StageTotals other) {
+            for (int i = 0; i < STAGES.length; i++) {
+                entered[i] += other.entered[i];
+                returned[i] += other.returned[i];
+                advanced[i] += other.advanced[i];
+                sentBack[i] += other.sentBack[i];
+                if (other.durations[i] != null) {
+                    durations(i).add(other.durations[i]);
+                }
+            }
+        }
+        
+        StageDurationHistogram durations(int stage) {
+            if (durations[stage] == null) {
+                durations[stage] = new StageDurationHistogram();
+            }
+            return durations[stage];
+        }
+        
+        void write(DataOutput out) throws IOException {
+            for (int i = 0; i < STAGES.length; i++) {
+                StageDurationHistogram.writeVarLong(out, entered[i]);
+                StageDurationHistogram.writeVarLong(out, returned[i]);
+                StageDurationHistogram.writeVarLong(out, advanced[i]);
+                StageDurationHistogram.writeVarLong(out, sentBack[i]);
+                out.writeBoolean(durations[i] != null);
+                if (durations[i] != null) {
+                    durations[i].write(out);
+                }
+            }
+        }
+        
+        static StageTotals read(DataInput in) throws IOException {
+            StageTotals totals = new StageTotals();
+            for (int i = 0; i < STAGES.length; i++) {
+                totals.entered[i] = StageDurationHistogram.readVarLong(in);
+                totals.returned[i] = StageDurationHistogram.readVarLong(in);
+                totals.advanced[i] = StageDurationHistogram.readVarLong(in);
+                totals.sentBack[i] = StageDurationHistogram.readVarLong(in);
+                if (in.readBoolean()) {
+                    totals.durations[i] = StageDurationHistogram.read(in);
+                }
+            }
+            return totals;
+        }
+    }
+    
+    private record Encoded(LocalDateTime watermark, int segments, byte[] payload) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,257 @@
+package au.com.primacycare.cms.workflow;
+
+import au.com.primacycare.cms.dto.ReferralDto;
+import au.com.primacycare.cms.event.WorkflowChangedEvent;
+import au.com.primacycare.cms.repository.ReferralSlaRepository;
+import au.com.primacycare.cms.scheduling.TimingWheel;
+import au.com.primacycare.cms.service.NotificationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Raises an alert when a referral stays in one workflow stage past the deadline for its urgency
+ * Replaces polling every open referral for overdue stages
+ *
+ * Every open referral has one timer in a TimingWheel, set for the time it entered its current
+ * stage plus app.referrals.sla.<urgency>-hours. The wheel is loaded from one streamed query at
+ * start-up; after that only referrals whose workflow changed are re-read, after their transaction
+ * commits. Expired timers are raised as one batch of alerts per tick, keyed by workflow version so
+ * a breach is raised once per stage visit however many instances run.
+ *
+ * The wheel and the timer map belong to the single referral-sla-wheel thread; other threads
+ * only queue referral IDs for it.
+ */
+@Component
+@Slf4j
+public class ReferralSlaScheduler {
+    
+    private final ReferralSlaRepository referralSlaRepository;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Map<ReferralDto.UrgencyEnum, Duration> deadlines = new EnumMap<>(ReferralDto.UrgencyEnum.class);
+    private final long tickMillis;
+    private final long retryMillis;
+    private final ScheduledExecutorService executor;
+    private final ConcurrentLinkedQueue<String> changed = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Counter breaches;
+    
+    // Wheel thread only
+    private final Map<String, TimingWheel.Timer<ReferralSlaRepository.Breach>> timers = new HashMap<>();
+    private TimingWheel<ReferralSlaRepository.Breach> wheel;
+    
+    public ReferralSlaScheduler(ReferralSlaRepository referralSlaRepository,
+                                NotificationService notificationService,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.referrals.sla.tick-millis:1000}") long tickMillis,
+                                @Value("${app.referrals.sla.retry-seconds:60}") long retrySeconds,
+                                @Value("${app.referrals.sla.critical-hours:0}") long criticalHours,
+                                @Value("${app.referrals.sla.high-hours:48}") long highHours,
+                                @Value("${app.referrals.sla.medium-hours:168}") long mediumHours,
+                                @Value("${app.referrals.sla.low-hours:336}") long lowHours) {
+        this.referralSlaRepository = referralSlaRepository;
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.tickMillis = tickMillis;
+        this.retryMillis = TimeUnit.SECONDS.toMillis(retrySeconds);
+        deadlines.put(ReferralDto.UrgencyEnum.CRITICAL, Duration.ofHours(criticalHours));
+        deadlines.put(ReferralDto.UrgencyEnum.HIGH, Duration.ofHours(highHours));
+        deadlines.put(ReferralDto.UrgencyEnum.MEDIUM, Duration.ofHours(mediumHours));
+        deadlines.put(ReferralDto.UrgencyEnum.LOW, Duration.ofHours(lowHours));
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+            runnable -> Thread.ofPlatform().name("referral-sla-wheel").daemon().unstarted(runnable));
+        
+        meterRegistry.gauge("cms.referrals.sla.timers", pending);
+        this.breaches = Counter.builder("cms.referrals.sla.breaches")
+            .description("Referral stage deadlines breached and alerted")
+            .register(meterRegistry);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        executor.execute(this::rebuild);
+        executor.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onWorkflowChanged(WorkflowChangedEvent event) {
+        if (event.subject() == WorkflowSubject.REFERRAL) {
+            changed.addAll(event.subjectIds());
+        }
+    }
+    
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Deadline for a referral entering a stage at the given time
+     */
+    public LocalDateTime deadline(LocalDateTime enteredAt, ReferralDto.UrgencyEnum urgency) {
+        return enteredAt.plus(deadlines.get(urgency));
+    }
+    
+    /**
+     * referrals.urgency holds either the enum name or its display name ("High - Within 48 hours")
+     * A referral without a recognised urgency is treated as low
+     */
+    static ReferralDto.UrgencyEnum urgencyOf(String urgency) {
+        if (urgency == null || urgency.isBlank()) {
+            return ReferralDto.UrgencyEnum.LOW;
+        }
+        String word = urgency.trim().split("[^A-Za-z]", 2)[0].toUpperCase(Locale.ROOT);
+        for (ReferralDto.UrgencyEnum value : ReferralDto.UrgencyEnum.values()) {
+            if (value.name().equals(word)) {
+                return value;
+            }
+        }
+        return ReferralDto.UrgencyEnum.LOW;
+    }
+    
+    /**
+     * Load every open referral's timer; the changes queued meanwhile are covered by the load
+     */
+    private void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            wheel = new TimingWheel<>(tickMillis, start);
+            timers.clear();
+            changed.clear();
+            readOnlyTransaction.executeWithoutResult(status -> referralSlaRepository.streamOpenTimers(this::schedule));
+            pending.set(wheel.size());
+            log.info("Referral SLA wheel loaded with {} timers in {} ms", wheel.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("Referral SLA wheel failed to load, retrying in {} ms", retryMillis, e);
+            wheel = null;
+            executor.schedule(this::rebuild, retryMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private void tick() {
+        if (wheel == null) {
+            return;
+        }
+        try {
+            refreshChanged();
+            List<ReferralSlaRepository.Breach> due = new ArrayList<>();
+            wheel.advanceTo(System.currentTimeMillis(), due::add);
+            for (ReferralSlaRepository.Breach breach : due) {
+                timers.remove(breach.timer().referralId());
+            }
+            if (!due.isEmpty()) {
+                raise(due);
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the fixed-delay schedule
+            log.error("Referral SLA tick failed", e);
+        } finally {
+            pending.set(wheel.size());
+        }
+    }
+    
+    /**
+     * Replace the timers of referrals whose workflow changed with their current deadline, if still open
+     */
+    private void refreshChanged() {
+        Set<String> referralIds = new HashSet<>();
+        for (String referralId; (referralId = changed.poll()) != null; ) {
+            referralIds.add(referralId);
+        }
+        if (referralIds.isEmpty()) {
+            return;
+        }
+        List<ReferralSlaRepository.OpenTimer> open;
+        try {
+            open = readOnlyTransaction.execute(status -> referralSlaRepository.findOpenTimers(referralIds));
+        } catch (RuntimeException e) {
+            changed.addAll(referralIds);
+            throw e;
+        }
+        for (String referralId : referralIds) {
+            TimingWheel.Timer<ReferralSlaRepository.Breach> timer = timers.remove(referralId);
+            if (timer != null) {
+                wheel.cancel(timer);
+            }
+        }
+        open.forEach(this::schedule);
+    }
+    
+    private void schedule(ReferralSlaRepository.OpenTimer open) {
+        ReferralDto.UrgencyEnum urgency = urgencyOf(open.urgency());
+        LocalDateTime deadline = deadline(open.enteredAt(), urgency);
+        String detail = " has been at " + open.stage().getDisplayName() + " for more than "
+            + deadlines.get(urgency).toHours() + " hours (" + urgency.getDisplayName() + ")";
+        schedule(new ReferralSlaRepository.Breach(open, urgency, deadline, detail),
+            deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+    
+    private void schedule(ReferralSlaRepository.Breach breach, long deadlineMillis) {
+        timers.put(breach.timer().referralId(), wheel.schedule(breach, deadlineMillis));
+    }
+    
+    /**
+     * Alerts and notifications in one transaction; on failure the whole batch is retried later
+     * A referral that moved on meanwhile is skipped by the version condition
+     */
+    private void raise(List<ReferralSlaRepository.Breach> due) {
+        try {
+            List<ReferralSlaRepository.Breach> raised = transactionTemplate.execute(status -> {
+                boolean[] inserted = referralSlaRepository.raiseBreaches(due);
+                List<ReferralSlaRepository.Breach> alerted = new ArrayList<>();
+                for (int i = 0; i < inserted.length; i++) {
+                    if (inserted[i]) {
+                        alerted.add(due.get(i));
+                    }
+                }
+                if (!alerted.isEmpty()) {
+                    notificationService.sendReferralSlaBreachNotifications(alerted);
+                }
+                return alerted;
+            });
+            breaches.increment(raised.size());
+            if (!raised.isEmpty()) {
+                log.info("Raised {} referral SLA breaches", raised.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to raise {} referral SLA breaches, retrying in {} ms", due.size(), retryMillis, e);
+            long retryAt = System.currentTimeMillis() + retryMillis;
+            for (ReferralSlaRepository.Breach breach : due) {
+                if (!timers.containsKey(breach.timer().referralId())) {
+                    schedule(breach, retryAt);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
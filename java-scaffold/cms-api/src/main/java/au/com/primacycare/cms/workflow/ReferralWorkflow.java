@@ -0,0 +1,49 @@
+package au.com.primacycare.cms.workflow;
+
+import au.com.primacycare.cms.dto.ReferralDto.WorkflowStageEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Transition table of the 12-stage referral to service commencement workflow
+ * Mirrors: server/workflowService.ts
+ *
+ * Stages move forward one at a time. The only ways back are the ones intake actually sees: a
+ * revised service agreement, funding that does not cover the agreement, and a worker or
+ * meet & greet that falls through. Going back needs notes saying why.
+ */
+@Component
+public class ReferralWorkflow {
+    
+    private final WorkflowStateMachine<WorkflowStageEnum> machine;
+    
+    public ReferralWorkflow(MeterRegistry meterRegistry) {
+        // One counter per stage, looked up by ordinal on every transition
+        Counter[] entered = new Counter[WorkflowStageEnum.values().length];
+        for (WorkflowStageEnum stage : WorkflowStageEnum.values()) {
+            entered[stage.ordinal()] = Counter.builder("cms.workflow.transitions")
+                .description("Workflow transitions by stage entered")
+                .tag("stage", stage.name())
+                .register(meterRegistry);
+        }
+        
+        this.machine = WorkflowStateMachine.builder(WorkflowStageEnum.class)
+            .allowForward()
+            .allow(WorkflowStageEnum.AGREEMENT_SENT, WorkflowStageEnum.SERVICE_AGREEMENT_PREPARED)
+            .allow(WorkflowStageEnum.FUNDING_VERIFICATION, WorkflowStageEnum.SERVICE_AGREEMENT_PREPARED)
+            .allow(WorkflowStageEnum.WORKER_ALLOCATED, WorkflowStageEnum.STAFF_ALLOCATION)
+            .allow(WorkflowStageEnum.MEET_GREET_SCHEDULED, WorkflowStageEnum.WORKER_ALLOCATED)
+            .allow(WorkflowStageEnum.MEET_GREET_COMPLETED, WorkflowStageEnum.STAFF_ALLOCATION)
+            .guardAll(transition -> WorkflowStateMachine.isBackward(transition)
+                && (transition.notes() == null || transition.notes().isBlank())
+                ? "Notes are required to move back to " + transition.to()
+                : null)
+            .onEnterAny(transition -> entered[transition.to().ordinal()].increment())
+            .build();
+    }
+    
+    public WorkflowStateMachine<WorkflowStageEnum> machine() {
+        return machine;
+    }
+}
\ No newline at end of file
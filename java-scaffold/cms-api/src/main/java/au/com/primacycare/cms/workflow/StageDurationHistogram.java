@@ -0,0 +1,157 @@
+package au.com.primacycare.cms.workflow;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Log-linear histogram of time spent in a workflow stage, in minutes, after HdrHistogram
+ *
+ * Values below 8 have a bucket each; above that every power of two is split into 8 buckets, so
+ * a value is known to within 12.5% and percentiles are reported as the middle of their bucket.
+ * Values of 2^21 minutes (about four years) and over share the top bucket. Recording is O(1)
+ * and the histogram is 152 counters however many values it holds.
+ *
+ * Not thread-safe.
+ */
+public final class StageDurationHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final long MAX_TRACKED = (1L << 21) - 1;
+    static final int BUCKETS = index(MAX_TRACKED) + 1;
+    
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+    
+    public void record(long minutes) {
+        long value = Math.max(0, minutes);
+        counts[index(Math.min(value, MAX_TRACKED))]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+    
+    public void add(StageDurationHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+    
+    public long count() {
+        return count;
+    }
+    
+    public long max() {
+        return max;
+    }
+    
+    public long mean() {
+        return count == 0 ? 0 : Math.round((double) sum / count);
+    }
+    
+    /**
+     * @param percentile 0 to 100
+     * @return the middle of the bucket holding that percentile, never above the largest value; 0 when empty
+     */
+    public long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(lowest(i) + width(i) / 2, max);
+            }
+        }
+        return max;
+    }
+    
+    /**
+     * Totals, then each non-empty bucket as its index and count
+     */
+    public void write(DataOutput out) throws IOException {
+        writeVarLong(out, count);
+        writeVarLong(out, sum);
+        writeVarLong(out, max);
+        int buckets = 0;
+        for (long bucketCount : counts) {
+            if (bucketCount > 0) {
+                buckets++;
+            }
+        }
+        writeVarLong(out, buckets);
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] > 0) {
+                out.writeByte(i);
+                writeVarLong(out, counts[i]);
+            }
+        }
+    }
+    
+    public static StageDurationHistogram read(DataInput in) throws IOException {
+        StageDurationHistogram histogram = new StageDurationHistogram();
+        histogram.count = readVarLong(in);
+        histogram.sum = readVarLong(in);
+        histogram.max = readVarLong(in);
+        long buckets = readVarLong(in);
+        for (long i = 0; i < buckets; i++) {
+            int index = in.readUnsignedByte();
+            if (index >= BUCKETS) {
+                throw new IOException("Histogram bucket out of range: " + index);
+            }
+            histogram.counts[index] = readVarLong(in);
+        }
+        return histogram;
+    }
+    
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+    
+    static long lowest(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        return (long) ((index & (SUB_BUCKETS - 1)) + SUB_BUCKETS) << shift;
+    }
+    
+    static long width(int index) {
+        return index < SUB_BUCKETS ? 1 : 1L << ((index >>> SUB_BUCKET_BITS) - 1);
+    }
+    
+    /**
+     * Unsigned LEB128: counters are mostly small, so most take one or two bytes
+     */
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+    
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package au.com.primacycare.cms.workflow;
+
+/**
+ * One subject moving between two stages
+ *
+ * @param subjectId   the referral or participant moving
+ * @param performedBy user ID, null for system transitions
+ */
+public record Transition<S extends Enum<S>>(String subjectId, S from, S to, String performedBy, String notes,
+                                            boolean automated) {
+}
\ No newline at end of file
@@ -0,0 +1,10 @@
+package au.com.primacycare.cms.workflow;
+
+/**
+ * Side effect of entering a stage, run inside the transaction that wrote the transition
+ */
+@FunctionalInterface
+public interface TransitionAction<S extends Enum<S>> {
+    
+    void onTransition(Transition<S> transition);
+}
\ No newline at end of file
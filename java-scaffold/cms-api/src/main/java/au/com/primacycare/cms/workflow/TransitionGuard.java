@@ -0,0 +1,13 @@
+package au.com.primacycare.cms.workflow;
+
+/**
+ * Veto on entering a stage
+ */
+@FunctionalInterface
+public interface TransitionGuard<S extends Enum<S>> {
+    
+    /**
+     * @return null to allow the transition, otherwise why it is refused
+     */
+    String check(Transition<S> transition);
+}
\ No newline at end of file
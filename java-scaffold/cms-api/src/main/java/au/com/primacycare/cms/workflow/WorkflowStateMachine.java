@@ -0,0 +1,162 @@
+package au.com.primacycare.cms.workflow;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiled, table-driven state machine over an enum of workflow stages
+ *
+ * Allowed transitions are a bit set of target ordinals per source ordinal, and guards and actions
+ * are arrays indexed by target ordinal, so checking a transition is a couple of array reads and
+ * no lookups. Built once through Builder and immutable afterwards, so one instance is shared by
+ * every request thread.
+ */
+public final class WorkflowStateMachine<S extends Enum<S>> {
+    
+    private final Class<S> stageType;
+    private final S[] stages;
+    private final long[] targets;
+    private final TransitionGuard<S>[][] guards;
+    private final TransitionAction<S>[][] actions;
+    
+    @SuppressWarnings("unchecked")
+    private WorkflowStateMachine(Builder<S> builder) {
+        this.stageType = builder.stageType;
+        this.stages = builder.stages;
+        this.targets = builder.targets.clone();
+        this.guards = new TransitionGuard[stages.length][];
+        this.actions = new TransitionAction[stages.length][];
+        for (int i = 0; i < stages.length; i++) {
+            guards[i] = builder.guards.get(i).toArray(new TransitionGuard[0]);
+            actions[i] = builder.actions.get(i).toArray(new TransitionAction[0]);
+        }
+    }
+    
+    public static <S extends Enum<S>> Builder<S> builder(Class<S> stageType) {
+        return new Builder<>(stageType);
+    }
+    
+    public boolean canTransition(S from, S to) {
+        return (targets[from.ordinal()] & (1L << to.ordinal())) != 0;
+    }
+    
+    /**
+     * Stages reachable from a stage in one transition
+     */
+    public Set<S> targets(S from) {
+        EnumSet<S> reachable = EnumSet.noneOf(stageType);
+        long mask = targets[from.ordinal()];
+        while (mask != 0) {
+            reachable.add(stages[Long.numberOfTrailingZeros(mask)]);
+            mask &= mask - 1;
+        }
+        return reachable;
+    }
+    
+    /**
+     * @return null when the transition is allowed, otherwise why it is not
+     */
+    public String check(Transition<S> transition) {
+        if (transition.from() == transition.to()) {
+            return "Already at " + transition.to();
+        }
+        if (!canTransition(transition.from(), transition.to())) {
+            return "Cannot move from " + transition.from() + " to " + transition.to();
+        }
+        for (TransitionGuard<S> guard : guards[transition.to().ordinal()]) {
+            String reason = guard.check(transition);
+            if (reason != null) {
+                return reason;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Run the actions of a transition that has been written
+     */
+    public void fire(Transition<S> transition) {
+        for (TransitionAction<S> action : actions[transition.to().ordinal()]) {
+            action.onTransition(transition);
+        }
+    }
+    
+    /**
+     * Whether the transition goes back to an earlier stage
+     */
+    public static <S extends Enum<S>> boolean isBackward(Transition<S> transition) {
+        return transition.to().ordinal() < transition.from().ordinal();
+    }
+    
+    public static final class Builder<S extends Enum<S>> {
+        
+        private final Class<S> stageType;
+        private final S[] stages;
+        private final long[] targets;
+        private final List<List<TransitionGuard<S>>> guards = new ArrayList<>();
+        private final List<List<TransitionAction<S>>> actions = new ArrayList<>();
+        
+        private Builder(Class<S> stageType) {
+            this.stageType = stageType;
+            this.stages = stageType.getEnumConstants();
+            if (stages.length > Long.SIZE) {
+                throw new IllegalArgumentException(stageType.getSimpleName() + " has more than " + Long.SIZE + " stages");
+            }
+            this.targets = new long[stages.length];
+            for (int i = 0; i < stages.length; i++) {
+                guards.add(new ArrayList<>());
+                actions.add(new ArrayList<>());
+            }
+        }
+        
+        @SafeVarargs
+        public final Builder<S> allow(S from, S... to) {
+            for (S target : to) {
+                targets[from.ordinal()] |= 1L << target.ordinal();
+            }
+            return this;
+        }
+        
+        /**
+         * Each stage may move to the one declared after it
+         */
+        public Builder<S> allowForward() {
+            for (int i = 0; i + 1 < stages.length; i++) {
+                targets[i] |= 1L << (i + 1);
+            }
+            return this;
+        }
+        
+        /**
+         * Checked, in registration order, before entering the stage
+         */
+        public Builder<S> guard(S to, TransitionGuard<S> guard) {
+            guards.get(to.ordinal()).add(guard);
+            return this;
+        }
+        
+        public Builder<S> guardAll(TransitionGuard<S> guard) {
+            guards.forEach(stageGuards -> stageGuards.add(guard));
+            return this;
+        }
+        
+        /**
+         * Run after the transition into the stage has been written
+         */
+        public Builder<S> onEnter(S to, TransitionAction<S> action) {
+            actions.get(to.ordinal()).add(action);
+            return this;
+        }
+        
+        public Builder<S> onEnterAny(TransitionAction<S> action) {
+            actions.forEach(stageActions -> stageActions.add(action));
+            return this;
+        }
+        
+        public WorkflowStateMachine<S> build() {
+            return new WorkflowStateMachine<>(this);
+        }
+    }
+}
\ No newline at end of file
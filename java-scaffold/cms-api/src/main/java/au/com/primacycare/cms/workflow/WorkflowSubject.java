@@ -0,0 +1,19 @@
+package au.com.primacycare.cms.workflow;
+
+/**
+ * What a workflow belongs to, stored as workflows.subject_type
+ */
+public enum WorkflowSubject {
+    REFERRAL("referral"),
+    PARTICIPANT("participant");
+    
+    private final String code;
+    
+    WorkflowSubject(String code) {
+        this.code = code;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+-- Composite indexes backing keyset (seek) pagination on (created_at, id)
+-- V002__keyset_pagination_indexes.sql
+
+-- Participants: newest-first scrolling with id as the tie-breaker
+CREATE INDEX IF NOT EXISTS idx_participants_created_id ON participants(created_at DESC, id DESC);
+
+-- Staff: same ordering, optionally within a department
+CREATE INDEX IF NOT EXISTS idx_staff_created_id ON staff(created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_staff_department_created_id ON staff(department, created_at DESC, id DESC);
+
+-- The single-column created_at index from V001 is a prefix of the composite one above
+DROP INDEX IF EXISTS idx_participants_created;
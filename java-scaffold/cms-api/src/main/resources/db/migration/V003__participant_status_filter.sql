@@ -0,0 +1,14 @@
+-- Participant status column and indexes for the participant list filter
+-- V003__participant_status_filter.sql
+
+ALTER TABLE participants ADD COLUMN IF NOT EXISTS status VARCHAR(50) NOT NULL DEFAULT 'Active';
+
+-- Status is the leading filter on list pages, newest first within a status
+CREATE INDEX IF NOT EXISTS idx_participants_status_created ON participants(status, created_at DESC, id DESC);
+
+-- NDIS number prefix search (LIKE 'nnn%') needs pattern ops under non-C collations
+CREATE INDEX IF NOT EXISTS idx_participants_ndis_prefix ON participants(ndis_number varchar_pattern_ops);
+
+CREATE INDEX IF NOT EXISTS idx_participants_region ON participants(region_id, status);
+CREATE INDEX IF NOT EXISTS idx_participants_state ON participants(state_id, status);
+CREATE INDEX IF NOT EXISTS idx_participants_funding ON participants(funding_type, status);
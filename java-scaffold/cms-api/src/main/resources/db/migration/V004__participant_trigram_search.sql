@@ -0,0 +1,13 @@
+-- Trigram fuzzy search over participant names, phone and NDIS number
+-- V004__participant_trigram_search.sql
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Combined search text so type-ahead ranks across all fields with a single index scan
+-- Search only queries this column, so the individual columns get no trigram indexes of their own
+ALTER TABLE participants ADD COLUMN IF NOT EXISTS search_text TEXT
+    GENERATED ALWAYS AS (
+        lower(concat_ws(' ', first_name, last_name, preferred_name, phone, ndis_number))
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_participants_search_trgm ON participants USING gin (search_text gin_trgm_ops);
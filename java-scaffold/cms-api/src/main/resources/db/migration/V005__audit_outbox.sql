@@ -0,0 +1,20 @@
+-- Durable staging table for audit events
+-- V005__audit_outbox.sql
+--
+-- With app.audit.write-ahead (the default) receives every event inside the transaction that
+-- raised it; otherwise the events the in-process audit buffer could not take (overflow, failed
+-- batch, shutdown spill).
+-- A relay moves rows into audits in id order.
+
+CREATE TABLE IF NOT EXISTS audit_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    entity_type VARCHAR(50) NOT NULL,
+    entity_id VARCHAR(255) NOT NULL,
+    action VARCHAR(50) NOT NULL,
+    user_id VARCHAR(255),
+    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    old_values JSONB,
+    new_values JSONB,
+    ip_address VARCHAR(45),
+    user_agent TEXT
+);
@@ -0,0 +1,74 @@
+-- Convert audits to monthly range partitions on timestamp
+-- V006__partition_audits.sql
+--
+-- Partitions are named audits_pYYYYMM. AuditPartitionMaintenanceJob keeps future months
+-- created and detaches months past the retention period; audits_default only catches rows
+-- outside any created month and should stay empty.
+--
+-- Downtime: the rename takes an ACCESS EXCLUSIVE lock on audits that is held until the
+-- migration commits, so audit writes (and every request that audits) wait for the copy. The
+-- copy runs one month at a time, each an INSERT routed straight to its own partition, and
+-- reports progress with a NOTICE per month. The window grows with audits_legacy, so run it in a
+-- maintenance window when that table is large.
+
+ALTER TABLE audits RENAME TO audits_legacy;
+ALTER INDEX IF EXISTS idx_audits_entity RENAME TO idx_audits_legacy_entity;
+ALTER INDEX IF EXISTS idx_audits_user RENAME TO idx_audits_legacy_user;
+
+CREATE TABLE audits (
+    id UUID DEFAULT uuid_generate_v4() NOT NULL,
+    entity_type VARCHAR(50) NOT NULL,
+    entity_id VARCHAR(255) NOT NULL,
+    action VARCHAR(50) NOT NULL,
+    user_id VARCHAR(255),
+    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    old_values JSONB,
+    new_values JSONB,
+    ip_address VARCHAR(45),
+    user_agent TEXT,
+    -- The partition key must be part of every unique constraint
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE IF NOT EXISTS audits_default PARTITION OF audits DEFAULT;
+
+-- One partition per month from the oldest existing audit up to three months ahead, each filled
+-- with that month's legacy rows as it is created
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', COALESCE(
+        (SELECT min(timestamp) FROM audits_legacy), CURRENT_TIMESTAMP))::date;
+    last_month DATE := (date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '3 months')::date;
+    month_end DATE;
+    copied BIGINT;
+BEGIN
+    WHILE month_start <= last_month LOOP
+        month_end := (month_start + INTERVAL '1 month')::date;
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF audits FOR VALUES FROM (%L) TO (%L)',
+            'audits_p' || to_char(month_start, 'YYYYMM'), month_start, month_end);
+        INSERT INTO audits (id, entity_type, entity_id, action, user_id, timestamp, old_values, new_values, ip_address, user_agent)
+        SELECT id, entity_type, entity_id, action, user_id, timestamp, old_values, new_values, ip_address, user_agent
+        FROM audits_legacy
+        WHERE timestamp >= month_start AND timestamp < month_end;
+        GET DIAGNOSTICS copied = ROW_COUNT;
+        RAISE NOTICE 'audits_p%: % rows', to_char(month_start, 'YYYYMM'), copied;
+        month_start := month_end;
+    END LOOP;
+
+    -- Rows without a timestamp land in the current month; future-dated ones in audits_default
+    INSERT INTO audits (id, entity_type, entity_id, action, user_id, timestamp, old_values, new_values, ip_address, user_agent)
+    SELECT id, entity_type, entity_id, action, user_id, COALESCE(timestamp, CURRENT_TIMESTAMP),
+           old_values, new_values, ip_address, user_agent
+    FROM audits_legacy
+    WHERE timestamp IS NULL OR timestamp >= month_start;
+END $$;
+
+DROP TABLE audits_legacy;
+
+-- Audits arrive in time order, so a BRIN range summary is tiny and prunes blocks within a month
+CREATE INDEX IF NOT EXISTS idx_audits_timestamp_brin ON audits USING BRIN (timestamp) WITH (pages_per_range = 32);
+
+-- Lookups always carry a time range; trailing timestamp lets each partition seek and sort
+CREATE INDEX IF NOT EXISTS idx_audits_entity ON audits(entity_type, entity_id, timestamp DESC);
+CREATE INDEX IF NOT EXISTS idx_audits_user ON audits(user_id, timestamp DESC);
@@ -0,0 +1,48 @@
+-- Incrementally maintained staff metrics read model
+-- V007__staff_metrics.sql
+--
+-- Written by StaffMetricsUpdater in the same transaction as each shift change and
+-- corrected nightly by StaffMetricsReconciliationJob. GET /staff reads these instead
+-- of loading every shift of every staff member on the page.
+--
+-- Every increment from StaffMetricsUpdater bumps version. The nightly reconciliation only
+-- overwrites or deletes a row whose version is still the one it read alongside the shifts, so an
+-- increment committed while it runs is never lost; that row is left for the next reconciliation.
+
+CREATE TABLE IF NOT EXISTS staff_metrics (
+    staff_id UUID PRIMARY KEY REFERENCES staff(id) ON DELETE CASCADE,
+    scheduled_shifts INTEGER NOT NULL DEFAULT 0,
+    completed_shifts INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    reconciled_at TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+-- Hours of completed shifts per staff member per shift date; any window is a range scan over at
+-- most one row per day
+CREATE TABLE IF NOT EXISTS staff_hours_daily (
+    staff_id UUID NOT NULL REFERENCES staff(id) ON DELETE CASCADE,
+    work_date DATE NOT NULL,
+    hours DECIMAL(7, 2) NOT NULL DEFAULT 0,
+    shift_count INTEGER NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (staff_id, work_date)
+);
+
+-- Seed from existing shifts
+INSERT INTO staff_metrics (staff_id, scheduled_shifts, completed_shifts, reconciled_at)
+SELECT s.id,
+       COUNT(sh.id) FILTER (WHERE sh.status = 'Scheduled'),
+       COUNT(sh.id) FILTER (WHERE sh.status = 'Completed'),
+       CURRENT_TIMESTAMP
+FROM staff s
+LEFT JOIN shifts sh ON sh.assigned_staff_id = s.id
+GROUP BY s.id
+ON CONFLICT (staff_id) DO NOTHING;
+
+INSERT INTO staff_hours_daily (staff_id, work_date, hours, shift_count)
+SELECT assigned_staff_id, shift_date, COALESCE(SUM(total_hours), 0), COUNT(*)
+FROM shifts
+WHERE assigned_staff_id IS NOT NULL AND status = 'Completed'
+GROUP BY assigned_staff_id, shift_date
+ON CONFLICT (staff_id, work_date) DO NOTHING;
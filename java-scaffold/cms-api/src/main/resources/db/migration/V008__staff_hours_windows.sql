@@ -0,0 +1,8 @@
+-- Indexes for time-bucketed staff hours
+-- V008__staff_hours_windows.sql
+
+-- Per-staff shift ranges (payroll periods, metrics reconciliation) seek instead of filtering all shifts of a staff member
+CREATE INDEX IF NOT EXISTS idx_shifts_staff_date ON shifts(assigned_staff_id, shift_date);
+
+-- Department windows scan one date range across many staff
+CREATE INDEX IF NOT EXISTS idx_staff_hours_daily_date ON staff_hours_daily(work_date, staff_id) INCLUDE (hours, shift_count);
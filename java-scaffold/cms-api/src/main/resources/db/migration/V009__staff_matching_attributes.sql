@@ -0,0 +1,8 @@
+-- Staff attributes used by the matching index
+-- V009__staff_matching_attributes.sql
+
+ALTER TABLE staff ADD COLUMN IF NOT EXISTS languages_spoken VARCHAR(255);
+ALTER TABLE staff ADD COLUMN IF NOT EXISTS cultural_background VARCHAR(255);
+
+-- Index rebuilds read prior participant relationships from completed shifts
+CREATE INDEX IF NOT EXISTS idx_shifts_completed_pairs ON shifts(participant_id, assigned_staff_id) WHERE status = 'Completed';
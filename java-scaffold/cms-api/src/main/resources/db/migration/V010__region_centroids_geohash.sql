@@ -0,0 +1,17 @@
+-- Region centroids and optional geocoded addresses for proximity matching
+-- V010__region_centroids_geohash.sql
+
+ALTER TABLE regions ADD COLUMN IF NOT EXISTS centroid_lat DOUBLE PRECISION;
+ALTER TABLE regions ADD COLUMN IF NOT EXISTS centroid_lng DOUBLE PRECISION;
+
+ALTER TABLE participants ADD COLUMN IF NOT EXISTS latitude DOUBLE PRECISION;
+ALTER TABLE participants ADD COLUMN IF NOT EXISTS longitude DOUBLE PRECISION;
+ALTER TABLE participants ADD COLUMN IF NOT EXISTS geohash VARCHAR(12);
+
+ALTER TABLE staff ADD COLUMN IF NOT EXISTS latitude DOUBLE PRECISION;
+ALTER TABLE staff ADD COLUMN IF NOT EXISTS longitude DOUBLE PRECISION;
+ALTER TABLE staff ADD COLUMN IF NOT EXISTS geohash VARCHAR(12);
+
+-- Neighbourhood lookups are geohash prefix scans (LIKE 'r3gx%')
+CREATE INDEX IF NOT EXISTS idx_participants_geohash ON participants(geohash varchar_pattern_ops) WHERE geohash IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_staff_geohash ON staff(geohash varchar_pattern_ops) WHERE geohash IS NOT NULL;
@@ -0,0 +1,4 @@
+-- Batch roster allocation reads every open service in a date range
+CREATE INDEX IF NOT EXISTS idx_services_unassigned_date
+    ON services (scheduled_date)
+    WHERE assigned_to IS NULL;
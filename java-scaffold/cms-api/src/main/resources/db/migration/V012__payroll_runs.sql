@@ -0,0 +1,65 @@
+-- Organisation-wide payroll runs
+-- V012__payroll_runs.sql
+--
+-- A run covers one pay period for all staff, split into partitions of consecutive staff IDs.
+-- Each partition commits its shift pay and payroll records together with its own COMPLETED
+-- status, so a failed or interrupted run resumes from the partitions that did not finish.
+--
+-- A partition covers IDs from its first ID (inclusive, NULL for the first partition) up to its
+-- end ID (exclusive, NULL for the last partition), which is the next partition's first ID. Staff
+-- whose IDs fall between the ones seen when the run started, including staff added since,
+-- therefore still belong to exactly one partition.
+--
+-- A partition is claimed from PENDING, or from RUNNING once lease_expires_at has passed, and its
+-- work then holds the partition row locked until it commits. A partition still being worked on by
+-- another instance is never claimed twice; one whose instance died is picked up on resume.
+
+ALTER TABLE staff ADD COLUMN IF NOT EXISTS base_rate DECIMAL(10, 2);
+
+CREATE TABLE IF NOT EXISTS payroll_records (
+    id UUID DEFAULT uuid_generate_v4() PRIMARY KEY,
+    staff_id UUID NOT NULL REFERENCES staff(id),
+    period_start DATE NOT NULL,
+    period_end DATE NOT NULL,
+    total_hours DECIMAL(7, 2) NOT NULL DEFAULT 0,
+    gross_pay DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    superannuation DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    run_id UUID,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Recalculating a period replaces the staff member's record instead of adding another
+CREATE UNIQUE INDEX IF NOT EXISTS uq_payroll_records_staff_period
+    ON payroll_records (staff_id, period_start, period_end);
+
+CREATE TABLE IF NOT EXISTS payroll_runs (
+    id UUID PRIMARY KEY,
+    period_start DATE NOT NULL,
+    period_end DATE NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    partition_count INTEGER NOT NULL DEFAULT 0,
+    created_by VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    CONSTRAINT uq_payroll_runs_period UNIQUE (period_start, period_end)
+);
+
+CREATE TABLE IF NOT EXISTS payroll_run_partitions (
+    run_id UUID NOT NULL REFERENCES payroll_runs(id) ON DELETE CASCADE,
+    partition_no INTEGER NOT NULL,
+    first_staff_id UUID,
+    end_staff_id UUID,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    staff_count INTEGER NOT NULL DEFAULT 0,
+    shift_count INTEGER NOT NULL DEFAULT 0,
+    gross_pay_cents BIGINT NOT NULL DEFAULT 0,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    error TEXT,
+    lease_expires_at TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    PRIMARY KEY (run_id, partition_no)
+);
+
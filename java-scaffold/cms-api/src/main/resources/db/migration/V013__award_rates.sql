@@ -0,0 +1,55 @@
+-- Versioned SCHADS award rates
+-- V013__award_rates.sql
+--
+-- Compiled into memory by AwardRateTable. Each effective_from date is one complete version:
+-- LEVEL     hourly rate in dollars per classification level 1-8
+-- PENALTY   multiplier of the base rate per penalty period
+-- RULE      penalty period boundaries in hours
+-- ALLOWANCE amount in dollars per allowance code (optional)
+-- A rate change is a new set of rows with a later effective_from; past versions are kept so
+-- earlier pay periods can be recalculated as they were paid.
+--
+-- shift_allowances holds the allowances claimed on a shift, e.g. kilometres travelled or one
+-- sleepover. Payroll runs price each claim with the ALLOWANCE amount of the version in effect on
+-- the shift date and add it to the shift's pay. Allowance amounts are not seeded: they are loaded
+-- for each award year before any shift claims them.
+
+CREATE TABLE IF NOT EXISTS award_rates (
+    effective_from DATE NOT NULL,
+    category VARCHAR(20) NOT NULL CHECK (category IN ('LEVEL', 'PENALTY', 'RULE', 'ALLOWANCE')),
+    code VARCHAR(50) NOT NULL,
+    value DECIMAL(12, 4) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (effective_from, category, code)
+);
+
+-- 2024 rates and penalties previously hard-coded in StaffService
+INSERT INTO award_rates (effective_from, category, code, value) VALUES
+    ('2024-01-01', 'LEVEL', '1', 28.26),
+    ('2024-01-01', 'LEVEL', '2', 29.65),
+    ('2024-01-01', 'LEVEL', '3', 30.91),
+    ('2024-01-01', 'LEVEL', '4', 32.58),
+    ('2024-01-01', 'LEVEL', '5', 35.39),
+    ('2024-01-01', 'LEVEL', '6', 37.28),
+    ('2024-01-01', 'LEVEL', '7', 38.52),
+    ('2024-01-01', 'LEVEL', '8', 41.72),
+    ('2024-01-01', 'PENALTY', 'ORDINARY', 1.0),
+    ('2024-01-01', 'PENALTY', 'EVENING', 1.125),
+    ('2024-01-01', 'PENALTY', 'NIGHT', 1.15),
+    ('2024-01-01', 'PENALTY', 'SATURDAY', 1.5),
+    ('2024-01-01', 'PENALTY', 'SATURDAY_AFTER', 2.0),
+    ('2024-01-01', 'PENALTY', 'SUNDAY', 2.0),
+    ('2024-01-01', 'PENALTY', 'PUBLIC_HOLIDAY', 2.5),
+    ('2024-01-01', 'RULE', 'NIGHT_END_HOUR', 6),
+    ('2024-01-01', 'RULE', 'EVENING_START_HOUR', 18),
+    ('2024-01-01', 'RULE', 'NIGHT_START_HOUR', 22),
+    ('2024-01-01', 'RULE', 'SATURDAY_FIRST_HOURS', 2)
+ON CONFLICT DO NOTHING;
+
+CREATE TABLE IF NOT EXISTS shift_allowances (
+    shift_id UUID NOT NULL REFERENCES shifts(id) ON DELETE CASCADE,
+    code VARCHAR(50) NOT NULL,
+    quantity DECIMAL(7, 2) NOT NULL CHECK (quantity > 0),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (shift_id, code)
+);
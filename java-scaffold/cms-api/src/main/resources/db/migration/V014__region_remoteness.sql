@@ -0,0 +1,4 @@
+-- NDIS pricing remoteness per region, for remote and very remote price limits
+-- STANDARD, REMOTE or VERY_REMOTE (Modified Monash Model 6 and 7); NULL is treated as STANDARD
+ALTER TABLE regions ADD COLUMN IF NOT EXISTS remoteness VARCHAR(20)
+    CHECK (remoteness IN ('STANDARD', 'REMOTE', 'VERY_REMOTE'));
@@ -0,0 +1,73 @@
+-- Billing runs: invoices for every participant's delivered services in a billing period
+-- V015__billing_runs.sql
+--
+-- A run covers one period for all participants, split into partitions of consecutive participant
+-- IDs. Each partition commits its invoices and lines together with its own COMPLETED status.
+-- As for payroll runs (see V012), a partition covers IDs from its first ID (inclusive, NULL for
+-- the first partition) up to its end ID (exclusive, NULL for the last), so participants added
+-- since the run started still belong to exactly one partition, and claims carry a lease.
+-- A service can only ever appear on one invoice line, so re-running a period, or overlapping
+-- periods, never bills a service twice.
+
+CREATE TABLE IF NOT EXISTS invoice_lines (
+    id UUID DEFAULT uuid_generate_v4() PRIMARY KEY,
+    invoice_id UUID NOT NULL REFERENCES invoices(id) ON DELETE CASCADE,
+    line_no INTEGER NOT NULL,
+    service_id UUID NOT NULL REFERENCES services(id),
+    description VARCHAR(500) NOT NULL,
+    item_number VARCHAR(20),
+    service_date DATE,
+    quantity DECIMAL(10, 4) NOT NULL, -- hours
+    unit_price DECIMAL(10, 2) NOT NULL, -- hourly rate after the price limit, before rate type multipliers
+    line_total DECIMAL(12, 2) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uq_invoice_lines_invoice_line UNIQUE (invoice_id, line_no)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_invoice_lines_service ON invoice_lines (service_id);
+
+-- Numbers are taken in batches outside any lock; a partition that rolls back leaves a gap
+CREATE SEQUENCE IF NOT EXISTS invoice_number_seq;
+
+SELECT setval('invoice_number_seq',
+              COALESCE(MAX(CAST(SUBSTRING(invoice_number FROM '^INV-(\d{1,18})$') AS BIGINT)), 0) + 1,
+              false)
+FROM invoices;
+
+CREATE TABLE IF NOT EXISTS billing_runs (
+    id UUID PRIMARY KEY,
+    period_start DATE NOT NULL,
+    period_end DATE NOT NULL,
+    issue_date DATE NOT NULL,
+    due_date DATE,
+    status VARCHAR(20) NOT NULL,
+    partition_count INTEGER NOT NULL DEFAULT 0,
+    created_by VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    CONSTRAINT uq_billing_runs_period UNIQUE (period_start, period_end)
+);
+
+CREATE TABLE IF NOT EXISTS billing_run_partitions (
+    run_id UUID NOT NULL REFERENCES billing_runs(id) ON DELETE CASCADE,
+    partition_no INTEGER NOT NULL,
+    first_participant_id UUID,
+    end_participant_id UUID,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    participant_count INTEGER NOT NULL DEFAULT 0,
+    invoice_count INTEGER NOT NULL DEFAULT 0,
+    line_count INTEGER NOT NULL DEFAULT 0,
+    unpriced_count INTEGER NOT NULL DEFAULT 0,
+    subtotal_cents BIGINT NOT NULL DEFAULT 0,
+    gst_cents BIGINT NOT NULL DEFAULT 0,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    error TEXT,
+    lease_expires_at TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    PRIMARY KEY (run_id, partition_no)
+);
+
+ALTER TABLE invoices ADD COLUMN IF NOT EXISTS billing_run_id UUID REFERENCES billing_runs(id);
+CREATE INDEX IF NOT EXISTS idx_invoices_billing_run ON invoices (billing_run_id);
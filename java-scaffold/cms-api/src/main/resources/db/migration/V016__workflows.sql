@@ -0,0 +1,54 @@
+-- Referral and participant workflow stages with an append-only history
+-- V016__workflows.sql
+--
+-- workflows.version increases with every transition. A transition only applies
+-- WHERE version = <the version read>, so concurrent changes are detected without row locks.
+
+CREATE TABLE IF NOT EXISTS workflows (
+    id UUID DEFAULT uuid_generate_v4() PRIMARY KEY,
+    subject_type VARCHAR(20) NOT NULL, -- referral or participant
+    subject_id UUID NOT NULL,
+    stage VARCHAR(40) NOT NULL,
+    version INTEGER NOT NULL DEFAULT 0,
+    updated_by VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uq_workflows_subject UNIQUE (subject_type, subject_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_workflows_stage ON workflows (subject_type, stage);
+
+CREATE TABLE IF NOT EXISTS workflow_history (
+    id UUID DEFAULT uuid_generate_v4() PRIMARY KEY,
+    workflow_id UUID NOT NULL REFERENCES workflows(id),
+    version INTEGER NOT NULL, -- workflows.version after the transition
+    from_stage VARCHAR(40),
+    stage VARCHAR(40) NOT NULL,
+    performed_by VARCHAR(255),
+    notes TEXT,
+    automated BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    xact_id XID8 NOT NULL DEFAULT pg_current_xact_id(), -- writing transaction, for tailing (see V018)
+    CONSTRAINT uq_workflow_history_version UNIQUE (workflow_id, version)
+);
+
+CREATE OR REPLACE FUNCTION workflow_history_append_only() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'workflow_history is append-only';
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_workflow_history_append_only ON workflow_history;
+CREATE TRIGGER trg_workflow_history_append_only
+    BEFORE UPDATE OR DELETE ON workflow_history
+    FOR EACH ROW EXECUTE FUNCTION workflow_history_append_only();
+
+-- Existing referrals start at the first stage
+WITH created AS (
+    INSERT INTO workflows (subject_type, subject_id, stage)
+    SELECT 'referral', id, 'REFERRAL_RECEIVED' FROM referrals
+    ON CONFLICT (subject_type, subject_id) DO NOTHING
+    RETURNING id, stage
+)
+INSERT INTO workflow_history (workflow_id, version, stage, notes, automated)
+SELECT id, 0, stage, 'Existing referral', TRUE FROM created;
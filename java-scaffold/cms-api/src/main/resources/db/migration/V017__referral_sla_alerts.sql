@@ -0,0 +1,12 @@
+-- Referral SLA breach alerts
+-- A breach is raised once per workflow version, i.e. once per stage visit, however many nodes
+-- are running the SLA scheduler
+ALTER TABLE alerts ADD COLUMN IF NOT EXISTS referral_id UUID REFERENCES referrals(id);
+ALTER TABLE alerts ADD COLUMN IF NOT EXISTS workflow_id UUID REFERENCES workflows(id);
+ALTER TABLE alerts ADD COLUMN IF NOT EXISTS workflow_version INTEGER;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_alerts_workflow_version
+    ON alerts (workflow_id, workflow_version)
+    WHERE workflow_id IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_alerts_referral ON alerts (referral_id) WHERE referral_id IS NOT NULL;
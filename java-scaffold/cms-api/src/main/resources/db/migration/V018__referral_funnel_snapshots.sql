@@ -0,0 +1,23 @@
+-- Referral funnel analytics: tailing workflow history and periodic aggregate snapshots
+-- V018__referral_funnel_snapshots.sql
+--
+-- ReferralFunnelAggregator reads workflow_history past its position, and on start-up loads
+-- the latest snapshot so only the history written since has to be replayed.
+--
+-- Transactions do not commit in created_at (or xact_id) order, so history is only read from
+-- transactions below pg_snapshot_xmin: all of those have finished, and no row can later appear
+-- among them. Positions are (xact_id, id). A long-running transaction anywhere in the database
+-- holds the funnel back until it finishes, rather than its rows being missed. Reading takes no
+-- locks and adds no writes to workflow_history.
+
+CREATE INDEX IF NOT EXISTS idx_workflow_history_xact ON workflow_history (xact_id, id);
+
+CREATE TABLE IF NOT EXISTS referral_funnel_snapshots (
+    id UUID DEFAULT uuid_generate_v4() PRIMARY KEY,
+    watermark TIMESTAMP, -- latest workflow_history.created_at included; NULL before any history
+    segments INTEGER NOT NULL,
+    payload BYTEA NOT NULL, -- gzipped counters and duration histograms, see ReferralFunnelAggregator
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_referral_funnel_snapshots_created ON referral_funnel_snapshots (created_at DESC);
@@ -0,0 +1,31 @@
+-- Duplicate referral detection
+-- V019__referral_duplicates.sql
+--
+-- referral_blocking_keys mirrors DuplicateReferralIndex: the blocking keys of every referral and
+-- participant (see BlockingKeys), so candidates can be found in SQL while the in-memory index is
+-- loading. Rewritten in full by the nightly scan; new referrals add their own.
+
+CREATE TABLE IF NOT EXISTS referral_blocking_keys (
+    subject_type VARCHAR(20) NOT NULL, -- referral or participant
+    subject_id UUID NOT NULL,
+    block_key BIGINT NOT NULL,
+    PRIMARY KEY (subject_type, subject_id, block_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_referral_blocking_keys_key ON referral_blocking_keys (block_key);
+
+-- A referral-to-referral pair is recorded once, against the greater referral id
+CREATE TABLE IF NOT EXISTS referral_duplicate_candidates (
+    id UUID DEFAULT uuid_generate_v4() PRIMARY KEY,
+    referral_id UUID NOT NULL REFERENCES referrals(id) ON DELETE CASCADE,
+    candidate_type VARCHAR(20) NOT NULL, -- referral or participant
+    candidate_id UUID NOT NULL,
+    score INTEGER NOT NULL,
+    reasons VARCHAR(255) NOT NULL, -- comma-separated DuplicateCandidateDto.ReasonEnum names
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING', -- PENDING, CONFIRMED, DISMISSED
+    detected_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uq_referral_duplicate_candidates UNIQUE (referral_id, candidate_type, candidate_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_referral_duplicate_candidates_candidate
+    ON referral_duplicate_candidates (candidate_type, candidate_id);
@@ -0,0 +1,33 @@
+-- Outgoing email and SMS
+-- V020__notification_outbox.sql
+--
+-- Rows are written in the transaction that caused them and sent after commit by
+-- NotificationDispatcher, one worker per channel. A worker claims due rows by moving them to
+-- SENDING with next_attempt_at set to the end of its lease, so rows left SENDING by a worker that
+-- died become due again once the lease runs out.
+
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    id UUID DEFAULT uuid_generate_v4() PRIMARY KEY,
+    channel VARCHAR(10) NOT NULL, -- email or sms
+    recipient VARCHAR(255) NOT NULL,
+    template VARCHAR(50) NOT NULL,
+    subject VARCHAR(255),
+    body TEXT NOT NULL,
+    params JSONB, -- template data for providers that render their own templates
+    dedupe_key VARCHAR(255) NOT NULL,
+    status VARCHAR(10) NOT NULL DEFAULT 'PENDING', -- PENDING, SENDING, SENT, FAILED
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error TEXT,
+    provider_id VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP,
+    CONSTRAINT uq_notification_outbox_dedupe UNIQUE (dedupe_key)
+);
+
+-- Only unsent rows are indexed, so the claim query stays small however much history is kept
+CREATE INDEX IF NOT EXISTS idx_notification_outbox_due
+    ON notification_outbox (channel, next_attempt_at)
+    WHERE status IN ('PENDING', 'SENDING');
+
+CREATE INDEX IF NOT EXISTS idx_notification_outbox_created ON notification_outbox (created_at);
\ No newline at end of file
@@ -0,0 +1,36 @@
+package au.com.primacycare.cms.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Partition names round-tripping to their month, and tables that are not monthly partitions
+ */
+public class AuditPartitionMaintenanceJobTest {
+    
+    @Test
+    void partitionNamesCarryYearAndZeroPaddedMonth() {
+        assertEquals("audits_p202401", AuditPartitionMaintenanceJob.partitionName(YearMonth.of(2024, 1)));
+        assertEquals("audits_p202412", AuditPartitionMaintenanceJob.partitionName(YearMonth.of(2024, 12)));
+    }
+    
+    @Test
+    void monthOfReversesPartitionName() {
+        for (YearMonth month = YearMonth.of(2019, 11); month.isBefore(YearMonth.of(2021, 3)); month = month.plusMonths(1)) {
+            assertEquals(month, AuditPartitionMaintenanceJob.monthOf(AuditPartitionMaintenanceJob.partitionName(month)));
+        }
+    }
+    
+    @Test
+    void tablesThatAreNotMonthlyPartitionsHaveNoMonth() {
+        assertNull(AuditPartitionMaintenanceJob.monthOf("audits_default"));
+        assertNull(AuditPartitionMaintenanceJob.monthOf("audits_p2024"));
+        assertNull(AuditPartitionMaintenanceJob.monthOf("audits_p202413"));
+        assertNull(AuditPartitionMaintenanceJob.monthOf("audits_p202401_old"));
+        assertNull(AuditPartitionMaintenanceJob.monthOf("billing_p202401"));
+        assertNull(AuditPartitionMaintenanceJob.monthOf(""));
+    }
+}
@@ -0,0 +1,167 @@
+package au.com.primacycare.cms.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The buffered path: draining in batches, spilling overflow and failed batches to the outbox in
+ * one insert each, and persisting what is still buffered on shutdown
+ */
+public class AuditWriterTest {
+    
+    private final RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+    private final CountingTransactionManager transactions = new CountingTransactionManager();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+    @Test
+    void bufferedEventsAreDrainedInBatches() throws InterruptedException {
+        AuditWriter writer = writer(100, 3);
+        writer.submit(events(7));
+        
+        writer.start();
+        await(() -> jdbc.rows(jdbc.audits) == 7);
+        writer.stop();
+        
+        assertEquals(List.of(3, 3, 1), jdbc.audits.stream().map(List::size).toList());
+        assertEquals(List.of("e0", "e1", "e2"), jdbc.audits.get(0).stream().map(args -> (String) args[1]).toList());
+        assertTrue(jdbc.outbox.isEmpty());
+        assertEquals(7, count("written"));
+    }
+    
+    @Test
+    void overflowIsSpilledToTheOutboxInOneInsert() throws InterruptedException {
+        AuditWriter writer = writer(2, 10);
+        
+        writer.submit(events(5));
+        
+        assertEquals(1, jdbc.outbox.size());
+        assertEquals(List.of("e2", "e3", "e4"), jdbc.outbox.get(0).stream().map(args -> (String) args[1]).toList());
+        assertEquals(1, transactions.committed);
+        assertEquals(3, count("backpressured"));
+        
+        writer.stop();
+        assertEquals(List.of("e0", "e1"), jdbc.outbox.get(1).stream().map(args -> (String) args[1]).toList());
+    }
+    
+    @Test
+    void shutdownSpillsWhatIsStillBufferedAndLaterEventsGoStraightToTheOutbox() throws InterruptedException {
+        AuditWriter writer = writer(100, 10);
+        writer.submit(events(2));
+        
+        writer.stop();
+        writer.submit(events(1));
+        
+        assertEquals(List.of(2, 1), jdbc.outbox.stream().map(List::size).toList());
+        assertTrue(jdbc.audits.isEmpty());
+        assertEquals(2, transactions.committed);
+    }
+    
+    @Test
+    void aFailedBatchIsSpilledToTheOutbox() throws InterruptedException {
+        jdbc.failAudits = true;
+        AuditWriter writer = writer(100, 10);
+        writer.submit(events(4));
+        
+        writer.start();
+        await(() -> jdbc.rows(jdbc.outbox) == 4);
+        writer.stop();
+        
+        assertEquals(1, jdbc.outbox.size());
+        assertEquals(0, count("written"));
+    }
+    
+    @Test
+    void eventsTheOutboxCannotTakeAreCountedAsDropped() {
+        jdbc.failOutbox = true;
+        AuditWriter writer = writer(1, 10);
+        
+        writer.submit(events(3));
+        
+        assertEquals(2, count("dropped"));
+        assertEquals(0, count("backpressured"));
+        assertEquals(1, transactions.rolledBack);
+    }
+    
+    private AuditWriter writer(int capacity, int batchSize) {
+        return new AuditWriter(jdbc, transactions, new ObjectMapper(), meterRegistry, capacity, batchSize, 10);
+    }
+    
+    private double count(String outcome) {
+        return meterRegistry.get("cms.audit.events").tag("outcome", outcome).counter().count();
+    }
+    
+    private static List<AuditEvent> events(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> new AuditEvent("participant", "e" + i, "CREATE", "user-1", LocalDateTime.now(),
+                null, Map.of("firstName", "Ada"), null, null))
+            .toList();
+    }
+    
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "Timed out waiting for the writer");
+    }
+    
+    /**
+     * Batches sent to each table, in order
+     */
+    private static final class RecordingJdbcTemplate extends JdbcTemplate {
+        
+        final List<List<Object[]>> audits = new ArrayList<>();
+        final List<List<Object[]>> outbox = new ArrayList<>();
+        volatile boolean failAudits;
+        volatile boolean failOutbox;
+        
+        @Override
+        public synchronized int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            boolean toOutbox = sql.contains("audit_outbox");
+            if (toOutbox ? failOutbox : failAudits) {
+                throw new IllegalStateException("Connection refused");
+            }
+            (toOutbox ? outbox : audits).add(List.copyOf(batchArgs));
+            return new int[batchArgs.size()];
+        }
+        
+        synchronized int rows(List<List<Object[]>> batches) {
+            return batches.stream().mapToInt(List::size).sum();
+        }
+    }
+    
+    private static final class CountingTransactionManager implements PlatformTransactionManager {
+        
+        int committed;
+        int rolledBack;
+        
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+        
+        @Override
+        public void commit(TransactionStatus status) {
+            committed++;
+        }
+        
+        @Override
+        public void rollback(TransactionStatus status) {
+            rolledBack++;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package au.com.primacycare.cms.batch;
+
+import au.com.primacycare.cms.repository.PartitionedRunRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * What the runner does with each partition: skipping completed and already queued ones, running
+ * work only under a claim it still holds, failing a partition under the claim's attempt, and
+ * refreshing the run's status afterwards
+ * The claim and status SQL itself is covered by PayrollRunIntegrationTest
+ */
+public class PartitionedRunnerTest {
+    
+    private static final String RUN = "run-1";
+    private static final PartitionedRunRepository.Tables TABLES = new PartitionedRunRepository.Tables("runs", "partitions");
+    
+    private final FakeRepository repository = new FakeRepository();
+    private final PartitionedRunner<Part> runner = new PartitionedRunner<>("test", TABLES, repository,
+        new TransactionTemplate(new NoOpTransactionManager()), new SimpleMeterRegistry(), 2, Duration.ofSeconds(60),
+        "Test partition", Part::no, Part::completed);
+    private final List<Integer> worked = new CopyOnWriteArrayList<>();
+    
+    @AfterEach
+    void shutdown() {
+        runner.shutdown();
+    }
+    
+    @Test
+    void claimedPartitionsAreWorkedAndCompletedOnesSkipped() throws InterruptedException {
+        runner.submitPending(RUN, List.of(new Part(0, true), new Part(1, false), new Part(2, false)),
+            part -> worked.add(part.no()));
+        
+        await(() -> repository.refreshes.size() == 2);
+        assertEquals(List.of(1, 2), worked.stream().sorted().toList());
+        assertEquals(List.of(1, 2), repository.claimed.stream().sorted().toList());
+    }
+    
+    @Test
+    void aPartitionClaimedElsewhereIsNotWorked() throws InterruptedException {
+        repository.attempts.put(0, 0);
+        
+        runner.submitPending(RUN, List.of(new Part(0, false)), part -> worked.add(part.no()));
+        
+        await(() -> repository.refreshes.size() == 1);
+        assertTrue(worked.isEmpty());
+        assertTrue(repository.failures.isEmpty());
+    }
+    
+    @Test
+    void aLostClaimIsNeitherWorkedNorFailed() throws InterruptedException {
+        repository.lostClaims.add(0);
+        
+        runner.submitPending(RUN, List.of(new Part(0, false)), part -> worked.add(part.no()));
+        
+        await(() -> repository.refreshes.size() == 1);
+        assertTrue(worked.isEmpty());
+        assertTrue(repository.failures.isEmpty());
+    }
+    
+    @Test
+    void failedWorkFailsThePartitionUnderItsClaimsAttempt() throws InterruptedException {
+        repository.attempts.put(0, 2);
+        
+        runner.submitPending(RUN, List.of(new Part(0, false)), part -> {
+            throw new IllegalStateException("Rate missing");
+        });
+        
+        await(() -> repository.refreshes.size() == 1);
+        assertEquals(List.of("0@3: Rate missing"), repository.failures);
+    }
+    
+    @Test
+    void aPartitionAlreadyQueuedHereIsNotQueuedAgain() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Part> partitions = List.of(new Part(0, false));
+        runner.submitPending(RUN, partitions, part -> {
+            worked.add(part.no());
+            awaitQuietly(release);
+        });
+        
+        runner.submitPending(RUN, partitions, part -> worked.add(part.no()));
+        release.countDown();
+        
+        await(() -> repository.refreshes.size() == 1);
+        Thread.sleep(50);
+        assertEquals(List.of(0), worked);
+    }
+    
+    @Test
+    void aRunWithoutPartitionsHasItsStatusRefreshedAtOnce() {
+        runner.submitPending(RUN, List.of(), part -> worked.add(part.no()));
+        
+        assertEquals(List.of(RUN), repository.refreshes);
+    }
+    
+    @Test
+    void resumingReopensTheRun() {
+        runner.resume(RUN);
+        
+        assertEquals(List.of(RUN), repository.resumed);
+    }
+    
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "Timed out waiting for the runner");
+    }
+    
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private record Part(int no, boolean completed) {
+    }
+    
+    /**
+     * Claims succeed with the next attempt unless the partition's previous attempt is set to 0
+     */
+    private static final class FakeRepository extends PartitionedRunRepository {
+        
+        final Map<Integer, Integer> attempts = new ConcurrentHashMap<>();
+        final List<Integer> lostClaims = new CopyOnWriteArrayList<>();
+        final List<Integer> claimed = new CopyOnWriteArrayList<>();
+        final List<String> failures = new CopyOnWriteArrayList<>();
+        final List<String> refreshes = new CopyOnWriteArrayList<>();
+        final List<String> resumed = new ArrayList<>();
+        
+        FakeRepository() {
+            super(null);
+        }
+        
+        @Override
+        public OptionalInt claimPartition(Tables tables, String runId, int partitionNo, Duration lease) {
+            int previous = attempts.getOrDefault(partitionNo, -1);
+            if (previous == 0) {
+                return OptionalInt.empty();
+            }
+            claimed.add(partitionNo);
+            return OptionalInt.of(Math.max(previous, 0) + 1);
+        }
+        
+        @Override
+        public boolean lockClaim(Tables tables, String runId, int partitionNo, int attempt) {
+            return !lostClaims.contains(partitionNo);
+        }
+        
+        @Override
+        public void failPartition(Tables tables, String runId, int partitionNo, int attempt, String error) {
+            failures.add(partitionNo + "@" + attempt + ": " + error);
+        }
+        
+        @Override
+        public void refreshRunStatus(Tables tables, String runId) {
+            refreshes.add(runId);
+        }
+        
+        @Override
+        public void resumeRun(Tables tables, String runId) {
+            resumed.add(runId);
+        }
+    }
+    
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+        
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+        
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+        
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
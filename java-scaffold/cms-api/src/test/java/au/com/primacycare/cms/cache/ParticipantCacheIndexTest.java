@@ -0,0 +1,270 @@
+package au.com.primacycare.cms.cache;
+
+import au.com.primacycare.cms.dto.ParticipantDto;
+import au.com.primacycare.cms.dto.ParticipantFilter;
+import au.com.primacycare.cms.entity.Participant;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Targeted page eviction, and that a page loaded before a write is never served once the write's
+ * evictions have run, including under concurrent loads
+ */
+public class ParticipantCacheIndexTest {
+    
+    private static final ParticipantFilter ACTIVE = ParticipantFilter.of("Active", null, null, null, null, null, null);
+    private static final ParticipantFilter INACTIVE = ParticipantFilter.of("Inactive", null, null, null, null, null, null);
+    private static final ParticipantCacheIndex.PageKey ACTIVE_PAGE =
+        ParticipantCacheIndex.pageKey(PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt")), ACTIVE);
+    private static final ParticipantCacheIndex.PageKey INACTIVE_PAGE =
+        ParticipantCacheIndex.pageKey(PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt")), INACTIVE);
+    
+    private final InterleavingCacheManager cacheManager = new InterleavingCacheManager();
+    private final ParticipantCacheIndex index = new ParticipantCacheIndex(cacheManager, new SimpleMeterRegistry());
+    /** Stands in for the participants table: the version each load reads */
+    private final AtomicInteger database = new AtomicInteger();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Participant participant = participant("p1", "Active");
+    
+    @Test
+    void aLoadedPageIsServedFromTheCache() {
+        index.cachedPage(ACTIVE_PAGE, loader());
+        index.cachedPage(ACTIVE_PAGE, loader());
+        
+        assertEquals(1, loads.get());
+    }
+    
+    @Test
+    void anUpdateEvictsThePagesTheParticipantIsOn() {
+        index.cachedPage(ACTIVE_PAGE, loader());
+        database.incrementAndGet();
+        
+        index.participantUpdated(ParticipantFilter.Attributes.of(participant), participant);
+        
+        assertEquals(1, version(index.cachedPage(ACTIVE_PAGE, loader())));
+        assertEquals(2, loads.get());
+    }
+    
+    @Test
+    void aNewParticipantEvictsOnlyPagesWhoseFilterItMatches() {
+        index.cachedPage(ACTIVE_PAGE, loader());
+        index.cachedPage(INACTIVE_PAGE, loader());
+        
+        index.participantCreated(participant("p2", "Inactive"));
+        index.cachedPage(ACTIVE_PAGE, loader());
+        index.cachedPage(INACTIVE_PAGE, loader());
+        
+        assertEquals(3, loads.get());
+    }
+    
+    @Test
+    void aStatusChangeEvictsThePageTheParticipantMovedInto() {
+        index.cachedPage(INACTIVE_PAGE, () -> new PageImpl<>(List.of()));
+        ParticipantFilter.Attributes before = ParticipantFilter.Attributes.of(participant);
+        participant.setStatus("Inactive");
+        
+        index.participantUpdated(before, participant);
+        
+        index.cachedPage(INACTIVE_PAGE, loader());
+        assertEquals(1, loads.get());
+    }
+    
+    @Test
+    void aDeletedParticipantEvictsItsPages() {
+        index.cachedPage(ACTIVE_PAGE, loader());
+        
+        index.participantDeleted(participant);
+        index.cachedPage(ACTIVE_PAGE, loader());
+        
+        assertEquals(2, loads.get());
+    }
+    
+    @Test
+    void aPageLoadedWhileAWriteIsEvictedIsReturnedButNotStored() {
+        Page<ParticipantDto> stale = index.cachedPage(ACTIVE_PAGE, () -> {
+            Page<ParticipantDto> page = loader().get();
+            // The write commits and runs its evictions after this load read the table
+            database.incrementAndGet();
+            index.participantUpdated(ParticipantFilter.Attributes.of(participant), participant);
+            return page;
+        });
+        
+        assertEquals(0, version(stale));
+        assertEquals(1, version(index.cachedPage(ACTIVE_PAGE, loader())));
+    }
+    
+    @Test
+    void aWriteCommittingWhileAPageIsStoredIsNeverFollowedByThatPage() throws Exception {
+        ExecutorService others = Executors.newCachedThreadPool();
+        List<Integer> servedAfterWrite = new CopyOnWriteArrayList<>();
+        try {
+            cacheManager.aroundNextPut = put -> {
+                // Another request's write commits just as this load stores the page it read before
+                Future<?> write = others.submit(this::writeParticipant);
+                boolean written = finishes(write);
+                put.run();
+                if (written) {
+                    servedAfterWrite.add(version(get(others.submit(() -> index.cachedPage(ACTIVE_PAGE, loader())))));
+                }
+            };
+            index.cachedPage(ACTIVE_PAGE, loader());
+            others.shutdown();
+            assertTrue(others.awaitTermination(10, TimeUnit.SECONDS));
+            servedAfterWrite.add(version(index.cachedPage(ACTIVE_PAGE, loader())));
+            
+            assertEquals(List.of(1), servedAfterWrite);
+        } finally {
+            others.shutdownNow();
+        }
+    }
+    
+    @Test
+    void concurrentLoadsNeverLeaveAStalePageAfterAWrite() throws Exception {
+        int readers = 4;
+        int writes = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(readers + 1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < readers; i++) {
+                executor.submit(() -> {
+                    start.await();
+                    while (writing.get()) {
+                        index.cachedPage(ACTIVE_PAGE, yieldingLoader());
+                    }
+                    return null;
+                });
+            }
+            Future<Integer> stalePages = executor.submit(() -> {
+                start.await();
+                int stale = 0;
+                for (int i = 0; i < writes; i++) {
+                    int written = database.incrementAndGet();
+                    index.participantUpdated(ParticipantFilter.Attributes.of(participant), participant);
+                    if (version(index.cachedPage(ACTIVE_PAGE, yieldingLoader())) < written) {
+                        stale++;
+                    }
+                }
+                writing.set(false);
+                return stale;
+            });
+            start.countDown();
+            
+            assertEquals(0, (int) stalePages.get(60, TimeUnit.SECONDS));
+        } finally {
+            writing.set(false);
+            executor.shutdownNow();
+        }
+    }
+    
+    private void writeParticipant() {
+        database.incrementAndGet();
+        index.participantUpdated(ParticipantFilter.Attributes.of(participant), participant);
+    }
+    
+    private static boolean finishes(Future<?> task) {
+        try {
+            task.get(200, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static <T> T get(Future<T> task) {
+        try {
+            return task.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private Supplier<Page<ParticipantDto>> loader() {
+        return () -> {
+            loads.incrementAndGet();
+            return page(database.get());
+        };
+    }
+    
+    /**
+     * Gives a write the chance to commit between reading the table and storing the page
+     */
+    private Supplier<Page<ParticipantDto>> yieldingLoader() {
+        return () -> {
+            int version = database.get();
+            Thread.yield();
+            return page(version);
+        };
+    }
+    
+    private static Page<ParticipantDto> page(int version) {
+        ParticipantDto dto = new ParticipantDto();
+        dto.setId("p1");
+        dto.setFirstName("v" + version);
+        return new PageImpl<>(List.of(dto));
+    }
+    
+    private static int version(Page<ParticipantDto> page) {
+        return Integer.parseInt(page.getContent().get(0).getFirstName().substring(1));
+    }
+    
+    private static Participant participant(String id, String status) {
+        Participant participant = new Participant();
+        participant.setId(id);
+        participant.setStatus(status);
+        participant.setNdisNumber("430000001");
+        return participant;
+    }
+    
+    /**
+     * Runs a hook around the next page stored, to place another thread's work inside the store
+     */
+    private static final class InterleavingCacheManager extends ConcurrentMapCacheManager {
+        
+        volatile Consumer<Runnable> aroundNextPut;
+        
+        InterleavingCacheManager() {
+            super(ParticipantCacheIndex.PARTICIPANT_CACHE, ParticipantCacheIndex.PARTICIPANTS_CACHE);
+        }
+        
+        @Override
+        protected Cache createConcurrentMapCache(String name) {
+            return new ConcurrentMapCache(name) {
+                @Override
+                public void put(Object key, Object value) {
+                    Consumer<Runnable> around = ParticipantCacheIndex.PARTICIPANTS_CACHE.equals(name) ? aroundNextPut : null;
+                    if (around == null) {
+                        super.put(key, value);
+                        return;
+                    }
+                    aroundNextPut = null;
+                    around.accept(() -> super.put(key, value));
+                }
+            };
+        }
+    }
+}
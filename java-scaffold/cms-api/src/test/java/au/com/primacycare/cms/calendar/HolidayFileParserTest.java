@@ -0,0 +1,125 @@
+package au.com.primacycare.cms.calendar;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Both dataset formats: the data.gov.au CSV layout and ICS calendars, and which states each row
+ * or event applies to
+ */
+public class HolidayFileParserTest {
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void dataGovAuCsvRowsAreReadWithTheirJurisdiction() throws IOException {
+        List<PublicHoliday> holidays = HolidayFileParser.parseCsv(new StringReader("""
+            Date,Holiday Name,Information,Jurisdiction
+            20241105,Melbourne Cup,Metropolitan Melbourne only,vic
+            20241225,Christmas Day,,national
+            """));
+        
+        assertEquals(List.of(
+            new PublicHoliday(LocalDate.of(2024, 11, 5), "VIC", "Melbourne Cup"),
+            new PublicHoliday(LocalDate.of(2024, 12, 25), null, "Christmas Day")), holidays);
+    }
+    
+    @Test
+    void aCsvRowCanNameSeveralStatesOrNone() throws IOException {
+        List<PublicHoliday> holidays = HolidayFileParser.parseCsv(new StringReader("""
+            date,state,name
+            2024-06-10,"NSW;ACT|SA,TAS",King's Birthday
+            2024-01-01,,New Year's Day
+            """));
+        
+        assertEquals(List.of("NSW", "ACT", "SA", "TAS"),
+            holidays.subList(0, 4).stream().map(PublicHoliday::stateCode).toList());
+        assertNull(holidays.get(4).stateCode());
+    }
+    
+    @Test
+    void aSubstituteDayIsItsOwnRow() throws IOException {
+        // Boxing Day 2026 falls on a Saturday; the dataset lists the Monday in lieu as well
+        List<PublicHoliday> holidays = HolidayFileParser.parseCsv(new StringReader("""
+            Date,Holiday Name,Jurisdiction
+            20261226,Boxing Day,nsw
+            20261228,Boxing Day (additional day),nsw
+            """));
+        
+        assertEquals(List.of(LocalDate.of(2026, 12, 26), LocalDate.of(2026, 12, 28)),
+            holidays.stream().map(PublicHoliday::date).toList());
+    }
+    
+    @Test
+    void aCsvRowWithoutAValidDateNamesItsRow() {
+        IllegalArgumentException missing = assertThrows(IllegalArgumentException.class, () ->
+            HolidayFileParser.parseCsv(new StringReader("date,state\n2024-01-01,\n,NSW\n")));
+        IllegalArgumentException invalid = assertThrows(IllegalArgumentException.class, () ->
+            HolidayFileParser.parseCsv(new StringReader("date,state\n2024-02-30,NSW\n")));
+        
+        assertEquals("Row 3: missing date", missing.getMessage());
+        assertEquals("Row 2: invalid date 2024-02-30", invalid.getMessage());
+    }
+    
+    @Test
+    void icsEventsSpanUpToTheirEndDateAndTakeStatesFromCategories() throws IOException {
+        List<PublicHoliday> holidays = HolidayFileParser.parseIcs(new BufferedReader(new StringReader("""
+            BEGIN:VCALENDAR
+            BEGIN:VEVENT
+            DTSTART;VALUE=DATE:20240329
+            DTEND;VALUE=DATE:20240402
+            SUMMARY:Easter
+              long weekend
+            CATEGORIES:QLD,WA
+            END:VEVENT
+            BEGIN:VEVENT
+            DTSTART:20240126T000000
+            SUMMARY:Australia Day
+            END:VEVENT
+            END:VCALENDAR
+            """)));
+        
+        assertEquals(9, holidays.size());
+        assertEquals(new PublicHoliday(LocalDate.of(2024, 3, 29), "QLD", "Easter long weekend"), holidays.get(0));
+        assertEquals(new PublicHoliday(LocalDate.of(2024, 4, 1), "WA", "Easter long weekend"), holidays.get(7));
+        assertEquals(new PublicHoliday(LocalDate.of(2024, 1, 26), null, "Australia Day"), holidays.get(8));
+    }
+    
+    @Test
+    void anIcsEventWithoutAStartIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+            HolidayFileParser.parseIcs(new BufferedReader(new StringReader("""
+                BEGIN:VEVENT
+                SUMMARY:Somewhere
+                END:VEVENT
+                """))));
+        
+        assertEquals("Event 1: missing DTSTART", e.getMessage());
+    }
+    
+    @Test
+    void theFormatFollowsTheFileExtension() throws IOException {
+        Path ics = Files.writeString(dir.resolve("holidays.ICS"), """
+            BEGIN:VEVENT
+            DTSTART;VALUE=DATE:20240425
+            SUMMARY:Anzac Day
+            END:VEVENT
+            """);
+        Path csv = Files.writeString(dir.resolve("holidays.csv"), "date,name\n2024-04-25,Anzac Day\n");
+        
+        PublicHoliday anzacDay = new PublicHoliday(LocalDate.of(2024, 4, 25), null, "Anzac Day");
+        assertEquals(List.of(anzacDay), HolidayFileParser.parse(ics));
+        assertEquals(List.of(anzacDay), HolidayFileParser.parse(csv));
+    }
+}
@@ -0,0 +1,143 @@
+package au.com.primacycare.cms.calendar;
+
+import au.com.primacycare.cms.payroll.HolidayLookup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lookups by state, where national holidays apply everywhere and state holidays only in their
+ * state, substitute days, and reloading the dataset when the file changes
+ */
+public class PublicHolidayCalendarTest {
+    
+    private static final LocalDate NEW_YEARS_DAY = LocalDate.of(2027, 1, 1);
+    private static final LocalDate MELBOURNE_CUP = LocalDate.of(2026, 11, 3);
+    private static final LocalDate BOXING_DAY = LocalDate.of(2026, 12, 26);
+    private static final LocalDate BOXING_DAY_IN_LIEU = LocalDate.of(2026, 12, 28);
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void stateHolidaysApplyOnlyInTheirStateAndNationalOnesEverywhere() throws IOException {
+        PublicHolidayCalendar calendar = load("""
+            date,state,name
+            2026-11-03,VIC,Melbourne Cup
+            2027-01-01,,New Year's Day
+            """);
+        
+        assertTrue(calendar.isPublicHoliday("VIC", MELBOURNE_CUP));
+        assertTrue(calendar.isPublicHoliday(" vic ", MELBOURNE_CUP));
+        assertFalse(calendar.isPublicHoliday("NSW", MELBOURNE_CUP));
+        assertFalse(calendar.isPublicHoliday(null, MELBOURNE_CUP));
+        
+        assertTrue(calendar.isPublicHoliday("VIC", NEW_YEARS_DAY));
+        assertTrue(calendar.isPublicHoliday("NSW", NEW_YEARS_DAY));
+        assertTrue(calendar.isPublicHoliday(null, NEW_YEARS_DAY));
+    }
+    
+    @Test
+    void aSubstituteDayIsAHolidayOnlyWhereItIsListed() throws IOException {
+        PublicHolidayCalendar calendar = load("""
+            date,state,name
+            2026-12-26,,Boxing Day
+            2026-12-28,NSW,Boxing Day (additional day)
+            """);
+        HolidayLookup nsw = calendar.forState("NSW");
+        HolidayLookup sa = calendar.forState("SA");
+        
+        assertTrue(nsw.isPublicHoliday(BOXING_DAY));
+        assertTrue(nsw.isPublicHoliday(BOXING_DAY_IN_LIEU));
+        assertTrue(sa.isPublicHoliday(BOXING_DAY));
+        assertFalse(sa.isPublicHoliday(BOXING_DAY_IN_LIEU));
+    }
+    
+    @Test
+    void datesOutsideTheDatasetsYearsAreNotHolidays() throws IOException {
+        PublicHolidayCalendar calendar = load("date,state\n2026-12-26,\n");
+        
+        assertFalse(calendar.isPublicHoliday("NSW", BOXING_DAY.minusYears(1)));
+        assertFalse(calendar.isPublicHoliday("NSW", BOXING_DAY.plusYears(1)));
+    }
+    
+    @Test
+    void aMissingFileMeansNoHolidays() {
+        PublicHolidayCalendar calendar = calendar(dir.resolve("missing.csv"));
+        
+        calendar.reloadIfChanged();
+        
+        assertFalse(calendar.isPublicHoliday("NSW", NEW_YEARS_DAY));
+    }
+    
+    @Test
+    void aChangedFileIsReloadedAndABrokenOneKeepsThePreviousHolidays() throws IOException {
+        Path file = dir.resolve("holidays.csv");
+        Files.writeString(file, "date,state\n2026-11-03,VIC\n");
+        PublicHolidayCalendar calendar = calendar(file);
+        calendar.reloadIfChanged();
+        
+        write(file, "date,state\n2027-01-01,\n", 1);
+        calendar.reloadIfChanged();
+        assertFalse(calendar.isPublicHoliday("VIC", MELBOURNE_CUP));
+        assertTrue(calendar.isPublicHoliday("VIC", NEW_YEARS_DAY));
+        
+        write(file, "date,state\nnot-a-date,VIC\n", 2);
+        calendar.reloadIfChanged();
+        assertTrue(calendar.isPublicHoliday("VIC", NEW_YEARS_DAY));
+    }
+    
+    @Test
+    void aLookupKeepsTheVersionItWasTakenFrom() throws IOException {
+        Path file = dir.resolve("holidays.csv");
+        Files.writeString(file, "date,state\n2026-11-03,VIC\n");
+        PublicHolidayCalendar calendar = calendar(file);
+        calendar.reloadIfChanged();
+        HolidayLookup before = calendar.forState("VIC");
+        
+        write(file, "date,state\n2027-01-01,\n", 1);
+        calendar.reloadIfChanged();
+        
+        assertTrue(before.isPublicHoliday(MELBOURNE_CUP));
+        assertFalse(calendar.forState("VIC").isPublicHoliday(MELBOURNE_CUP));
+    }
+    
+    private PublicHolidayCalendar load(String csv) throws IOException {
+        PublicHolidayCalendar calendar = calendar(Files.writeString(dir.resolve("holidays.csv"), csv));
+        calendar.reloadIfChanged();
+        return calendar;
+    }
+    
+    private static PublicHolidayCalendar calendar(Path file) {
+        return new PublicHolidayCalendar(new NoStatesJdbcTemplate(), new SimpleMeterRegistry(), file);
+    }
+    
+    /**
+     * Rewrite with a later modification time, so the change is seen even within the file system's timestamp resolution
+     */
+    private static void write(Path file, String content, int secondsLater) throws IOException {
+        FileTime previous = Files.getLastModifiedTime(file);
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(previous.toMillis() + secondsLater * 1000L));
+    }
+    
+    /**
+     * An empty states table
+     */
+    private static final class NoStatesJdbcTemplate extends JdbcTemplate {
+        
+        @Override
+        public void query(String sql, RowCallbackHandler handler) {
+        }
+    }
+}
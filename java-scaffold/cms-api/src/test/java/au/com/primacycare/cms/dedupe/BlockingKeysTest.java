@@ -0,0 +1,79 @@
+package au.com.primacycare.cms.dedupe;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Which people share a blocking key, and so are compared at all
+ */
+public class BlockingKeysTest {
+    
+    private static final LocalDate BORN = LocalDate.of(1980, 5, 12);
+    
+    @Test
+    void aFullRecordHasAKeyForEachDetail() {
+        PersonRecord person = person("Robert", "Smith", BORN, "0412 345 678", "430000001");
+        
+        // Name pair, then name with year and with phone for each name, birth date and NDIS number
+        assertEquals(7, BlockingKeys.of(person).length);
+    }
+    
+    @Test
+    void aNameCodedOnceIsKeyedOnce() {
+        PersonRecord person = person("Rupert", "Robert", BORN, null, null);
+        
+        assertEquals(3, BlockingKeys.of(person).length);
+    }
+    
+    @Test
+    void soundAlikeNamesBornTheSameYearShareABlock() {
+        assertTrue(shareABlock(
+            person("Robert", "Smith", BORN, null, null),
+            person("Rupert", "Smyth", LocalDate.of(1980, 1, 1), null, null)));
+    }
+    
+    @Test
+    void swappedNamesShareABlock() {
+        assertTrue(shareABlock(
+            person("Robert", "Smith", null, null, null),
+            person("Smith", "Robert", null, null, null)));
+    }
+    
+    @Test
+    void aMisspeltNameIsStillFoundByBirthDateOrPhone() {
+        PersonRecord person = person("Siobhan", "Nguyen", BORN, "0412 345 678", null);
+        
+        assertTrue(shareABlock(person, person("Shivorn", "Wynn", BORN, null, null)));
+        assertTrue(shareABlock(person, person("Siobhan", "Wynn", null, "(02) 9999 5678", null)));
+    }
+    
+    @Test
+    void theSameNdisNumberSharesABlockWhateverTheName() {
+        assertTrue(shareABlock(
+            person("Robert", "Smith", null, null, "430 000 001"),
+            person("Mary", "Jones", null, null, "430000001")));
+    }
+    
+    @Test
+    void unrelatedPeopleShareNoBlock() {
+        assertFalse(shareABlock(
+            person("Robert", "Smith", BORN, "0412 345 678", "430000001"),
+            person("Mary", "Jones", LocalDate.of(1990, 2, 3), "0400 000 000", "430000002")));
+        assertFalse(shareABlock(
+            person("Robert", "Smith", BORN, null, null),
+            person("Robert", "Jones", LocalDate.of(1990, 5, 12), null, null)));
+    }
+    
+    private static boolean shareABlock(PersonRecord a, PersonRecord b) {
+        long[] keys = BlockingKeys.of(b);
+        return Arrays.stream(BlockingKeys.of(a)).anyMatch(key -> Arrays.stream(keys).anyMatch(other -> other == key));
+    }
+    
+    private static PersonRecord person(String first, String last, LocalDate dateOfBirth, String phone, String ndisNumber) {
+        return PersonRecord.ofNames(PersonSource.REFERRAL, first + last, first, last, dateOfBirth, phone, ndisNumber);
+    }
+}
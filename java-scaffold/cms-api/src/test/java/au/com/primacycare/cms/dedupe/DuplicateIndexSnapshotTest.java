@@ -0,0 +1,82 @@
+package au.com.primacycare.cms.dedupe;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Candidates found through the blocks: best first, at or above the minimum score, never the query
+ * itself, and oversized blocks skipped
+ */
+public class DuplicateIndexSnapshotTest {
+    
+    private static final LocalDate BORN = LocalDate.of(1980, 5, 12);
+    private static final int MIN_SCORE = 55;
+    
+    private final PersonRecord query = referral("r1", "Robert Smith", BORN, null);
+    
+    @Test
+    void matchesAtOrAboveTheMinimumScoreAreReturnedBestFirst() {
+        DuplicateIndexSnapshot snapshot = DuplicateIndexSnapshot.build(List.of(
+            query,
+            referral("r2", "Rupert Smith", BORN, null),
+            referral("r3", "Robert Smith", BORN, null),
+            // Shares the name block, but born in another year
+            referral("r4", "Robert Smith", BORN.minusYears(30), null),
+            participant("p1", "Mary", "Jones", null, "430000001")));
+        
+        List<DuplicateMatch> matches = snapshot.matches(query, MIN_SCORE, 500, 10);
+        
+        assertEquals(List.of("r3", "r2"), matches.stream().map(match -> match.person().id()).toList());
+        assertEquals(List.of(70, 60), matches.stream().map(DuplicateMatch::score).toList());
+    }
+    
+    @Test
+    void theLimitKeepsTheBestMatches() {
+        DuplicateIndexSnapshot snapshot = DuplicateIndexSnapshot.build(List.of(
+            referral("r2", "Rupert Smith", BORN, null),
+            referral("r3", "Robert Smith", BORN, null)));
+        
+        List<DuplicateMatch> matches = snapshot.matches(query, MIN_SCORE, 500, 1);
+        
+        assertEquals("r3", matches.get(0).person().id());
+        assertEquals(1, matches.size());
+    }
+    
+    @Test
+    void theSameIdFromTheOtherSourceIsStillACandidate() {
+        DuplicateIndexSnapshot snapshot = DuplicateIndexSnapshot.build(List.of(
+            query, participant("r1", "Robert", "Smith", BORN, null)));
+        
+        List<DuplicateMatch> matches = snapshot.matches(query, MIN_SCORE, 500, 10);
+        
+        assertEquals(List.of(PersonSource.PARTICIPANT), matches.stream().map(match -> match.person().source()).toList());
+    }
+    
+    @Test
+    void blocksLargerThanTheLimitAreSkipped() {
+        List<PersonRecord> people = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            people.add(referral("common" + i, "Robert Smith", BORN, null));
+        }
+        people.add(referral("ndis", "Bob Smithers", null, "430000001"));
+        DuplicateIndexSnapshot snapshot = DuplicateIndexSnapshot.build(people);
+        PersonRecord withNdis = referral("r1", "Robert Smith", BORN, "430000001");
+        
+        assertEquals(6, snapshot.matches(withNdis, MIN_SCORE, 5, 10).size());
+        assertEquals(List.of("ndis"), snapshot.matches(withNdis, MIN_SCORE, 4, 10).stream()
+            .map(match -> match.person().id()).toList());
+    }
+    
+    private static PersonRecord referral(String id, String name, LocalDate dateOfBirth, String ndisNumber) {
+        return PersonRecord.ofFullName(PersonSource.REFERRAL, id, name, dateOfBirth, null, ndisNumber);
+    }
+    
+    private static PersonRecord participant(String id, String first, String last, LocalDate dateOfBirth, String ndisNumber) {
+        return PersonRecord.ofNames(PersonSource.PARTICIPANT, id, first, last, dateOfBirth, null, ndisNumber);
+    }
+}
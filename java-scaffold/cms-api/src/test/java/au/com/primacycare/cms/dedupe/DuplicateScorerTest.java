@@ -0,0 +1,108 @@
+package au.com.primacycare.cms.dedupe;
+
+import au.com.primacycare.cms.dto.DuplicateCandidateDto.ReasonEnum;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Score bands for names, dates of birth, phone and NDIS number, and the reasons reported with them
+ * The default app.referrals.dedupe.min-score is 55.
+ */
+public class DuplicateScorerTest {
+    
+    private static final LocalDate BORN = LocalDate.of(1980, 5, 12);
+    
+    @Test
+    void nameSimilarityIsJaroWinkler() {
+        assertEquals(0.961, NameSimilarity.jaroWinkler("martha", "marhta"), 0.001);
+        assertEquals(0.840, NameSimilarity.jaroWinkler("dwayne", "duane"), 0.001);
+        assertEquals(0.0, NameSimilarity.jaroWinkler("abc", "xyz"));
+        assertEquals(0.0, NameSimilarity.jaroWinkler("", "abc"));
+    }
+    
+    @Test
+    void theSameNameAndBirthDateIsAMatch() {
+        DuplicateMatch match = score(person("Robert", "Smith", BORN, null, null), person("Robert", "Smith", BORN, null, null));
+        
+        assertEquals(70, match.score());
+        assertEquals(Set.of(ReasonEnum.NAME, ReasonEnum.DATE_OF_BIRTH), match.reasons());
+    }
+    
+    @Test
+    void aSimilarNameWithTheSameBirthDateClearsTheMinimumScore() {
+        DuplicateMatch match = score(person("Robert", "Smith", BORN, null, null), person("Rupert", "Smith", BORN, null, null));
+        
+        assertEquals(60, match.score());
+        assertEquals(Set.of(ReasonEnum.SIMILAR_NAME, ReasonEnum.DATE_OF_BIRTH), match.reasons());
+    }
+    
+    @Test
+    void aMatchingPhoneAddsAndAMatchingNdisNumberIsConclusive() {
+        PersonRecord query = person("Robert", "Smith", BORN, "0412 345 678", "430000001");
+        
+        assertEquals(85, score(query, person("Robert", "Smith", BORN, "02 9999 5678", null)).score());
+        DuplicateMatch ndis = score(query, person("Mary", "Jones", null, null, "430000001"));
+        assertEquals(DuplicateScorer.CONCLUSIVE, ndis.score());
+        assertTrue(ndis.reasons().contains(ReasonEnum.NDIS_NUMBER));
+    }
+    
+    @Test
+    void differentNdisNumbersOrBirthYearsCountAgainst() {
+        PersonRecord query = person("Robert", "Smith", BORN, null, "430000001");
+        
+        assertEquals(30, score(query, person("Robert", "Smith", BORN, null, "430000002")).score());
+        assertEquals(15, score(query, person("Robert", "Smith", BORN.minusYears(1), null, null)).score());
+        assertEquals(0, score(query, person("Mary", "Jones", BORN.minusYears(1), null, "430000002")).score());
+    }
+    
+    @Test
+    void dayAndMonthSwappedScoreBelowTheSameDate() {
+        DuplicateMatch swapped = score(person("Robert", "Smith", BORN, null, null),
+            person("Robert", "Smith", LocalDate.of(1980, 12, 5), null, null));
+        DuplicateMatch sameYear = score(person("Robert", "Smith", BORN, null, null),
+            person("Robert", "Smith", LocalDate.of(1980, 1, 30), null, null));
+        
+        assertEquals(60, swapped.score());
+        assertTrue(swapped.reasons().contains(ReasonEnum.DAY_MONTH_SWAPPED));
+        assertEquals(45, sameYear.score());
+        assertTrue(sameYear.reasons().contains(ReasonEnum.BIRTH_YEAR));
+    }
+    
+    @Test
+    void swappedNamesScoreAsTheSameName() {
+        DuplicateMatch match = score(person("Robert", "Smith", BORN, null, null), person("Smith", "Robert", BORN, null, null));
+        
+        assertEquals(70, match.score());
+        assertTrue(match.reasons().contains(ReasonEnum.NAMES_SWAPPED));
+    }
+    
+    @Test
+    void aSingleNameIsComparedWithEitherNameAtADiscount() {
+        PersonRecord single = PersonRecord.ofFullName(PersonSource.REFERRAL, "r1", "Smith", BORN, null, null);
+        
+        DuplicateMatch match = score(single, person("Robert", "Smith", BORN, null, null));
+        
+        assertEquals(45, match.score());
+        assertTrue(match.reasons().contains(ReasonEnum.SIMILAR_NAME));
+    }
+    
+    @Test
+    void unrelatedNamesScoreNothingForTheName() {
+        DuplicateMatch match = score(person("Robert", "Smith", BORN, null, null), person("Mary", "Jones", BORN, null, null));
+        
+        assertEquals(30, match.score());
+        assertEquals(Set.of(ReasonEnum.DATE_OF_BIRTH), match.reasons());
+    }
+    
+    private static DuplicateMatch score(PersonRecord query, PersonRecord candidate) {
+        return DuplicateScorer.score(query, candidate);
+    }
+    
+    private static PersonRecord person(String first, String last, LocalDate dateOfBirth, String phone, String ndisNumber) {
+        return PersonRecord.ofNames(PersonSource.PARTICIPANT, first + last, first, last, dateOfBirth, phone, ndisNumber);
+    }
+}
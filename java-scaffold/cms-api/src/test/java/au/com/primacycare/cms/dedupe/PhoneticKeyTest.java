@@ -0,0 +1,59 @@
+package au.com.primacycare.cms.dedupe;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Known American Soundex codes, the Metaphone-style spellings folded together before coding, and
+ * splitting names into words
+ */
+public class PhoneticKeyTest {
+    
+    @Test
+    void soundexCodesMatchTheStandardExamples() {
+        assertEquals("R163", code("robert"));
+        assertEquals("R163", code("rupert"));
+        assertEquals("R150", code("rubin"));
+        assertEquals("A261", code("ashcraft"));
+        assertEquals("T522", code("tymczak"));
+        assertEquals("P236", code("pfister"));
+        assertEquals("H555", code("honeyman"));
+        assertEquals("L000", code("lee"));
+    }
+    
+    @Test
+    void spellingsThatSoundAlikeAtTheStartShareACode() {
+        assertEquals(code("katherine"), code("catherine"));
+        assertEquals(code("filips"), code("philips"));
+        assertEquals(code("mcdonald"), code("macdonald"));
+        assertEquals(code("night"), code("knight"));
+        assertEquals(code("right"), code("wright"));
+        assertEquals(code("sanders"), code("xanders"));
+        assertEquals(code("cynthia"), code("synthia"));
+        assertNotEquals(code("cynthia"), code("kynthia"));
+    }
+    
+    @Test
+    void codesAreSmallNonZeroIntsAndNoWordHasNoCode() {
+        int code = PhoneticKey.encode("zzzzzz");
+        
+        assertTrue(code > 0 && code < 1 << 14, "code " + code);
+        assertEquals(PhoneticKey.NONE, PhoneticKey.encode(""));
+        assertEquals(PhoneticKey.NONE, PhoneticKey.encode(null));
+        assertEquals("", PhoneticKey.toString(PhoneticKey.NONE));
+    }
+    
+    @Test
+    void namesAreSplitIntoLowerCaseAsciiWords() {
+        assertEquals(List.of("jose", "obrien", "smith"), PhoneticKey.words("José O'Brien-Smith"));
+        assertEquals(List.of(), PhoneticKey.words("  -- "));
+        assertEquals(List.of(), PhoneticKey.words(null));
+    }
+    
+    private static String code(String word) {
+        return PhoneticKey.toString(PhoneticKey.encode(word));
+    }
+}
@@ -0,0 +1,105 @@
+package au.com.primacycare.cms.dto;
+
+import au.com.primacycare.cms.exception.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Request parameter normalisation, and the in-memory match the cache index relies on agreeing
+ * with the database predicate, NDIS numbers matching by prefix included
+ */
+public class ParticipantFilterTest {
+    
+    @Test
+    void parametersAreTrimmedAndBlanksDropped() {
+        ParticipantFilter filter = ParticipantFilter.of(" on hold ", " 4300 ", " NSW-Metro ", "  ", "", null, null);
+        
+        assertEquals("On Hold", filter.status());
+        assertEquals("4300", filter.ndisPrefix());
+        assertEquals("nsw-metro", filter.regionId());
+        assertNull(filter.stateId());
+        assertNull(filter.fundingType());
+    }
+    
+    @Test
+    void statusIsCanonicalisedSoEquivalentRequestsShareACacheKey() {
+        assertEquals(
+            ParticipantFilter.of("Active", null, null, null, null, null, null),
+            ParticipantFilter.of("ACTIVE", null, null, null, null, null, null));
+    }
+    
+    @Test
+    void anUnknownStatusIsRejected() {
+        assertThrows(InvalidRequestException.class,
+            () -> ParticipantFilter.of("Archived", null, null, null, null, null, null));
+    }
+    
+    @Test
+    void aReversedDateRangeIsSwapped() {
+        ParticipantFilter filter = ParticipantFilter.of(null, null, null, null, null,
+            LocalDate.of(2026, 3, 31), LocalDate.of(2026, 3, 1));
+        
+        assertEquals(LocalDate.of(2026, 3, 1), filter.createdFrom());
+        assertEquals(LocalDate.of(2026, 3, 31), filter.createdTo());
+    }
+    
+    @Test
+    void onlyBlankParametersMakeAnEmptyFilter() {
+        assertTrue(ParticipantFilter.of(" ", "", null, null, null, null, null).isEmpty());
+        assertFalse(ParticipantFilter.of(null, "4", null, null, null, null, null).isEmpty());
+    }
+    
+    @Test
+    void ndisNumbersMatchByPrefixOnly() {
+        ParticipantFilter.Attributes participant = attributes("430000123", null, null, LocalDateTime.of(2026, 3, 15, 9, 0));
+        
+        assertTrue(ndis("4300").matches(participant));
+        assertTrue(ndis("430000123").matches(participant));
+        assertFalse(ndis("0123").matches(participant));
+        assertFalse(ndis("4300001234").matches(participant));
+    }
+    
+    @Test
+    void theDateRangeIsInclusiveOfBothDays() {
+        ParticipantFilter.Attributes participant = attributes("430000123", null, null, LocalDateTime.of(2026, 3, 15, 23, 59));
+        
+        assertTrue(created(LocalDate.of(2026, 3, 15), LocalDate.of(2026, 3, 15)).matches(participant));
+        assertFalse(created(LocalDate.of(2026, 3, 16), null).matches(participant));
+        assertFalse(created(null, LocalDate.of(2026, 3, 14)).matches(participant));
+    }
+    
+    @Test
+    void anUnflushedParticipantMatchesARangeEndingToday() {
+        ParticipantFilter.Attributes participant = attributes("430000123", null, null, null);
+        
+        assertTrue(created(LocalDate.now().minusDays(1), LocalDate.now()).matches(participant));
+        assertFalse(created(null, LocalDate.now().minusDays(1)).matches(participant));
+    }
+    
+    @Test
+    void everyCriterionMustMatch() {
+        ParticipantFilter.Attributes participant =
+            attributes("430000123", "nsw-metro", "Plan Managed", LocalDateTime.of(2026, 3, 15, 9, 0));
+        
+        assertTrue(ParticipantFilter.of("Active", "43", "NSW-Metro", null, "Plan Managed", null, null).matches(participant));
+        assertFalse(ParticipantFilter.of("Active", "43", "NSW-Metro", null, "Self Managed", null, null).matches(participant));
+        assertFalse(ParticipantFilter.of("Inactive", "43", null, null, null, null, null).matches(participant));
+    }
+    
+    private static ParticipantFilter ndis(String prefix) {
+        return ParticipantFilter.of(null, prefix, null, null, null, null, null);
+    }
+    
+    private static ParticipantFilter created(LocalDate from, LocalDate to) {
+        return ParticipantFilter.of(null, null, null, null, null, from, to);
+    }
+    
+    private static ParticipantFilter.Attributes attributes(String ndisNumber, String regionId, String fundingType,
+                                                           LocalDateTime createdAt) {
+        return new ParticipantFilter.Attributes("Active", ndisNumber, regionId, null, fundingType, createdAt);
+    }
+}
@@ -0,0 +1,55 @@
+package au.com.primacycare.cms.dto;
+
+import au.com.primacycare.cms.dto.StaffHoursBucketDto.WindowEnum;
+import au.com.primacycare.cms.exception.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bucket boundaries per window: calendar days, ISO weeks, calendar months and fortnightly pay
+ * periods counted from the anchor in either direction
+ */
+public class StaffHoursBucketDtoTest {
+    
+    /** A Wednesday */
+    private static final LocalDate DATE = LocalDate.of(2024, 8, 14);
+    /** A Monday */
+    private static final LocalDate ANCHOR = LocalDate.of(2024, 7, 1);
+    
+    @Test
+    void eachWindowStartsItsBucketOnTheExpectedDay() {
+        assertEquals(DATE, WindowEnum.DAY.bucketStart(DATE, ANCHOR));
+        assertEquals(LocalDate.of(2024, 8, 12), WindowEnum.WEEK.bucketStart(DATE, ANCHOR));
+        assertEquals(LocalDate.of(2024, 8, 12), WindowEnum.WEEK.bucketStart(LocalDate.of(2024, 8, 12), ANCHOR));
+        assertEquals(LocalDate.of(2024, 8, 1), WindowEnum.MONTH.bucketStart(DATE, ANCHOR));
+    }
+    
+    @Test
+    void payPeriodsAreFortnightsFromTheAnchor() {
+        assertEquals(LocalDate.of(2024, 8, 12), WindowEnum.PAY_PERIOD.bucketStart(DATE, ANCHOR));
+        assertEquals(LocalDate.of(2024, 7, 29), WindowEnum.PAY_PERIOD.bucketStart(LocalDate.of(2024, 8, 11), ANCHOR));
+        assertEquals(ANCHOR, WindowEnum.PAY_PERIOD.bucketStart(ANCHOR, ANCHOR));
+        // Before the anchor the fortnights continue backwards rather than rounding towards it
+        assertEquals(LocalDate.of(2024, 6, 17), WindowEnum.PAY_PERIOD.bucketStart(LocalDate.of(2024, 6, 30), ANCHOR));
+    }
+    
+    @Test
+    void bucketsStepByTheirWindow() {
+        LocalDate monday = LocalDate.of(2024, 8, 12);
+        
+        assertEquals(LocalDate.of(2024, 8, 10), WindowEnum.DAY.plus(monday, -2));
+        assertEquals(LocalDate.of(2024, 7, 22), WindowEnum.WEEK.plus(monday, -3));
+        assertEquals(LocalDate.of(2024, 2, 1), WindowEnum.MONTH.plus(LocalDate.of(2024, 8, 1), -6));
+        assertEquals(LocalDate.of(2024, 7, 15), WindowEnum.PAY_PERIOD.plus(monday, -2));
+    }
+    
+    @Test
+    void windowsAreParsedLeniently() {
+        assertEquals(WindowEnum.PAY_PERIOD, WindowEnum.fromValue(" pay-period "));
+        assertEquals(WindowEnum.WEEK, WindowEnum.fromValue("week"));
+        assertThrows(InvalidRequestException.class, () -> WindowEnum.fromValue("fortnight"));
+    }
+}
@@ -0,0 +1,114 @@
+package au.com.primacycare.cms.geo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Known geohashes, and round trips through the cell bounds: a point lies in its own cell, cells
+ * nest by prefix, and a point just across an edge falls in the adjacent cell
+ */
+public class GeohashTest {
+    
+    private static final double SYDNEY_OPERA_HOUSE_LAT = -33.8568;
+    private static final double SYDNEY_OPERA_HOUSE_LNG = 151.2153;
+    
+    @Test
+    void encodesKnownPoints() {
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        assertEquals("ezs42", Geohash.encode(42.6, -5.6, 5));
+        assertEquals("r3gx2ux", Geohash.encode(SYDNEY_OPERA_HOUSE_LAT, SYDNEY_OPERA_HOUSE_LNG));
+        assertEquals("r1r0fsn", Geohash.encode(-37.8136, 144.9631));
+    }
+    
+    @Test
+    void theCornersOfTheWorldEncodeToTheFirstAndLastCells() {
+        assertEquals("000", Geohash.encode(-90, -180, 3));
+        assertEquals("zzz", Geohash.encode(90, 180, 3));
+        assertEquals("s00", Geohash.encode(0, 0, 3));
+    }
+    
+    @Test
+    void missingOrOutOfRangeCoordinatesAreRejected() {
+        assertNull(Geohash.encode(null, 151.2));
+        assertNull(Geohash.encode(-33.8, null));
+        assertThrows(IllegalArgumentException.class, () -> Geohash.encode(-91, 0, 7));
+        assertThrows(IllegalArgumentException.class, () -> Geohash.encode(0, 180.5, 7));
+    }
+    
+    @Test
+    void aPointLiesInItsOwnCellAtEveryPrecision() {
+        for (int precision = 1; precision <= 12; precision++) {
+            String hash = Geohash.encode(SYDNEY_OPERA_HOUSE_LAT, SYDNEY_OPERA_HOUSE_LNG, precision);
+            double[] cell = bounds(hash);
+            
+            assertEquals(precision, hash.length());
+            assertTrue(cell[0] <= SYDNEY_OPERA_HOUSE_LAT && SYDNEY_OPERA_HOUSE_LAT < cell[1], hash);
+            assertTrue(cell[2] <= SYDNEY_OPERA_HOUSE_LNG && SYDNEY_OPERA_HOUSE_LNG < cell[3], hash);
+            assertTrue(hash.startsWith(Geohash.encode(SYDNEY_OPERA_HOUSE_LAT, SYDNEY_OPERA_HOUSE_LNG, precision - 1)));
+        }
+    }
+    
+    @Test
+    void theCentreOfACellEncodesBackToThatCell() {
+        for (String hash : new String[] {"r3gx2ux", "r1r0fsn", "u4pruydqqvj", "s00", "zzz"}) {
+            double[] cell = bounds(hash);
+            
+            assertEquals(hash, Geohash.encode((cell[0] + cell[1]) / 2, (cell[2] + cell[3]) / 2, hash.length()));
+        }
+    }
+    
+    @Test
+    void aPointJustAcrossAnEdgeIsInTheAdjacentCell() {
+        String hash = Geohash.encode(SYDNEY_OPERA_HOUSE_LAT, SYDNEY_OPERA_HOUSE_LNG);
+        double[] cell = bounds(hash);
+        double centreLat = (cell[0] + cell[1]) / 2;
+        double centreLng = (cell[2] + cell[3]) / 2;
+        double nudge = 1e-9;
+        
+        double[] north = bounds(Geohash.encode(cell[1] + nudge, centreLng, hash.length()));
+        double[] south = bounds(Geohash.encode(cell[0] - nudge, centreLng, hash.length()));
+        double[] east = bounds(Geohash.encode(centreLat, cell[3] + nudge, hash.length()));
+        double[] west = bounds(Geohash.encode(centreLat, cell[2] - nudge, hash.length()));
+        
+        assertEquals(cell[1], north[0]);
+        assertEquals(cell[0], south[1]);
+        assertEquals(cell[3], east[2]);
+        assertEquals(cell[2], west[3]);
+        assertEquals(cell[2], north[2]);
+        assertEquals(cell[0], east[0]);
+    }
+    
+    @Test
+    void aDefaultPrecisionCellIsAboutOneHundredAndFiftyMetresAcross() {
+        double[] cell = bounds(Geohash.encode(SYDNEY_OPERA_HOUSE_LAT, SYDNEY_OPERA_HOUSE_LNG));
+        
+        double heightKm = GeoDistance.haversineKm(cell[0], cell[2], cell[1], cell[2]);
+        double widthKm = GeoDistance.haversineKm(cell[0], cell[2], cell[0], cell[3]);
+        
+        assertEquals(0.153, heightKm, 0.001);
+        assertEquals(0.127, widthKm, 0.001);
+    }
+    
+    /**
+     * Cell bounds as {minLat, maxLat, minLng, maxLng}, decoding bits alternately longitude then latitude
+     */
+    private static double[] bounds(String hash) {
+        double[] cell = {-90, 90, -180, 180};
+        boolean longitude = true;
+        for (char c : hash.toCharArray()) {
+            int index = "0123456789bcdefghjkmnpqrstuvwxyz".indexOf(c);
+            for (int bit = 4; bit >= 0; bit--) {
+                int low = longitude ? 2 : 0;
+                double mid = (cell[low] + cell[low + 1]) / 2;
+                if ((index >> bit & 1) == 1) {
+                    cell[low] = mid;
+                } else {
+                    cell[low + 1] = mid;
+                }
+                longitude = !longitude;
+            }
+        }
+        return cell;
+    }
+}
@@ -0,0 +1,120 @@
+package au.com.primacycare.cms.geo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Centroid distances between known Australian cities, and the fallback distance for regions
+ * without a centroid or not loaded
+ */
+public class RegionDistanceMatrixTest {
+    
+    private static final String SYDNEY = "sydney";
+    private static final String MELBOURNE = "melbourne";
+    private static final String BRISBANE = "brisbane";
+    private static final String NO_CENTROID = "no-centroid";
+    private static final double UNKNOWN_KM = 10.0;
+    
+    private final RegionsJdbcTemplate regions = new RegionsJdbcTemplate();
+    private final RegionDistanceMatrix matrix = new RegionDistanceMatrix(regions, new SimpleMeterRegistry(), UNKNOWN_KM);
+    
+    @Test
+    void distancesAreGreatCircleKilometresBetweenCentroids() {
+        loadCities();
+        
+        assertEquals(713.4, matrix.distance(SYDNEY, MELBOURNE), 0.1);
+        assertEquals(732.4, matrix.distance(SYDNEY, BRISBANE), 0.1);
+        assertEquals(1374.4, matrix.distance(MELBOURNE, BRISBANE), 0.1);
+    }
+    
+    @Test
+    void distancesAreSymmetricAndZeroWithinARegion() {
+        loadCities();
+        
+        assertEquals(matrix.distance(SYDNEY, MELBOURNE), matrix.distance(MELBOURNE, SYDNEY));
+        assertEquals(0.0, matrix.distance(SYDNEY, SYDNEY));
+        assertEquals(0.0, matrix.distance(NO_CENTROID, NO_CENTROID));
+    }
+    
+    @Test
+    void regionsWithoutACentroidOrNotLoadedUseTheFallbackDistance() {
+        assertEquals(UNKNOWN_KM, matrix.distance(SYDNEY, MELBOURNE));
+        
+        loadCities();
+        
+        assertEquals(UNKNOWN_KM, matrix.distance(SYDNEY, NO_CENTROID));
+        assertEquals(UNKNOWN_KM, matrix.distance(SYDNEY, "unknown"));
+        assertEquals(UNKNOWN_KM, matrix.distance(null, SYDNEY));
+    }
+    
+    @Test
+    void aReloadReplacesTheMatrix() {
+        loadCities();
+        regions.rows.clear();
+        regions.add(SYDNEY, -33.8688, 151.2093);
+        regions.add(MELBOURNE, -33.8688, 151.2093);
+        
+        matrix.reload();
+        
+        assertEquals(0.0, matrix.distance(SYDNEY, MELBOURNE));
+        assertEquals(UNKNOWN_KM, matrix.distance(SYDNEY, BRISBANE));
+    }
+    
+    private void loadCities() {
+        regions.add(SYDNEY, -33.8688, 151.2093);
+        regions.add(MELBOURNE, -37.8136, 144.9631);
+        regions.add(BRISBANE, -27.4698, 153.0251);
+        regions.add(NO_CENTROID, null, null);
+        matrix.reload();
+    }
+    
+    /**
+     * The regions table, as rows of id, centroid_lat and centroid_lng
+     */
+    private static final class RegionsJdbcTemplate extends JdbcTemplate {
+        
+        final List<Object[]> rows = new ArrayList<>();
+        
+        void add(String id, Double latitude, Double longitude) {
+            rows.add(new Object[] {id, latitude, longitude});
+        }
+        
+        @Override
+        public void query(String sql, RowCallbackHandler handler) {
+            for (Object[] row : rows) {
+                try {
+                    handler.processRow(resultSet(row));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        
+        /**
+         * Just the getters reload uses, with getDouble and wasNull behaving as JDBC's do
+         */
+        private static ResultSet resultSet(Object[] row) {
+            Object[] last = new Object[1];
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getString" -> row[0];
+                    case "getDouble" -> {
+                        last[0] = row["centroid_lat".equals(args[0]) ? 1 : 2];
+                        yield last[0] != null ? (Double) last[0] : 0.0;
+                    }
+                    case "wasNull" -> last[0] == null;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        }
+    }
+}
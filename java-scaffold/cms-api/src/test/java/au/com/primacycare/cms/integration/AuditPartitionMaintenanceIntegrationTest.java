@@ -0,0 +1,108 @@
+package au.com.primacycare.cms.integration;
+
+import au.com.primacycare.cms.audit.AuditPartitionMaintenanceJob;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Monthly audit partitions against a real database: rows that reached audits_default move into
+ * their month's partition when it is created, and months past retention are detached but kept
+ */
+@SpringBootTest
+@Testcontainers
+public class AuditPartitionMaintenanceIntegrationTest {
+    
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("primacy_cms_test")
+            .withUsername("test")
+            .withPassword("test");
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void rowsInDefaultMoveIntoTheirMonthWhenItsPartitionIsCreated() {
+        // Beyond the three months created at startup, so the row can only land in audits_default
+        YearMonth month = YearMonth.now().plusMonths(8);
+        UUID id = insertAudit(month.atDay(15).atTime(10, 0));
+        assertEquals(1, count("audits_default", id));
+        
+        new AuditPartitionMaintenanceJob(jdbcTemplate, 8, 84, 5_000).maintain();
+        
+        assertEquals(0, count("audits_default", id));
+        assertEquals(1, count(partition(month), id));
+        assertEquals(1, count("audits", id));
+    }
+    
+    @Test
+    void runningAgainChangesNothing() {
+        YearMonth month = YearMonth.now().plusMonths(10);
+        UUID id = insertAudit(month.atDay(1).atStartOfDay());
+        AuditPartitionMaintenanceJob job = new AuditPartitionMaintenanceJob(jdbcTemplate, 10, 84, 5_000);
+        
+        job.maintain();
+        job.maintain();
+        
+        assertEquals(1, count(partition(month), id));
+        assertEquals(1, count("audits", id));
+    }
+    
+    @Test
+    void monthsPastRetentionAreDetachedButKept() {
+        YearMonth month = YearMonth.of(2001, 1);
+        jdbcTemplate.execute("CREATE TABLE " + partition(month)
+            + " PARTITION OF audits FOR VALUES FROM ('2001-01-01') TO ('2001-02-01')");
+        UUID id = insertAudit(month.atDay(2).atTime(9, 0));
+        
+        new AuditPartitionMaintenanceJob(jdbcTemplate, 3, 84, 5_000).maintain();
+        
+        assertEquals(0, count("audits", id));
+        assertEquals(1, count(partition(month), id));
+        assertFalse(jdbcTemplate.queryForObject("""
+            SELECT EXISTS (SELECT 1 FROM pg_inherits WHERE inhrelid = ?::regclass)
+            """, Boolean.class, partition(month)));
+        assertTrue(jdbcTemplate.queryForObject("""
+            SELECT EXISTS (SELECT 1 FROM pg_inherits WHERE inhrelid = ?::regclass)
+            """, Boolean.class, partition(YearMonth.now())));
+    }
+    
+    private UUID insertAudit(LocalDateTime timestamp) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("""
+            INSERT INTO audits (id, entity_type, entity_id, action, timestamp)
+            VALUES (?, 'participant', 'partition-test', 'CREATE', ?)
+            """, id, Timestamp.valueOf(timestamp));
+        return id;
+    }
+    
+    private int count(String table, UUID id) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table + " WHERE id = ?", Integer.class, id);
+    }
+    
+    private static String partition(YearMonth month) {
+        return "audits_p" + month.format(DateTimeFormatter.ofPattern("yyyyMM"));
+    }
+}
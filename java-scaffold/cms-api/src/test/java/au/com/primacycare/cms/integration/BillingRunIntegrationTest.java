@@ -0,0 +1,238 @@
+package au.com.primacycare.cms.integration;
+
+import au.com.primacycare.cms.dto.BillingRunDto;
+import au.com.primacycare.cms.dto.BillingRunDto.PartitionStatusEnum;
+import au.com.primacycare.cms.dto.BillingRunDto.StatusEnum;
+import au.com.primacycare.cms.service.BillingRunService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Billing runs end to end: invoice and partition totals in cents, unpriced services, services
+ * never billed twice, and resuming a run with a failed partition
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class BillingRunIntegrationTest {
+    
+    private static final String OWNER = "billing-test-user";
+    private static final String STAFF = "00000000-0000-0000-0000-0000000000ff";
+    /** Participant IDs in partition order: two per partition */
+    private static final String WITH_PLAN = "00000000-0000-0000-0000-00000000000a";
+    private static final String WITHOUT_PLAN = "00000000-0000-0000-0000-00000000000b";
+    private static final String LAST_PARTITION = "00000000-0000-0000-0000-00000000000c";
+    
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("primacy_cms_test")
+            .withUsername("test")
+            .withPassword("test");
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("app.notifications.transport", () -> "stub");
+        registry.add("app.billing.run.partition-size", () -> "2");
+    }
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private BillingRunService billingRunService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("INSERT INTO users (id, email, role) VALUES (?, 'billing@test.com', 'admin')", OWNER);
+        jdbcTemplate.update("""
+            INSERT INTO staff (id, user_id, first_name, last_name, email)
+            VALUES (CAST(? AS UUID), ?, 'Billing', 'Staff', 'billing@test.com')
+            """, STAFF, OWNER);
+        insertParticipant(WITH_PLAN, "530000001");
+        insertParticipant(WITHOUT_PLAN, "530000002");
+        insertParticipant(LAST_PARTITION, "530000003");
+        jdbcTemplate.update("""
+            INSERT INTO ndis_plans (participant_id, plan_number, start_date, end_date)
+            VALUES (CAST(? AS UUID), 'PLAN-1', DATE '2025-01-01', DATE '2025-12-31')
+            """, WITH_PLAN);
+    }
+    
+    @Test
+    @WithMockUser(username = OWNER, roles = "ADMIN")
+    void aRunInvoicesEachParticipantsPricedServicesAndTotalsItsPartitions() throws Exception {
+        // $60.00 x 1.5h
+        insertService(WITH_PLAN, "2025-03-03", 90, "60.00", null, null, STAFF);
+        // $50.00 x 1h x 1.5 Saturday, plus $12.50 transport
+        insertService(WITH_PLAN, "2025-03-08", 60, "50.00", "SATURDAY", "12.50", STAFF);
+        // No rate and no item with a price limit: left for a later run
+        String unpriced = insertService(WITHOUT_PLAN, "2025-03-04", 60, null, null, null, STAFF);
+        // $40.00 x 0.5h
+        insertService(WITHOUT_PLAN, "2025-03-05", 30, "40.00", null, null, STAFF);
+        // $45.00 x 1h
+        insertService(LAST_PARTITION, "2025-03-06", 60, "45.00", null, null, STAFF);
+        String unassigned = insertService(LAST_PARTITION, "2025-03-07", 60, "45.00", null, null, null);
+        String outsidePeriod = insertService(LAST_PARTITION, "2025-03-20", 60, "45.00", null, null, STAFF);
+        
+        BillingRunDto run = awaitFinished(startRun("2025-03-01", "2025-03-14"));
+        
+        assertEquals(StatusEnum.COMPLETED, run.getStatus());
+        assertEquals(3, run.getParticipantCount());
+        assertEquals(3, run.getInvoiceCount());
+        assertEquals(4, run.getLineCount());
+        assertEquals(1, run.getUnpricedCount());
+        assertEquals(new BigDecimal("242.50"), run.getSubtotal());
+        assertEquals(new BigDecimal("24.25"), run.getGst());
+        assertEquals(new BigDecimal("266.75"), run.getTotal());
+        assertEquals(List.of(new BigDecimal("217.25"), new BigDecimal("49.50")),
+            run.getPartitions().stream().map(BillingRunDto.Partition::getTotal).toList());
+        // GST once on each invoice's subtotal
+        assertEquals(List.of("177.50 17.75 195.25 true", "20.00 2.00 22.00 false", "45.00 4.50 49.50 false"),
+            jdbcTemplate.queryForList("""
+                SELECT subtotal || ' ' || gst || ' ' || total || ' ' || (plan_id IS NOT NULL) FROM invoices
+                WHERE billing_run_id = CAST(? AS UUID) ORDER BY participant_id
+                """, String.class, run.getId()));
+        assertEquals(List.of("90.00", "87.50"), jdbcTemplate.queryForList("""
+            SELECT CAST(l.line_total AS VARCHAR) FROM invoice_lines l JOIN invoices i ON i.id = l.invoice_id
+            WHERE i.participant_id = CAST(? AS UUID) ORDER BY l.line_no
+            """, String.class, WITH_PLAN));
+        assertEquals(0, lines(unpriced) + lines(unassigned) + lines(outsidePeriod));
+    }
+    
+    @Test
+    @WithMockUser(username = OWNER, roles = "ADMIN")
+    void anOverlappingRunDoesNotBillAServiceTwice() throws Exception {
+        String first = insertService(WITH_PLAN, "2025-05-05", 60, "30.00", null, null, STAFF);
+        awaitFinished(startRun("2025-05-01", "2025-05-07"));
+        String second = insertService(WITH_PLAN, "2025-05-06", 60, "30.00", null, null, STAFF);
+        
+        BillingRunDto overlapping = awaitFinished(startRun("2025-05-04", "2025-05-10"));
+        
+        assertEquals(StatusEnum.COMPLETED, overlapping.getStatus());
+        assertEquals(1, overlapping.getLineCount());
+        assertEquals(1, lines(first));
+        assertEquals(1, lines(second));
+    }
+    
+    @Test
+    @WithMockUser(username = OWNER, roles = "ADMIN")
+    void resumingAFailedRunInvoicesOnlyTheFailedPartition() throws Exception {
+        String billed = insertService(WITH_PLAN, "2025-04-02", 60, "30.00", null, null, STAFF);
+        String rejected = insertService(LAST_PARTITION, "2025-04-03", 60, "30.00", null, null, STAFF);
+        jdbcTemplate.execute("""
+            CREATE FUNCTION reject_test_line() RETURNS trigger LANGUAGE plpgsql AS $$
+            BEGIN
+                IF NEW.service_id = '%s' THEN
+                    RAISE EXCEPTION 'Line rejected for test';
+                END IF;
+                RETURN NEW;
+            END $$
+            """.formatted(rejected));
+        jdbcTemplate.execute("""
+            CREATE TRIGGER trg_reject_test_line BEFORE INSERT ON invoice_lines
+            FOR EACH ROW EXECUTE FUNCTION reject_test_line()
+            """);
+        
+        BillingRunDto failed;
+        try {
+            failed = awaitFinished(startRun("2025-04-01", "2025-04-14"));
+        } finally {
+            jdbcTemplate.execute("DROP TRIGGER trg_reject_test_line ON invoice_lines");
+            jdbcTemplate.execute("DROP FUNCTION reject_test_line()");
+        }
+        
+        assertEquals(StatusEnum.FAILED, failed.getStatus());
+        assertEquals(List.of(PartitionStatusEnum.COMPLETED, PartitionStatusEnum.FAILED),
+            failed.getPartitions().stream().map(BillingRunDto.Partition::getStatus).toList());
+        assertTrue(failed.getPartitions().get(1).getError().contains("Line rejected for test"));
+        assertEquals(0, lines(rejected));
+        // The failed partition's invoices rolled back with it
+        assertEquals(1, count("SELECT count(*) FROM invoices WHERE billing_run_id = CAST(? AS UUID)", failed.getId()));
+        
+        billingRunService.resumeRun(failed.getId());
+        BillingRunDto resumed = awaitFinished(failed.getId());
+        
+        assertEquals(StatusEnum.COMPLETED, resumed.getStatus());
+        assertEquals(List.of(1, 2), resumed.getPartitions().stream().map(BillingRunDto.Partition::getAttempts).toList());
+        assertEquals(2, resumed.getInvoiceCount());
+        assertEquals(1, lines(billed));
+        assertEquals(1, lines(rejected));
+    }
+    
+    private String startRun(String periodStart, String periodEnd) throws Exception {
+        String response = mockMvc.perform(post("/billing/runs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"periodStart\":\"" + periodStart + "\",\"periodEnd\":\"" + periodEnd + "\"}"))
+            .andExpect(status().isAccepted())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+        return objectMapper.readValue(response, BillingRunDto.class).getId();
+    }
+    
+    private BillingRunDto awaitFinished(String runId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            BillingRunDto run = billingRunService.getRun(runId);
+            if (run.getStatus() != StatusEnum.RUNNING) {
+                return run;
+            }
+            Thread.sleep(100);
+        }
+        fail("Billing run " + runId + " did not finish");
+        return null;
+    }
+    
+    private void insertParticipant(String id, String ndisNumber) {
+        jdbcTemplate.update("""
+            INSERT INTO participants (id, user_id, first_name, last_name, ndis_number, date_of_birth)
+            VALUES (CAST(? AS UUID), ?, 'Billing', 'Test', ?, DATE '1990-01-01')
+            """, id, OWNER, ndisNumber);
+    }
+    
+    private String insertService(String participantId, String date, int minutes, String rate, String rateType,
+                                 String transportCost, String assignedTo) {
+        return jdbcTemplate.queryForObject("""
+            INSERT INTO services (participant_id, service_type, scheduled_date, start_time, duration_minutes,
+                                  rate, rate_type, transport_cost, assigned_to)
+            VALUES (CAST(? AS UUID), 'Community access', CAST(? AS DATE), TIME '09:00', ?,
+                    CAST(? AS DECIMAL), ?, CAST(? AS DECIMAL), CAST(? AS UUID))
+            RETURNING CAST(id AS VARCHAR)
+            """, String.class, participantId, date, minutes, rate, rateType, transportCost, assignedTo);
+    }
+    
+    private int lines(String serviceId) {
+        return count("SELECT count(*) FROM invoice_lines WHERE service_id = CAST(? AS UUID)", serviceId);
+    }
+    
+    private int count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, args);
+    }
+}
@@ -0,0 +1,102 @@
+package au.com.primacycare.cms.integration;
+
+import au.com.primacycare.cms.notification.Notification;
+import au.com.primacycare.cms.notification.NotificationChannel;
+import au.com.primacycare.cms.notification.OutboxMessage;
+import au.com.primacycare.cms.repository.NotificationOutboxRepository;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Outbox claims and results against Postgres: a claimed row is not claimed again within its
+ * lease, and a result from an earlier claim never overwrites a later one
+ */
+@SpringBootTest
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class NotificationOutboxIntegrationTest {
+    
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    /** Due again as soon as it is claimed, as if the sender had stalled past its lease */
+    private static final Duration EXPIRED_LEASE = Duration.ZERO;
+    
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("primacy_cms_test")
+            .withUsername("test")
+            .withPassword("test");
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("app.notifications.transport", () -> "stub");
+        // Keep the dispatcher's own workers from claiming the rows these tests write
+        registry.add("app.notifications.poll-interval", () -> "3600000");
+    }
+    
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void aClaimedMessageIsNotClaimedAgainWithinItsLease() {
+        enqueue("lease-test");
+        
+        List<OutboxMessage> first = outboxRepository.claim(NotificationChannel.SMS, 10, LEASE);
+        List<OutboxMessage> second = outboxRepository.claim(NotificationChannel.SMS, 10, LEASE);
+        
+        assertEquals(List.of("lease-test"), first.stream().map(OutboxMessage::template).toList());
+        assertEquals(1, first.get(0).attempts());
+        assertEquals(List.of(), second);
+    }
+    
+    @Test
+    void aStaleResultDoesNotOverwriteALaterClaim() {
+        enqueue("stale-test");
+        OutboxMessage stale = outboxRepository.claim(NotificationChannel.SMS, 10, EXPIRED_LEASE).get(0);
+        OutboxMessage current = outboxRepository.claim(NotificationChannel.SMS, 10, LEASE).get(0);
+        assertEquals(stale.id(), current.id());
+        assertEquals(2, current.attempts());
+        
+        outboxRepository.markSent(List.of(new NotificationOutboxRepository.Delivered(stale, "late-provider-id")));
+        outboxRepository.reschedule(List.of(new NotificationOutboxRepository.Undelivered(stale, "late retry", Duration.ZERO)));
+        outboxRepository.markFailed(List.of(new NotificationOutboxRepository.Undelivered(stale, "late failure", null)));
+        
+        assertEquals(Map.of("status", "SENDING", "attempts", 2), state(current.id()));
+        
+        outboxRepository.reschedule(List.of(new NotificationOutboxRepository.Undelivered(current, "503", Duration.ZERO)));
+        
+        assertEquals(Map.of("status", "PENDING", "attempts", 2), state(current.id()));
+        OutboxMessage retry = outboxRepository.claim(NotificationChannel.SMS, 10, LEASE).get(0);
+        outboxRepository.markSent(List.of(new NotificationOutboxRepository.Delivered(retry, "provider-id")));
+        assertEquals(Map.of("status", "SENT", "attempts", 3), state(current.id()));
+        assertEquals("provider-id", jdbcTemplate.queryForObject(
+            "SELECT provider_id FROM notification_outbox WHERE id = CAST(? AS UUID)", String.class, current.id()));
+    }
+    
+    private void enqueue(String template) {
+        outboxRepository.enqueue(List.of(new Notification(NotificationChannel.SMS, "+61400000000", template, null,
+            "Hello", null, template)));
+    }
+    
+    private Map<String, Object> state(String id) {
+        return jdbcTemplate.queryForMap("SELECT status, attempts FROM notification_outbox WHERE id = CAST(? AS UUID)", id);
+    }
+}
@@ -0,0 +1,201 @@
+package au.com.primacycare.cms.integration;
+
+import au.com.primacycare.cms.dto.BulkImportResultDto;
+import au.com.primacycare.cms.dto.BulkImportResultDto.RowStatusEnum;
+import au.com.primacycare.cms.service.NotificationService;
+import au.com.primacycare.cms.service.ParticipantBulkImportService;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+
+/**
+ * Bulk import end to end: row parsing and reporting, chunked inserts, duplicate NDIS numbers, and
+ * the workflow, welcome notification and audit written with each chunk
+ */
+@SpringBootTest
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ParticipantBulkImportIntegrationTest {
+    
+    private static final String IMPORTER = "bulk-import-user";
+    private static final String CSV_HEADER = "firstName,lastName,ndisNumber,dateOfBirth,email\n";
+    
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("primacy_cms_test")
+            .withUsername("test")
+            .withPassword("test");
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("app.notifications.transport", () -> "stub");
+        registry.add("app.bulk-import.chunk-size", () -> "2");
+    }
+    
+    @Autowired
+    private ParticipantBulkImportService importService;
+    
+    @SpyBean
+    private NotificationService notificationService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("INSERT INTO users (id, email, role) VALUES (?, 'bulk@test.com', 'admin')", IMPORTER);
+    }
+    
+    @AfterEach
+    void resetSpy() {
+        reset(notificationService);
+    }
+    
+    @Test
+    @WithMockUser(username = IMPORTER, roles = "ADMIN")
+    void csvRowsAreInsertedInChunksWithTheirFollowUps() throws Exception {
+        BulkImportResultDto result = importCsv(CSV_HEADER
+            + "Ada,Lovelace,510000001,1980-12-10,ada@example.com\n"
+            + "Alan,Turing,510000002,1970-06-23,alan@example.com\n"
+            + "Grace,Hopper,510000003,1966-12-09,grace@example.com\n");
+        
+        assertEquals(3, result.getTotalRows());
+        assertEquals(3, result.getCreated());
+        assertEquals(List.of(1, 2, 3), result.getRows().stream().map(BulkImportResultDto.RowResult::getRowNumber).toList());
+        for (BulkImportResultDto.RowResult row : result.getRows()) {
+            String id = row.getParticipantId();
+            assertNotNull(id);
+            assertEquals(IMPORTER, jdbcTemplate.queryForObject(
+                "SELECT user_id FROM participants WHERE id = CAST(? AS UUID)", String.class, id));
+            assertEquals(1, count("SELECT count(*) FROM workflows WHERE subject_type = 'participant' AND subject_id = CAST(? AS UUID)", id));
+            assertEquals(1, count("SELECT count(*) FROM notification_outbox WHERE dedupe_key = ?", "participant-welcome:" + id + ":email"));
+            assertTrue(awaitAudit(id), "No audit by the importer for " + id);
+        }
+    }
+    
+    @Test
+    @WithMockUser(username = IMPORTER, roles = "ADMIN")
+    void unreadableAndInvalidRowsAreReportedAndTheRestImported() throws Exception {
+        BulkImportResultDto result = importNdjson("""
+            {"firstName":"Mary","lastName":"Somerville","ndisNumber":"510000011","dateOfBirth":"1980-01-01"}
+            {"firstName":"Broken",
+            {"firstName":"Emmy","lastName":"Noether","ndisNumber":"12345","dateOfBirth":"1982-03-23"}
+            
+            {"firstName":"Sophie","lastName":"Germain","ndisNumber":"510000012","dateOfBirth":"1976-04-01"}
+            """);
+        
+        assertEquals(4, result.getTotalRows());
+        assertEquals(2, result.getCreated());
+        assertEquals(2, result.getInvalid());
+        BulkImportResultDto.RowResult unreadable = result.getRows().stream()
+            .filter(row -> row.getRowNumber() == 2).findFirst().orElseThrow();
+        assertEquals(RowStatusEnum.INVALID, unreadable.getStatus());
+        assertTrue(unreadable.getErrors().get(0).startsWith("Unreadable row"), unreadable.getErrors().toString());
+        BulkImportResultDto.RowResult invalid = result.getRows().stream()
+            .filter(row -> row.getRowNumber() == 3).findFirst().orElseThrow();
+        assertEquals(List.of("ndisNumber: NDIS number must be 9 digits"), invalid.getErrors());
+    }
+    
+    @Test
+    @WithMockUser(username = IMPORTER, roles = "ADMIN")
+    void malformedCsvRecordDoesNotStopTheUpload() throws Exception {
+        BulkImportResultDto result = importCsv(CSV_HEADER
+            + "Katherine,Johnson,510000021,not-a-date,\n"
+            + "Dorothy,Vaughan,510000022,1910-09-20,\n");
+        
+        assertEquals(2, result.getTotalRows());
+        assertEquals(1, result.getInvalid());
+        assertEquals(1, result.getCreated());
+        assertEquals("510000022", result.getRows().stream()
+            .filter(row -> row.getStatus() == RowStatusEnum.CREATED).findFirst().orElseThrow().getNdisNumber());
+    }
+    
+    @Test
+    @WithMockUser(username = IMPORTER, roles = "ADMIN")
+    void existingAndRepeatedNdisNumbersAreDuplicates() throws Exception {
+        importCsv(CSV_HEADER + "Rosalind,Franklin,510000031,1920-07-25,\n");
+        
+        BulkImportResultDto result = importCsv(CSV_HEADER
+            + "Rosalind,Franklin,510000031,1920-07-25,\n"
+            + "Lise,Meitner,510000032,1978-11-07,\n"
+            + "Lise,Meitner,510000032,1978-11-07,\n");
+        
+        assertEquals(1, result.getCreated());
+        assertEquals(2, result.getDuplicates());
+        assertEquals(List.of(RowStatusEnum.DUPLICATE, RowStatusEnum.CREATED, RowStatusEnum.DUPLICATE),
+            result.getRows().stream().map(BulkImportResultDto.RowResult::getStatus).toList());
+        assertEquals(1, count("SELECT count(*) FROM participants WHERE ndis_number = ?", "510000032"));
+    }
+    
+    @Test
+    @WithMockUser(username = IMPORTER, roles = "ADMIN")
+    void aFailedFollowUpRollsBackItsChunk() throws Exception {
+        doThrow(new IllegalStateException("Outbox unavailable"))
+            .when(notificationService).sendWelcomeNotifications(anyCollection());
+        
+        BulkImportResultDto result = importCsv(CSV_HEADER
+            + "Chien-Shiung,Wu,510000041,1912-05-31,\n"
+            + "Marie,Curie,510000042,1967-11-07,\n");
+        
+        assertEquals(2, result.getFailed());
+        assertEquals(List.of("Outbox unavailable"), result.getRows().get(0).getErrors());
+        assertEquals(0, count("SELECT count(*) FROM participants WHERE ndis_number IN (?, ?)", "510000041", "510000042"));
+        assertEquals(0, count("""
+            SELECT count(*) FROM workflows w
+            WHERE w.subject_type = 'participant' AND NOT EXISTS (SELECT 1 FROM participants p WHERE p.id = w.subject_id)
+            """));
+    }
+    
+    private BulkImportResultDto importCsv(String body) throws IOException {
+        return importService.importParticipants(stream(body), ParticipantBulkImportService.TEXT_CSV);
+    }
+    
+    private BulkImportResultDto importNdjson(String body) throws IOException {
+        return importService.importParticipants(stream(body), ParticipantBulkImportService.APPLICATION_NDJSON);
+    }
+    
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private int count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, args);
+    }
+    
+    /**
+     * Audits reach the audits table through the writer, so they are polled for
+     */
+    private boolean awaitAudit(String participantId) throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            if (count("""
+                SELECT count(*) FROM audits
+                WHERE entity_type = 'participant' AND entity_id = ? AND action = 'CREATE' AND user_id = ?
+                """, participantId, IMPORTER) > 0) {
+                return true;
+            }
+            Thread.sleep(200);
+        }
+        return false;
+    }
+}
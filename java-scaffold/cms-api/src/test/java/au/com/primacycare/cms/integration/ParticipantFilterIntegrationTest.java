@@ -0,0 +1,136 @@
+package au.com.primacycare.cms.integration;
+
+import au.com.primacycare.cms.dto.CursorPageDto;
+import au.com.primacycare.cms.dto.ParticipantDto;
+import au.com.primacycare.cms.dto.ParticipantFilter;
+import au.com.primacycare.cms.service.ParticipantService;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The participant list filter against Postgres: each criterion of the specification, NDIS prefix
+ * matching, and filtered keyset pages in cursor mode
+ */
+@SpringBootTest
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ParticipantFilterIntegrationTest {
+    
+    private static final String OWNER = "filter-test-user";
+    private static final String NEWEST = "00000000-0000-0000-0000-0000000000a1";
+    private static final String SELF_MANAGED = "00000000-0000-0000-0000-0000000000b2";
+    private static final String INACTIVE = "00000000-0000-0000-0000-0000000000c3";
+    private static final String TIED_LOW = "00000000-0000-0000-0000-0000000000d4";
+    private static final String TIED_HIGH = "00000000-0000-0000-0000-0000000000e5";
+    private static final String NDIS_CONTAINS_PREFIX = "00000000-0000-0000-0000-0000000000f6";
+    
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("primacy_cms_test")
+            .withUsername("test")
+            .withPassword("test");
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("app.notifications.transport", () -> "stub");
+    }
+    
+    @Autowired
+    private ParticipantService participantService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("INSERT INTO users (id, email, role) VALUES (?, 'filter@test.com', 'admin')", OWNER);
+        insert(NEWEST, "520000001", "Active", "Plan Managed", LocalDateTime.of(2026, 1, 5, 9, 0));
+        insert(SELF_MANAGED, "520000002", "Active", "Self Managed", LocalDateTime.of(2026, 1, 4, 9, 0));
+        insert(INACTIVE, "520000003", "Inactive", "Plan Managed", LocalDateTime.of(2026, 1, 3, 9, 0));
+        insert(TIED_LOW, "520000004", "Active", "Plan Managed", LocalDateTime.of(2026, 1, 2, 9, 0));
+        insert(TIED_HIGH, "520000005", "Active", "Plan Managed", LocalDateTime.of(2026, 1, 2, 9, 0));
+        insert(NDIS_CONTAINS_PREFIX, "152000000", "Active", "Plan Managed", LocalDateTime.of(2026, 1, 1, 9, 0));
+    }
+    
+    @Test
+    void everyCriterionNarrowsThePage() {
+        assertEquals(List.of(NEWEST, TIED_HIGH, TIED_LOW),
+            page(ParticipantFilter.of("Active", "5200", null, null, "Plan Managed", null, null)));
+        assertEquals(List.of(SELF_MANAGED),
+            page(ParticipantFilter.of(null, "5200", null, null, "Self Managed", null, null)));
+        assertEquals(List.of(INACTIVE),
+            page(ParticipantFilter.of("inactive", "5200", null, null, null, null, null)));
+    }
+    
+    @Test
+    void ndisNumbersMatchByPrefixNotAnywhereInTheNumber() {
+        assertFalse(page(ParticipantFilter.of(null, "52", null, null, null, null, null)).contains(NDIS_CONTAINS_PREFIX));
+        assertEquals(List.of(), page(ParticipantFilter.of(null, "0000", null, null, null, null, null)));
+    }
+    
+    @Test
+    void likeWildcardsInThePrefixAreMatchedLiterally() {
+        assertEquals(List.of(), page(ParticipantFilter.of(null, "52%", null, null, null, null, null)));
+        assertEquals(List.of(), page(ParticipantFilter.of(null, "5_0", null, null, null, null, null)));
+    }
+    
+    @Test
+    void theCreatedRangeIncludesBothDays() {
+        assertEquals(List.of(INACTIVE, TIED_HIGH, TIED_LOW),
+            page(ParticipantFilter.of(null, "5200", null, null, null, LocalDate.of(2026, 1, 2), LocalDate.of(2026, 1, 3))));
+    }
+    
+    @Test
+    void cursorPagesKeepTheFilterAndBreakTiesById() {
+        ParticipantFilter filter = ParticipantFilter.of("Active", "5200", null, null, "Plan Managed", null, null);
+        List<String> ids = new ArrayList<>();
+        String cursor = "";
+        CursorPageDto<ParticipantDto> page;
+        do {
+            page = participantService.getParticipantsByCursor(cursor, 1, filter);
+            page.getContent().forEach(participant -> ids.add(participant.getId()));
+            cursor = page.getNextCursor();
+        } while (page.getHasNext());
+        
+        assertEquals(List.of(NEWEST, TIED_HIGH, TIED_LOW), ids);
+    }
+    
+    @Test
+    void aCursorPageWithoutAFilterIncludesEveryParticipant() {
+        CursorPageDto<ParticipantDto> page = participantService.getParticipantsByCursor("", 50, ParticipantFilter.NONE);
+        
+        assertTrue(page.getContent().stream().map(ParticipantDto::getId).toList()
+            .containsAll(List.of(NEWEST, SELF_MANAGED, INACTIVE, TIED_LOW, TIED_HIGH, NDIS_CONTAINS_PREFIX)));
+    }
+    
+    private List<String> page(ParticipantFilter filter) {
+        return participantService.getParticipants(PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt", "id")), filter)
+            .getContent().stream().map(ParticipantDto::getId).toList();
+    }
+    
+    private void insert(String id, String ndisNumber, String status, String fundingType, LocalDateTime createdAt) {
+        jdbcTemplate.update("""
+            INSERT INTO participants (id, user_id, first_name, last_name, ndis_number, date_of_birth, status, funding_type, created_at)
+            VALUES (CAST(? AS UUID), ?, 'Filter', 'Test', ?, DATE '1990-01-01', ?, ?, ?)
+            """, id, OWNER, ndisNumber, status, fundingType, createdAt);
+    }
+}
@@ -3,6 +3,7 @@ package au.com.primacycare.cms.integration;
 import au.com.primacycare.cms.dto.CreateParticipantDto;
 import au.com.primacycare.cms.dto.ParticipantDto;
 import au.com.primacycare.cms.entity.Participant;
+import au.com.primacycare.cms.notification.StubNotificationTransport;
 import au.com.primacycare.cms.repository.ParticipantRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.*;
@@ -19,6 +20,9 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
 import java.time.LocalDate;
 import java.util.UUID;
 
@@ -47,6 +51,7 @@ public class ParticipantIntegrationTest {
         registry.add("spring.datasource.url", postgres::getJdbcUrl);
         registry.add("spring.datasource.username", postgres::getUsername);
         registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("app.notifications.transport", () -> "stub");
     }
     
     @Autowired
@@ -58,6 +63,12 @@ public class ParticipantIntegrationTest {
     @Autowired
     private ParticipantRepository participantRepository;
     
+    @Autowired
+    private StubNotificationTransport stubEmailTransport;
+    
+    @Autowired
+    private DataSource dataSource;
+    
     private static String createdParticipantId;
     
     @BeforeEach
@@ -100,6 +111,9 @@ public class ParticipantIntegrationTest {
         
         // Verify database
         Assertions.assertTrue(participantRepository.existsById(createdParticipantId));
+        
+        // Welcome email is sent from the outbox after commit
+        Assertions.assertTrue(awaitEmailTo("john.smith@example.com"), "Welcome email was not sent");
     }
     
     @Test
@@ -273,4 +287,40 @@ public class ParticipantIntegrationTest {
         mockMvc.perform(get("/api/participants"))
             .andExpect(status().isUnauthorized());
     }
+    
+    @Test
+    @Order(11)
+    @WithMockUser(roles = "CASE_MANAGER")
+    @DisplayName("Should return no results, not an error, when search exceeds its time budget")
+    void testSearchParticipants_TimeoutReturnsEmpty() throws Exception {
+        // Hold a lock the search has to wait for, so statement_timeout cancels it (SQLSTATE 57014)
+        try (Connection locker = dataSource.getConnection()) {
+            locker.setAutoCommit(false);
+            try (Statement statement = locker.createStatement()) {
+                statement.execute("LOCK TABLE participants IN ACCESS EXCLUSIVE MODE");
+                
+                mockMvc.perform(get("/api/participants/search").param("q", "Smith"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(0)));
+            } finally {
+                locker.rollback();
+            }
+        }
+        
+        // The timed-out search was rolled back on its own and leaves nothing aborted behind
+        mockMvc.perform(get("/api/participants/search").param("q", "Smith"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].lastName", hasItem("Smith")));
+    }
+    
+    private boolean awaitEmailTo(String recipient) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (stubEmailTransport.sent().stream().anyMatch(message -> message.recipient().equals(recipient))) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+package au.com.primacycare.cms.integration;
+
+import au.com.primacycare.cms.dto.ParticipantListItemDto;
+import au.com.primacycare.cms.service.ParticipantService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the participant list read model against N+1 regressions:
+ * the statement count must not grow with page size
+ */
+@SpringBootTest
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ParticipantListQueryCountTest {
+    
+    private static final int PARTICIPANTS = 60;
+    
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("primacy_cms_test")
+            .withUsername("test")
+            .withPassword("test");
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
+    }
+    
+    @Autowired
+    private ParticipantService participantService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Statistics statistics;
+    
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("INSERT INTO users (id, email, role) VALUES ('list-test-user', 'list@test.com', 'participant')");
+        
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            UUID participantId = UUID.randomUUID();
+            jdbcTemplate.update("""
+                INSERT INTO participants (id, user_id, first_name, last_name, ndis_number, date_of_birth)
+                VALUES (?, 'list-test-user', ?, ?, ?, DATE '1990-01-01')
+                """, participantId, "List" + i, "Participant" + i, String.format("7%08d", i));
+            
+            // Give every participant services and goals so lazy loading would be visible
+            for (int j = 0; j < 3; j++) {
+                jdbcTemplate.update("""
+                    INSERT INTO services (participant_id, service_type, scheduled_date)
+                    VALUES (?, 'Personal Care', CURRENT_DATE + ?)
+                    """, participantId, j + 1);
+                jdbcTemplate.update("""
+                    INSERT INTO participant_goals (participant_id, goal_title)
+                    VALUES (?, ?)
+                    """, participantId, "Goal " + j);
+            }
+        }
+        
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+    
+    @Test
+    @DisplayName("List endpoint issues a constant number of statements regardless of page size")
+    void testListPage_ConstantStatementCount() {
+        long smallPage = countStatements(5);
+        long largePage = countStatements(50);
+        
+        assertEquals(2, smallPage, "Expected one row query and one count query");
+        assertEquals(smallPage, largePage, "Statement count must not grow with page size");
+    }
+    
+    @Test
+    @DisplayName("List rows carry related counts computed in SQL")
+    void testListPage_CountsPopulated() {
+        Page<ParticipantListItemDto> page = participantService.getParticipantList(PageRequest.of(0, 10));
+        
+        assertEquals(10, page.getContent().size());
+        assertTrue(page.getTotalElements() >= PARTICIPANTS);
+        page.getContent().stream()
+            .filter(item -> item.getFirstName().startsWith("List"))
+            .forEach(item -> {
+                assertEquals(3, item.getActiveServicesCount());
+                assertEquals(3, item.getGoalsCount());
+            });
+    }
+    
+    private long countStatements(int pageSize) {
+        statistics.clear();
+        participantService.getParticipantList(PageRequest.of(0, pageSize));
+        return statistics.getPrepareStatementCount();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,290 @@
+package au.com.primacycare.cms.integration;
+
+import au.com.primacycare.cms.dto.PayrollRunDto;
+import au.com.primacycare.cms.dto.PayrollRunDto.PartitionStatusEnum;
+import au.com.primacycare.cms.dto.PayrollRunDto.StatusEnum;
+import au.com.primacycare.cms.payroll.AwardRateTable;
+import au.com.primacycare.cms.repository.PartitionedRunRepository;
+import au.com.primacycare.cms.repository.PayrollRunRepository;
+import au.com.primacycare.cms.service.PayrollRunService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Payroll runs end to end: shift pay and payroll records in cents, partition totals, and the
+ * partition engine's claims, leases, failures, resume and run status roll-up
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PayrollRunIntegrationTest {
+    
+    private static final String OWNER = "payroll-test-user";
+    /** Staff IDs in partition order: two per partition */
+    private static final String FIXED_RATE = "00000000-0000-0000-0000-00000000000a";
+    private static final String AWARD_RATE = "00000000-0000-0000-0000-00000000000b";
+    private static final String NO_SHIFTS = "00000000-0000-0000-0000-00000000000c";
+    
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("primacy_cms_test")
+            .withUsername("test")
+            .withPassword("test");
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("app.notifications.transport", () -> "stub");
+        registry.add("app.payroll.run.partition-size", () -> "2");
+    }
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PayrollRunService payrollRunService;
+    
+    @Autowired
+    private PayrollRunRepository payrollRunRepository;
+    
+    @Autowired
+    private PartitionedRunRepository partitionedRunRepository;
+    
+    @Autowired
+    private AwardRateTable awardRateTable;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("INSERT INTO users (id, email, role) VALUES (?, 'payroll@test.com', 'admin')", OWNER);
+        insertStaff(FIXED_RATE, new BigDecimal("30.00"));
+        insertStaff(AWARD_RATE, null);
+        insertStaff(NO_SHIFTS, null);
+        jdbcTemplate.update("INSERT INTO award_rates (effective_from, category, code, value) VALUES ('2024-01-01', 'ALLOWANCE', 'TRAVEL', 0.96)");
+        awardRateTable.reload();
+    }
+    
+    @Test
+    @WithMockUser(username = OWNER, roles = "ADMIN")
+    void aRunPricesCompletedShiftsInCentsAndTotalsItsPartitions() throws Exception {
+        // Monday 4h at $30.00
+        String weekday = insertShift(FIXED_RATE, "2024-08-12", "09:00", "4.00", "Completed");
+        // Saturday 2h x 1.5 + 1h x 2.0 at $30.00, plus 12.55 km at $0.96
+        String saturday = insertShift(FIXED_RATE, "2024-08-17", "09:00", "3.00", "Completed");
+        jdbcTemplate.update("INSERT INTO shift_allowances (shift_id, code, quantity) VALUES (CAST(? AS UUID), 'TRAVEL', 12.55)", saturday);
+        // Tuesday 2h at the level 3 award rate of $30.91
+        insertShift(AWARD_RATE, "2024-08-13", "10:00", "2.00", "Completed");
+        insertShift(AWARD_RATE, "2024-08-14", "10:00", "5.00", "Cancelled");
+        
+        PayrollRunDto run = awaitFinished(startRun("2024-08-12", "2024-08-25"));
+        
+        assertEquals(StatusEnum.COMPLETED, run.getStatus());
+        assertEquals(2, run.getPartitionCount());
+        assertEquals(3, run.getStaffCount());
+        assertEquals(3, run.getShiftCount());
+        assertEquals(new BigDecimal("343.87"), run.getGrossPay());
+        assertEquals(List.of(new BigDecimal("343.87"), new BigDecimal("0.00")),
+            run.getPartitions().stream().map(PayrollRunDto.Partition::getGrossPay).toList());
+        assertEquals(new BigDecimal("120.00"), shiftPay(weekday));
+        assertEquals(new BigDecimal("162.05"), shiftPay(saturday));
+        // Superannuation at 11%, rounded half up: $282.05 -> $31.0255, $61.82 -> $6.8002
+        assertEquals(List.of("282.05 31.03 7.00", "61.82 6.80 2.00"), jdbcTemplate.queryForList("""
+            SELECT gross_pay || ' ' || superannuation || ' ' || total_hours FROM payroll_records
+            WHERE period_start = DATE '2024-08-12' ORDER BY staff_id
+            """, String.class));
+    }
+    
+    @Test
+    @WithMockUser(username = OWNER, roles = "ADMIN")
+    void aFailedPartitionFailsTheRunAndResumingRerunsOnlyThatPartition() throws Exception {
+        insertShift(FIXED_RATE, "2024-09-02", "09:00", "1.00", "Completed");
+        // No SLEEPOVER amount is loaded yet, so pricing this shift fails its partition
+        String sleepover = insertShift(NO_SHIFTS, "2024-09-03", "22:00", "8.00", "Completed");
+        jdbcTemplate.update("INSERT INTO shift_allowances (shift_id, code, quantity) VALUES (CAST(? AS UUID), 'SLEEPOVER', 1)", sleepover);
+        
+        PayrollRunDto failed = awaitFinished(startRun("2024-09-02", "2024-09-15"));
+        
+        assertEquals(StatusEnum.FAILED, failed.getStatus());
+        assertEquals(List.of(PartitionStatusEnum.COMPLETED, PartitionStatusEnum.FAILED),
+            failed.getPartitions().stream().map(PayrollRunDto.Partition::getStatus).toList());
+        assertTrue(failed.getPartitions().get(1).getError().contains("SLEEPOVER"));
+        assertEquals(0, count("SELECT count(*) FROM payroll_records WHERE staff_id = CAST(? AS UUID) AND period_start = DATE '2024-09-02'", NO_SHIFTS));
+        
+        jdbcTemplate.update("INSERT INTO award_rates (effective_from, category, code, value) VALUES ('2024-01-01', 'ALLOWANCE', 'SLEEPOVER', 55.94)");
+        awardRateTable.reload();
+        payrollRunService.resumeRun(failed.getId());
+        PayrollRunDto resumed = awaitFinished(failed.getId());
+        
+        assertEquals(StatusEnum.COMPLETED, resumed.getStatus());
+        assertNotNull(resumed.getFinishedAt());
+        assertEquals(List.of(1, 2), resumed.getPartitions().stream().map(PayrollRunDto.Partition::getAttempts).toList());
+        assertEquals(1, count("SELECT count(*) FROM payroll_records WHERE staff_id = CAST(? AS UUID) AND period_start = DATE '2024-09-02'", NO_SHIFTS));
+    }
+    
+    @Test
+    void aPartitionIsClaimedOnceUntilItsLeaseRunsOutAndAStaleClaimIsLost() {
+        String runId = insertRun("2024-10-07", "2024-10-20");
+        
+        assertEquals(OptionalInt.of(1), claim(runId, 0));
+        assertEquals(OptionalInt.empty(), claim(runId, 0));
+        
+        jdbcTemplate.update("""
+            UPDATE payroll_run_partitions SET lease_expires_at = CURRENT_TIMESTAMP - INTERVAL '1 minute'
+            WHERE run_id = CAST(? AS UUID) AND partition_no = 0
+            """, runId);
+        assertEquals(OptionalInt.of(2), claim(runId, 0));
+        
+        assertFalse(inTransaction(() -> partitionedRunRepository.lockClaim(PayrollRunRepository.TABLES, runId, 0, 1)));
+        assertTrue(inTransaction(() -> partitionedRunRepository.lockClaim(PayrollRunRepository.TABLES, runId, 0, 2)));
+        
+        // The first claim's failure no longer applies
+        inTransaction(() -> {
+            partitionedRunRepository.failPartition(PayrollRunRepository.TABLES, runId, 0, 1, "stale");
+            return null;
+        });
+        assertEquals(PartitionStatusEnum.RUNNING, partition(runId, 0).getStatus());
+    }
+    
+    @Test
+    void theRunStatusRollsUpFromItsPartitions() {
+        String runId = insertRun("2024-11-04", "2024-11-17");
+        claim(runId, 0);
+        inTransaction(() -> {
+            partitionedRunRepository.failPartition(PayrollRunRepository.TABLES, runId, 0, 1, "boom");
+            partitionedRunRepository.refreshRunStatus(PayrollRunRepository.TABLES, runId);
+            return null;
+        });
+        assertEquals(StatusEnum.RUNNING, run(runId).getStatus());
+        
+        claim(runId, 1);
+        complete(runId, 1);
+        assertEquals(StatusEnum.FAILED, run(runId).getStatus());
+        assertNotNull(run(runId).getFinishedAt());
+        
+        inTransaction(() -> {
+            partitionedRunRepository.resumeRun(PayrollRunRepository.TABLES, runId);
+            return null;
+        });
+        assertEquals(StatusEnum.RUNNING, run(runId).getStatus());
+        assertNull(run(runId).getFinishedAt());
+        assertEquals(PartitionStatusEnum.PENDING, partition(runId, 0).getStatus());
+        assertEquals(PartitionStatusEnum.COMPLETED, partition(runId, 1).getStatus());
+        
+        assertEquals(OptionalInt.of(2), claim(runId, 0));
+        complete(runId, 0);
+        assertEquals(StatusEnum.COMPLETED, run(runId).getStatus());
+    }
+    
+    private String startRun(String periodStart, String periodEnd) throws Exception {
+        String response = mockMvc.perform(post("/payroll/runs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"periodStart\":\"" + periodStart + "\",\"periodEnd\":\"" + periodEnd + "\"}"))
+            .andExpect(status().isAccepted())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+        return objectMapper.readValue(response, PayrollRunDto.class).getId();
+    }
+    
+    private PayrollRunDto awaitFinished(String runId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            PayrollRunDto run = payrollRunService.getRun(runId);
+            if (run.getStatus() != StatusEnum.RUNNING) {
+                return run;
+            }
+            Thread.sleep(100);
+        }
+        fail("Payroll run " + runId + " did not finish");
+        return null;
+    }
+    
+    private String insertRun(String periodStart, String periodEnd) {
+        String runId = UUID.randomUUID().toString();
+        inTransaction(() -> payrollRunRepository.insertRun(runId, LocalDate.parse(periodStart), LocalDate.parse(periodEnd), OWNER, 2));
+        return runId;
+    }
+    
+    private OptionalInt claim(String runId, int partitionNo) {
+        return inTransaction(() -> partitionedRunRepository.claimPartition(
+            PayrollRunRepository.TABLES, runId, partitionNo, Duration.ofMinutes(5)));
+    }
+    
+    private void complete(String runId, int partitionNo) {
+        inTransaction(() -> {
+            payrollRunRepository.completePartition(runId, partitionNo, 0, 0);
+            partitionedRunRepository.refreshRunStatus(PayrollRunRepository.TABLES, runId);
+            return null;
+        });
+    }
+    
+    private PayrollRunDto run(String runId) {
+        return payrollRunRepository.findRun(runId).orElseThrow();
+    }
+    
+    private PayrollRunDto.Partition partition(String runId, int partitionNo) {
+        return payrollRunRepository.findPartitions(runId).get(partitionNo);
+    }
+    
+    private <T> T inTransaction(Supplier<T> work) {
+        return transactionTemplate.execute(status -> work.get());
+    }
+    
+    private void insertStaff(String id, BigDecimal baseRate) {
+        jdbcTemplate.update("""
+            INSERT INTO staff (id, user_id, first_name, last_name, email, base_rate)
+            VALUES (CAST(? AS UUID), ?, 'Payroll', 'Test', 'payroll@test.com', ?)
+            """, id, OWNER, baseRate);
+    }
+    
+    private String insertShift(String staffId, String date, String start, String hours, String shiftStatus) {
+        return jdbcTemplate.queryForObject("""
+            INSERT INTO shifts (assigned_staff_id, shift_date, start_time, end_time, total_hours, status)
+            VALUES (CAST(? AS UUID), CAST(? AS DATE), CAST(? AS TIME), CAST(? AS TIME) + CAST(? || ' hours' AS INTERVAL), CAST(? AS DECIMAL), ?)
+            RETURNING CAST(id AS VARCHAR)
+            """, String.class, staffId, date, start, start, hours, hours, shiftStatus);
+    }
+    
+    private BigDecimal shiftPay(String shiftId) {
+        return jdbcTemplate.queryForObject("SELECT total_pay FROM shifts WHERE id = CAST(? AS UUID)", BigDecimal.class, shiftId);
+    }
+    
+    private int count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, args);
+    }
+}
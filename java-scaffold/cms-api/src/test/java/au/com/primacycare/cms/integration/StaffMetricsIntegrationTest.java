@@ -0,0 +1,183 @@
+package au.com.primacycare.cms.integration;
+
+import au.com.primacycare.cms.dto.StaffHoursBucketDto;
+import au.com.primacycare.cms.dto.StaffHoursBucketDto.WindowEnum;
+import au.com.primacycare.cms.repository.StaffMetricsRepository;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The staff hours read model against Postgres: bucket sums including empty buckets, availability
+ * scaled to each bucket's length, department scope, and the nightly reconciliation counting
+ * completed shifts only
+ */
+@SpringBootTest
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class StaffMetricsIntegrationTest {
+    
+    private static final String OWNER = "staff-metrics-user";
+    private static final String CARER = "00000000-0000-0000-0000-0000000000a1";
+    private static final String NURSE_A = "00000000-0000-0000-0000-0000000000b1";
+    private static final String NURSE_B = "00000000-0000-0000-0000-0000000000b2";
+    private static final String ADMIN = "00000000-0000-0000-0000-0000000000c1";
+    /** Reconciliation covers every staff member, so these have shifts dated after every other test's hours */
+    private static final String RECONCILED = "00000000-0000-0000-0000-0000000000d1";
+    private static final String IN_SYNC = "00000000-0000-0000-0000-0000000000d2";
+    private static final LocalDate MONDAY = LocalDate.of(2024, 8, 12);
+    
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("primacy_cms_test")
+            .withUsername("test")
+            .withPassword("test");
+    
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("app.notifications.transport", () -> "stub");
+    }
+    
+    @Autowired
+    private StaffMetricsRepository staffMetricsRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("INSERT INTO users (id, email, role) VALUES (?, 'metrics@test.com', 'admin')", OWNER);
+        insertStaff(CARER, "Community");
+        insertStaff(NURSE_A, "Nursing");
+        insertStaff(NURSE_B, "Nursing");
+        insertStaff(ADMIN, "Admin");
+        insertStaff(RECONCILED, "Community");
+        insertStaff(IN_SYNC, "Community");
+        // 12 available hours a week: Monday 8h, Tuesday 4h, and an unavailable Wednesday
+        insertAvailability(CARER, 1, "09:00", "17:00", true);
+        insertAvailability(CARER, 2, "09:00", "13:00", true);
+        insertAvailability(CARER, 3, "09:00", "17:00", false);
+        insertAvailability(NURSE_A, 1, "08:00", "15:00", true);
+        insertAvailability(NURSE_B, 2, "08:00", "15:00", true);
+        insertAvailability(ADMIN, 1, "09:00", "17:00", true);
+    }
+    
+    @Test
+    void weeklyBucketsSumDailyHoursAndIncludeEmptyWeeks() {
+        staffMetricsRepository.addHours(CARER, MONDAY, new BigDecimal("4.00"), 1);
+        staffMetricsRepository.addHours(CARER, MONDAY.plusDays(2), new BigDecimal("2.50"), 1);
+        staffMetricsRepository.addHours(CARER, MONDAY.plusDays(2), new BigDecimal("1.25"), 1);
+        // A shift moved away again nets out
+        staffMetricsRepository.addHours(CARER, MONDAY.plusDays(2), new BigDecimal("-1.25"), -1);
+        staffMetricsRepository.addHours(CARER, MONDAY.plusWeeks(2), new BigDecimal("1.00"), 1);
+        
+        List<StaffHoursBucketDto> buckets = staffMetricsRepository.findHoursBuckets(
+            CARER, null, WindowEnum.WEEK, MONDAY, MONDAY.plusWeeks(2));
+        
+        assertEquals(List.of(MONDAY, MONDAY.plusWeeks(1), MONDAY.plusWeeks(2)),
+            buckets.stream().map(StaffHoursBucketDto::getBucketStart).toList());
+        assertEquals(MONDAY.plusWeeks(1), buckets.get(0).getBucketEnd());
+        assertEquals(List.of(6.5, 0.0, 1.0), buckets.stream().map(StaffHoursBucketDto::getHours).toList());
+        assertEquals(List.of(2, 0, 1), buckets.stream().map(StaffHoursBucketDto::getShiftCount).toList());
+        assertEquals(12.0, buckets.get(0).getAvailableHours(), 0.0001);
+        assertEquals(6.5 / 12 * 100, buckets.get(0).getUtilizationRate(), 0.0001);
+        assertEquals(0.0, buckets.get(1).getUtilizationRate(), 0.0001);
+    }
+    
+    @Test
+    void monthlyBucketsScaleAvailabilityByTheirLength() {
+        LocalDate august = LocalDate.of(2024, 8, 1);
+        
+        List<StaffHoursBucketDto> buckets = staffMetricsRepository.findHoursBuckets(
+            CARER, null, WindowEnum.MONTH, august, august.plusMonths(1));
+        
+        assertEquals(LocalDate.of(2024, 9, 1), buckets.get(0).getBucketEnd());
+        assertEquals(LocalDate.of(2024, 10, 1), buckets.get(1).getBucketEnd());
+        assertEquals(12.0 / 7 * 31, buckets.get(0).getAvailableHours(), 0.0001);
+        assertEquals(12.0 / 7 * 30, buckets.get(1).getAvailableHours(), 0.0001);
+    }
+    
+    @Test
+    void aDepartmentBucketCoversOnlyItsStaff() {
+        LocalDate day = LocalDate.of(2024, 3, 5);
+        staffMetricsRepository.addHours(NURSE_A, day, new BigDecimal("7.00"), 1);
+        staffMetricsRepository.addHours(NURSE_B, day, new BigDecimal("3.50"), 1);
+        staffMetricsRepository.addHours(ADMIN, day, new BigDecimal("8.00"), 1);
+        
+        List<StaffHoursBucketDto> buckets = staffMetricsRepository.findHoursBuckets(
+            null, "Nursing", WindowEnum.DAY, day, day);
+        
+        assertEquals(1, buckets.size());
+        assertEquals(10.5, buckets.get(0).getHours(), 0.0001);
+        assertEquals(2, (int) buckets.get(0).getShiftCount());
+        assertEquals(14.0 / 7, buckets.get(0).getAvailableHours(), 0.0001);
+    }
+    
+    @Test
+    void reconciliationCountsEveryShiftButHoursOfCompletedShiftsOnly() {
+        LocalDate day = LocalDate.of(2025, 2, 3);
+        insertShift(RECONCILED, day, "3.00", "Completed");
+        insertShift(RECONCILED, day, "5.00", "Cancelled");
+        insertShift(RECONCILED, day.plusDays(1), "2.00", "Scheduled");
+        // Drift left behind by writes that bypassed the updater
+        staffMetricsRepository.addCounts(RECONCILED, 4, 0);
+        staffMetricsRepository.addHours(RECONCILED, day, new BigDecimal("8.00"), 2);
+        staffMetricsRepository.addHours(RECONCILED, day.plusDays(9), new BigDecimal("1.00"), 1);
+        
+        staffMetricsRepository.reconcileCounts();
+        staffMetricsRepository.reconcileHours(LocalDate.of(2025, 1, 1));
+        
+        assertEquals(Map.of("scheduled_shifts", 1, "completed_shifts", 1), jdbcTemplate.queryForMap(
+            "SELECT scheduled_shifts, completed_shifts FROM staff_metrics WHERE staff_id = CAST(? AS UUID)", RECONCILED));
+        assertEquals(List.of(day + " 3.00 1"), jdbcTemplate.queryForList("""
+            SELECT work_date || ' ' || hours || ' ' || shift_count FROM staff_hours_daily
+            WHERE staff_id = CAST(? AS UUID) ORDER BY work_date
+            """, String.class, RECONCILED));
+    }
+    
+    @Test
+    void rowsTheReconciliationAgreesWithAreLeftAlone() {
+        LocalDate day = LocalDate.of(2025, 3, 3);
+        insertShift(IN_SYNC, day, "4.00", "Completed");
+        staffMetricsRepository.reconcileHours(day);
+        
+        assertEquals(0, staffMetricsRepository.reconcileHours(day));
+    }
+    
+    private void insertStaff(String id, String department) {
+        jdbcTemplate.update("""
+            INSERT INTO staff (id, user_id, first_name, last_name, email, department)
+            VALUES (CAST(? AS UUID), ?, 'Metrics', 'Test', 'metrics@test.com', ?)
+            """, id, OWNER, department);
+    }
+    
+    private void insertAvailability(String staffId, int dayOfWeek, String start, String end, boolean available) {
+        jdbcTemplate.update("""
+            INSERT INTO staff_availability (staff_id, day_of_week, start_time, end_time, available)
+            VALUES (CAST(? AS UUID), ?, CAST(? AS TIME), CAST(? AS TIME), ?)
+            """, staffId, dayOfWeek, start, end, available);
+    }
+    
+    private void insertShift(String staffId, LocalDate date, String hours, String shiftStatus) {
+        jdbcTemplate.update("""
+            INSERT INTO shifts (assigned_staff_id, shift_date, start_time, end_time, total_hours, status)
+            VALUES (CAST(? AS UUID), ?, '09:00', CAST('09:00' AS TIME) + CAST(? || ' hours' AS INTERVAL), CAST(? AS DECIMAL), ?)
+            """, staffId, date, hours, hours, shiftStatus);
+    }
+}
@@ -0,0 +1,219 @@
+package au.com.primacycare.cms.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Roster allocation against small hand-built rosters
+ *
+ * Every staff member holds every (empty) required qualification and has good availability, so a
+ * score is 40 plus the proximity points of their region: near 25, mid 15, far 5.
+ */
+public class RosterSolverTest {
+    
+    private static final LocalDate MONDAY = LocalDate.of(2024, 3, 4);
+    private static final Map<String, Double> REGION_KM = Map.of("near", 3.0, "mid", 10.0, "far", 20.0);
+    private static final int MIN_REST_MINUTES = 11 * 60;
+    private static final int NO_WEEKLY_CAP = Integer.MAX_VALUE;
+    
+    private static final RosterProgress NO_PROGRESS = new RosterProgress() {
+        @Override
+        public void update(String phase, int done, int total) {
+        }
+    
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+    
+    @Test
+    void staffMustBeAvailableForEveryQuarterHourOfTheService() {
+        StaffMatchingSnapshot snapshot = snapshot(staff("a", "near"), staff("b", "mid"));
+        List<AvailabilityWindow> availability = List.of(
+            window("a", DayOfWeek.MONDAY, "09:00", "12:00"),
+            window("b", DayOfWeek.MONDAY, "08:00", "18:00"));
+    
+        RosterSolution solution = new RosterSolver(snapshot, 3, MIN_REST_MINUTES, NO_WEEKLY_CAP).solve(List.of(
+                slot("inside-a", MONDAY, "09:00", "11:00"),
+                slot("past-a", MONDAY.plusWeeks(1), "11:00", "12:15"),
+                slot("nobody", MONDAY, "17:00", "19:00"),
+                slot("untimed", MONDAY, -1, -1)),
+            List.of(), availability, NO_PROGRESS);
+    
+        assertEquals(Map.of("inside-a", "a", "past-a", "b"), assigned(solution));
+        assertEquals(Map.of(
+                "nobody", RosterSolution.Reason.NO_AVAILABLE_STAFF,
+                "untimed", RosterSolution.Reason.NO_TIME),
+            unallocated(solution));
+    }
+    
+    @Test
+    void availabilityPastMidnightCoversTheNextMorning() {
+        StaffMatchingSnapshot snapshot = snapshot(staff("a", "near"));
+        List<AvailabilityWindow> availability = List.of(window("a", DayOfWeek.SUNDAY, "22:00", "06:00"));
+    
+        RosterSolution solution = new RosterSolver(snapshot, 3, MIN_REST_MINUTES, NO_WEEKLY_CAP).solve(List.of(
+                slot("early-monday", MONDAY, "01:00", "05:00"),
+                slot("late-monday", MONDAY, "05:00", "07:00")),
+            List.of(), availability, NO_PROGRESS);
+    
+        assertEquals(Map.of("early-monday", "a"), assigned(solution));
+        assertEquals(Map.of("late-monday", RosterSolution.Reason.NO_AVAILABLE_STAFF), unallocated(solution));
+    }
+    
+    @Test
+    void restPeriodAppliesBetweenStartDaysButNotToSplitShifts() {
+        StaffMatchingSnapshot snapshot = snapshot(staff("a", "near"), staff("b", "mid"));
+        List<StaffCommitment> commitments = List.of(new StaffCommitment("a", MONDAY, minute("14:00"), minute("23:00")));
+    
+        RosterSolution solution = new RosterSolver(snapshot, 3, MIN_REST_MINUTES, NO_WEEKLY_CAP).solve(List.of(
+                slot("split-monday", MONDAY, "07:00", "09:00"),
+                slot("tuesday-morning", MONDAY.plusDays(1), "08:00", "12:00"),
+                slot("tuesday-later", MONDAY.plusDays(1), "10:00", "12:00")),
+            commitments, allWeek("a", "b"), NO_PROGRESS);
+    
+        // Tuesday 08:00 is 9 hours after Monday's commitment; 10:00 is exactly 11 hours after it
+        assertEquals(Map.of("split-monday", "a", "tuesday-morning", "b", "tuesday-later", "a"), assigned(solution));
+    }
+    
+    @Test
+    void overnightCommitmentsCountFromTheDayTheyStart() {
+        StaffMatchingSnapshot snapshot = snapshot(staff("a", "near"));
+        List<StaffCommitment> commitments = List.of(new StaffCommitment("a", MONDAY, minute("22:00"), minute("06:00") + 1440));
+    
+        RosterSolution solution = new RosterSolver(snapshot, 3, MIN_REST_MINUTES, NO_WEEKLY_CAP).solve(List.of(
+                slot("tuesday-overlap", MONDAY.plusDays(1), "05:00", "07:00"),
+                slot("tuesday-after", MONDAY.plusDays(1), "07:00", "09:00"),
+                slot("tuesday-evening", MONDAY.plusDays(1), "17:00", "19:00")),
+            commitments, allWeek("a"), NO_PROGRESS);
+    
+        assertEquals(Map.of("tuesday-evening", "a"), assigned(solution));
+        assertEquals(Map.of(
+                "tuesday-overlap", RosterSolution.Reason.CONSTRAINTS,
+                "tuesday-after", RosterSolution.Reason.CONSTRAINTS),
+            unallocated(solution));
+    }
+    
+    @Test
+    void weeklyCapCountsPerIsoWeekByStartDay() {
+        StaffMatchingSnapshot snapshot = snapshot(staff("a", "near"));
+    
+        RosterSolution solution = new RosterSolver(snapshot, 3, MIN_REST_MINUTES, 12 * 60).solve(List.of(
+                slot("monday", MONDAY, "08:00", "14:00"),
+                slot("wednesday", MONDAY.plusDays(2), "08:00", "14:00"),
+                slot("sunday", MONDAY.plusDays(6), "08:00", "14:00"),
+                slot("next-monday", MONDAY.plusDays(7), "08:00", "14:00")),
+            List.of(), allWeek("a"), NO_PROGRESS);
+    
+        // Monday and Wednesday reach the 12 hour cap; Sunday is in the same ISO week, the next Monday is not
+        assertEquals(Map.of("monday", "a", "wednesday", "a", "next-monday", "a"), assigned(solution));
+        assertEquals(Map.of("sunday", RosterSolution.Reason.CONSTRAINTS), unallocated(solution));
+    }
+    
+    @Test
+    void servicesWithFewerFeasibleStaffAreAssignedFirst() {
+        StaffMatchingSnapshot snapshot = snapshot(staff("a", "near"), staff("b", "mid"));
+        List<AvailabilityWindow> availability = List.of(
+            window("a", DayOfWeek.MONDAY, "08:00", "13:00"),
+            window("b", DayOfWeek.MONDAY, "08:00", "11:00"));
+    
+        // In start order "either" would take a and leave "only-a" with nobody
+        RosterSolution solution = new RosterSolver(snapshot, 3, MIN_REST_MINUTES, NO_WEEKLY_CAP).solve(List.of(
+                slot("either", MONDAY, "09:00", "11:00"),
+                slot("only-a", MONDAY, "10:00", "12:00")),
+            List.of(), availability, NO_PROGRESS);
+    
+        assertEquals(Map.of("only-a", "a", "either", "b"), assigned(solution));
+        assertEquals(List.of("only-a", "either"),
+            solution.assignments().stream().map(RosterSolution.Assignment::serviceId).toList());
+    }
+    
+    @Test
+    void equallyConstrainedServicesWithMoreRegretAreAssignedFirst() {
+        StaffMatchingSnapshot snapshot = snapshot(staff("a", "near"), staff("b", "mid"));
+    
+        // Both staff are near for "indifferent" (regret 0); b is far for "prefers-a" (regret 20)
+        RosterSolution solution = new RosterSolver(snapshot, 3, MIN_REST_MINUTES, NO_WEEKLY_CAP).solve(List.of(
+                new RosterSlot("indifferent", MONDAY, minute("09:00"), minute("11:00"), criteria(region -> 3.0)),
+                new RosterSlot("prefers-a", MONDAY, minute("09:00"), minute("11:00"),
+                    criteria(region -> "near".equals(region) ? 3.0 : 20.0))),
+            List.of(), allWeek("a", "b"), NO_PROGRESS);
+    
+        assertEquals(Map.of("prefers-a", "a", "indifferent", "b"), assigned(solution));
+        assertEquals(65, solution.assignments().get(0).score());
+        assertEquals(65, solution.assignments().get(1).score());
+    }
+    
+    @Test
+    void rescansEveryStaffMemberWhenAllTopCandidatesAreBooked() {
+        StaffMatchingSnapshot snapshot = snapshot(staff("a", "near"), staff("b", "mid"), staff("c", "far"));
+        List<StaffCommitment> commitments = List.of(new StaffCommitment("a", MONDAY, minute("09:00"), minute("12:00")));
+    
+        RosterSolution solution = new RosterSolver(snapshot, 1, MIN_REST_MINUTES, NO_WEEKLY_CAP).solve(List.of(
+                slot("monday", MONDAY, "10:00", "11:00")),
+            commitments, allWeek("a", "b", "c"), NO_PROGRESS);
+    
+        assertEquals(Map.of("monday", "b"), assigned(solution));
+        assertEquals(55, solution.assignments().get(0).score());
+    }
+    
+    private static StaffMatchingSnapshot snapshot(StaffMatchProfile... profiles) {
+        return StaffMatchingSnapshot.build(List.of(profiles), Map.of());
+    }
+    
+    private static StaffMatchProfile staff(String id, String regionId) {
+        return new StaffMatchProfile(id, id, List.of(), List.of(), null, regionId, null, null,
+            new int[] {480, 480, 480, 480, 480, 480, 480});
+    }
+    
+    private static List<AvailabilityWindow> allWeek(String... staffIds) {
+        List<AvailabilityWindow> windows = new ArrayList<>();
+        for (String staffId : staffIds) {
+            for (DayOfWeek day : DayOfWeek.values()) {
+                windows.add(new AvailabilityWindow(staffId, day, 0, 1440));
+            }
+        }
+        return windows;
+    }
+    
+    private static AvailabilityWindow window(String staffId, DayOfWeek day, String start, String end) {
+        return new AvailabilityWindow(staffId, day, minute(start), minute(end));
+    }
+    
+    private static RosterSlot slot(String serviceId, LocalDate date, String start, String end) {
+        return slot(serviceId, date, minute(start), minute(end));
+    }
+    
+    private static RosterSlot slot(String serviceId, LocalDate date, int start, int end) {
+        return new RosterSlot(serviceId, date, start, end, criteria(region -> region != null ? REGION_KM.get(region) : Double.POSITIVE_INFINITY));
+    }
+    
+    private static MatchCriteria criteria(ToDoubleFunction<String> regionDistance) {
+        return new MatchCriteria("participant-1", List.of(), List.of(), null, regionDistance,
+            null, null, Double.POSITIVE_INFINITY, DayOfWeek.MONDAY, 240);
+    }
+    
+    private static int minute(String time) {
+        return Integer.parseInt(time.substring(0, 2)) * 60 + Integer.parseInt(time.substring(3));
+    }
+    
+    private static Map<String, String> assigned(RosterSolution solution) {
+        return solution.assignments().stream()
+            .collect(Collectors.toMap(RosterSolution.Assignment::serviceId, RosterSolution.Assignment::staffId));
+    }
+    
+    private static Map<String, RosterSolution.Reason> unallocated(RosterSolution solution) {
+        return solution.unallocated().stream()
+            .collect(Collectors.toMap(RosterSolution.Unallocated::serviceId, RosterSolution.Unallocated::reason));
+    }
+}
@@ -0,0 +1,55 @@
+package au.com.primacycare.cms.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Top-K staff matching against hand-built rosters
+ */
+public class StaffMatchingSnapshotTest {
+    
+    private static final double UNKNOWN_DISTANCE_KM = 10.0;
+    private static final Map<String, Double> REGION_KM = Map.of("near", 3.0, "far", 250.0);
+    
+    @Test
+    void staffWithoutRegionAreScoredAtTheFallbackDistance() {
+        StaffMatchingSnapshot snapshot = StaffMatchingSnapshot.build(List.of(
+            staff("near-staff", "near"),
+            staff("no-region-staff", null),
+            staff("far-staff", "far")), Map.of());
+        
+        List<ScoredStaff> matches = snapshot.topMatches(criteria(100), 10);
+        
+        List<String> ids = matches.stream().map(ScoredStaff::staffId).toList();
+        assertEquals(List.of("near-staff", "no-region-staff"), ids, "far-staff is beyond the maximum distance");
+        ScoredStaff noRegion = matches.get(1);
+        assertEquals(StaffMatchingSnapshot.proximityPoints(UNKNOWN_DISTANCE_KM) + StaffMatchingSnapshot.QUALIFICATION_POINTS
+            + StaffMatchingSnapshot.AVAILABILITY_POINTS, noRegion.score(), "proximity at the fallback distance");
+    }
+    
+    @Test
+    void staffWithoutRegionStayInTopKUnderATightDistanceLimit() {
+        StaffMatchingSnapshot snapshot = StaffMatchingSnapshot.build(List.of(
+            staff("no-region-staff", null),
+            staff("far-staff", "far")), Map.of());
+        
+        assertEquals(List.of("no-region-staff"),
+            snapshot.topMatches(criteria(UNKNOWN_DISTANCE_KM), 5).stream().map(ScoredStaff::staffId).toList());
+    }
+    
+    private static StaffMatchProfile staff(String id, String regionId) {
+        return new StaffMatchProfile(id, id, List.of(), List.of(), null, regionId, null, null,
+            new int[] {480, 480, 480, 480, 480, 480, 480});
+    }
+    
+    private static MatchCriteria criteria(double maxDistanceKm) {
+        return new MatchCriteria("participant-1", List.of(), List.of(), null,
+            regionId -> regionId != null ? REGION_KM.get(regionId) : UNKNOWN_DISTANCE_KM,
+            null, null, maxDistanceKm, DayOfWeek.MONDAY, 240);
+    }
+}
\ No newline at end of file
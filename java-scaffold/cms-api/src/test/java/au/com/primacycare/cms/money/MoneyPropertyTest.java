@@ -0,0 +1,87 @@
+package au.com.primacycare.cms.money;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Money against the BigDecimal arithmetic it replaced: costs, GST and half-up division over random
+ * rates, durations and penalty multipliers, plus rounding at the boundaries and the overflow fallback
+ */
+public class MoneyPropertyTest {
+    
+    private static final int SAMPLES = 200_000;
+    private static final long[] MULTIPLIERS = {10_000, 15_000, 20_000, 25_000, 11_500, 11_250};
+    
+    /** Fixed so a failing rate, duration and multiplier comes up again on the next run */
+    private final Random random = new Random(20240701);
+    
+    @Test
+    void costMatchesBigDecimal() {
+        for (int i = 0; i < SAMPLES; i++) {
+            long rateCents = random.nextInt(100_000);
+            int minutes = random.nextInt(24 * 60 + 1);
+            long multiplier = MULTIPLIERS[random.nextInt(MULTIPLIERS.length)];
+            
+            BigDecimal hours = BigDecimal.valueOf(minutes).divide(BigDecimal.valueOf(60), 4, RoundingMode.HALF_UP);
+            BigDecimal expected = BigDecimal.valueOf(rateCents, 2)
+                .multiply(hours)
+                .multiply(BigDecimal.valueOf(multiplier, 4))
+                .setScale(2, RoundingMode.HALF_UP);
+            
+            long actual = Money.costCents(rateCents, Money.hoursFromMinutes(minutes), multiplier);
+            assertEquals(expected, Money.toBigDecimal(actual),
+                () -> "rate " + rateCents + "c, " + minutes + " min, x" + multiplier);
+        }
+    }
+    
+    @Test
+    void gstMatchesBigDecimal() {
+        for (int i = 0; i < SAMPLES; i++) {
+            long cents = random.nextLong(-10_000_000, 10_000_000);
+            BigDecimal amount = BigDecimal.valueOf(cents, 2);
+            BigDecimal expected = amount.multiply(BigDecimal.valueOf(0.10)).setScale(2, RoundingMode.HALF_UP);
+            
+            assertEquals(expected, Money.toBigDecimal(Money.gstCents(cents)), () -> cents + "c");
+            assertEquals(amount.add(expected), Money.of(amount).plus(Money.of(amount).gst()).toBigDecimal());
+        }
+    }
+    
+    @Test
+    void divideHalfUpMatchesRoundingMode() {
+        for (int i = 0; i < SAMPLES; i++) {
+            long dividend = random.nextLong(-1_000_000_000L, 1_000_000_000L);
+            long divisor = random.nextBoolean() ? random.nextLong(1, 100_000) : -random.nextLong(1, 100_000);
+            long expected = BigDecimal.valueOf(dividend)
+                .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP)
+                .longValueExact();
+            
+            assertEquals(expected, Money.divideHalfUp(dividend, divisor), () -> dividend + " / " + divisor);
+        }
+    }
+    
+    @Test
+    void toCentsRoundsHalfUp() {
+        assertEquals(1235, Money.toCents(new BigDecimal("12.345")));
+        assertEquals(-1235, Money.toCents(new BigDecimal("-12.345")));
+        assertEquals(1234, Money.toCents(new BigDecimal("12.3449")));
+        assertEquals(new BigDecimal("12.30"), Money.of(new BigDecimal("12.3")).toBigDecimal());
+    }
+    
+    @Test
+    void overflowFallsBackToExactArithmetic() {
+        long rateCents = Long.MAX_VALUE / 1_000;
+        BigDecimal expected = BigDecimal.valueOf(rateCents)
+            .multiply(BigDecimal.valueOf(20_000))
+            .multiply(BigDecimal.valueOf(15_000))
+            .movePointLeft(8)
+            .setScale(0, RoundingMode.HALF_UP);
+        
+        assertEquals(expected.longValueExact(), Money.costCents(rateCents, 20_000, 15_000));
+        assertThrows(ArithmeticException.class, () -> Money.costCents(Long.MAX_VALUE, 100_000, 25_000));
+    }
+}
\ No newline at end of file
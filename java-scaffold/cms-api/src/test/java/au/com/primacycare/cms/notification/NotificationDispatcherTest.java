@@ -0,0 +1,226 @@
+package au.com.primacycare.cms.notification;
+
+import au.com.primacycare.cms.repository.NotificationOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * How a claimed batch's results are recorded: sent, rescheduled after a capped and jittered backoff
+ * or the provider's delay, or failed once out of attempts or rejected, and the whole batch retried
+ * when the transport fails or returns the wrong number of results
+ */
+public class NotificationDispatcherTest {
+    
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(30);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(3600);
+    
+    private final RecordingOutboxRepository outbox = new RecordingOutboxRepository();
+    private final StubNotificationTransport transport = new StubNotificationTransport(NotificationChannel.EMAIL, 10);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private NotificationDispatcher dispatcher;
+    
+    @AfterEach
+    void stopDispatcher() throws InterruptedException {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+    
+    @Test
+    void backoffDoublesPerAttemptUpToTheCap() {
+        NotificationDispatcher dispatcher = dispatcher(transport);
+        
+        for (int attempts = 1; attempts <= 40; attempts++) {
+            long capped = Math.min(BASE_BACKOFF.toMillis() << Math.min(attempts - 1, 20), MAX_BACKOFF.toMillis());
+            for (int i = 0; i < 50; i++) {
+                long backoff = dispatcher.backoff(attempts).toMillis();
+                assertTrue(backoff >= capped / 2 && backoff <= capped, "attempt " + attempts + ": " + backoff);
+            }
+        }
+        assertTrue(dispatcher.backoff(Integer.MAX_VALUE).compareTo(MAX_BACKOFF) <= 0);
+    }
+    
+    @Test
+    void backoffIsJitteredSoABatchDoesNotRetryTogether() {
+        NotificationDispatcher dispatcher = dispatcher(transport);
+        Set<Duration> backoffs = new HashSet<>();
+        
+        for (int i = 0; i < 100; i++) {
+            backoffs.add(dispatcher.backoff(2));
+        }
+        
+        assertTrue(backoffs.size() > 50, "only " + backoffs.size() + " distinct backoffs");
+    }
+    
+    @Test
+    void sentMessagesAreMarkedSentWithTheProviderId() throws InterruptedException {
+        transport.respondWith(message -> DeliveryResult.sent("provider-" + message.id()));
+        
+        deliver(message("m1", 1), message("m2", 1));
+        
+        assertEquals(List.of("m1 provider-m1", "m2 provider-m2"),
+            outbox.sent.stream().map(row -> row.message().id() + " " + row.providerId()).toList());
+        assertEquals(2, count("sent"));
+    }
+    
+    @Test
+    void aRetryableFailureIsRescheduledAfterTheBackoffOrTheProvidersDelay() throws InterruptedException {
+        transport.respondWith(message -> message.id().equals("m1")
+            ? DeliveryResult.retry("503 Service Unavailable")
+            : DeliveryResult.retry("429 Too Many Requests", Duration.ofSeconds(7)));
+        
+        deliver(message("m1", 2), message("m2", 1));
+        
+        NotificationOutboxRepository.Undelivered backedOff = outbox.rescheduled.get(0);
+        assertEquals("503 Service Unavailable", backedOff.error());
+        assertTrue(backedOff.retryIn().compareTo(Duration.ofSeconds(30)) >= 0
+            && backedOff.retryIn().compareTo(Duration.ofSeconds(60)) <= 0, backedOff.retryIn().toString());
+        assertEquals(Duration.ofSeconds(7), outbox.rescheduled.get(1).retryIn());
+        assertTrue(outbox.failed.isEmpty());
+        assertEquals(2, count("retried"));
+    }
+    
+    @Test
+    void aRetryableFailureOnTheLastAttemptIsFailed() throws InterruptedException {
+        transport.respondWith(message -> DeliveryResult.retry("Timed out"));
+        
+        deliver(message("m1", MAX_ATTEMPTS - 1), message("m2", MAX_ATTEMPTS));
+        
+        assertEquals(List.of("m1"), outbox.rescheduled.stream().map(row -> row.message().id()).toList());
+        assertEquals(List.of("m2"), outbox.failed.stream().map(row -> row.message().id()).toList());
+        assertEquals("Timed out", outbox.failed.get(0).error());
+        assertEquals(1, count("failed"));
+    }
+    
+    @Test
+    void aRejectedMessageFailsOnItsFirstAttempt() throws InterruptedException {
+        transport.respondWith(message -> DeliveryResult.rejected("Invalid recipient"));
+        
+        deliver(message("m1", 1));
+        
+        assertEquals(List.of("m1"), outbox.failed.stream().map(row -> row.message().id()).toList());
+        assertTrue(outbox.rescheduled.isEmpty());
+    }
+    
+    @Test
+    void theWholeBatchIsRetriedWhenTheTransportReturnsTheWrongNumberOfResults() throws InterruptedException {
+        NotificationTransport shortTransport = new StubNotificationTransport(NotificationChannel.EMAIL, 10) {
+            @Override
+            public List<DeliveryResult> send(List<OutboxMessage> messages) {
+                return List.of(DeliveryResult.sent("provider-1"));
+            }
+        };
+        
+        deliver(shortTransport, message("m1", 1), message("m2", 1));
+        
+        assertTrue(outbox.sent.isEmpty());
+        assertEquals(List.of("m1", "m2"), outbox.rescheduled.stream().map(row -> row.message().id()).toList());
+        assertEquals("Transport error: Expected 2 results, got 1", outbox.rescheduled.get(0).error());
+    }
+    
+    @Test
+    void theWholeBatchIsRetriedWhenTheTransportThrows() throws InterruptedException {
+        transport.respondWith(message -> {
+            throw new IllegalStateException("Connection reset");
+        });
+        
+        deliver(message("m1", 1), message("m2", MAX_ATTEMPTS));
+        
+        assertEquals(List.of("m1"), outbox.rescheduled.stream().map(row -> row.message().id()).toList());
+        assertEquals(List.of("m2"), outbox.failed.stream().map(row -> row.message().id()).toList());
+        assertEquals("Transport error: Connection reset", outbox.failed.get(0).error());
+    }
+    
+    private void deliver(OutboxMessage... batch) throws InterruptedException {
+        deliver(transport, batch);
+    }
+    
+    /**
+     * Hand one batch to a running dispatcher and wait for its results to be recorded
+     */
+    private void deliver(NotificationTransport transport, OutboxMessage... batch) throws InterruptedException {
+        outbox.batches.add(List.of(batch));
+        dispatcher = dispatcher(transport);
+        dispatcher.start();
+        await(() -> outbox.recorded == 1);
+        // Joins the worker, so its counters are up to date
+        dispatcher.stop();
+        dispatcher = null;
+    }
+    
+    private NotificationDispatcher dispatcher(NotificationTransport transport) {
+        return new NotificationDispatcher(List.of(transport), outbox, meterRegistry, 10, 300, MAX_ATTEMPTS,
+            BASE_BACKOFF.toSeconds(), MAX_BACKOFF.toSeconds(), 90);
+    }
+    
+    private double count(String outcome) {
+        return meterRegistry.get("cms.notifications").tag("channel", "email").tag("outcome", outcome).counter().count();
+    }
+    
+    /**
+     * @param attempts including this one, as claimed
+     */
+    private static OutboxMessage message(String id, int attempts) {
+        return new OutboxMessage(id, NotificationChannel.EMAIL, id + "@example.com", "welcome", "Welcome", "Hello",
+            null, attempts, LocalDateTime.now().minusMinutes(1));
+    }
+    
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "Timed out waiting for the dispatcher");
+    }
+    
+    /**
+     * Hands out queued batches to claims, then nothing, and records each result call
+     */
+    private static final class RecordingOutboxRepository extends NotificationOutboxRepository {
+        
+        final ConcurrentLinkedQueue<List<OutboxMessage>> batches = new ConcurrentLinkedQueue<>();
+        final List<Delivered> sent = new ArrayList<>();
+        final List<Undelivered> rescheduled = new ArrayList<>();
+        final List<Undelivered> failed = new ArrayList<>();
+        /** Batches whose results have all been recorded; the dispatcher marks failed last */
+        volatile int recorded;
+        
+        RecordingOutboxRepository() {
+            super(null, null);
+        }
+        
+        @Override
+        public List<OutboxMessage> claim(NotificationChannel channel, int limit, Duration lease) {
+            List<OutboxMessage> batch = batches.poll();
+            return batch != null ? batch : List.of();
+        }
+        
+        @Override
+        public void markSent(List<Delivered> delivered) {
+            sent.addAll(delivered);
+        }
+        
+        @Override
+        public void reschedule(List<Undelivered> undelivered) {
+            rescheduled.addAll(undelivered);
+        }
+        
+        @Override
+        public void markFailed(List<Undelivered> undelivered) {
+            failed.addAll(undelivered);
+            recorded++;
+        }
+    }
+}
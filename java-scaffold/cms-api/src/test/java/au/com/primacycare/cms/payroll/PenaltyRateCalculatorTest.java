@@ -0,0 +1,237 @@
+package au.com.primacycare.cms.payroll;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Shift pay must give exactly the cents of pricing every worked second at its own rate in BigDecimal,
+ * for random shifts under the seeded rules and under boundaries that are not on the hour
+ * Allowances are priced per claimed unit on top of that
+ */
+public class PenaltyRateCalculatorTest {
+    
+    private static final int SAMPLES = 1_000;
+    private static final int SECONDS_PER_DAY = 86_400;
+    
+    /** The seeded 2024-01-01 version (see V013) */
+    private static final Map<String, BigDecimal> SEEDED_RULES = Map.of(
+        AwardRateVersion.NIGHT_END_HOUR, new BigDecimal("6"),
+        AwardRateVersion.EVENING_START_HOUR, new BigDecimal("18"),
+        AwardRateVersion.NIGHT_START_HOUR, new BigDecimal("22"),
+        AwardRateVersion.SATURDAY_FIRST_HOURS, new BigDecimal("2"));
+    
+    /** Boundaries that are not on the hour */
+    private static final Map<String, BigDecimal> OFF_HOUR_RULES = Map.of(
+        AwardRateVersion.NIGHT_END_HOUR, new BigDecimal("6.5"),
+        AwardRateVersion.EVENING_START_HOUR, new BigDecimal("19.25"),
+        AwardRateVersion.NIGHT_START_HOUR, new BigDecimal("23.75"),
+        AwardRateVersion.SATURDAY_FIRST_HOURS, new BigDecimal("2.5"));
+    
+    private static final Map<String, BigDecimal> PENALTIES = Map.of(
+        AwardRateVersion.ORDINARY, new BigDecimal("1.0"),
+        AwardRateVersion.EVENING, new BigDecimal("1.125"),
+        AwardRateVersion.NIGHT, new BigDecimal("1.15"),
+        AwardRateVersion.SATURDAY, new BigDecimal("1.5"),
+        AwardRateVersion.SATURDAY_AFTER, new BigDecimal("2.0"),
+        AwardRateVersion.SUNDAY, new BigDecimal("2.0"),
+        AwardRateVersion.PUBLIC_HOLIDAY, new BigDecimal("2.5"));
+    
+    private static final Map<String, BigDecimal> ALLOWANCES = Map.of(
+        "SLEEPOVER", new BigDecimal("55.94"),
+        "TRAVEL", new BigDecimal("0.96"));
+    
+    private final Random random = new Random(20240815);
+    
+    @Test
+    void saturdayHoursPastTheFirstArePaidAtTheAfterRate() {
+        AwardRateVersion award = award(SEEDED_RULES);
+        LocalDate saturday = LocalDate.of(2024, 8, 17);
+        
+        // 2h x 1.5 + 1h x 2.0 at $30.00
+        assertEquals(15_000, PenaltyRateCalculator.payCents(award, 3_000, saturday, LocalTime.of(9, 0), 300,
+            HolidayLookup.NONE));
+    }
+    
+    @Test
+    void allowancesArePricedPerClaimedUnit() {
+        AwardRateVersion award = award(SEEDED_RULES);
+        
+        assertEquals(5_594, PenaltyRateCalculator.allowanceCents(award, "SLEEPOVER", 100));
+        // 12.55 km x $0.96 = $12.048
+        assertEquals(1_205, PenaltyRateCalculator.allowanceCents(award, "TRAVEL", 1_255));
+    }
+    
+    @Test
+    void allowanceWithoutAnAmountIsRejected() {
+        AwardRateVersion award = award(SEEDED_RULES);
+        
+        assertTrue(award.allowanceCents("MEAL").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> PenaltyRateCalculator.allowanceCents(award, "MEAL", 100));
+    }
+    
+    @Test
+    void randomShiftsMatchPerSecondPricing() {
+        for (Map<String, BigDecimal> rules : rulesSets()) {
+            AwardRateVersion award = award(rules);
+            for (int i = 0; i < SAMPLES; i++) {
+                LocalDate date = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(366));
+                Set<LocalDate> holidays = random.nextInt(4) == 0
+                    ? Set.of(date.plusDays(random.nextInt(2)))
+                    : Set.of();
+                check(award, rules, date, random.nextInt(SECONDS_PER_DAY), random.nextInt(1, 1_601), holidays);
+            }
+        }
+    }
+    
+    @Test
+    void shiftsAcrossMidnightAndEveningAndNightBoundaries() {
+        for (Map<String, BigDecimal> rules : rulesSets()) {
+            AwardRateVersion award = award(rules);
+            int[] boundaries = {
+                0,
+                seconds(rules, AwardRateVersion.NIGHT_END_HOUR),
+                seconds(rules, AwardRateVersion.EVENING_START_HOUR),
+                seconds(rules, AwardRateVersion.NIGHT_START_HOUR),
+                SECONDS_PER_DAY};
+            for (int i = 0; i < SAMPLES; i++) {
+                // A weekday, so only the time-of-day segments apply
+                LocalDate date = LocalDate.of(2024, 9, 2).plusDays(random.nextInt(4));
+                int boundary = boundaries[random.nextInt(boundaries.length)];
+                int start = Math.floorMod(boundary - random.nextInt(1, 3_600), SECONDS_PER_DAY);
+                check(award, rules, date, start, random.nextInt(1, 401), Set.of());
+            }
+        }
+    }
+    
+    @Test
+    void saturdayShiftsPastTheFirstHours() {
+        for (Map<String, BigDecimal> rules : rulesSets()) {
+            AwardRateVersion award = award(rules);
+            int firstHours = seconds(rules, AwardRateVersion.SATURDAY_FIRST_HOURS) / 36;
+            for (int i = 0; i < SAMPLES; i++) {
+                LocalDate saturday = LocalDate.of(2024, 1, 6).plusWeeks(random.nextInt(52));
+                // Starting on Saturday, or on Friday night so the first hours count from midnight
+                LocalDate date = random.nextBoolean() ? saturday : saturday.minusDays(1);
+                int start = date.equals(saturday)
+                    ? random.nextInt(SECONDS_PER_DAY)
+                    : SECONDS_PER_DAY - random.nextInt(1, 4 * 3_600);
+                check(award, rules, date, start, random.nextInt(firstHours + 1, firstHours + 1_201), Set.of());
+            }
+        }
+    }
+    
+    @Test
+    void publicHolidaysOnEitherDayOfTheShift() {
+        for (Map<String, BigDecimal> rules : rulesSets()) {
+            AwardRateVersion award = award(rules);
+            for (int i = 0; i < SAMPLES; i++) {
+                LocalDate date = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(366));
+                LocalDate holiday = random.nextBoolean() ? date : date.plusDays(1);
+                // Saturdays and Sundays that are public holidays too
+                if (random.nextInt(3) == 0) {
+                    date = date.with(TemporalAdjusters.nextOrSame(DayOfWeek.SATURDAY));
+                    holiday = date.plusDays(random.nextInt(2));
+                }
+                int start = SECONDS_PER_DAY - random.nextInt(1, 12 * 3_600);
+                check(award, rules, date, start, random.nextInt(1, 1_601), Set.of(holiday));
+            }
+        }
+    }
+    
+    @Test
+    void shiftsRunningIntoTheNextDay() {
+        for (Map<String, BigDecimal> rules : rulesSets()) {
+            AwardRateVersion award = award(rules);
+            for (int i = 0; i < SAMPLES; i++) {
+                LocalDate date = LocalDate.of(2024, 3, 4).plusDays(random.nextInt(7));
+                int start = SECONDS_PER_DAY - random.nextInt(1, 10 * 3_600);
+                long minimumHundredths = (SECONDS_PER_DAY - start) / 36 + 1;
+                check(award, rules, date, start, minimumHundredths + random.nextInt(1_200), Set.of());
+            }
+        }
+    }
+    
+    private void check(AwardRateVersion award, Map<String, BigDecimal> rules, LocalDate date, int startSecond,
+                       long hoursHundredths, Set<LocalDate> holidays) {
+        long baseRateCents = random.nextLong(2_500, 8_000);
+        LocalTime startTime = LocalTime.ofSecondOfDay(startSecond);
+        long expected = referenceCents(rules, baseRateCents, date, startSecond, hoursHundredths, holidays);
+        long actual = PenaltyRateCalculator.payCents(award, baseRateCents, date, startTime, hoursHundredths,
+            holidays::contains);
+        assertEquals(expected, actual, () -> date + " " + date.getDayOfWeek() + " " + startTime + " for "
+            + hoursHundredths + "/100 h at " + baseRateCents + "c, holidays " + holidays);
+    }
+    
+    /**
+     * Each worked second at the multiplier the award gives it, summed and rounded once
+     */
+    private static long referenceCents(Map<String, BigDecimal> rules, long baseRateCents, LocalDate date,
+                                       int startSecond, long hoursHundredths, Set<LocalDate> holidays) {
+        int nightEnd = seconds(rules, AwardRateVersion.NIGHT_END_HOUR);
+        int eveningStart = seconds(rules, AwardRateVersion.EVENING_START_HOUR);
+        int nightStart = seconds(rules, AwardRateVersion.NIGHT_START_HOUR);
+        int saturdayFirst = seconds(rules, AwardRateVersion.SATURDAY_FIRST_HOURS);
+        
+        Map<String, Long> secondsByPenalty = new HashMap<>();
+        long saturdaySeconds = 0;
+        long worked = hoursHundredths * 36;
+        for (long offset = 0; offset < worked; offset++) {
+            long at = startSecond + offset;
+            LocalDate day = date.plusDays(at / SECONDS_PER_DAY);
+            int second = (int) (at % SECONDS_PER_DAY);
+            String penalty;
+            if (holidays.contains(day)) {
+                penalty = AwardRateVersion.PUBLIC_HOLIDAY;
+            } else if (day.getDayOfWeek() == DayOfWeek.SATURDAY) {
+                penalty = saturdaySeconds++ < saturdayFirst ? AwardRateVersion.SATURDAY : AwardRateVersion.SATURDAY_AFTER;
+            } else if (day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                penalty = AwardRateVersion.SUNDAY;
+            } else if (second < nightEnd || second >= nightStart) {
+                penalty = AwardRateVersion.NIGHT;
+            } else if (second >= eveningStart) {
+                penalty = AwardRateVersion.EVENING;
+            } else {
+                penalty = AwardRateVersion.ORDINARY;
+            }
+            secondsByPenalty.merge(penalty, 1L, Long::sum);
+        }
+        
+        BigDecimal weightedSeconds = BigDecimal.ZERO;
+        for (Map.Entry<String, Long> entry : secondsByPenalty.entrySet()) {
+            weightedSeconds = weightedSeconds.add(PENALTIES.get(entry.getKey()).multiply(BigDecimal.valueOf(entry.getValue())));
+        }
+        return BigDecimal.valueOf(baseRateCents)
+            .multiply(weightedSeconds)
+            .divide(BigDecimal.valueOf(3_600), 0, RoundingMode.HALF_UP)
+            .longValueExact();
+    }
+    
+    private static AwardRateVersion award(Map<String, BigDecimal> rules) {
+        Map<Integer, BigDecimal> levels = new HashMap<>();
+        for (int level = AwardRateVersion.MIN_LEVEL; level <= AwardRateVersion.MAX_LEVEL; level++) {
+            levels.put(level, new BigDecimal("30.00").add(BigDecimal.valueOf(level)));
+        }
+        return AwardRateVersion.of(LocalDate.of(2024, 1, 1), levels, PENALTIES, rules, ALLOWANCES);
+    }
+    
+    private static int seconds(Map<String, BigDecimal> rules, String code) {
+        return rules.get(code).multiply(BigDecimal.valueOf(3_600)).intValueExact();
+    }
+    
+    private static List<Map<String, BigDecimal>> rulesSets() {
+        return List.of(SEEDED_RULES, OFF_HOUR_RULES);
+    }
+}
\ No newline at end of file
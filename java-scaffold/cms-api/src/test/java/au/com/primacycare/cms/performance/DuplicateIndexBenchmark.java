@@ -0,0 +1,92 @@
+package au.com.primacycare.cms.performance;
+
+import au.com.primacycare.cms.dedupe.DuplicateIndexSnapshot;
+import au.com.primacycare.cms.dedupe.DuplicateMatch;
+import au.com.primacycare.cms.dedupe.PersonRecord;
+import au.com.primacycare.cms.dedupe.PersonSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for duplicate referral lookups against 200k referrals and participants
+ * Queries are misspelt, name-swapped or partial copies of indexed people, as new referrals are;
+ * the target is well under 20 ms per lookup
+ *
+ * Run: mvn -pl cms-api test-compile exec:java -Dexec.classpathScope=test
+ *      -Dexec.mainClass=au.com.primacycare.cms.performance.DuplicateIndexBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DuplicateIndexBenchmark {
+    
+    private static final int PEOPLE = 200_000;
+    private static final int QUERIES = 1024;
+    private static final String[] FIRST_NAMES = {
+        "jack", "oliver", "noah", "william", "leo", "charlotte", "olivia", "amelia", "isla", "mia",
+        "thomas", "henry", "lucas", "grace", "ava", "chloe", "ethan", "zoe", "harper", "ruby"
+    };
+    private static final String[] SYLLABLES = {
+        "an", "ber", "cal", "dun", "el", "far", "gib", "har", "ing", "kel", "lor", "mac", "ner", "ol",
+        "pat", "quin", "ros", "son", "ter", "wal"
+    };
+    
+    private DuplicateIndexSnapshot snapshot;
+    private PersonRecord[] queries;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<PersonRecord> people = new ArrayList<>(PEOPLE);
+        for (int i = 0; i < PEOPLE; i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = SYLLABLES[random.nextInt(SYLLABLES.length)] + SYLLABLES[random.nextInt(SYLLABLES.length)]
+                + SYLLABLES[random.nextInt(SYLLABLES.length)];
+            LocalDate dateOfBirth = LocalDate.of(1940 + random.nextInt(80), 1 + random.nextInt(12), 1 + random.nextInt(28));
+            String phone = "04" + String.format("%08d", random.nextInt(100_000_000));
+            people.add(i % 2 == 0
+                ? PersonRecord.ofNames(PersonSource.PARTICIPANT, "p" + i, first, last, dateOfBirth, phone,
+                    String.format("43%07d", i))
+                : PersonRecord.ofFullName(PersonSource.REFERRAL, "r" + i, first + " " + last,
+                    random.nextBoolean() ? dateOfBirth : null, random.nextBoolean() ? phone : null, null));
+        }
+        snapshot = DuplicateIndexSnapshot.build(people);
+        
+        queries = new PersonRecord[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            PersonRecord person = people.get(random.nextInt(PEOPLE));
+            String name = switch (i % 3) {
+                case 0 -> person.firstName() + " " + person.lastName().replaceFirst("[aeiou]", "e");
+                case 1 -> person.lastName() + ", " + person.firstName();
+                default -> person.firstName() + " " + person.lastName();
+            };
+            queries[i] = PersonRecord.ofFullName(PersonSource.REFERRAL, "q" + i, name,
+                i % 2 == 0 ? person.dateOfBirth() : null,
+                person.phoneSuffix() != PersonRecord.NO_PHONE ? "0400 00" + String.format("%04d", person.phoneSuffix()) : null,
+                null);
+        }
+    }
+    
+    @Benchmark
+    public List<DuplicateMatch> findMatches() {
+        return snapshot.matches(queries[next++ & (QUERIES - 1)], 55, 500, 10);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(DuplicateIndexBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package au.com.primacycare.cms.performance;
+
+import au.com.primacycare.cms.pricing.PriceCatalogue;
+import au.com.primacycare.cms.pricing.Remoteness;
+import au.com.primacycare.cms.pricing.SupportItemPrice;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for NDIS price limit lookups over a catalogue of support items with yearly versions
+ * Compares the column-wise PriceCatalogue with a map of per-item row lists
+ *
+ * Run: mvn -pl cms-api test-compile exec:java -Dexec.classpathScope=test
+ *      -Dexec.mainClass=au.com.primacycare.cms.performance.PriceGuideBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PriceGuideBenchmark {
+    
+    private static final int QUERIES = 4096;
+    
+    @Param({"5000"})
+    private int itemCount;
+    
+    @Param({"4"})
+    private int yearsOfVersions;
+    
+    private PriceCatalogue catalogue;
+    private Map<String, List<SupportItemPrice>> rowsByItem;
+    private String[] queryItems;
+    private LocalDate[] queryDates;
+    private String[] queryStates;
+    private Remoteness[] queryRemoteness;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<SupportItemPrice> prices = new ArrayList<>();
+        String[] items = new String[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            items[i] = String.format("%02d_%03d_%04d_%d_%d", 1 + random.nextInt(15), random.nextInt(1000),
+                i, 1 + random.nextInt(8), 1 + random.nextInt(3));
+            boolean quotable = random.nextInt(10) == 0;
+            for (int year = 0; year < yearsOfVersions; year++) {
+                LocalDate start = LocalDate.of(2021 + year, 7, 1);
+                int[] caps = new int[PriceCatalogue.STATE_CODES.size() + 2];
+                int base = 2000 + random.nextInt(20000);
+                for (int zone = 0; zone < caps.length; zone++) {
+                    caps[zone] = quotable ? PriceCatalogue.NO_CAP : base + (zone >= 8 ? base * (zone - 7) / 4 : 0);
+                }
+                prices.add(new SupportItemPrice(items[i], "Support item " + i, "H", start,
+                    year == yearsOfVersions - 1 ? null : start.plusYears(1).minusDays(1), caps));
+            }
+        }
+        catalogue = PriceCatalogue.of(prices);
+        rowsByItem = new HashMap<>();
+        prices.forEach(price -> rowsByItem.computeIfAbsent(price.itemNumber(), item -> new ArrayList<>()).add(price));
+        
+        queryItems = new String[QUERIES];
+        queryDates = new LocalDate[QUERIES];
+        queryStates = new String[QUERIES];
+        queryRemoteness = new Remoteness[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            queryItems[q] = random.nextInt(50) == 0 ? "99_999_9999_9_9" : items[random.nextInt(itemCount)];
+            queryDates[q] = LocalDate.of(2021, 7, 1).plusDays(random.nextInt(365 * yearsOfVersions));
+            queryStates[q] = PriceCatalogue.STATE_CODES.get(random.nextInt(8));
+            queryRemoteness[q] = Remoteness.values()[random.nextInt(10) < 8 ? 0 : 1 + random.nextInt(2)];
+        }
+    }
+    
+    @Benchmark
+    public int catalogueCap() {
+        int q = next++ & (QUERIES - 1);
+        return catalogue.capCents(queryItems[q], queryDates[q], queryStates[q], queryRemoteness[q]);
+    }
+    
+    @Benchmark
+    public int rowListCap() {
+        int q = next++ & (QUERIES - 1);
+        List<SupportItemPrice> rows = rowsByItem.get(queryItems[q]);
+        if (rows == null) {
+            return PriceCatalogue.NO_CAP;
+        }
+        LocalDate date = queryDates[q];
+        for (SupportItemPrice row : rows) {
+            if (!row.startDate().isAfter(date) && (row.endDate() == null || !row.endDate().isBefore(date))) {
+                int zone = switch (queryRemoteness[q]) {
+                    case VERY_REMOTE -> 9;
+                    case REMOTE -> 8;
+                    default -> PriceCatalogue.STATE_CODES.indexOf(queryStates[q]);
+                };
+                return row.zoneCapCents()[zone];
+            }
+        }
+        return PriceCatalogue.NO_CAP;
+    }
+    
+    @Benchmark
+    public String catalogueName() {
+        return catalogue.name(queryItems[next++ & (QUERIES - 1)]);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(PriceGuideBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
\ No newline at end of file
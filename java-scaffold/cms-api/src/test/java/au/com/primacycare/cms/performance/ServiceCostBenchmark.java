@@ -0,0 +1,96 @@
+package au.com.primacycare.cms.performance;
+
+import au.com.primacycare.cms.money.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for service costing: rate x hours x multiplier + transport, then GST
+ * Compares the whole-cent Money arithmetic used by ServiceMapper with the BigDecimal chain it replaced
+ *
+ * Run: mvn -pl cms-api test-compile exec:java -Dexec.classpathScope=test
+ *      -Dexec.mainClass=au.com.primacycare.cms.performance.ServiceCostBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceCostBenchmark {
+    
+    private static final int SERVICES = 4096;
+    private static final long[] MULTIPLIERS = {10_000, 15_000, 20_000, 25_000, 11_500, 11_250};
+    
+    private BigDecimal[] rates;
+    private BigDecimal[] transports;
+    private BigDecimal[] multipliers;
+    private long[] rateCents;
+    private long[] transportCents;
+    private long[] multiplierBasisPoints;
+    private int[] minutes;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        rates = new BigDecimal[SERVICES];
+        transports = new BigDecimal[SERVICES];
+        multipliers = new BigDecimal[SERVICES];
+        rateCents = new long[SERVICES];
+        transportCents = new long[SERVICES];
+        multiplierBasisPoints = new long[SERVICES];
+        minutes = new int[SERVICES];
+        for (int i = 0; i < SERVICES; i++) {
+            rateCents[i] = 5_000 + random.nextInt(20_000);
+            transportCents[i] = random.nextBoolean() ? random.nextInt(5_000) : 0;
+            multiplierBasisPoints[i] = MULTIPLIERS[random.nextInt(MULTIPLIERS.length)];
+            minutes[i] = 15 + random.nextInt(600);
+            rates[i] = BigDecimal.valueOf(rateCents[i], 2);
+            transports[i] = BigDecimal.valueOf(transportCents[i], 2);
+            multipliers[i] = BigDecimal.valueOf(multiplierBasisPoints[i], 4).stripTrailingZeros();
+        }
+    }
+    
+    @Benchmark
+    public BigDecimal bigDecimalCost() {
+        int i = next++ & (SERVICES - 1);
+        BigDecimal hours = BigDecimal.valueOf(minutes[i]).divide(BigDecimal.valueOf(60), 4, RoundingMode.HALF_UP);
+        BigDecimal total = rates[i].multiply(hours).multiply(multipliers[i]).add(transports[i])
+            .setScale(2, RoundingMode.HALF_UP);
+        BigDecimal gst = total.multiply(BigDecimal.valueOf(0.10)).setScale(2, RoundingMode.HALF_UP);
+        return total.add(gst);
+    }
+    
+    @Benchmark
+    public long moneyCost() {
+        int i = next++ & (SERVICES - 1);
+        long total = Money.costCents(rateCents[i], Money.hoursFromMinutes(minutes[i]), multiplierBasisPoints[i])
+            + transportCents[i];
+        return total + Money.gstCents(total);
+    }
+    
+    /**
+     * Includes the conversions at the DTO boundary, as ServiceMapper does
+     */
+    @Benchmark
+    public BigDecimal moneyCostFromBigDecimal() {
+        int i = next++ & (SERVICES - 1);
+        long total = Money.costCents(Money.toCents(rates[i]), Money.hoursFromMinutes(minutes[i]),
+            multiplierBasisPoints[i]) + Money.toCents(transports[i]);
+        return Money.toBigDecimal(total + Money.gstCents(total));
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(ServiceCostBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,183 @@
+package au.com.primacycare.cms.performance;
+
+import au.com.primacycare.cms.matching.MatchCriteria;
+import au.com.primacycare.cms.matching.ScoredStaff;
+import au.com.primacycare.cms.matching.StaffMatchProfile;
+import au.com.primacycare.cms.matching.StaffMatchingSnapshot;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.DayOfWeek;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * JMH benchmark for staff matching over a 5k roster
+ * Compares the indexed top-K scorer with the previous per-candidate, full-sort approach
+ *
+ * Run: mvn -pl cms-api test-compile exec:java -Dexec.classpathScope=test
+ *      -Dexec.mainClass=au.com.primacycare.cms.performance.StaffMatchingBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StaffMatchingBenchmark {
+    
+    private static final String[] QUALIFICATIONS = {
+        "Cert III Individual Support", "Cert IV Disability", "Cert IV Ageing Support", "Diploma Community Services",
+        "First Aid", "CPR", "Manual Handling", "Medication Administration", "NDIS Worker Orientation",
+        "Working with Children Check", "NDIS Worker Screening", "Driver Licence", "PEG Feeding", "Epilepsy Management",
+        "Diabetes Management", "Behaviour Support", "Autism Support", "Mental Health First Aid", "Complex Bowel Care",
+        "Catheter Care", "Dysphagia Support", "Tracheostomy Care", "Ventilator Support", "Hoist Transfer",
+        "Auslan Level 1", "Auslan Level 2", "Positive Behaviour Support", "Trauma Informed Care", "Dementia Care",
+        "Palliative Care", "Wound Care", "Stoma Care", "Seizure Rescue Medication", "Bachelor Nursing",
+        "Bachelor Social Work", "Occupational Therapy Assistant", "Physiotherapy Assistant", "Support Coordination",
+        "Plan Management", "Restrictive Practices"
+    };
+    
+    private static final String[] LANGUAGES = {
+        "English", "Mandarin", "Cantonese", "Arabic", "Vietnamese", "Italian", "Greek", "Hindi", "Punjabi",
+        "Spanish", "Tagalog", "Korean", "Nepali", "Urdu", "Persian", "Tamil", "Turkish", "Macedonian", "Serbian",
+        "Croatian", "Samoan", "Tongan", "Kriol", "Pitjantjatjara", "Auslan"
+    };
+    
+    private static final String[] CULTURES = {
+        "Aboriginal", "Torres Strait Islander", "Chinese", "Vietnamese", "Lebanese", "Italian", "Greek", "Indian",
+        "Filipino", "Pacific Islander", "Anglo-Australian"
+    };
+    
+    @Param({"5000"})
+    private int staffCount;
+    
+    private List<StaffMatchProfile> profiles;
+    private Map<String, List<String>> relationships;
+    private StaffMatchingSnapshot snapshot;
+    private List<MatchCriteria> queries;
+    private Map<String, Double> regionDistances;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        int regions = 80;
+        regionDistances = new HashMap<>();
+        for (int r = 0; r < regions; r++) {
+            regionDistances.put("region-" + r, random.nextDouble() * 120);
+        }
+        
+        profiles = new ArrayList<>(staffCount);
+        for (int i = 0; i < staffCount; i++) {
+            int[] minutes = new int[7];
+            for (int day = 0; day < 7; day++) {
+                minutes[day] = random.nextInt(10) < 6 ? 60 * (2 + random.nextInt(9)) : 0;
+            }
+            profiles.add(new StaffMatchProfile(
+                UUID.nameUUIDFromBytes(("staff-" + i).getBytes()).toString(),
+                "Staff " + i,
+                pick(random, QUALIFICATIONS, 2 + random.nextInt(5)),
+                pick(random, LANGUAGES, 1 + random.nextInt(3)),
+                random.nextInt(3) == 0 ? CULTURES[random.nextInt(CULTURES.length)] : null,
+                "region-" + random.nextInt(regions),
+                random.nextBoolean() ? -33.3 - random.nextDouble() * 1.2 : null,
+                random.nextBoolean() ? 150.5 + random.nextDouble() * 1.0 : null,
+                minutes));
+        }
+        
+        relationships = new HashMap<>();
+        for (int p = 0; p < 3000; p++) {
+            List<String> staff = new ArrayList<>();
+            for (int j = random.nextInt(9); j > 0; j--) {
+                staff.add(profiles.get(random.nextInt(staffCount)).staffId());
+            }
+            relationships.put("participant-" + p, staff);
+        }
+        
+        snapshot = StaffMatchingSnapshot.build(profiles, relationships);
+        
+        queries = new ArrayList<>();
+        for (int q = 0; q < 256; q++) {
+            queries.add(new MatchCriteria(
+                "participant-" + random.nextInt(3000),
+                pick(random, QUALIFICATIONS, 1 + random.nextInt(2)),
+                pick(random, LANGUAGES, 1),
+                CULTURES[random.nextInt(CULTURES.length)],
+                regionId -> regionDistances.getOrDefault(regionId, 999.0),
+                -33.3 - random.nextDouble() * 1.2,
+                150.5 + random.nextDouble() * 1.0,
+                Double.POSITIVE_INFINITY,
+                DayOfWeek.of(1 + random.nextInt(7)),
+                240));
+        }
+    }
+    
+    @Benchmark
+    public List<ScoredStaff> indexedTopK() {
+        return snapshot.topMatches(nextQuery(), 10);
+    }
+    
+    /**
+     * The previous shape: per-candidate set lookups, a result object per candidate, full sort
+     */
+    @Benchmark
+    public List<ScoredStaff> perCandidateFullSort() {
+        MatchCriteria criteria = nextQuery();
+        Set<String> prior = new HashSet<>(relationships.getOrDefault(criteria.participantId(), List.of()));
+        int day = criteria.day().getValue() - 1;
+        return profiles.stream()
+            .filter(profile -> profile.availableMinutesByDay()[day] > 0)
+            // Region centroids only, as before; the index also uses geocoded addresses when present
+            .map(profile -> {
+                int score = 0;
+                if (profile.qualifications().containsAll(criteria.requiredQualifications())) {
+                    score += 30;
+                }
+                double distance = criteria.regionDistance().applyAsDouble(profile.regionId());
+                score += distance < 5 ? 25 : distance < 15 ? 15 : distance < 30 ? 5 : 0;
+                if (prior.contains(profile.staffId())) {
+                    score += 20;
+                }
+                if (Objects.equals(profile.culturalBackground(), criteria.culturalBackground())
+                        || profile.languages().stream().anyMatch(criteria.languages()::contains)) {
+                    score += 15;
+                }
+                if (profile.availableMinutesByDay()[day] >= criteria.goodAvailabilityMinutes()) {
+                    score += 10;
+                }
+                return new ScoredStaff(profile.staffId(), profile.staffName(), score);
+            })
+            .sorted(Comparator.comparingInt(ScoredStaff::score).reversed())
+            .limit(10)
+            .collect(Collectors.toList());
+    }
+    
+    @Benchmark
+    public StaffMatchingSnapshot rebuildIndex() {
+        return StaffMatchingSnapshot.build(profiles, relationships);
+    }
+    
+    private MatchCriteria nextQuery() {
+        MatchCriteria criteria = queries.get(next);
+        next = (next + 1) & 255;
+        return criteria;
+    }
+    
+    private static List<String> pick(Random random, String[] values, int count) {
+        Set<String> picked = new LinkedHashSet<>();
+        while (picked.size() < count) {
+            picked.add(values[random.nextInt(values.length)]);
+        }
+        return new ArrayList<>(picked);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(StaffMatchingBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package au.com.primacycare.cms.performance;
+
+import au.com.primacycare.cms.scheduling.TimingWheel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for referral SLA deadlines: 100k open referrals with deadlines up to two weeks out
+ * Compares a one-second tick and a stage change on the TimingWheel used by ReferralSlaScheduler
+ * with scanning every deadline, as polling for overdue referrals does
+ *
+ * Run: mvn -pl cms-api test-compile exec:java -Dexec.classpathScope=test
+ *      -Dexec.mainClass=au.com.primacycare.cms.performance.TimingWheelBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimingWheelBenchmark {
+    
+    private static final int REFERRALS = 100_000;
+    private static final long TICK_MILLIS = 1_000;
+    private static final long HORIZON_MILLIS = TimeUnit.DAYS.toMillis(14);
+    
+    private Random random;
+    private TimingWheel<Integer> wheel;
+    private TimingWheel.Timer<Integer>[] timers;
+    private long[] deadlines;
+    private long now;
+    private int fired;
+    
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        random = new Random(42);
+        wheel = new TimingWheel<>(TICK_MILLIS, 0);
+        timers = new TimingWheel.Timer[REFERRALS];
+        deadlines = new long[REFERRALS];
+        for (int i = 0; i < REFERRALS; i++) {
+            deadlines[i] = 1 + (long) (random.nextDouble() * HORIZON_MILLIS);
+            timers[i] = wheel.schedule(i, deadlines[i]);
+        }
+    }
+    
+    /**
+     * One tick, re-arming whatever fired so the wheel stays at 100k timers
+     */
+    @Benchmark
+    public int wheelTick() {
+        now += TICK_MILLIS;
+        return wheel.advanceTo(now, id -> timers[id] = wheel.schedule(id, now + HORIZON_MILLIS));
+    }
+    
+    /**
+     * A referral changing stage: cancel its timer and set the next one
+     */
+    @Benchmark
+    public TimingWheel.Timer<Integer> wheelReschedule() {
+        int id = random.nextInt(REFERRALS);
+        wheel.cancel(timers[id]);
+        timers[id] = wheel.schedule(id, now + 1 + (long) (random.nextDouble() * HORIZON_MILLIS));
+        return timers[id];
+    }
+    
+    @Benchmark
+    public int pollAllDeadlines() {
+        now += TICK_MILLIS;
+        fired = 0;
+        for (int i = 0; i < REFERRALS; i++) {
+            if (deadlines[i] <= now) {
+                deadlines[i] = now + HORIZON_MILLIS;
+                fired++;
+            }
+        }
+        return fired;
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(TimingWheelBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package au.com.primacycare.cms.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Price limit lookups: the version in effect on a date, state and remoteness zones, and the
+ * highest state limit when the state is unknown
+ */
+public class PriceCatalogueTest {
+    
+    private static final String SELF_CARE = "01_011_0107_1_1";
+    private static final String QUOTABLE = "15_037_0117_1_3";
+    private static final LocalDate FY24 = LocalDate.of(2023, 7, 1);
+    private static final LocalDate FY25 = LocalDate.of(2024, 7, 1);
+    
+    private final PriceCatalogue catalogue = PriceCatalogue.of(List.of(
+        // Listed out of order: versions are sorted by start date when the catalogue is built
+        price(SELF_CARE, "Self-Care 2024-25", FY25, null, 6756, 6890, 9458, 10134),
+        price(SELF_CARE, "Self-Care 2023-24", FY24, FY25.minusDays(1), 6547, 6547, 9166, 9821),
+        price(QUOTABLE, "Quotable support", FY25, null,
+            PriceCatalogue.NO_CAP, PriceCatalogue.NO_CAP, PriceCatalogue.NO_CAP, PriceCatalogue.NO_CAP)));
+    
+    @Test
+    void theVersionInEffectOnTheDateApplies() {
+        assertEquals(6547, catalogue.capCents(SELF_CARE, LocalDate.of(2024, 6, 30), "NSW", Remoteness.STANDARD));
+        assertEquals(6756, catalogue.capCents(SELF_CARE, FY25, "NSW", Remoteness.STANDARD));
+        assertEquals(6756, catalogue.capCents(SELF_CARE, LocalDate.of(2030, 1, 1), "NSW", Remoteness.STANDARD));
+        assertEquals("Self-Care 2024-25", catalogue.name(SELF_CARE));
+    }
+    
+    @Test
+    void theStateLimitAppliesAndAnUnknownStateGetsTheHighest() {
+        assertEquals(6890, catalogue.capCents(SELF_CARE, FY25, "VIC", Remoteness.STANDARD));
+        assertEquals(6890, catalogue.capCents(SELF_CARE, FY25, null, Remoteness.STANDARD));
+        assertEquals(6890, catalogue.capCents(SELF_CARE, FY25, "XYZ", Remoteness.STANDARD));
+    }
+    
+    @Test
+    void remoteAndVeryRemoteLimitsReplaceTheStateLimit() {
+        assertEquals(9458, catalogue.capCents(SELF_CARE, FY25, "NSW", Remoteness.REMOTE));
+        assertEquals(10134, catalogue.capCents(SELF_CARE, FY25, "NSW", Remoteness.VERY_REMOTE));
+    }
+    
+    @Test
+    void aVeryRemoteAreaFallsBackToTheRemoteThenTheStateLimit() {
+        PriceCatalogue remoteOnly = PriceCatalogue.of(List.of(
+            price(SELF_CARE, "Self-Care", FY25, null, 6756, 6890, 9458, PriceCatalogue.NO_CAP)));
+        PriceCatalogue stateOnly = PriceCatalogue.of(List.of(
+            price(SELF_CARE, "Self-Care", FY25, null, 6756, 6890, PriceCatalogue.NO_CAP, PriceCatalogue.NO_CAP)));
+        
+        assertEquals(9458, remoteOnly.capCents(SELF_CARE, FY25, "NSW", Remoteness.VERY_REMOTE));
+        assertEquals(6756, stateOnly.capCents(SELF_CARE, FY25, "NSW", Remoteness.VERY_REMOTE));
+    }
+    
+    @Test
+    void noCapForQuotableUnknownOrNotYetPricedItems() {
+        assertEquals(PriceCatalogue.NO_CAP, catalogue.capCents(QUOTABLE, FY25, "NSW", Remoteness.STANDARD));
+        assertEquals(PriceCatalogue.NO_CAP, catalogue.capCents("99_999_9999_9_9", FY25, "NSW", Remoteness.STANDARD));
+        assertEquals(PriceCatalogue.NO_CAP, catalogue.capCents(SELF_CARE, FY24.minusDays(1), "NSW", Remoteness.STANDARD));
+    }
+    
+    @Test
+    void anItemIsEffectiveOnlyWithinAVersion() {
+        assertTrue(catalogue.isEffective(SELF_CARE, FY24));
+        assertFalse(catalogue.isEffective(SELF_CARE, FY24.minusDays(1)));
+        assertFalse(catalogue.isEffective(QUOTABLE, FY24));
+        assertTrue(catalogue.contains(QUOTABLE));
+        assertEquals(2, catalogue.itemCount());
+        assertEquals(3, catalogue.versionCount());
+    }
+    
+    /**
+     * NSW and VIC limits, the other states unlimited
+     */
+    private static SupportItemPrice price(String item, String name, LocalDate start, LocalDate end,
+                                          int nsw, int vic, int remote, int veryRemote) {
+        int[] caps = new int[PriceCatalogue.SOURCE_ZONES];
+        Arrays.fill(caps, PriceCatalogue.NO_CAP);
+        caps[PriceCatalogue.STATE_CODES.indexOf("NSW")] = nsw;
+        caps[PriceCatalogue.STATE_CODES.indexOf("VIC")] = vic;
+        caps[PriceCatalogue.REMOTE] = remote;
+        caps[PriceCatalogue.VERY_REMOTE] = veryRemote;
+        return new SupportItemPrice(item, name, "H", start, end, caps);
+    }
+}
@@ -0,0 +1,81 @@
+package au.com.primacycare.cms.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reading the support catalogue export: columns by header name, the published date and price
+ * formats, blank limits for quotable supports, and rows that cannot be read
+ */
+public class PriceGuideFileParserTest {
+    
+    private static final String HEADER =
+        "Support Item Number,Support Item Name,Unit,Start Date,End Date,ACT,NSW,NT,QLD,SA,TAS,VIC,WA,Remote,Very Remote\n";
+    
+    @Test
+    void aCatalogueRowIsReadWithItsLimitsInZoneOrder() throws IOException {
+        List<SupportItemPrice> prices = parse(HEADER
+            + "01_011_0107_1_1,Assistance With Self-Care Activities - Standard - Weekday Daytime,H,20240701,20250630,"
+            + "$67.56,$67.56,$67.56,$67.56,$67.56,$67.56,$67.56,$67.56,$94.58,$101.34\n");
+        
+        SupportItemPrice price = prices.get(0);
+        assertEquals("01_011_0107_1_1", price.itemNumber());
+        assertEquals("H", price.unit());
+        assertEquals(LocalDate.of(2024, 7, 1), price.startDate());
+        assertEquals(LocalDate.of(2025, 6, 30), price.endDate());
+        assertArrayEquals(new int[] {6756, 6756, 6756, 6756, 6756, 6756, 6756, 6756, 9458, 10134}, price.zoneCapCents());
+    }
+    
+    @Test
+    void columnOrderAndExtraColumnsDoNotMatter() throws IOException {
+        List<SupportItemPrice> prices = parse("""
+            Registration Group,  start   date ,NSW,Support Item Number,VIC
+            0107,1/7/2024,"$1,234.565",04_104_0125_6_1,12.3
+            """);
+        
+        SupportItemPrice price = prices.get(0);
+        assertEquals("04_104_0125_6_1", price.itemNumber());
+        assertEquals(LocalDate.of(2024, 7, 1), price.startDate());
+        assertNull(price.endDate());
+        assertEquals(123457, price.zoneCapCents()[PriceCatalogue.STATE_CODES.indexOf("NSW")]);
+        assertEquals(1230, price.zoneCapCents()[PriceCatalogue.STATE_CODES.indexOf("VIC")]);
+        assertEquals(PriceCatalogue.NO_CAP, price.zoneCapCents()[PriceCatalogue.STATE_CODES.indexOf("QLD")]);
+        assertEquals(PriceCatalogue.NO_CAP, price.zoneCapCents()[PriceCatalogue.REMOTE]);
+    }
+    
+    @Test
+    void blankLimitsAreNoCapAndRowsWithoutAnItemAreSkipped() throws IOException {
+        List<SupportItemPrice> prices = parse(HEADER
+            + ",Registration group heading,,,,,,,,,,,,,\n"
+            + "15_037_0117_1_3,Quotable support,E,2024-07-01,,,,,,,,,,,\n");
+        
+        assertEquals(1, prices.size());
+        for (int cap : prices.get(0).zoneCapCents()) {
+            assertEquals(PriceCatalogue.NO_CAP, cap);
+        }
+    }
+    
+    @Test
+    void anUnreadableRowNamesTheSourceAndRow() {
+        IllegalArgumentException noStart = assertThrows(IllegalArgumentException.class, () ->
+            parse("Support Item Number,Start Date\n01_011_0107_1_1,20240701\n01_013_0107_1_1,\n"));
+        IllegalArgumentException badPrice = assertThrows(IllegalArgumentException.class, () ->
+            parse("Support Item Number,Start Date,NSW\n01_011_0107_1_1,20240701,N/A\n"));
+        IllegalArgumentException badDate = assertThrows(IllegalArgumentException.class, () ->
+            parse("Support Item Number,Start Date\n01_011_0107_1_1,2024-13-01\n"));
+        
+        assertEquals("catalogue.csv row 3: missing start date", noStart.getMessage());
+        assertEquals("catalogue.csv row 2: invalid price N/A", badPrice.getMessage());
+        assertEquals("catalogue.csv row 2: invalid date 2024-13-01", badDate.getMessage());
+    }
+    
+    private static List<SupportItemPrice> parse(String csv) throws IOException {
+        return PriceGuideFileParser.parse(new StringReader(csv), "catalogue.csv");
+    }
+}
@@ -0,0 +1,103 @@
+package au.com.primacycare.cms.repository;
+
+import au.com.primacycare.cms.dto.CursorPageDto;
+import au.com.primacycare.cms.exception.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cursor tokens round-tripping, rejecting tampered tokens and paging rows fetched with limit + 1
+ */
+public class KeysetCursorTest {
+    
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 3, 5, 14, 30, 15, 123_456_000);
+    
+    @Test
+    void encodeAndDecodeRoundTripToTheMicrosecond() {
+        KeysetCursor cursor = new KeysetCursor(CREATED_AT, "6f1c2a9e-0000-4000-8000-000000000001");
+        
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+    }
+    
+    @Test
+    void timesBeforeTheEpochRoundTrip() {
+        KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1_000), "a");
+        
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+    }
+    
+    @Test
+    void anIdContainingTheSeparatorSurvives() {
+        KeysetCursor cursor = new KeysetCursor(CREATED_AT, "legacy:42");
+        
+        assertEquals("legacy:42", KeysetCursor.decode(cursor.encode()).id());
+    }
+    
+    @Test
+    void tokensAreUrlSafeWithoutPadding() {
+        String token = new KeysetCursor(CREATED_AT, "?>?>").encode();
+        
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+    
+    @Test
+    void missingOrBlankTokenIsTheFirstPage() {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode(""));
+        assertNull(KeysetCursor.decode("  "));
+    }
+    
+    @Test
+    void malformedTokensAreRejectedAsInvalidRequests() {
+        assertThrows(InvalidRequestException.class, () -> KeysetCursor.decode("not base64!"));
+        assertThrows(InvalidRequestException.class, () -> KeysetCursor.decode(token("1709649015123456")));
+        assertThrows(InvalidRequestException.class, () -> KeysetCursor.decode(token("yesterday:abc")));
+    }
+    
+    @Test
+    void anExtraRowMeansAnotherPageStartingAfterTheLastOneShown() {
+        List<Row> rows = List.of(row(3, "c"), row(2, "b"), row(1, "a"));
+        
+        CursorPageDto<String> page = KeysetCursor.toPage(rows, 2, Row::id, Row::createdAt, Row::id);
+        
+        assertEquals(List.of("c", "b"), page.getContent());
+        assertEquals(2, (int) page.getSize());
+        assertTrue(page.getHasNext());
+        assertEquals(row(2, "b").toCursor(), KeysetCursor.decode(page.getNextCursor()));
+    }
+    
+    @Test
+    void aShortPageIsTheLast() {
+        List<Row> rows = List.of(row(2, "b"), row(1, "a"));
+        
+        CursorPageDto<String> full = KeysetCursor.toPage(rows, 2, Row::id, Row::createdAt, Row::id);
+        CursorPageDto<String> empty = KeysetCursor.toPage(List.<Row>of(), 2, Row::id, Row::createdAt, Row::id);
+        
+        assertEquals(List.of("b", "a"), full.getContent());
+        assertFalse(full.getHasNext());
+        assertNull(full.getNextCursor());
+        assertEquals(0, (int) empty.getSize());
+        assertFalse(empty.getHasNext());
+    }
+    
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static Row row(int minute, String id) {
+        return new Row(CREATED_AT.plusMinutes(minute), id);
+    }
+    
+    private record Row(LocalDateTime createdAt, String id) {
+        
+        KeysetCursor toCursor() {
+            return new KeysetCursor(createdAt, id);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package au.com.primacycare.cms.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Overlap, rest-period and conflict-report queries against hand-built shift sets
+ */
+public class StaffShiftIntervalsTest {
+    
+    private static final LocalDate MONDAY = LocalDate.of(2024, 3, 4);
+    private static final int MIN_REST_MINUTES = 11 * 60;
+    
+    @Test
+    void overlapsIntersectingShiftsButNotTouchingOnes() {
+        StaffShiftIntervals intervals = StaffShiftIntervals.of(List.of(
+            shift("a", 0, "09:00", "13:00"),
+            shift("b", 0, "14:00", "18:00")));
+        
+        assertTrue(overlaps(intervals, 0, "12:00", "14:00", null));
+        assertFalse(overlaps(intervals, 0, "13:00", "14:00", null), "shifts are half-open");
+        assertFalse(overlaps(intervals, 0, "08:00", "09:00", null));
+        assertFalse(overlaps(intervals, 0, "18:00", "19:00", null));
+    }
+    
+    @Test
+    void overlapsIgnoresOnlyTheExcludedShift() {
+        StaffShiftIntervals intervals = StaffShiftIntervals.of(List.of(
+            shift("long", 0, "08:00", "20:00"),
+            shift("short", 0, "09:00", "10:00")));
+        
+        assertTrue(overlaps(intervals, 0, "15:00", "16:00", "short"), "the long shift still overlaps");
+        assertFalse(overlaps(intervals, 0, "15:00", "16:00", "long"));
+        assertFalse(overlaps(intervals, 0, "10:00", "11:00", "long"), "touching the short shift only at its end");
+    }
+    
+    @Test
+    void overnightShiftsOverlapTheFollowingMorning() {
+        StaffShiftIntervals intervals = StaffShiftIntervals.of(List.of(shift("night", 0, "22:00", "06:00")));
+        
+        assertTrue(overlaps(intervals, 1, "05:00", "07:00", null));
+        assertFalse(overlaps(intervals, 1, "06:00", "07:00", null));
+    }
+    
+    @Test
+    void restPeriodAppliesToShiftsOnTheDayBefore() {
+        StaffShiftIntervals intervals = StaffShiftIntervals.of(List.of(shift("late", 0, "14:00", "23:00")));
+        
+        assertTrue(violatesRest(intervals, 1, "09:00", "17:00", null), "10 hours after the late shift");
+        assertFalse(violatesRest(intervals, 1, "10:00", "17:00", null), "exactly 11 hours after the late shift");
+        assertFalse(violatesRest(intervals, 1, "09:00", "17:00", "late"));
+    }
+    
+    @Test
+    void restPeriodAppliesToShiftsOnTheDayAfter() {
+        StaffShiftIntervals intervals = StaffShiftIntervals.of(List.of(shift("early", 1, "06:00", "10:00")));
+        
+        assertTrue(violatesRest(intervals, 0, "17:00", "22:00", null), "8 hours before the early shift");
+        assertFalse(violatesRest(intervals, 0, "12:00", "19:00", null), "exactly 11 hours before the early shift");
+    }
+    
+    @Test
+    void splitShiftsOnTheSameDayAreNotSubjectToTheRestPeriod() {
+        StaffShiftIntervals intervals = StaffShiftIntervals.of(List.of(shift("morning", 0, "07:00", "09:00")));
+        
+        assertFalse(violatesRest(intervals, 0, "15:00", "17:00", null));
+        assertFalse(overlaps(intervals, 0, "15:00", "17:00", null));
+    }
+    
+    @Test
+    void withReplacesAShiftOfTheSameIdAndWithoutRemovesIt() {
+        StaffShiftIntervals intervals = StaffShiftIntervals.of(List.of(
+            shift("a", 0, "09:00", "13:00"),
+            shift("b", 0, "14:00", "18:00")));
+        
+        StaffShiftIntervals moved = intervals.with(shift("a", 0, "19:00", "21:00"));
+        assertEquals(2, moved.size());
+        assertFalse(overlaps(moved, 0, "10:00", "12:00", null), "the old slot is free");
+        assertTrue(overlaps(moved, 0, "20:00", "22:00", null));
+        assertTrue(overlaps(intervals, 0, "10:00", "12:00", null), "the original is unchanged");
+        
+        StaffShiftIntervals removed = moved.without("b");
+        assertEquals(1, removed.size());
+        assertFalse(overlaps(removed, 0, "15:00", "16:00", null));
+        assertSame(removed, removed.without("unknown"));
+    }
+    
+    @Test
+    void collectConflictsReportsEachPairOnce() {
+        StaffShiftIntervals intervals = StaffShiftIntervals.of(List.of(
+            shift("a", 0, "09:00", "17:00"),
+            shift("b", 0, "16:00", "20:00"),
+            shift("c", 1, "05:00", "08:00")));
+        
+        List<ShiftConflict> conflicts = new ArrayList<>();
+        intervals.collectConflicts("staff-1", minute(0, "00:00"), minute(2, "00:00"), MIN_REST_MINUTES, conflicts);
+        
+        assertEquals(List.of(
+            new ShiftConflict("staff-1", "a", "b", ShiftConflict.Type.OVERLAP, minute(0, "09:00"), minute(0, "16:00"), -60),
+            new ShiftConflict("staff-1", "b", "c", ShiftConflict.Type.REST_PERIOD, minute(0, "16:00"), minute(1, "05:00"), 540)),
+            conflicts);
+    }
+    
+    @Test
+    void collectConflictsOnlyReportsPairsWithAShiftInTheRange() {
+        StaffShiftIntervals intervals = StaffShiftIntervals.of(List.of(
+            shift("a", 0, "09:00", "17:00"),
+            shift("b", 0, "16:00", "20:00"),
+            shift("c", 1, "05:00", "08:00")));
+        
+        List<ShiftConflict> conflicts = new ArrayList<>();
+        intervals.collectConflicts("staff-1", minute(1, "00:00"), minute(2, "00:00"), MIN_REST_MINUTES, conflicts);
+        
+        assertEquals(List.of("b-c"), conflicts.stream().map(c -> c.shiftId() + "-" + c.conflictingShiftId()).toList());
+    }
+    
+    private static boolean overlaps(StaffShiftIntervals intervals, int day, String start, String end, String excludeShiftId) {
+        ShiftInterval interval = shift(null, day, start, end);
+        return intervals.overlaps(interval.start(), interval.end(), excludeShiftId);
+    }
+    
+    private static boolean violatesRest(StaffShiftIntervals intervals, int day, String start, String end, String excludeShiftId) {
+        ShiftInterval interval = shift(null, day, start, end);
+        return intervals.violatesRest(interval.start(), interval.end(), MIN_REST_MINUTES, excludeShiftId);
+    }
+    
+    private static ShiftInterval shift(String id, int day, String start, String end) {
+        return ShiftInterval.of(id, MONDAY.plusDays(day), LocalTime.parse(start), LocalTime.parse(end));
+    }
+    
+    private static int minute(int day, String time) {
+        return ShiftInterval.epochMinute(MONDAY.plusDays(day), LocalTime.parse(time));
+    }
+}
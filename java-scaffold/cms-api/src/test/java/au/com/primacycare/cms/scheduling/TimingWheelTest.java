@@ -0,0 +1,115 @@
+package au.com.primacycare.cms.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Firing, cascading between levels, cancelling and overdue scheduling on a one-second wheel
+ */
+public class TimingWheelTest {
+    
+    private static final long TICK = 1_000;
+    
+    @Test
+    void firesOnTheFirstTickAtOrAfterTheDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        wheel.schedule("exact", 5 * TICK);
+        wheel.schedule("between", 5 * TICK + 1);
+        
+        assertEquals(List.of(), advance(wheel, 5 * TICK - 1));
+        assertEquals(List.of("exact"), advance(wheel, 5 * TICK));
+        assertEquals(List.of("between"), advance(wheel, 6 * TICK));
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    void timersCascadeDownEachLevelAndFireOnTime() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        long level1 = 100;
+        long level2 = 64 * 64 + 5;
+        long level3 = 64L * 64 * 64 + 1;
+        wheel.schedule("level 1", level1 * TICK);
+        wheel.schedule("level 2", level2 * TICK);
+        wheel.schedule("level 3", level3 * TICK);
+        
+        // Just short of each expiry, then exactly on it, across every level boundary on the way
+        assertEquals(List.of(), advance(wheel, (level1 - 1) * TICK));
+        assertEquals(List.of("level 1"), advance(wheel, level1 * TICK));
+        assertEquals(List.of(), advance(wheel, (level2 - 1) * TICK));
+        assertEquals(List.of("level 2"), advance(wheel, level2 * TICK));
+        assertEquals(List.of(), advance(wheel, (level3 - 1) * TICK));
+        assertEquals(List.of("level 3"), advance(wheel, level3 * TICK));
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    void timersSharingASlotAcrossRotationsFireInTheirOwnRotation() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        wheel.schedule("first", 3 * TICK);
+        wheel.schedule("next rotation", 67 * TICK);
+        
+        assertEquals(List.of("first"), advance(wheel, 3 * TICK));
+        assertEquals(List.of(), advance(wheel, 66 * TICK));
+        assertEquals(List.of("next rotation"), advance(wheel, 67 * TICK));
+    }
+    
+    @Test
+    void advancingFarFiresEverythingDueOnce() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        wheel.schedule("a", TICK);
+        wheel.schedule("b", 64 * TICK);
+        wheel.schedule("c", 4096 * TICK);
+        wheel.schedule("later", 10_000 * TICK);
+        
+        List<String> fired = advance(wheel, 5_000 * TICK);
+        
+        assertEquals(List.of("a", "b", "c"), fired);
+        assertEquals(1, wheel.size());
+    }
+    
+    @Test
+    void cancelledTimersNeverFire() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        TimingWheel.Timer<String> soon = wheel.schedule("soon", 10 * TICK);
+        TimingWheel.Timer<String> cascaded = wheel.schedule("cascaded", 100 * TICK);
+        TimingWheel.Timer<String> kept = wheel.schedule("kept", 10 * TICK);
+        
+        assertTrue(wheel.cancel(soon));
+        assertFalse(soon.isPending());
+        assertFalse(wheel.cancel(soon), "already cancelled");
+        
+        // By tick 64 the level 1 timer has moved down to level 0
+        assertEquals(List.of("kept"), advance(wheel, 64 * TICK));
+        assertTrue(cascaded.isPending());
+        assertTrue(wheel.cancel(cascaded));
+        
+        assertEquals(List.of(), advance(wheel, 200 * TICK));
+        assertEquals(0, wheel.size());
+        assertFalse(wheel.cancel(kept), "already fired");
+    }
+    
+    @Test
+    void overdueDeadlinesFireOnTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        advance(wheel, 10 * TICK);
+        wheel.schedule("past", 3 * TICK);
+        wheel.schedule("now", 10 * TICK);
+        
+        assertEquals(List.of(), advance(wheel, 11 * TICK - 1));
+        List<String> fired = advance(wheel, 11 * TICK);
+        
+        assertEquals(2, fired.size());
+        assertTrue(fired.containsAll(List.of("past", "now")));
+    }
+    
+    private static List<String> advance(TimingWheel<String> wheel, long nowMillis) {
+        List<String> fired = new ArrayList<>();
+        int count = wheel.advanceTo(nowMillis, fired::add);
+        assertEquals(fired.size(), count);
+        return fired;
+    }
+}
@@ -0,0 +1,155 @@
+package au.com.primacycare.cms.service;
+
+import au.com.primacycare.cms.event.ShiftChangedEvent;
+import au.com.primacycare.cms.repository.StaffMetricsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The counter and daily hour deltas each kind of shift change applies, and evicting cached staff
+ * pages once the change commits
+ */
+public class StaffMetricsUpdaterTest {
+    
+    private static final String STAFF = "staff-1";
+    private static final String OTHER_STAFF = "staff-2";
+    private static final LocalDate MONDAY = LocalDate.of(2024, 8, 12);
+    
+    private final RecordingRepository repository = new RecordingRepository();
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("staff");
+    private final StaffMetricsUpdater updater = new StaffMetricsUpdater(repository, cacheManager);
+    
+    @Test
+    void aNewScheduledShiftCountsButAddsNoHours() {
+        updater.onShiftChanged(new ShiftChangedEvent("s1", null, state(STAFF, MONDAY, "Scheduled", "4.00")));
+        
+        assertEquals(List.of("counts staff-1 +1 +0"), repository.calls);
+    }
+    
+    @Test
+    void completingAShiftMovesItsCountAndAddsItsHours() {
+        updater.onShiftChanged(new ShiftChangedEvent("s1",
+            state(STAFF, MONDAY, "Scheduled", "4.00"), state(STAFF, MONDAY, "Completed", "3.75")));
+        
+        assertEquals(List.of(
+            "counts staff-1 -1 +0",
+            "counts staff-1 +0 +1",
+            "hours staff-1 2024-08-12 3.75 +1"), repository.calls);
+    }
+    
+    @Test
+    void cancellingACompletedShiftTakesItsHoursBackOff() {
+        updater.onShiftChanged(new ShiftChangedEvent("s1",
+            state(STAFF, MONDAY, "Completed", "3.75"), state(STAFF, MONDAY, "Cancelled", "3.75")));
+        
+        assertEquals(List.of(
+            "counts staff-1 +0 -1",
+            "hours staff-1 2024-08-12 -3.75 -1"), repository.calls);
+    }
+    
+    @Test
+    void reassigningACompletedShiftMovesItsHoursToTheNewStaffMember() {
+        updater.onShiftChanged(new ShiftChangedEvent("s1",
+            state(STAFF, MONDAY, "Completed", "2.00"), state(OTHER_STAFF, MONDAY.plusDays(1), "Completed", "2.00")));
+        
+        assertEquals(List.of(
+            "counts staff-1 +0 -1",
+            "hours staff-1 2024-08-12 -2.00 -1",
+            "counts staff-2 +0 +1",
+            "hours staff-2 2024-08-13 2.00 +1"), repository.calls);
+    }
+    
+    @Test
+    void aCompletedShiftWithoutHoursStillCountsAsAShiftThatDay() {
+        updater.onShiftChanged(new ShiftChangedEvent("s1", null, state(STAFF, MONDAY, "Completed", null)));
+        
+        assertEquals(List.of("counts staff-1 +0 +1", "hours staff-1 2024-08-12 0 +1"), repository.calls);
+    }
+    
+    @Test
+    void reschedulingWithinTheDayChangesNothing() {
+        ShiftChangedEvent.State morning = state(STAFF, MONDAY, "Scheduled", "4.00");
+        ShiftChangedEvent.State afternoon = new ShiftChangedEvent.State(STAFF, "participant-1", MONDAY,
+            LocalTime.of(13, 0), LocalTime.of(17, 0), "Scheduled", new BigDecimal("4.00"));
+        Cache cache = cacheManager.getCache("staff");
+        cache.put("0-20-all", "page");
+        
+        updater.onShiftChanged(new ShiftChangedEvent("s1", morning, afternoon));
+        
+        assertEquals(List.of(), repository.calls);
+        assertNotNull(cache.get("0-20-all"));
+    }
+    
+    @Test
+    void unassignedAndCancelledShiftsAreNotCounted() {
+        updater.onShiftChanged(new ShiftChangedEvent("s1", null, state(null, MONDAY, "Completed", "4.00")));
+        updater.onShiftChanged(new ShiftChangedEvent("s2", null, state(STAFF, MONDAY, "Cancelled", "4.00")));
+        
+        assertEquals(List.of(), repository.calls);
+    }
+    
+    @Test
+    void staffPagesAreEvictedOnlyOnceTheChangeCommits() {
+        Cache cache = cacheManager.getCache("staff");
+        cache.put("0-20-all", "page");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            updater.onShiftChanged(new ShiftChangedEvent("s1", null, state(STAFF, MONDAY, "Completed", "4.00")));
+            assertNotNull(cache.get("0-20-all"));
+            
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        
+        assertNull(cache.get("0-20-all"));
+    }
+    
+    @Test
+    void outsideATransactionStaffPagesAreEvictedAtOnce() {
+        Cache cache = cacheManager.getCache("staff");
+        cache.put("0-20-all", "page");
+        
+        updater.evictStaffPages();
+        
+        assertNull(cache.get("0-20-all"));
+    }
+    
+    private static ShiftChangedEvent.State state(String staffId, LocalDate date, String status, String hours) {
+        return new ShiftChangedEvent.State(staffId, "participant-1", date, LocalTime.of(9, 0), LocalTime.of(13, 0),
+            status, hours != null ? new BigDecimal(hours) : null);
+    }
+    
+    /**
+     * Deltas in the order they were written
+     */
+    private static final class RecordingRepository extends StaffMetricsRepository {
+        
+        final List<String> calls = new ArrayList<>();
+        
+        RecordingRepository() {
+            super(null);
+        }
+        
+        @Override
+        public void addCounts(String staffId, int scheduled, int completed) {
+            calls.add("counts %s %+d %+d".formatted(staffId, scheduled, completed));
+        }
+        
+        @Override
+        public void addHours(String staffId, LocalDate workDate, BigDecimal hours, int shifts) {
+            calls.add("hours %s %s %s %+d".formatted(staffId, workDate, hours.toPlainString(), shifts));
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package au.com.primacycare.cms.workflow;
+
+import au.com.primacycare.cms.dto.ReferralDto;
+import au.com.primacycare.cms.dto.ReferralFunnelDto;
+import au.com.primacycare.cms.repository.ReferralFunnelRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Funnel totals by segment, tailing history behind the oldest running transaction, resuming a
+ * failed read and restoring from a snapshot, against an in-memory history
+ */
+public class ReferralFunnelAggregatorTest {
+    
+    private static final LocalDateTime RECEIVED_AT = LocalDateTime.of(2024, 8, 1, 9, 0);
+    private static final LocalDateTime VERIFIED_AT = RECEIVED_AT.plusMinutes(90);
+    
+    private final FakeHistory history = new FakeHistory();
+    
+    @Test
+    void countsTransitionsAndTimeInStageForEverySegmentRollUp() {
+        history.received(10, "a", "Hospital", "High - Within 48 hours", "r1");
+        history.verified(11, "a", "Hospital", "High - Within 48 hours", "r1");
+        history.received(12, "b", "GP", null, null);
+        history.horizon = 13;
+        ReferralFunnelAggregator aggregator = started();
+        
+        ReferralFunnelDto.Stage received = stage(aggregator.funnel(null, null, null), ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED);
+        assertEquals(2, received.getEntered());
+        assertEquals(1, received.getAdvanced());
+        assertEquals(1, received.getCurrent());
+        assertEquals(1, received.getCompletedVisits());
+        assertEquals(90, received.getMedianMinutes());
+        assertEquals(90, received.getMaxMinutes());
+        ReferralFunnelDto.Stage verified = stage(aggregator.funnel(null, null, null), ReferralDto.WorkflowStageEnum.DATA_VERIFIED);
+        assertEquals(1, verified.getEntered());
+        assertEquals(0.5, verified.getConversionRate());
+        
+        assertEquals(1, stage(aggregator.funnel(" HOSPITAL ", null, null), ReferralDto.WorkflowStageEnum.DATA_VERIFIED).getEntered());
+        assertEquals(0, stage(aggregator.funnel("gp", null, null), ReferralDto.WorkflowStageEnum.DATA_VERIFIED).getEntered());
+        assertEquals(1, stage(aggregator.funnel(null, ReferralDto.UrgencyEnum.LOW, "unassigned"),
+            ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED).getEntered());
+        assertEquals(1, stage(aggregator.funnel("hospital", ReferralDto.UrgencyEnum.HIGH, "r1"),
+            ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED).getEntered());
+        assertEquals(VERIFIED_AT, aggregator.funnel(null, null, null).getAsOf());
+    }
+    
+    @Test
+    void historyOfATransactionStillRunningIsReadOnceItFinishes() {
+        history.received(20, "late", "GP", null, null);
+        // Transaction 15 started first and is still running: nothing from 15 up is final yet
+        history.horizon = 15;
+        ReferralFunnelAggregator aggregator = started();
+        assertEquals(0, entered(aggregator, ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED));
+        
+        // 15 commits a row older than the one already waiting, and every transaction finishes
+        history.received(15, "early", "GP", null, null);
+        history.horizon = 21;
+        aggregator.refresh();
+        assertEquals(2, entered(aggregator, ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED));
+        
+        aggregator.refresh();
+        assertEquals(2, entered(aggregator, ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED));
+    }
+    
+    @Test
+    void aReadThatFailsPartWayResumesAfterTheLastRowApplied() {
+        ReferralFunnelAggregator aggregator = started();
+        history.received(30, "a", "GP", null, null);
+        history.received(30, "b", "GP", null, null);
+        history.received(31, "c", "GP", null, null);
+        history.horizon = 32;
+        history.failAfter = 2;
+        
+        assertThrows(IllegalStateException.class, aggregator::refresh);
+        assertEquals(2, entered(aggregator, ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED));
+        history.failAfter = Integer.MAX_VALUE;
+        aggregator.refresh();
+        
+        assertEquals(3, entered(aggregator, ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED));
+    }
+    
+    @Test
+    void aRestoredSnapshotOnlyReplaysHistoryWrittenSince() {
+        history.received(40, "a", "Hospital", "Medium", "r2");
+        history.verified(41, "a", "Hospital", "Medium", "r2");
+        history.horizon = 42;
+        ReferralFunnelAggregator first = started();
+        first.snapshot();
+        assertNotNull(history.snapshot);
+        
+        history.received(42, "b", "Hospital", "Medium", "r2");
+        history.horizon = 43;
+        history.streamed = 0;
+        ReferralFunnelAggregator restarted = started();
+        
+        assertEquals(1, history.streamed);
+        ReferralFunnelDto.Stage received = stage(restarted.funnel("hospital", ReferralDto.UrgencyEnum.MEDIUM, "r2"),
+            ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED);
+        assertEquals(2, received.getEntered());
+        assertEquals(1, received.getCompletedVisits());
+        assertEquals(90, received.getMaxMinutes());
+    }
+    
+    @Test
+    void anUnreadableSnapshotFallsBackToReplayingAllHistory() {
+        history.received(50, "a", "GP", null, null);
+        history.horizon = 51;
+        history.snapshot = new ReferralFunnelRepository.Snapshot(RECEIVED_AT, new byte[] {1, 2, 3});
+        
+        ReferralFunnelAggregator aggregator = started();
+        
+        assertEquals(1, entered(aggregator, ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED));
+    }
+    
+    private ReferralFunnelAggregator aggregator() {
+        return new ReferralFunnelAggregator(history, new NoOpTransactionManager(), new SimpleMeterRegistry(), 3);
+    }
+    
+    private ReferralFunnelAggregator started() {
+        ReferralFunnelAggregator aggregator = aggregator();
+        aggregator.onStartup();
+        return aggregator;
+    }
+    
+    private static long entered(ReferralFunnelAggregator aggregator, ReferralDto.WorkflowStageEnum stage) {
+        return stage(aggregator.funnel(null, null, null), stage).getEntered();
+    }
+    
+    private static ReferralFunnelDto.Stage stage(ReferralFunnelDto funnel, ReferralDto.WorkflowStageEnum stage) {
+        return funnel.getStages().get(stage.ordinal());
+    }
+    
+    /**
+     * Committed history and the latest snapshot, read the way the repository's queries read them
+     */
+    private static final class FakeHistory extends ReferralFunnelRepository {
+        
+        final List<HistoryRow> rows = new ArrayList<>();
+        long horizon;
+        int failAfter = Integer.MAX_VALUE;
+        int streamed;
+        Snapshot snapshot;
+        
+        FakeHistory() {
+            super(null, null);
+        }
+        
+        void received(long xactId, String workflowId, String source, String urgency, String regionId) {
+            rows.add(new HistoryRow(new Position(xactId, workflowId + "-0"), workflowId, 0, null,
+                ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED, RECEIVED_AT, null, source, urgency, regionId));
+        }
+        
+        void verified(long xactId, String workflowId, String source, String urgency, String regionId) {
+            rows.add(new HistoryRow(new Position(xactId, workflowId + "-1"), workflowId, 1,
+                ReferralDto.WorkflowStageEnum.REFERRAL_RECEIVED, ReferralDto.WorkflowStageEnum.DATA_VERIFIED,
+                VERIFIED_AT, RECEIVED_AT, source, urgency, regionId));
+        }
+        
+        @Override
+        public long currentHorizon() {
+            return horizon;
+        }
+        
+        @Override
+        public void streamHistory(Position after, long horizon, Consumer<HistoryRow> handler) {
+            int sent = 0;
+            for (HistoryRow row : rows.stream().sorted(Comparator
+                    .comparingLong((HistoryRow row) -> row.position().xactId())
+                    .thenComparing(row -> row.position().id())).toList()) {
+                Position position = row.position();
+                boolean isAfter = position.xactId() > after.xactId()
+                    || position.xactId() == after.xactId() && (after.id() == null || position.id().compareTo(after.id()) > 0);
+                if (!isAfter || position.xactId() >= horizon) {
+                    continue;
+                }
+                if (sent++ == failAfter) {
+                    throw new IllegalStateException("Connection lost");
+                }
+                streamed++;
+                handler.accept(row);
+            }
+        }
+        
+        @Override
+        public Optional<Snapshot> findLatestSnapshot() {
+            return Optional.ofNullable(snapshot);
+        }
+        
+        @Override
+        public void saveSnapshot(LocalDateTime watermark, int segments, byte[] payload, int keep) {
+            snapshot = new Snapshot(watermark, payload);
+        }
+    }
+    
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+        
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+        
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+        
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
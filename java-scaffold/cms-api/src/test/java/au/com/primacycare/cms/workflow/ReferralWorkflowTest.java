@@ -0,0 +1,87 @@
+package au.com.primacycare.cms.workflow;
+
+import au.com.primacycare.cms.dto.ReferralDto.WorkflowStageEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReferralWorkflowTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WorkflowStateMachine<WorkflowStageEnum> machine = new ReferralWorkflow(meterRegistry).machine();
+    
+    @Test
+    void everyStageMovesForwardOneAtATime() {
+        WorkflowStageEnum[] stages = WorkflowStageEnum.values();
+        for (int i = 0; i + 1 < stages.length; i++) {
+            assertNull(machine.check(transition(stages[i], stages[i + 1], null)), stages[i] + " to " + stages[i + 1]);
+        }
+        assertEquals(EnumSet.noneOf(WorkflowStageEnum.class), machine.targets(WorkflowStageEnum.SERVICE_COMMENCED));
+    }
+    
+    @Test
+    void stagesCannotBeSkipped() {
+        assertEquals("Cannot move from REFERRAL_RECEIVED to SERVICE_AGREEMENT_PREPARED",
+            machine.check(transition(WorkflowStageEnum.REFERRAL_RECEIVED, WorkflowStageEnum.SERVICE_AGREEMENT_PREPARED, null)));
+        assertEquals("Cannot move from FUNDING_VERIFIED to SERVICE_COMMENCED",
+            machine.check(transition(WorkflowStageEnum.FUNDING_VERIFIED, WorkflowStageEnum.SERVICE_COMMENCED, null)));
+    }
+    
+    @Test
+    void onlyTheDeclaredWaysBackAreAllowed() {
+        assertEquals(EnumSet.of(WorkflowStageEnum.AGREEMENT_SIGNED, WorkflowStageEnum.SERVICE_AGREEMENT_PREPARED),
+            machine.targets(WorkflowStageEnum.AGREEMENT_SENT));
+        assertEquals(EnumSet.of(WorkflowStageEnum.FUNDING_VERIFIED, WorkflowStageEnum.SERVICE_AGREEMENT_PREPARED),
+            machine.targets(WorkflowStageEnum.FUNDING_VERIFICATION));
+        assertEquals(EnumSet.of(WorkflowStageEnum.MEET_GREET_COMPLETED, WorkflowStageEnum.WORKER_ALLOCATED),
+            machine.targets(WorkflowStageEnum.MEET_GREET_SCHEDULED));
+        assertEquals(EnumSet.of(WorkflowStageEnum.SERVICE_COMMENCED, WorkflowStageEnum.STAFF_ALLOCATION),
+            machine.targets(WorkflowStageEnum.MEET_GREET_COMPLETED));
+        
+        assertEquals("Cannot move from DATA_VERIFIED to REFERRAL_RECEIVED",
+            machine.check(transition(WorkflowStageEnum.DATA_VERIFIED, WorkflowStageEnum.REFERRAL_RECEIVED, "Wrong participant")));
+        assertEquals("Cannot move from SERVICE_COMMENCED to MEET_GREET_COMPLETED",
+            machine.check(transition(WorkflowStageEnum.SERVICE_COMMENCED, WorkflowStageEnum.MEET_GREET_COMPLETED, "Cancelled")));
+    }
+    
+    @Test
+    void goingBackNeedsNotes() {
+        Transition<WorkflowStageEnum> withoutNotes =
+            transition(WorkflowStageEnum.WORKER_ALLOCATED, WorkflowStageEnum.STAFF_ALLOCATION, null);
+        Transition<WorkflowStageEnum> blankNotes =
+            transition(WorkflowStageEnum.WORKER_ALLOCATED, WorkflowStageEnum.STAFF_ALLOCATION, "  ");
+        Transition<WorkflowStageEnum> withNotes =
+            transition(WorkflowStageEnum.WORKER_ALLOCATED, WorkflowStageEnum.STAFF_ALLOCATION, "Worker unavailable");
+        
+        assertEquals("Notes are required to move back to STAFF_ALLOCATION", machine.check(withoutNotes));
+        assertEquals("Notes are required to move back to STAFF_ALLOCATION", machine.check(blankNotes));
+        assertNull(machine.check(withNotes));
+    }
+    
+    @Test
+    void goingForwardNeedsNoNotes() {
+        assertNull(machine.check(transition(WorkflowStageEnum.STAFF_ALLOCATION, WorkflowStageEnum.WORKER_ALLOCATED, null)));
+    }
+    
+    @Test
+    void firingCountsTheStageEntered() {
+        machine.fire(transition(WorkflowStageEnum.REFERRAL_RECEIVED, WorkflowStageEnum.DATA_VERIFIED, null));
+        machine.fire(transition(WorkflowStageEnum.AGREEMENT_SENT, WorkflowStageEnum.SERVICE_AGREEMENT_PREPARED, "Revised"));
+        machine.fire(transition(WorkflowStageEnum.FUNDING_VERIFICATION, WorkflowStageEnum.SERVICE_AGREEMENT_PREPARED, "Not covered"));
+        
+        assertEquals(1.0, entered(WorkflowStageEnum.DATA_VERIFIED));
+        assertEquals(2.0, entered(WorkflowStageEnum.SERVICE_AGREEMENT_PREPARED));
+        assertEquals(0.0, entered(WorkflowStageEnum.SERVICE_COMMENCED));
+    }
+    
+    private double entered(WorkflowStageEnum stage) {
+        return meterRegistry.get("cms.workflow.transitions").tag("stage", stage.name()).counter().count();
+    }
+    
+    private static Transition<WorkflowStageEnum> transition(WorkflowStageEnum from, WorkflowStageEnum to, String notes) {
+        return new Transition<>("referral-1", from, to, "user-1", notes, false);
+    }
+}
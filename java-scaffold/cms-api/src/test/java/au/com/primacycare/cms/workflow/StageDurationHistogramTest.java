@@ -0,0 +1,167 @@
+package au.com.primacycare.cms.workflow;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bucket boundaries, percentiles to within a bucket, merging and the snapshot encoding
+ */
+public class StageDurationHistogramTest {
+    
+    @Test
+    void valuesBelowEightHaveABucketEach() {
+        for (int value = 0; value < 8; value++) {
+            int index = StageDurationHistogram.index(value);
+            assertEquals(value, index);
+            assertEquals(value, StageDurationHistogram.lowest(index));
+            assertEquals(1, StageDurationHistogram.width(index));
+        }
+    }
+    
+    @Test
+    void everyValueFallsInItsBucketWithinAnEighth() {
+        int previous = -1;
+        for (long value = 0; value <= StageDurationHistogram.MAX_TRACKED; value += 1 + value / 97) {
+            int index = StageDurationHistogram.index(value);
+            long lowest = StageDurationHistogram.lowest(index);
+            long width = StageDurationHistogram.width(index);
+            
+            assertTrue(lowest <= value && value < lowest + width, value + " outside bucket " + index);
+            assertTrue(value < 8 || width * 8 <= lowest, "bucket " + index + " wider than an eighth");
+            assertTrue(index >= previous, "bucket index went down at " + value);
+            previous = index;
+        }
+        assertEquals(StageDurationHistogram.BUCKETS - 1, StageDurationHistogram.index(StageDurationHistogram.MAX_TRACKED));
+    }
+    
+    @Test
+    void bucketsAreContiguous() {
+        for (int index = 1; index < StageDurationHistogram.BUCKETS; index++) {
+            assertEquals(StageDurationHistogram.lowest(index - 1) + StageDurationHistogram.width(index - 1),
+                StageDurationHistogram.lowest(index), "bucket " + index);
+        }
+    }
+    
+    @Test
+    void percentilesAreTheMiddleOfTheirBucketAndNeverAboveTheMax() {
+        StageDurationHistogram histogram = new StageDurationHistogram();
+        for (int minutes = 1; minutes <= 100; minutes++) {
+            histogram.record(minutes);
+        }
+        
+        assertEquals(100, histogram.count());
+        assertEquals(51, histogram.mean());
+        assertEquals(100, histogram.max());
+        assertEquals(1, histogram.percentile(0));
+        // 50 is in [48, 52), 90 in [88, 96), 99 in [96, 104) capped at the max
+        assertEquals(50, histogram.percentile(50));
+        assertEquals(92, histogram.percentile(90));
+        assertEquals(100, histogram.percentile(99));
+        assertEquals(100, histogram.percentile(100));
+    }
+    
+    @Test
+    void emptyHistogramReportsZero() {
+        StageDurationHistogram histogram = new StageDurationHistogram();
+        
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.mean());
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(0, histogram.max());
+    }
+    
+    @Test
+    void negativeDurationsCountAsZeroAndHugeOnesShareTheTopBucket() {
+        StageDurationHistogram histogram = new StageDurationHistogram();
+        histogram.record(-5);
+        histogram.record(StageDurationHistogram.MAX_TRACKED * 4);
+        
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(StageDurationHistogram.MAX_TRACKED * 4, histogram.max());
+        int top = StageDurationHistogram.BUCKETS - 1;
+        assertEquals(StageDurationHistogram.lowest(top) + StageDurationHistogram.width(top) / 2, histogram.percentile(100));
+    }
+    
+    @Test
+    void addingHistogramsMatchesRecordingIntoOne() {
+        StageDurationHistogram left = new StageDurationHistogram();
+        StageDurationHistogram right = new StageDurationHistogram();
+        StageDurationHistogram all = new StageDurationHistogram();
+        for (long minutes = 0; minutes < 5_000; minutes += 7) {
+            (minutes % 2 == 0 ? left : right).record(minutes);
+            all.record(minutes);
+        }
+        left.add(right);
+        
+        assertEquals(all.count(), left.count());
+        assertEquals(all.mean(), left.mean());
+        assertEquals(all.max(), left.max());
+        for (int percentile = 0; percentile <= 100; percentile += 5) {
+            assertEquals(all.percentile(percentile), left.percentile(percentile), "p" + percentile);
+        }
+    }
+    
+    @Test
+    void writeAndReadRoundTrip() throws IOException {
+        StageDurationHistogram histogram = new StageDurationHistogram();
+        for (long minutes : new long[] {0, 3, 3, 90, 1_440, 20_160, StageDurationHistogram.MAX_TRACKED + 1}) {
+            histogram.record(minutes);
+        }
+        
+        StageDurationHistogram read = StageDurationHistogram.read(input(output -> histogram.write(output)));
+        
+        assertEquals(histogram.count(), read.count());
+        assertEquals(histogram.mean(), read.mean());
+        assertEquals(histogram.max(), read.max());
+        for (int percentile = 0; percentile <= 100; percentile += 10) {
+            assertEquals(histogram.percentile(percentile), read.percentile(percentile), "p" + percentile);
+        }
+    }
+    
+    @Test
+    void readRejectsABucketOutOfRange() {
+        assertThrows(IOException.class, () -> StageDurationHistogram.read(input(output -> {
+            StageDurationHistogram.writeVarLong(output, 1);
+            StageDurationHistogram.writeVarLong(output, 1);
+            StageDurationHistogram.writeVarLong(output, 1);
+            StageDurationHistogram.writeVarLong(output, 1);
+            output.writeByte(StageDurationHistogram.BUCKETS);
+            StageDurationHistogram.writeVarLong(output, 1);
+        })));
+    }
+    
+    @Test
+    void varLongsRoundTripInAsFewBytesAsTheyNeed() throws IOException {
+        long[] values = {0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE, Long.MAX_VALUE, -1};
+        int[] sizes = {1, 1, 1, 2, 2, 3, 5, 9, 10};
+        for (int i = 0; i < values.length; i++) {
+            long value = values[i];
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            StageDurationHistogram.writeVarLong(new DataOutputStream(bytes), value);
+            
+            assertEquals(sizes[i], bytes.size(), "bytes for " + value);
+            assertEquals(value, StageDurationHistogram.readVarLong(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+        }
+    }
+    
+    private static DataInputStream input(Writer writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            writer.write(output);
+        }
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+    
+    @FunctionalInterface
+    private interface Writer {
+        void write(DataOutputStream output) throws IOException;
+    }
+}
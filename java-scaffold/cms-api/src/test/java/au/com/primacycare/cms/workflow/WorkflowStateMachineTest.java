@@ -0,0 +1,105 @@
+package au.com.primacycare.cms.workflow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkflowStateMachineTest {
+    
+    private enum Stage { DRAFT, REVIEW, APPROVED, CLOSED }
+    
+    @Test
+    void allowForwardPermitsOnlyTheNextStage() {
+        WorkflowStateMachine<Stage> machine = WorkflowStateMachine.builder(Stage.class).allowForward().build();
+        
+        assertTrue(machine.canTransition(Stage.DRAFT, Stage.REVIEW));
+        assertTrue(machine.canTransition(Stage.APPROVED, Stage.CLOSED));
+        assertFalse(machine.canTransition(Stage.DRAFT, Stage.APPROVED));
+        assertFalse(machine.canTransition(Stage.REVIEW, Stage.DRAFT));
+        assertEquals(Set.of(), machine.targets(Stage.CLOSED));
+    }
+    
+    @Test
+    void allowAddsTargetsAlongsideForwardOnes() {
+        WorkflowStateMachine<Stage> machine = WorkflowStateMachine.builder(Stage.class)
+            .allowForward()
+            .allow(Stage.APPROVED, Stage.DRAFT, Stage.REVIEW)
+            .build();
+        
+        assertEquals(EnumSet.of(Stage.DRAFT, Stage.REVIEW, Stage.CLOSED), machine.targets(Stage.APPROVED));
+        assertEquals(EnumSet.of(Stage.REVIEW), machine.targets(Stage.DRAFT));
+    }
+    
+    @Test
+    void checkRefusesTheCurrentStageAndTransitionsNotInTheTable() {
+        WorkflowStateMachine<Stage> machine = WorkflowStateMachine.builder(Stage.class).allowForward().build();
+        
+        assertNull(machine.check(transition(Stage.DRAFT, Stage.REVIEW, null)));
+        assertEquals("Already at REVIEW", machine.check(transition(Stage.REVIEW, Stage.REVIEW, null)));
+        assertEquals("Cannot move from DRAFT to CLOSED", machine.check(transition(Stage.DRAFT, Stage.CLOSED, null)));
+    }
+    
+    @Test
+    void guardsRunInRegistrationOrderForTheStageEntered() {
+        List<String> checked = new ArrayList<>();
+        WorkflowStateMachine<Stage> machine = WorkflowStateMachine.builder(Stage.class)
+            .allowForward()
+            .guardAll(transition -> {
+                checked.add("all");
+                return null;
+            })
+            .guard(Stage.APPROVED, transition -> {
+                checked.add("approved");
+                return transition.notes() == null ? "Approval needs notes" : null;
+            })
+            .build();
+        
+        assertNull(machine.check(transition(Stage.DRAFT, Stage.REVIEW, null)));
+        assertEquals(List.of("all"), checked);
+        
+        checked.clear();
+        assertEquals("Approval needs notes", machine.check(transition(Stage.REVIEW, Stage.APPROVED, null)));
+        assertEquals(List.of("all", "approved"), checked);
+        assertNull(machine.check(transition(Stage.REVIEW, Stage.APPROVED, "Checked")));
+    }
+    
+    @Test
+    void guardsAreNotConsultedForTransitionsNotInTheTable() {
+        WorkflowStateMachine<Stage> machine = WorkflowStateMachine.builder(Stage.class)
+            .allowForward()
+            .guardAll(transition -> fail("guard consulted"))
+            .build();
+        
+        assertEquals("Cannot move from CLOSED to DRAFT", machine.check(transition(Stage.CLOSED, Stage.DRAFT, null)));
+    }
+    
+    @Test
+    void fireRunsTheActionsOfTheStageEntered() {
+        List<String> fired = new ArrayList<>();
+        WorkflowStateMachine<Stage> machine = WorkflowStateMachine.builder(Stage.class)
+            .allowForward()
+            .onEnter(Stage.CLOSED, transition -> fired.add("closed " + transition.subjectId()))
+            .onEnterAny(transition -> fired.add("any " + transition.to()))
+            .build();
+        
+        machine.fire(transition(Stage.DRAFT, Stage.REVIEW, null));
+        machine.fire(transition(Stage.APPROVED, Stage.CLOSED, null));
+        
+        assertEquals(List.of("any REVIEW", "closed subject-1", "any CLOSED"), fired);
+    }
+    
+    @Test
+    void backwardIsAnyMoveToAnEarlierStage() {
+        assertTrue(WorkflowStateMachine.isBackward(transition(Stage.APPROVED, Stage.DRAFT, null)));
+        assertFalse(WorkflowStateMachine.isBackward(transition(Stage.DRAFT, Stage.APPROVED, null)));
+    }
+    
+    private static Transition<Stage> transition(Stage from, Stage to, String notes) {
+        return new Transition<>("subject-1", from, to, "user-1", notes, false);
+    }
+}